@@ -0,0 +1,64 @@
+package liquibase.ext.hibernate.benchmark;
+
+import liquibase.database.Database;
+import liquibase.diff.DiffGeneratorFactory;
+import liquibase.diff.DiffResult;
+import liquibase.diff.output.DiffOutputControl;
+import liquibase.diff.output.changelog.DiffToChangeLog;
+import liquibase.ext.hibernate.database.HibernateDatabase;
+import liquibase.serializer.core.xml.XMLChangeLogSerializer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures writing the changelog creating the whole model, from a diff against an empty database computed beforehand.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ChangeLogBenchmark extends ModelState {
+
+    @Param({"classic"})
+    public String kind;
+
+    private Database targetDatabase;
+    private DiffResult diffResult;
+
+    @Override
+    protected void prepare() throws Exception {
+        targetDatabase = openInMemoryDatabase();
+        HibernateDatabase hibernateDatabase = openHibernateDatabase(kind, targetDatabase);
+        diffResult = DiffGeneratorFactory.getInstance().compare(hibernateDatabase, targetDatabase, DiffBenchmark.createCompareControl());
+    }
+
+    @Override
+    protected void release() throws Exception {
+        if (targetDatabase != null) {
+            targetDatabase.close();
+        }
+    }
+
+    @Benchmark
+    public int generateChangeLog() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        PrintStream printStream = new PrintStream(out, true, "UTF-8");
+        new DiffToChangeLog(diffResult, new DiffOutputControl(false, false, false, null)).print(printStream, new XMLChangeLogSerializer());
+        printStream.close();
+        return out.size();
+    }
+}
@@ -0,0 +1,36 @@
+package liquibase.ext.hibernate.benchmark;
+
+import liquibase.ext.hibernate.database.HibernateDatabase;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures building the hibernate configuration of the model through each kind of hibernate database, which is what opening
+ * the database does.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ConfigurationBenchmark extends ModelState {
+
+    @Param({"classic", "ejb3", "jpa", "spring"})
+    public String kind;
+
+    @Benchmark
+    public HibernateDatabase buildConfiguration() throws Exception {
+        return openHibernateDatabase(kind);
+    }
+}
@@ -0,0 +1,93 @@
+package liquibase.ext.hibernate.benchmark;
+
+import liquibase.changelog.ChangeSet;
+import liquibase.changelog.DatabaseChangeLog;
+import liquibase.database.Database;
+import liquibase.diff.DiffGeneratorFactory;
+import liquibase.diff.DiffResult;
+import liquibase.diff.compare.CompareControl;
+import liquibase.diff.output.DiffOutputControl;
+import liquibase.diff.output.changelog.DiffToChangeLog;
+import liquibase.ext.hibernate.database.HibernateDatabase;
+import liquibase.structure.DatabaseObject;
+import liquibase.structure.core.Column;
+import liquibase.structure.core.ForeignKey;
+import liquibase.structure.core.Index;
+import liquibase.structure.core.PrimaryKey;
+import liquibase.structure.core.Sequence;
+import liquibase.structure.core.Table;
+import liquibase.structure.core.UniqueConstraint;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures comparing the model to an in-memory HSQLDB database, either empty or already holding the tables of the model.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class DiffBenchmark extends ModelState {
+
+    @Param({"classic"})
+    public String kind;
+
+    @Param({"empty", "populated"})
+    public String target;
+
+    protected Database targetDatabase;
+    protected HibernateDatabase hibernateDatabase;
+    protected CompareControl compareControl;
+
+    @Override
+    protected void prepare() throws Exception {
+        targetDatabase = openInMemoryDatabase();
+        hibernateDatabase = openHibernateDatabase(kind, targetDatabase);
+        compareControl = createCompareControl();
+
+        if ("populated".equals(target)) {
+            DatabaseChangeLog changeLog = new DatabaseChangeLog();
+            for (ChangeSet changeSet : new DiffToChangeLog(diff(), new DiffOutputControl(false, false, false, null)).generateChangeSets()) {
+                changeSet.execute(changeLog, targetDatabase);
+            }
+        }
+    }
+
+    @Override
+    protected void release() throws Exception {
+        if (targetDatabase != null) {
+            targetDatabase.close();
+        }
+    }
+
+    @Benchmark
+    public DiffResult diff() throws Exception {
+        return DiffGeneratorFactory.getInstance().compare(hibernateDatabase, targetDatabase, compareControl);
+    }
+
+    protected static CompareControl createCompareControl() {
+        Set<Class<? extends DatabaseObject>> types = new HashSet<Class<? extends DatabaseObject>>();
+        types.add(Table.class);
+        types.add(Column.class);
+        types.add(PrimaryKey.class);
+        types.add(ForeignKey.class);
+        types.add(Index.class);
+        types.add(UniqueConstraint.class);
+        types.add(Sequence.class);
+        return new CompareControl(types);
+    }
+}
@@ -0,0 +1,151 @@
+package liquibase.ext.hibernate.benchmark;
+
+import liquibase.database.Database;
+import liquibase.database.DatabaseFactory;
+import liquibase.database.jvm.JdbcConnection;
+import liquibase.exception.DatabaseException;
+import liquibase.ext.hibernate.database.HibernateClassicDatabase;
+import liquibase.ext.hibernate.database.HibernateDatabase;
+import liquibase.ext.hibernate.database.HibernateEjb3Database;
+import liquibase.ext.hibernate.database.HibernateSpringDatabase;
+import liquibase.ext.hibernate.database.JpaPersistenceDatabase;
+import liquibase.ext.hibernate.database.connection.HibernateConnection;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+
+/**
+ * Base state of the benchmarks: generates a {@link SyntheticModel} of the requested size in a temporary directory once per
+ * trial and makes it the context class loader, where the hibernate databases look for mappings and entity classes.
+ * Subclasses prepare what they measure in {@link #prepare()}, called once the model is available.
+ */
+@State(Scope.Benchmark)
+public abstract class ModelState {
+
+    @Param({"100", "1000", "10000"})
+    public int tables;
+
+    @Param({"10"})
+    public int columns;
+
+    @Param({"1.0"})
+    public double foreignKeyDensity;
+
+    protected SyntheticModel model;
+
+    private File directory;
+    private ClassLoader modelClassLoader;
+    private ClassLoader contextClassLoader;
+
+    @Setup
+    public void generateModel() throws Exception {
+        model = new SyntheticModel(tables, columns, foreignKeyDensity);
+        directory = File.createTempFile("liquibase-hibernate-benchmark", "");
+        if (!directory.delete() || !directory.mkdirs()) {
+            throw new IOException("Cannot create directory " + directory);
+        }
+        model.write(directory);
+
+        modelClassLoader = new URLClassLoader(new URL[]{directory.toURI().toURL()}, getClass().getClassLoader());
+        contextClassLoader = Thread.currentThread().getContextClassLoader();
+        Thread.currentThread().setContextClassLoader(modelClassLoader);
+
+        prepare();
+    }
+
+    /**
+     * Iterations are not guaranteed to run on the thread that generated the model.
+     */
+    @Setup(Level.Iteration)
+    public void useModelClassLoader() {
+        Thread.currentThread().setContextClassLoader(modelClassLoader);
+    }
+
+    /**
+     * Called once per trial after the model is generated.
+     */
+    protected void prepare() throws Exception {
+    }
+
+    @TearDown
+    public void deleteModel() throws Exception {
+        try {
+            release();
+        } finally {
+            Thread.currentThread().setContextClassLoader(contextClassLoader);
+            delete(directory);
+        }
+    }
+
+    /**
+     * Called once per trial before the model is deleted, to close what {@link #prepare()} opened.
+     */
+    protected void release() throws Exception {
+    }
+
+    /**
+     * Opens the generated model through the given kind of hibernate database, building its configuration.
+     */
+    protected HibernateDatabase openHibernateDatabase(String kind) throws DatabaseException {
+        HibernateDatabase database = createHibernateDatabase(kind);
+        database.setConnection(new JdbcConnection(new HibernateConnection(SyntheticModel.getUrl(kind))));
+        return database;
+    }
+
+    /**
+     * Opens the generated model with the schema and catalog of the given database, so both can be compared.
+     */
+    protected HibernateDatabase openHibernateDatabase(String kind, Database comparedDatabase) throws DatabaseException {
+        HibernateDatabase database = createHibernateDatabase(kind);
+        database.setDefaultCatalogName(comparedDatabase.getDefaultCatalogName());
+        database.setDefaultSchemaName(comparedDatabase.getDefaultSchemaName());
+        database.setConnection(new JdbcConnection(new HibernateConnection(SyntheticModel.getUrl(kind))));
+        return database;
+    }
+
+    protected HibernateDatabase createHibernateDatabase(String kind) {
+        if ("classic".equals(kind)) {
+            return new HibernateClassicDatabase();
+        } else if ("ejb3".equals(kind)) {
+            return new HibernateEjb3Database();
+        } else if ("jpa".equals(kind)) {
+            return new JpaPersistenceDatabase();
+        } else if ("spring".equals(kind)) {
+            return new HibernateSpringDatabase();
+        }
+        throw new IllegalArgumentException("Unknown database kind '" + kind + "', expected classic, ejb3, jpa or spring");
+    }
+
+    /**
+     * Opens a new, empty, in-memory HSQLDB database.
+     */
+    protected Database openInMemoryDatabase() throws DatabaseException, SQLException, ClassNotFoundException {
+        Class.forName("org.hsqldb.jdbc.JDBCDriver");
+        Connection connection = DriverManager.getConnection("jdbc:hsqldb:mem:benchmark" + System.nanoTime(), "SA", "");
+        return DatabaseFactory.getInstance().findCorrectDatabaseImplementation(new JdbcConnection(connection));
+    }
+
+    private static void delete(File file) {
+        if (file == null) {
+            return;
+        }
+        File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                delete(child);
+            }
+        }
+        file.delete();
+    }
+}
@@ -0,0 +1,54 @@
+package liquibase.ext.hibernate.benchmark;
+
+import liquibase.CatalogAndSchema;
+import liquibase.ext.hibernate.database.HibernateDatabase;
+import liquibase.snapshot.DatabaseSnapshot;
+import liquibase.snapshot.SnapshotControl;
+import liquibase.snapshot.SnapshotGeneratorFactory;
+import liquibase.structure.DatabaseObject;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures snapshotting one type of object of an already configured model, which exercises the snapshot generator of that
+ * type along with the generators of the objects containing it.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class SnapshotBenchmark extends ModelState {
+
+    @Param({"classic", "ejb3"})
+    public String kind;
+
+    @Param({"Table", "Column", "PrimaryKey", "ForeignKey", "Index", "UniqueConstraint", "Sequence"})
+    public String type;
+
+    private HibernateDatabase database;
+    private Class<? extends DatabaseObject> typeClass;
+
+    @Override
+    protected void prepare() throws Exception {
+        database = openHibernateDatabase(kind);
+        typeClass = Class.forName("liquibase.structure.core." + type).asSubclass(DatabaseObject.class);
+    }
+
+    @Benchmark
+    @SuppressWarnings("unchecked")
+    public DatabaseSnapshot snapshot() throws Exception {
+        return SnapshotGeneratorFactory.getInstance().createSnapshot(CatalogAndSchema.DEFAULT, database, new SnapshotControl(database, typeClass));
+    }
+}
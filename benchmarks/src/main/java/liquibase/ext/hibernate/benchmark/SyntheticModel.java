@@ -0,0 +1,382 @@
+package liquibase.ext.hibernate.benchmark;
+
+import javassist.ClassPool;
+import javassist.CtClass;
+import javassist.CtField;
+import javassist.CtNewConstructor;
+import javassist.Modifier;
+import javassist.bytecode.AnnotationsAttribute;
+import javassist.bytecode.ClassFile;
+import javassist.bytecode.ConstPool;
+import javassist.bytecode.annotation.Annotation;
+import javassist.bytecode.annotation.BooleanMemberValue;
+import javassist.bytecode.annotation.EnumMemberValue;
+import javassist.bytecode.annotation.IntegerMemberValue;
+import javassist.bytecode.annotation.StringMemberValue;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Generates a synthetic entity model of any size, written both as hbm.xml mapping documents and as annotated entity classes
+ * describing the same tables. The generated directory is meant to be put on the classpath, where it can be read through
+ * the "hibernate:classic:", "hibernate:ejb3:", "jpa:persistence:" and "hibernate:spring:" urls returned by {@link #getUrl(String)}.
+ * <p/>
+ * Every table has a sequence generated id and the given number of columns, cycling through the common column types. Every
+ * fourth column is indexed and the first column of every tenth table is unique. Foreign keys only reference tables generated
+ * before, so the model has no cycles; their number per table averages the foreign key density. The same seed always generates
+ * the same model.
+ */
+public class SyntheticModel {
+
+    public static final String PACKAGE_NAME = "benchmark.model";
+    public static final String MAPPING_DIRECTORY = "benchmark";
+    public static final String PERSISTENCE_UNIT = "benchmark";
+    public static final String DIALECT = "org.hibernate.dialect.HSQLDialect";
+
+    private static final String[] HBM_TYPES = {"string", "integer", "long", "big_decimal", "boolean", "timestamp"};
+    private static final String[] JAVA_TYPES = {"java.lang.String", "java.lang.Integer", "java.lang.Long", "java.math.BigDecimal", "java.lang.Boolean", "java.util.Date"};
+
+    private final int tables;
+    private final int columnsPerTable;
+    private final double foreignKeyDensity;
+    private final long seed;
+
+    public SyntheticModel(int tables, int columnsPerTable, double foreignKeyDensity) {
+        this(tables, columnsPerTable, foreignKeyDensity, 42);
+    }
+
+    public SyntheticModel(int tables, int columnsPerTable, double foreignKeyDensity, long seed) {
+        if (tables < 1 || columnsPerTable < 1 || foreignKeyDensity < 0) {
+            throw new IllegalArgumentException("Invalid model size: " + tables + " tables, " + columnsPerTable + " columns, foreign key density " + foreignKeyDensity);
+        }
+        this.tables = tables;
+        this.columnsPerTable = columnsPerTable;
+        this.foreignKeyDensity = foreignKeyDensity;
+        this.seed = seed;
+    }
+
+    public int getTables() {
+        return tables;
+    }
+
+    public int getColumnsPerTable() {
+        return columnsPerTable;
+    }
+
+    public double getForeignKeyDensity() {
+        return foreignKeyDensity;
+    }
+
+    /**
+     * Returns the url reading the generated model through the given kind of database: "classic", "ejb3", "jpa" or "spring".
+     */
+    public static String getUrl(String kind) {
+        if ("classic".equals(kind)) {
+            return "hibernate:classic:" + MAPPING_DIRECTORY + "/hibernate.cfg.xml";
+        } else if ("ejb3".equals(kind)) {
+            return "hibernate:ejb3:" + PERSISTENCE_UNIT;
+        } else if ("jpa".equals(kind)) {
+            return "jpa:persistence:META-INF/persistence.xml";
+        } else if ("spring".equals(kind)) {
+            return "hibernate:spring:" + PACKAGE_NAME + "?dialect=" + DIALECT;
+        }
+        throw new IllegalArgumentException("Unknown database kind '" + kind + "', expected classic, ejb3, jpa or spring");
+    }
+
+    /**
+     * Writes both the hbm.xml and the annotated form of the model to the given directory.
+     */
+    public void write(File directory) throws IOException {
+        writeMappings(directory);
+        writeClasses(directory);
+    }
+
+    /**
+     * Writes a hibernate.cfg.xml and one hbm.xml document per table, mapping dynamic entities so no class is needed.
+     */
+    public void writeMappings(File directory) throws IOException {
+        File mappingDirectory = new File(directory, MAPPING_DIRECTORY);
+        mappingDirectory.mkdirs();
+
+        StringBuilder configuration = new StringBuilder();
+        configuration.append("<?xml version=\"1.0\"?>\n");
+        configuration.append("<!DOCTYPE hibernate-configuration PUBLIC \"-//Hibernate/Hibernate Configuration DTD 3.0//EN\" \"http://www.hibernate.org/dtd/hibernate-configuration-3.0.dtd\">\n");
+        configuration.append("<hibernate-configuration>\n  <session-factory>\n");
+        configuration.append("    <property name=\"dialect\">").append(DIALECT).append("</property>\n");
+
+        List<List<Integer>> references = createReferences();
+        for (int table = 0; table < tables; table++) {
+            configuration.append("    <mapping resource=\"").append(MAPPING_DIRECTORY).append("/").append(getEntityName(table)).append(".hbm.xml\"/>\n");
+
+            StringBuilder mapping = new StringBuilder();
+            mapping.append("<?xml version=\"1.0\"?>\n");
+            mapping.append("<!DOCTYPE hibernate-mapping PUBLIC \"-//Hibernate/Hibernate Mapping DTD 3.0//EN\" \"http://www.hibernate.org/dtd/hibernate-mapping-3.0.dtd\">\n");
+            mapping.append("<hibernate-mapping>\n");
+            mapping.append("  <class entity-name=\"").append(getEntityName(table)).append("\" table=\"").append(getTableName(table)).append("\">\n");
+            mapping.append("    <id name=\"id\" column=\"id\" type=\"long\">\n");
+            mapping.append("      <generator class=\"sequence\"><param name=\"sequence\">").append(getSequenceName(table)).append("</param></generator>\n");
+            mapping.append("    </id>\n");
+            for (int column = 1; column <= columnsPerTable; column++) {
+                String type = HBM_TYPES[(column - 1) % HBM_TYPES.length];
+                mapping.append("    <property name=\"").append(getPropertyName(column)).append("\" column=\"").append(getColumnName(column)).append("\" type=\"").append(type).append("\"");
+                if ("string".equals(type)) {
+                    mapping.append(" length=\"255\"");
+                } else if ("big_decimal".equals(type)) {
+                    mapping.append(" precision=\"19\" scale=\"2\"");
+                }
+                if (isIndexed(column)) {
+                    mapping.append(" index=\"").append(getIndexName(table, column)).append("\"");
+                }
+                if (isUnique(table, column)) {
+                    mapping.append(" unique=\"true\"");
+                }
+                mapping.append("/>\n");
+            }
+            List<Integer> tableReferences = references.get(table);
+            for (int reference = 0; reference < tableReferences.size(); reference++) {
+                mapping.append("    <many-to-one name=\"").append(getReferenceName(reference)).append("\" entity-name=\"").append(getEntityName(tableReferences.get(reference)))
+                        .append("\" column=\"").append(getReferenceColumnName(reference)).append("\"/>\n");
+            }
+            mapping.append("  </class>\n</hibernate-mapping>\n");
+            write(new File(mappingDirectory, getEntityName(table) + ".hbm.xml"), mapping.toString());
+        }
+
+        configuration.append("  </session-factory>\n</hibernate-configuration>\n");
+        write(new File(mappingDirectory, "hibernate.cfg.xml"), configuration.toString());
+    }
+
+    /**
+     * Writes one annotated entity class per table in the {@link #PACKAGE_NAME} package, and a META-INF/persistence.xml listing them.
+     */
+    public void writeClasses(File directory) throws IOException {
+        ClassPool classPool = new ClassPool(true);
+        CtClass[] classes = new CtClass[tables];
+        for (int table = 0; table < tables; table++) {
+            classes[table] = classPool.makeClass(getClassName(table));
+        }
+
+        List<List<Integer>> references = createReferences();
+        try {
+            for (int table = 0; table < tables; table++) {
+                CtClass ctClass = classes[table];
+                ClassFile classFile = ctClass.getClassFile();
+                ConstPool constPool = classFile.getConstPool();
+
+                AnnotationsAttribute classAnnotations = new AnnotationsAttribute(constPool, AnnotationsAttribute.visibleTag);
+                classAnnotations.addAnnotation(annotation("javax.persistence.Entity", constPool));
+                Annotation tableAnnotation = annotation("javax.persistence.Table", constPool);
+                tableAnnotation.addMemberValue("name", new StringMemberValue(getTableName(table), constPool));
+                classAnnotations.addAnnotation(tableAnnotation);
+                Annotation sequenceGenerator = annotation("javax.persistence.SequenceGenerator", constPool);
+                sequenceGenerator.addMemberValue("name", new StringMemberValue(getSequenceName(table), constPool));
+                sequenceGenerator.addMemberValue("sequenceName", new StringMemberValue(getSequenceName(table), constPool));
+                classAnnotations.addAnnotation(sequenceGenerator);
+                classFile.addAttribute(classAnnotations);
+
+                AnnotationsAttribute idAnnotations = new AnnotationsAttribute(constPool, AnnotationsAttribute.visibleTag);
+                idAnnotations.addAnnotation(annotation("javax.persistence.Id", constPool));
+                Annotation generatedValue = annotation("javax.persistence.GeneratedValue", constPool);
+                EnumMemberValue strategy = new EnumMemberValue(constPool);
+                strategy.setType("javax.persistence.GenerationType");
+                strategy.setValue("SEQUENCE");
+                generatedValue.addMemberValue("strategy", strategy);
+                generatedValue.addMemberValue("generator", new StringMemberValue(getSequenceName(table), constPool));
+                idAnnotations.addAnnotation(generatedValue);
+                idAnnotations.addAnnotation(columnAnnotation("id", constPool));
+                addField(ctClass, classPool.get("java.lang.Long"), "id", idAnnotations);
+
+                for (int column = 1; column <= columnsPerTable; column++) {
+                    int type = (column - 1) % JAVA_TYPES.length;
+                    AnnotationsAttribute columnAnnotations = new AnnotationsAttribute(constPool, AnnotationsAttribute.visibleTag);
+                    Annotation columnAnnotation = columnAnnotation(getColumnName(column), constPool);
+                    if (type == 0) {
+                        columnAnnotation.addMemberValue("length", new IntegerMemberValue(constPool, 255));
+                    } else if (type == 3) {
+                        columnAnnotation.addMemberValue("precision", new IntegerMemberValue(constPool, 19));
+                        columnAnnotation.addMemberValue("scale", new IntegerMemberValue(constPool, 2));
+                    }
+                    if (isUnique(table, column)) {
+                        columnAnnotation.addMemberValue("unique", new BooleanMemberValue(true, constPool));
+                    }
+                    columnAnnotations.addAnnotation(columnAnnotation);
+                    if (type == 5) {
+                        Annotation temporal = annotation("javax.persistence.Temporal", constPool);
+                        EnumMemberValue temporalType = new EnumMemberValue(constPool);
+                        temporalType.setType("javax.persistence.TemporalType");
+                        temporalType.setValue("TIMESTAMP");
+                        temporal.addMemberValue("value", temporalType);
+                        columnAnnotations.addAnnotation(temporal);
+                    }
+                    if (isIndexed(column)) {
+                        Annotation index = annotation("org.hibernate.annotations.Index", constPool);
+                        index.addMemberValue("name", new StringMemberValue(getIndexName(table, column), constPool));
+                        columnAnnotations.addAnnotation(index);
+                    }
+                    addField(ctClass, classPool.get(JAVA_TYPES[type]), getPropertyName(column), columnAnnotations);
+                }
+
+                List<Integer> tableReferences = references.get(table);
+                for (int reference = 0; reference < tableReferences.size(); reference++) {
+                    AnnotationsAttribute referenceAnnotations = new AnnotationsAttribute(constPool, AnnotationsAttribute.visibleTag);
+                    referenceAnnotations.addAnnotation(annotation("javax.persistence.ManyToOne", constPool));
+                    Annotation joinColumn = annotation("javax.persistence.JoinColumn", constPool);
+                    joinColumn.addMemberValue("name", new StringMemberValue(getReferenceColumnName(reference), constPool));
+                    referenceAnnotations.addAnnotation(joinColumn);
+                    addField(ctClass, classes[tableReferences.get(reference)], getReferenceName(reference), referenceAnnotations);
+                }
+
+                ctClass.addConstructor(CtNewConstructor.defaultConstructor(ctClass));
+                ctClass.writeFile(directory.getAbsolutePath());
+            }
+        } catch (IOException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new IOException("Cannot generate entity classes: " + e.getMessage(), e);
+        }
+
+        StringBuilder persistence = new StringBuilder();
+        persistence.append("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n");
+        persistence.append("<persistence xmlns=\"http://java.sun.com/xml/ns/persistence\" version=\"1.0\">\n");
+        persistence.append("  <persistence-unit name=\"").append(PERSISTENCE_UNIT).append("\" transaction-type=\"RESOURCE_LOCAL\">\n");
+        for (int table = 0; table < tables; table++) {
+            persistence.append("    <class>").append(getClassName(table)).append("</class>\n");
+        }
+        persistence.append("    <exclude-unlisted-classes>true</exclude-unlisted-classes>\n");
+        persistence.append("    <properties>\n");
+        persistence.append("      <property name=\"hibernate.archive.autodetection\" value=\"false\"/>\n");
+        persistence.append("      <property name=\"hibernate.dialect\" value=\"").append(DIALECT).append("\"/>\n");
+        persistence.append("    </properties>\n");
+        persistence.append("  </persistence-unit>\n</persistence>\n");
+        File metaInf = new File(directory, "META-INF");
+        metaInf.mkdirs();
+        write(new File(metaInf, "persistence.xml"), persistence.toString());
+    }
+
+    /**
+     * Returns the indexes of the tables referenced by each table.
+     */
+    protected List<List<Integer>> createReferences() {
+        Random random = new Random(seed);
+        List<List<Integer>> references = new ArrayList<List<Integer>>(tables);
+        for (int table = 0; table < tables; table++) {
+            List<Integer> tableReferences = new ArrayList<Integer>();
+            if (table > 0) {
+                int count = (int) foreignKeyDensity;
+                if (random.nextDouble() < foreignKeyDensity - count) {
+                    count++;
+                }
+                for (int i = 0; i < count; i++) {
+                    tableReferences.add(random.nextInt(table));
+                }
+            }
+            references.add(tableReferences);
+        }
+        return references;
+    }
+
+    public String getEntityName(int table) {
+        return "Entity" + pad(table);
+    }
+
+    public String getClassName(int table) {
+        return PACKAGE_NAME + "." + getEntityName(table);
+    }
+
+    public String getTableName(int table) {
+        return "entity_" + pad(table);
+    }
+
+    protected String getSequenceName(int table) {
+        return getTableName(table) + "_seq";
+    }
+
+    protected String getIndexName(int table, int column) {
+        return "ix_" + pad(table) + "_" + column;
+    }
+
+    protected String getPropertyName(int column) {
+        return "col" + column;
+    }
+
+    protected String getColumnName(int column) {
+        return "col_" + column;
+    }
+
+    protected String getReferenceName(int reference) {
+        return "ref" + reference;
+    }
+
+    protected String getReferenceColumnName(int reference) {
+        return "ref_" + reference + "_id";
+    }
+
+    protected boolean isIndexed(int column) {
+        return column % 4 == 0;
+    }
+
+    protected boolean isUnique(int table, int column) {
+        return column == 1 && table % 10 == 0;
+    }
+
+    private String pad(int table) {
+        String number = String.valueOf(table);
+        int width = String.valueOf(tables - 1).length();
+        StringBuilder padded = new StringBuilder(width);
+        for (int i = number.length(); i < width; i++) {
+            padded.append('0');
+        }
+        return padded.append(number).toString();
+    }
+
+    private static Annotation annotation(String type, ConstPool constPool) {
+        return new Annotation(type, constPool);
+    }
+
+    private static Annotation columnAnnotation(String name, ConstPool constPool) {
+        Annotation column = annotation("javax.persistence.Column", constPool);
+        column.addMemberValue("name", new StringMemberValue(name, constPool));
+        return column;
+    }
+
+    private static void addField(CtClass ctClass, CtClass type, String name, AnnotationsAttribute annotations) throws Exception {
+        CtField field = new CtField(type, name, ctClass);
+        field.setModifiers(Modifier.PRIVATE);
+        field.getFieldInfo().addAttribute(annotations);
+        ctClass.addField(field);
+    }
+
+    private static void write(File file, String content) throws IOException {
+        OutputStream out = new FileOutputStream(file);
+        try {
+            Writer writer = new OutputStreamWriter(out, "UTF-8");
+            writer.write(content);
+            writer.flush();
+        } finally {
+            out.close();
+        }
+    }
+
+    /**
+     * Writes a model to a directory, to profile or inspect it outside of the benchmarks.
+     * Arguments: directory [tables [columns per table [foreign key density]]]
+     */
+    public static void main(String[] args) throws Exception {
+        if (args.length < 1) {
+            System.err.println("Usage: SyntheticModel directory [tables [columns per table [foreign key density]]]");
+            System.exit(1);
+        }
+        int tables = args.length > 1 ? Integer.parseInt(args[1]) : 1000;
+        int columns = args.length > 2 ? Integer.parseInt(args[2]) : 10;
+        double foreignKeyDensity = args.length > 3 ? Double.parseDouble(args[3]) : 1;
+        new SyntheticModel(tables, columns, foreignKeyDensity).write(new File(args[0]));
+        System.out.println("Wrote " + tables + " tables to " + args[0]);
+    }
+}
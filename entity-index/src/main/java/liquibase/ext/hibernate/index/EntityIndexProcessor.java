@@ -0,0 +1,141 @@
+package liquibase.ext.hibernate.index;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.TypeElement;
+import javax.tools.Diagnostic;
+import javax.tools.FileObject;
+import javax.tools.StandardLocation;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Annotation processor writing the classes annotated with {@link #ANNOTATION_TYPES} to {@link #INDEX_LOCATION}.
+ * <p/>
+ * liquibase-hibernate reads the index instead of scanning the packages of "hibernate:spring:" package URLs and the roots of
+ * JPA persistence units. Add this jar to the compile classpath of the module containing the entities, javac discovers the
+ * processor on its own.
+ * <p/>
+ * The index is a UTF-8 text file listing one binary class name per line, sorted, with '#' starting a comment line.
+ * <p/>
+ * Incremental compilations only see the classes they recompile, so the index already in the class output is merged into the
+ * new one. Its classes are kept unless they no longer exist, or were recompiled without any of the annotations.
+ */
+public class EntityIndexProcessor extends AbstractProcessor {
+
+    public static final String INDEX_LOCATION = "META-INF/liquibase-hibernate/entity.index";
+
+    public static final Set<String> ANNOTATION_TYPES = new HashSet<String>(Arrays.asList(
+            "javax.persistence.Entity",
+            "javax.persistence.Embeddable",
+            "javax.persistence.MappedSuperclass",
+            "javax.persistence.Converter"));
+
+    private final Set<String> classNames = new TreeSet<String>();
+    private final Set<String> compiledClassNames = new HashSet<String>();
+
+    @Override
+    public Set<String> getSupportedAnnotationTypes() {
+        return ANNOTATION_TYPES;
+    }
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        for (Element element : roundEnv.getRootElements()) {
+            addCompiledClassNames(element);
+        }
+        for (TypeElement annotation : annotations) {
+            for (Element element : roundEnv.getElementsAnnotatedWith(annotation)) {
+                if (element.getKind() == ElementKind.CLASS || element.getKind() == ElementKind.INTERFACE) {
+                    classNames.add(processingEnv.getElementUtils().getBinaryName((TypeElement) element).toString());
+                }
+            }
+        }
+
+        if (roundEnv.processingOver()) {
+            boolean existingIndex = mergeExistingIndex();
+            if (existingIndex || !classNames.isEmpty()) {
+                writeIndex();
+            }
+        }
+        return false;
+    }
+
+    private void addCompiledClassNames(Element element) {
+        if (element instanceof TypeElement) {
+            compiledClassNames.add(processingEnv.getElementUtils().getBinaryName((TypeElement) element).toString());
+            for (Element enclosed : element.getEnclosedElements()) {
+                addCompiledClassNames(enclosed);
+            }
+        }
+    }
+
+    /**
+     * Adds the classes of the index left in the class output by a previous compilation, returning false if there is none.
+     */
+    private boolean mergeExistingIndex() {
+        InputStream in;
+        try {
+            FileObject file = processingEnv.getFiler().getResource(StandardLocation.CLASS_OUTPUT, "", INDEX_LOCATION);
+            in = file.openInputStream();
+        } catch (IOException e) {
+            // no index was written before
+            return false;
+        }
+        try {
+            try {
+                BufferedReader reader = new BufferedReader(new InputStreamReader(in, "UTF-8"));
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    line = line.trim();
+                    if (line.length() > 0 && !line.startsWith("#") && !compiledClassNames.contains(line) && exists(line)) {
+                        classNames.add(line);
+                    }
+                }
+            } finally {
+                in.close();
+            }
+        } catch (IOException e) {
+            processingEnv.getMessager().printMessage(Diagnostic.Kind.WARNING, "Cannot read the previous " + INDEX_LOCATION + ": " + e.getMessage());
+        }
+        return true;
+    }
+
+    private boolean exists(String binaryName) {
+        return processingEnv.getElementUtils().getTypeElement(binaryName.replace('$', '.')) != null;
+    }
+
+    private void writeIndex() {
+        try {
+            FileObject file = processingEnv.getFiler().createResource(StandardLocation.CLASS_OUTPUT, "", INDEX_LOCATION);
+            Writer writer = new OutputStreamWriter(file.openOutputStream(), "UTF-8");
+            try {
+                writer.write("# Generated by " + getClass().getName() + "\n");
+                for (String className : classNames) {
+                    writer.write(className);
+                    writer.write("\n");
+                }
+            } finally {
+                writer.close();
+            }
+        } catch (IOException e) {
+            processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, "Cannot write " + INDEX_LOCATION + ": " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,119 @@
+package liquibase.ext.hibernate.index;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.SimpleJavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.InputStreamReader;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class EntityIndexProcessorTest {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void writesSortedIndexOfEntities() throws Exception {
+        File output = compile(
+                source("com.example.Order", "@javax.persistence.Entity public class Order { @javax.persistence.Embeddable public static class Line {} }"),
+                source("com.example.Base", "@javax.persistence.MappedSuperclass public abstract class Base {}"),
+                source("com.example.Helper", "public class Helper {}"));
+
+        assertEquals(Arrays.asList("com.example.Base", "com.example.Order", "com.example.Order$Line"), readIndex(output));
+    }
+
+    @Test
+    public void noIndexWithoutEntities() throws Exception {
+        File output = compile(source("com.example.Helper", "public class Helper {}"));
+
+        assertFalse(new File(output, EntityIndexProcessor.INDEX_LOCATION).exists());
+    }
+
+    @Test
+    public void incrementalCompilationKeepsIndexedEntities() throws Exception {
+        File output = compile(
+                source("com.example.Order", "@javax.persistence.Entity public class Order {}"),
+                source("com.example.Item", "@javax.persistence.Entity public class Item {}"));
+        compile(output, source("com.example.Customer", "@javax.persistence.Entity public class Customer {}"));
+
+        assertEquals(Arrays.asList("com.example.Customer", "com.example.Item", "com.example.Order"), readIndex(output));
+    }
+
+    @Test
+    public void incrementalCompilationPrunesRemovedEntities() throws Exception {
+        File output = compile(
+                source("com.example.Order", "@javax.persistence.Entity public class Order {}"),
+                source("com.example.Item", "@javax.persistence.Entity public class Item {}"));
+        assertTrue(new File(output, "com/example/Item.class").delete());
+        compile(output,
+                source("com.example.Order", "public class Order {}"),
+                source("com.example.Customer", "@javax.persistence.Entity public class Customer {}"));
+
+        assertEquals(Collections.singletonList("com.example.Customer"), readIndex(output));
+    }
+
+    private File compile(JavaFileObject... sources) throws Exception {
+        return compile(temporaryFolder.newFolder(), sources);
+    }
+
+    /**
+     * Compiles into the given directory, which is also on the classpath like in an incremental compilation.
+     */
+    private File compile(File output, JavaFileObject... sources) throws Exception {
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        StandardJavaFileManager fileManager = compiler.getStandardFileManager(null, null, null);
+        try {
+            String classpath = output.getAbsolutePath() + File.pathSeparator + System.getProperty("java.class.path");
+            List<String> options = Arrays.asList("-d", output.getAbsolutePath(), "-classpath", classpath);
+            JavaCompiler.CompilationTask task = compiler.getTask(null, fileManager, null, options, null, Arrays.asList(sources));
+            task.setProcessors(Collections.singletonList(new EntityIndexProcessor()));
+            assertTrue(task.call());
+        } finally {
+            fileManager.close();
+        }
+        return output;
+    }
+
+    private JavaFileObject source(String className, String body) {
+        int lastDot = className.lastIndexOf('.');
+        final String content = "package " + className.substring(0, lastDot) + ";\n" + body;
+        return new SimpleJavaFileObject(URI.create("string:///" + className.replace('.', '/') + JavaFileObject.Kind.SOURCE.extension), JavaFileObject.Kind.SOURCE) {
+            @Override
+            public CharSequence getCharContent(boolean ignoreEncodingErrors) {
+                return content;
+            }
+        };
+    }
+
+    private List<String> readIndex(File output) throws Exception {
+        List<String> lines = new ArrayList<String>();
+        BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(new File(output, EntityIndexProcessor.INDEX_LOCATION)), "UTF-8"));
+        try {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (!line.startsWith("#")) {
+                    lines.add(line);
+                }
+            }
+        } finally {
+            reader.close();
+        }
+        return lines;
+    }
+}
@@ -0,0 +1,351 @@
+package liquibase.ext.hibernate.database;
+
+import liquibase.CatalogAndSchema;
+import liquibase.database.Database;
+import liquibase.database.DatabaseFactory;
+import liquibase.database.jvm.JdbcConnection;
+import liquibase.diff.DiffGeneratorFactory;
+import liquibase.diff.DiffResult;
+import liquibase.diff.compare.CompareControl;
+import liquibase.diff.output.DiffOutputControl;
+import liquibase.exception.DatabaseException;
+import liquibase.ext.hibernate.diff.HibernateChangeLogWriter;
+import liquibase.ext.hibernate.database.connection.HibernateConnection;
+import liquibase.logging.LogFactory;
+import liquibase.logging.Logger;
+import liquibase.serializer.SnapshotSerializer;
+import liquibase.serializer.SnapshotSerializerFactory;
+import liquibase.snapshot.DatabaseSnapshot;
+import liquibase.snapshot.SnapshotControl;
+import liquibase.snapshot.SnapshotGeneratorFactory;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Snapshots many hibernate URLs, such as all the persistence units of an application, in a single JVM.
+ * <p/>
+ * The hibernate configurations are built concurrently on a pool of threads. They share the classes already loaded and, through
+ * a {@link HibernateDialectRegistry}, one {@link org.hibernate.dialect.Dialect} per dialect class. Liquibase caches its comparators
+ * in unsynchronized maps, so the snapshots, diffs and changelogs themselves are done one at a time, each as soon as its
+ * configuration is built.
+ * <p/>
+ * {@link #main(String[])} writes one changelog, snapshot or exported model file per URL.
+ */
+public class HibernateBatchSnapshot {
+
+    private static final Logger LOG = LogFactory.getLogger("liquibase-hibernate");
+
+    private static final String USAGE = "Usage: " + HibernateBatchSnapshot.class.getName()
+            + " [--threads=<count>] [--changelog=<xml|yaml|json|<database type>.sql>|--snapshot=<json|yaml|txt>|--model] <output directory> <url>...";
+
+    private final List<String> urls;
+    private final int threads;
+    private final ClassLoader classLoader;
+    private final HibernateDialectRegistry dialectRegistry = new HibernateDialectRegistry();
+    private final Object liquibaseLock = new Object();
+
+    public HibernateBatchSnapshot(List<String> urls) {
+        this(urls, Runtime.getRuntime().availableProcessors(), Thread.currentThread().getContextClassLoader());
+    }
+
+    /**
+     * @param threads the maximum number of configurations built at the same time
+     * @param classLoader the class loader entity classes and mapping files are loaded from
+     */
+    public HibernateBatchSnapshot(List<String> urls, int threads, ClassLoader classLoader) {
+        this.urls = new ArrayList<String>(urls);
+        this.threads = Math.max(1, threads);
+        this.classLoader = classLoader;
+    }
+
+    public List<String> getUrls() {
+        return urls;
+    }
+
+    public HibernateDialectRegistry getDialectRegistry() {
+        return dialectRegistry;
+    }
+
+    /**
+     * Snapshots every URL and returns the snapshots in the order of the URLs.
+     * The databases of the snapshots are left open, for the caller to diff and close.
+     */
+    public List<DatabaseSnapshot> snapshot() throws DatabaseException {
+        return run(new Work<DatabaseSnapshot>() {
+            @Override
+            public DatabaseSnapshot run(HibernateDatabase database, int index) throws Exception {
+                return SnapshotGeneratorFactory.getInstance().createSnapshot(CatalogAndSchema.DEFAULT, database, new SnapshotControl(database));
+            }
+        });
+    }
+
+    /**
+     * Writes the snapshot of each URL to a file of the given directory, in the format of the given snapshot serializer file extension.
+     * Returns the files in the order of the URLs.
+     */
+    public List<File> writeSnapshots(File directory, final String extension) throws DatabaseException {
+        final SnapshotSerializer serializer = SnapshotSerializerFactory.getInstance().getSerializer(extension);
+        final List<File> files = getFiles(directory, extension);
+        return run(new Work<File>() {
+            @Override
+            public File run(HibernateDatabase database, int index) throws Exception {
+                try {
+                    DatabaseSnapshot snapshot = SnapshotGeneratorFactory.getInstance().createSnapshot(CatalogAndSchema.DEFAULT, database, new SnapshotControl(database));
+                    File file = files.get(index);
+                    OutputStream out = new FileOutputStream(file);
+                    try {
+                        serializer.write(snapshot, out);
+                    } finally {
+                        out.close();
+                    }
+                    return file;
+                } finally {
+                    database.close();
+                }
+            }
+        });
+    }
+
+    /**
+     * Exports the model of each URL to a file of the given directory with {@link HibernateSnapshotDatabase#export(HibernateDatabase, File)},
+     * to be read back with a <code>hibernate:snapshot:</code> URL. Returns the files in the order of the URLs.
+     */
+    public List<File> writeModels(File directory) throws DatabaseException {
+        final List<File> files = getFiles(directory, "model");
+        return run(new Work<File>() {
+            @Override
+            public File run(HibernateDatabase database, int index) throws Exception {
+                try {
+                    HibernateSnapshotDatabase.export(database, files.get(index));
+                    return files.get(index);
+                } finally {
+                    database.close();
+                }
+            }
+        });
+    }
+
+    /**
+     * Writes a changelog creating the model of each URL to a file of the given directory, in the format of the given changelog file extension.
+     * Formatted SQL changelogs are generated for a database type, given before their extension, such as <code>h2.sql</code>.
+     * Returns the files in the order of the URLs.
+     */
+    public List<File> writeChangeLogs(File directory, String extension) throws DatabaseException {
+        if (extension.equalsIgnoreCase("sql")) {
+            throw new DatabaseException("SQL changelogs need a database type, such as h2.sql");
+        }
+        final List<File> files = getFiles(directory, extension);
+        return run(new Work<File>() {
+            @Override
+            public File run(HibernateDatabase database, int index) throws Exception {
+                try {
+                    DatabaseSnapshot snapshot = SnapshotGeneratorFactory.getInstance().createSnapshot(CatalogAndSchema.DEFAULT, database, new SnapshotControl(database));
+                    DiffResult diffResult = DiffGeneratorFactory.getInstance().compare(snapshot, null, new CompareControl());
+                    File file = files.get(index);
+                    new HibernateChangeLogWriter(diffResult, new DiffOutputControl(false, false, false, null)).print(file.getPath());
+                    return file;
+                } finally {
+                    database.close();
+                }
+            }
+        });
+    }
+
+    /**
+     * Returns the file of each URL in the given directory, named after the URL and unique even for URLs differing only by
+     * characters which are not allowed in file names.
+     */
+    protected List<File> getFiles(File directory, String extension) throws DatabaseException {
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new DatabaseException("Cannot create directory " + directory);
+        }
+        List<File> files = new ArrayList<File>();
+        Set<String> names = new HashSet<String>();
+        for (String url : urls) {
+            String name = url.replaceAll("[^A-Za-z0-9._-]+", "_");
+            String uniqueName = name;
+            for (int i = 2; !names.add(uniqueName.toLowerCase()); i++) {
+                uniqueName = name + "-" + i;
+            }
+            files.add(new File(directory, uniqueName + "." + extension));
+        }
+        return files;
+    }
+
+    /**
+     * Opens the database of each URL on the thread pool and runs the given work with it under the liquibase lock.
+     */
+    protected <T> List<T> run(final Work<T> work) throws DatabaseException {
+        List<Class<? extends HibernateDatabase>> databaseClasses = new ArrayList<Class<? extends HibernateDatabase>>();
+        for (String url : urls) {
+            databaseClasses.add(getDatabaseClass(url));
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, Math.min(threads, urls.size())), new BatchThreadFactory(classLoader));
+        try {
+            List<Future<T>> futures = new ArrayList<Future<T>>(urls.size());
+            for (int i = 0; i < urls.size(); i++) {
+                final int index = i;
+                final String url = urls.get(i);
+                final Class<? extends HibernateDatabase> databaseClass = databaseClasses.get(i);
+                futures.add(executor.submit(new Callable<T>() {
+                    @Override
+                    public T call() throws Exception {
+                        HibernateDatabase database = openDatabase(url, databaseClass);
+                        synchronized (liquibaseLock) {
+                            LOG.info("Processing " + url);
+                            return work.run(database, index);
+                        }
+                    }
+                }));
+            }
+            List<T> results = new ArrayList<T>(urls.size());
+            for (int i = 0; i < futures.size(); i++) {
+                results.add(get(futures.get(i), urls.get(i)));
+            }
+            return results;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Builds the hibernate configuration of the given URL, sharing the dialects of the batch.
+     */
+    protected HibernateDatabase openDatabase(String url, Class<? extends HibernateDatabase> databaseClass) throws Exception {
+        HibernateDatabase database = databaseClass.newInstance();
+        database.setDialectRegistry(dialectRegistry);
+        HibernateConnection connection = new HibernateConnection(url);
+        if (connection.getProperties().getProperty(HibernateModelCache.CACHE_DIR_PROPERTY) != null
+                || Boolean.valueOf(connection.getProperties().getProperty(HibernateDatabase.RELEASE_CONFIGURATION_PROPERTY))) {
+            // writing the model cache and releasing the configuration take a snapshot
+            synchronized (liquibaseLock) {
+                database.setConnection(new JdbcConnection(connection));
+            }
+        } else {
+            database.setConnection(new JdbcConnection(connection));
+        }
+        return database;
+    }
+
+    private Class<? extends HibernateDatabase> getDatabaseClass(String url) throws DatabaseException {
+        JdbcConnection connection = new JdbcConnection(new HibernateConnection(url));
+        for (Database database : DatabaseFactory.getInstance().getImplementedDatabases()) {
+            if (database instanceof HibernateDatabase && database.isCorrectDatabaseImplementation(connection)) {
+                return ((HibernateDatabase) database).getClass();
+            }
+        }
+        throw new DatabaseException("Not a hibernate URL: " + url);
+    }
+
+    private <T> T get(Future<T> future, String url) throws DatabaseException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new DatabaseException(e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof DatabaseException) {
+                throw (DatabaseException) cause;
+            } else if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new DatabaseException("Error processing " + url + ": " + cause.getMessage(), cause);
+        }
+    }
+
+    /**
+     * Writes one changelog, by default, one snapshot or one exported model per URL given on the command line.
+     */
+    public static void main(String[] args) throws Exception {
+        int threads = Runtime.getRuntime().availableProcessors();
+        String changeLogExtension = "xml";
+        String snapshotExtension = null;
+        boolean model = false;
+        List<String> arguments = new ArrayList<String>(Arrays.asList(args));
+        while (!arguments.isEmpty() && arguments.get(0).startsWith("--")) {
+            String option = arguments.remove(0);
+            if (option.startsWith("--threads=")) {
+                threads = Integer.parseInt(option.substring("--threads=".length()));
+            } else if (option.startsWith("--changelog=")) {
+                changeLogExtension = option.substring("--changelog=".length());
+                snapshotExtension = null;
+                model = false;
+            } else if (option.startsWith("--snapshot=")) {
+                snapshotExtension = option.substring("--snapshot=".length());
+                model = false;
+            } else if (option.equals("--model")) {
+                snapshotExtension = null;
+                model = true;
+            } else {
+                System.err.println("Unknown option " + option);
+                System.err.println(USAGE);
+                System.exit(1);
+            }
+        }
+        if (arguments.size() < 2) {
+            System.err.println(USAGE);
+            System.exit(1);
+        }
+
+        File directory = new File(arguments.remove(0));
+        HibernateBatchSnapshot batch = new HibernateBatchSnapshot(arguments, threads, Thread.currentThread().getContextClassLoader());
+        long start = System.currentTimeMillis();
+        List<File> files;
+        if (model) {
+            files = batch.writeModels(directory);
+        } else if (snapshotExtension != null) {
+            files = batch.writeSnapshots(directory, snapshotExtension);
+        } else {
+            files = batch.writeChangeLogs(directory, changeLogExtension);
+        }
+        for (int i = 0; i < files.size(); i++) {
+            System.out.println(batch.getUrls().get(i) + " -> " + files.get(i));
+        }
+        System.out.println("Processed " + files.size() + " hibernate URLs with " + batch.getDialectRegistry().size() + " dialects in "
+                + (System.currentTimeMillis() - start) + " ms");
+    }
+
+    /**
+     * What is done with the database of each URL.
+     */
+    protected interface Work<T> {
+        /**
+         * @param index the index of the URL the database was opened from
+         */
+        T run(HibernateDatabase database, int index) throws Exception;
+    }
+
+    private static class BatchThreadFactory implements ThreadFactory {
+
+        private final ClassLoader contextClassLoader;
+        private final AtomicInteger count = new AtomicInteger();
+
+        private BatchThreadFactory(ClassLoader contextClassLoader) {
+            this.contextClassLoader = contextClassLoader;
+        }
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "liquibase-hibernate-batch-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            thread.setContextClassLoader(contextClassLoader);
+            return thread;
+        }
+    }
+}
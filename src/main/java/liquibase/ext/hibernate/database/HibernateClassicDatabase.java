@@ -5,7 +5,13 @@ import liquibase.exception.DatabaseException;
 import liquibase.ext.hibernate.customfactory.CustomClassicConfigurationFactory;
 import liquibase.ext.hibernate.database.connection.HibernateConnection;
 import org.hibernate.cfg.Configuration;
-import org.hibernate.cfg.NamingStrategy;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.NodeList;
+
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.List;
 
 /**
  * Database implementation for "classic" hibernate configurations.
@@ -44,14 +50,67 @@ public class HibernateClassicDatabase extends HibernateDatabase {
 
     /**
      * Build a Configuration object assuming the connection path is a hibernate XML configuration file.
+     * The mapping resources listed in the file are parsed in parallel with a {@link HibernateMappingDocumentParser}.
      */
-    protected Configuration buildConfigurationfromFile(HibernateConnection connection) {
+    protected Configuration buildConfigurationfromFile(HibernateConnection connection) throws DatabaseException {
         Configuration configuration = new Configuration();
-        configuration.configure(connection.getPath());
+        URL configurationUrl = findResource(connection.getPath());
+        if (configurationUrl == null) {
+            // let hibernate report the missing file
+            configuration.configure(connection.getPath());
+        } else {
+            HibernateMappingDocumentParser parser = HibernateMappingDocumentParser.forConnection(connection);
+            Document document = parser.parse(configurationUrl);
+            List<URL> mappingUrls = removeMappingResources(document);
+            configuration.configure(document);
+            for (Document mappingDocument : parser.parse(mappingUrls)) {
+                configuration.addDocument(mappingDocument);
+            }
+        }
         configureNamingStrategy(configuration, connection);
         return configuration;
     }
 
+    /**
+     * Removes the &lt;mapping resource="..."/&gt; elements that can be found on the classpath from the given configuration document
+     * and returns their URLs in document order. Other mapping elements are left for hibernate to process.
+     */
+    protected List<URL> removeMappingResources(Document document) {
+        List<Element> mappingElements = new ArrayList<Element>();
+        NodeList nodes = document.getElementsByTagName("mapping");
+        for (int i = 0; i < nodes.getLength(); i++) {
+            mappingElements.add((Element) nodes.item(i));
+        }
+
+        List<URL> urls = new ArrayList<URL>();
+        for (Element mappingElement : mappingElements) {
+            String resource = mappingElement.getAttribute("resource");
+            if (resource.length() == 0) {
+                continue;
+            }
+            URL url = findResource(resource);
+            if (url != null) {
+                LOG.info("Found mapping resource " + resource);
+                urls.add(url);
+                mappingElement.getParentNode().removeChild(mappingElement);
+            }
+        }
+        return urls;
+    }
+
+    private URL findResource(String path) {
+        ClassLoader classLoader = Thread.currentThread().getContextClassLoader();
+        if (classLoader == null) {
+            classLoader = HibernateClassicDatabase.class.getClassLoader();
+        }
+        String name = path.startsWith("/") ? path.substring(1) : path;
+        URL url = classLoader.getResource(name);
+        if (url == null) {
+            url = HibernateClassicDatabase.class.getClassLoader().getResource(name);
+        }
+        return url;
+    }
+
     /**
      * Returns true if the given path is a factory class
      */
@@ -1,5 +1,6 @@
 package liquibase.ext.hibernate.database;
 
+import liquibase.CatalogAndSchema;
 import liquibase.database.AbstractJdbcDatabase;
 import liquibase.database.DatabaseConnection;
 import liquibase.database.jvm.JdbcConnection;
@@ -7,14 +8,30 @@ import liquibase.exception.DatabaseException;
 import liquibase.exception.UnexpectedLiquibaseException;
 import liquibase.ext.hibernate.database.connection.HibernateConnection;
 import liquibase.ext.hibernate.database.connection.HibernateDriver;
+import liquibase.ext.hibernate.database.connection.HibernateMetadataIndex;
 import liquibase.logging.LogFactory;
 import liquibase.logging.Logger;
+import liquibase.snapshot.DatabaseSnapshot;
+import liquibase.snapshot.InvalidExampleException;
+import liquibase.snapshot.SnapshotControl;
+import liquibase.snapshot.SnapshotGeneratorFactory;
+import liquibase.structure.core.Schema;
+import liquibase.structure.core.Sequence;
+import liquibase.structure.core.Table;
 import org.hibernate.cfg.Configuration;
 import org.hibernate.cfg.NamingStrategy;
 import org.hibernate.cfg.naming.NamingStrategyDelegator;
 import org.hibernate.dialect.Dialect;
 import org.hibernate.dialect.MySQLDialect;
+import org.hibernate.envers.Audited;
 import org.hibernate.envers.configuration.spi.AuditConfiguration;
+import org.hibernate.mapping.PersistentClass;
+
+import java.io.IOException;
+import java.lang.reflect.AnnotatedElement;
+import java.nio.ByteBuffer;
+import java.sql.SQLException;
+import java.util.Iterator;
 
 /**
  * Base class for all Hibernate Databases. This extension interacts with Hibernate by creating standard liquibase.database.Database implementations that
@@ -26,10 +43,29 @@ public abstract class HibernateDatabase extends AbstractJdbcDatabase {
 
     private Configuration configuration;
 
+    private AuditConfiguration auditConfiguration;
+
     private Dialect dialect;
 
+    private HibernateTableIndex tableIndex;
+
+    private HibernateIdentifierGeneratorRegistry identifierGeneratorRegistry;
+
+    private ByteBuffer cachedModel;
+
+    private HibernateProfiler profiler;
+
+    private HibernateDialectRegistry dialectRegistry;
+
     private boolean indexesForForeignKeys = false;
+    private boolean bulkSnapshot = false;
+    private boolean releaseConfiguration = false;
+    private int snapshotThreads = 1;
     public static final String DEFAULT_SCHEMA = "HIBERNATE";
+    public static final String BULK_SNAPSHOT_PROPERTY = "hibernate.bulk_snapshot";
+    public static final String SNAPSHOT_THREADS_PROPERTY = "hibernate.snapshot_threads";
+    public static final String ENVERS_PROPERTY = "hibernate.envers";
+    public static final String RELEASE_CONFIGURATION_PROPERTY = "hibernate.release_configuration";
 
     public HibernateDatabase() {
         setDefaultCatalogName(DEFAULT_SCHEMA);
@@ -43,41 +79,280 @@ public abstract class HibernateDatabase extends AbstractJdbcDatabase {
         try {
             LOG.info("Reading hibernate configuration " + getConnection().getURL());
 
-            this.configuration = buildConfiguration(((HibernateConnection) ((JdbcConnection) conn).getUnderlyingConnection()));
-            configureNamingStrategy(this.configuration, ((HibernateConnection) ((JdbcConnection) conn).getUnderlyingConnection()));
+            this.tableIndex = null;
+            this.identifierGeneratorRegistry = null;
+            this.cachedModel = null;
+            this.auditConfiguration = null;
+            if (this.profiler != null) {
+                this.profiler.removeShutdownHook();
+            }
+            this.profiler = HibernateProfiler.forConnection(((HibernateConnection) ((JdbcConnection) conn).getUnderlyingConnection()));
+            this.bulkSnapshot = Boolean.valueOf(((HibernateConnection) ((JdbcConnection) conn).getUnderlyingConnection()).getProperties().getProperty(BULK_SNAPSHOT_PROPERTY, "false"));
+            this.snapshotThreads = readSnapshotThreads(((HibernateConnection) ((JdbcConnection) conn).getUnderlyingConnection()));
+            this.releaseConfiguration = Boolean.valueOf(((HibernateConnection) ((JdbcConnection) conn).getUnderlyingConnection()).getProperties().getProperty(RELEASE_CONFIGURATION_PROPERTY, "false"));
+            ((HibernateConnection) ((JdbcConnection) conn).getUnderlyingConnection()).setMetadataSource(new HibernateMetadataIndex.Source() {
+                public HibernateMetadataIndex buildMetadataIndex() throws SQLException {
+                    return createMetadataIndex();
+                }
+            });
 
-            this.configuration.buildMappings();
-            AuditConfiguration.getFor(configuration);
+            Phase phase = beginPhase("readModel");
+            if (readModel(((HibernateConnection) ((JdbcConnection) conn).getUnderlyingConnection()))) {
+                phase.end();
+                afterSetup();
+                return;
+            }
+            phase.end();
+
+            phase = beginPhase("readModelCache");
+            HibernateModelCache modelCache = HibernateModelCache.forConnection(this, ((HibernateConnection) ((JdbcConnection) conn).getUnderlyingConnection()));
+            if (modelCache != null && readModelCache(modelCache)) {
+                phase.end();
+                afterSetup();
+                return;
+            }
+
+            ClassLoader contextClassLoader = modelCache == null ? null : modelCache.startRecording();
+            try {
+                phase = beginPhase("buildConfiguration");
+                this.configuration = buildConfiguration(((HibernateConnection) ((JdbcConnection) conn).getUnderlyingConnection()));
+                phase.end();
+
+                phase = beginPhase("configureNamingStrategy");
+                configureNamingStrategy(this.configuration, ((HibernateConnection) ((JdbcConnection) conn).getUnderlyingConnection()));
+                phase.end();
+
+                phase = beginPhase("buildMappings");
+                this.configuration.buildMappings();
+                phase.end();
+
+                phase = beginPhase("configureEnvers");
+                configureEnvers(this.configuration, ((HibernateConnection) ((JdbcConnection) conn).getUnderlyingConnection()));
+                phase.end();
+            } finally {
+                if (modelCache != null) {
+                    modelCache.stopRecording(contextClassLoader);
+                }
+            }
+
+            phase = beginPhase("configureDialect");
             this.dialect = configureDialect();
+            phase.end();
 
             afterSetup();
+
+            byte[] model = null;
+            if (modelCache != null) {
+                phase = beginPhase("writeModelCache");
+                model = writeModelCache(modelCache);
+                phase.end();
+            }
+
+            if (releaseConfiguration) {
+                phase = beginPhase("releaseConfiguration");
+                releaseConfiguration(model);
+                phase.end();
+            }
         } catch (DatabaseException e) {
             throw new UnexpectedLiquibaseException(e);
         }
 
     }
 
+    private Phase beginPhase(String name) {
+        return new Phase(name, HibernateEvents.bootstrap(getConnection().getURL(), name));
+    }
+
+    /**
+     * A bootstrap phase in progress, reported to the {@link HibernateProfiler} and as a {@link HibernateEvents} event when it ends.
+     */
+    private class Phase {
+
+        private final String name;
+        private final long start = System.nanoTime();
+        private final HibernateEvents.Span event;
+
+        private Phase(String name, HibernateEvents.Span event) {
+            this.name = name;
+            this.event = event;
+        }
+
+        private void end() {
+            event.end();
+            if (profiler != null) {
+                profiler.record(HibernateProfiler.BOOTSTRAP, name, null, start, 0);
+            }
+        }
+    }
+
+    /**
+     * Writes the {@link HibernateProfiler} report, if profiling is enabled, and removes its shutdown hook before closing the connection.
+     */
+    @Override
+    public void close() throws DatabaseException {
+        try {
+            if (profiler != null) {
+                profiler.writeReportQuietly();
+                profiler.removeShutdownHook();
+            }
+        } finally {
+            super.close();
+        }
+    }
+
+    /**
+     * Snapshots the hibernate model and indexes its tables for the DatabaseMetaData of the connection.
+     */
+    protected HibernateMetadataIndex createMetadataIndex() throws SQLException {
+        try {
+            DatabaseSnapshot snapshot = SnapshotGeneratorFactory.getInstance().createSnapshot(CatalogAndSchema.DEFAULT, this, new SnapshotControl(this));
+            return new HibernateMetadataIndex(getDefaultSchemaName(), snapshot.get(Table.class));
+        } catch (Exception e) {
+            throw new SQLException("Cannot snapshot hibernate model: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Reads a model encoded by {@link HibernateModelCodec} instead of building the hibernate configuration, using
+     * {@link #useEncodedModel(ByteBuffer)}. Returns false if the configuration needs to be built, which is always the case here.
+     */
+    protected boolean readModel(HibernateConnection connection) throws DatabaseException {
+        return false;
+    }
+
+    /**
+     * Uses the model stored in the given cache instead of building the hibernate configuration, if the cache has one.
+     * Returns false if the configuration needs to be built.
+     */
+    protected boolean readModelCache(HibernateModelCache modelCache) {
+        byte[] model = modelCache.read();
+        if (model == null) {
+            return false;
+        }
+        try {
+            useEncodedModel(ByteBuffer.wrap(model));
+        } catch (Exception e) {
+            LOG.warning("Ignoring unreadable cached hibernate model " + modelCache.getFile(), e);
+            return false;
+        }
+        LOG.info("Using cached hibernate model " + modelCache.getFile());
+        return true;
+    }
+
+    /**
+     * Makes the snapshot generators serve the given encoded model, with the dialect it was extracted with, instead of reading the
+     * hibernate configuration. The buffer is not copied, so it may be a memory mapped file.
+     */
+    protected void useEncodedModel(ByteBuffer model) throws DatabaseException {
+        String dialectClassName;
+        try {
+            dialectClassName = HibernateModelCodec.readDialectClassName(model);
+        } catch (IOException e) {
+            throw new DatabaseException("Cannot read encoded hibernate model", e);
+        }
+        this.dialect = createDialect(dialectClassName);
+        this.configuration = null;
+        this.cachedModel = model;
+    }
+
+    /**
+     * Snapshots the hibernate configuration and stores the result in the given cache, returning the encoded model.
+     * Failing to store the model is not an error, the next connection builds the configuration again, and null is returned.
+     */
+    protected byte[] writeModelCache(HibernateModelCache modelCache) {
+        try {
+            byte[] model = extractModel();
+            modelCache.write(model, configuration);
+            LOG.info("Stored hibernate model in " + modelCache.getFile());
+            return model;
+        } catch (Exception e) {
+            LOG.warning("Cannot store hibernate model in " + modelCache.getFile(), e);
+            return null;
+        }
+    }
+
+    /**
+     * Snapshots the hibernate configuration and encodes the tables and sequences found with {@link HibernateModelCodec}.
+     */
+    protected byte[] extractModel() throws DatabaseException {
+        try {
+            DatabaseSnapshot snapshot = SnapshotGeneratorFactory.getInstance().createSnapshot(CatalogAndSchema.DEFAULT, this, new SnapshotControl(this));
+            return HibernateModelCodec.encode(dialect.getClass().getName(), snapshot.get(Table.class), snapshot.get(Sequence.class));
+        } catch (InvalidExampleException e) {
+            throw new DatabaseException(e);
+        } catch (IOException e) {
+            throw new DatabaseException("Cannot encode hibernate model", e);
+        }
+    }
+
+    /**
+     * Extracts the model of the hibernate configuration, unless it was read from an encoded model already, then releases the
+     * configuration, the Envers audit configuration and the indexes built from them, along with the entity classes they
+     * reference. Later snapshots are served from the extracted model, like a {@link HibernateModelCache cached model}, and
+     * {@link #getConfiguration()} returns null. Does nothing if there is no configuration to release.
+     * <p/>
+     * Done when the connection is set if the <code>hibernate.release_configuration</code> URL property is true.
+     */
+    public void releaseConfiguration() throws DatabaseException {
+        releaseConfiguration(null);
+    }
+
+    private void releaseConfiguration(byte[] model) throws DatabaseException {
+        if (configuration == null) {
+            return;
+        }
+        if (cachedModel == null) {
+            this.cachedModel = ByteBuffer.wrap(model == null ? extractModel() : model);
+        }
+        if (auditConfiguration != null) {
+            // removes it from the static map of Envers now, rather than once the weak key is collected
+            auditConfiguration.destroy();
+            auditConfiguration = null;
+        }
+        this.configuration = null;
+        this.tableIndex = null;
+        this.identifierGeneratorRegistry = null;
+        LOG.info("Released hibernate configuration of " + getConnection().getURL() + ", serving its extracted model");
+    }
+
     /**
      * Return the dialect used by hibernate
      */
     protected Dialect configureDialect() throws DatabaseException {
         Dialect dialect;
         String dialectString = configuration.getProperty("hibernate.dialect");
-        if (dialectString != null)
-            try {
-                dialect = (Dialect) Class.forName(dialectString).newInstance();
-                LOG.info("Using dialect " + dialectString);
-            } catch (Exception e) {
-                throw new DatabaseException(e);
-            }
-        else {
+        if (dialectString != null) {
+            dialect = createDialect(dialectString);
+            LOG.info("Using dialect " + dialectString);
+        } else {
             LOG.info("Could not determine hibernate dialect, using HibernateGenericDialect");
-            dialect = new HibernateGenericDialect();
+            dialect = createDialect(HibernateGenericDialect.class.getName());
         }
 
         return dialect;
     }
 
+    /**
+     * Returns the dialect of the given class from the {@link #getDialectRegistry() dialect registry}.
+     */
+    protected Dialect createDialect(String className) throws DatabaseException {
+        return getDialectRegistry().getDialect(className);
+    }
+
+    /**
+     * Returns the registry this database takes its dialect from, the {@link HibernateDialectRegistry#getInstance() shared registry} unless another one was set.
+     */
+    public HibernateDialectRegistry getDialectRegistry() {
+        return dialectRegistry == null ? HibernateDialectRegistry.getInstance() : dialectRegistry;
+    }
+
+    /**
+     * Makes this database take its dialect from the given registry instead of the shared one. Must be called before the connection is set.
+     */
+    public void setDialectRegistry(HibernateDialectRegistry dialectRegistry) {
+        this.dialectRegistry = dialectRegistry;
+    }
+
     /**
      * Configures the naming strategy use by the connection
      *
@@ -107,6 +382,53 @@ public abstract class HibernateDatabase extends AbstractJdbcDatabase {
         }
     }
 
+    /**
+     * Builds the Envers audit configuration, which adds the audit tables to the given configuration.
+     * The <code>hibernate.envers</code> URL property controls it: <code>true</code> always builds it, <code>false</code> never does,
+     * and by default it is only built if a mapped class is audited.
+     *
+     * @param configuration the {@link Configuration}, with its mappings built
+     * @param connection the {@link HibernateConnection}
+     */
+    protected void configureEnvers(Configuration configuration, HibernateConnection connection) {
+        String envers = connection.getProperties().getProperty(ENVERS_PROPERTY, "auto");
+        if ("false".equalsIgnoreCase(envers)) {
+            LOG.info("Envers audit tables are disabled");
+            return;
+        }
+        if (!"true".equalsIgnoreCase(envers) && !hasAuditedClasses(configuration)) {
+            LOG.info("No audited entities found, skipping Envers");
+            return;
+        }
+        auditConfiguration = AuditConfiguration.getFor(configuration);
+    }
+
+    /**
+     * Returns true if a mapped class, or one of its superclasses, is annotated with {@link Audited} or has an audited field or method.
+     */
+    protected boolean hasAuditedClasses(Configuration configuration) {
+        Iterator<PersistentClass> classMappings = configuration.getClassMappings();
+        while (classMappings.hasNext()) {
+            for (Class<?> type = classMappings.next().getMappedClass(); type != null && type != Object.class; type = type.getSuperclass()) {
+                if (type.isAnnotationPresent(Audited.class)
+                        || isAnyAudited(type.getDeclaredFields())
+                        || isAnyAudited(type.getDeclaredMethods())) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private boolean isAnyAudited(AnnotatedElement[] elements) {
+        for (AnnotatedElement element : elements) {
+            if (element.isAnnotationPresent(Audited.class)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     /**
      * Perform any post-configuration setting logic.
      */
@@ -161,6 +483,9 @@ public abstract class HibernateDatabase extends AbstractJdbcDatabase {
         return false;
     }
 
+    /**
+     * Returns the hibernate configuration, or null if the model was read from a {@link HibernateModelCache} or a snapshot file.
+     */
     public Configuration getConfiguration() throws DatabaseException {
         return configuration;
     }
@@ -169,6 +494,95 @@ public abstract class HibernateDatabase extends AbstractJdbcDatabase {
         return dialect;
     }
 
+    /**
+     * Returns true if the <code>hibernate.bulk_snapshot</code> URL property is set, in which case the tables, their columns, keys,
+     * constraints and indexes, the generator tables and the sequences of a schema are all found in a single walk over the hibernate
+     * model, rather than by each snapshot generator as the snapshot includes each table.
+     */
+    public boolean isBulkSnapshot() {
+        return bulkSnapshot || snapshotThreads > 1;
+    }
+
+    /**
+     * Returns the number of threads given by the <code>hibernate.snapshot_threads</code> URL property, on which the tables of a bulk snapshot
+     * are populated. More than one thread implies {@link #isBulkSnapshot()}. Defaults to 1, populating the tables on the snapshot thread.
+     */
+    public int getSnapshotThreads() {
+        return snapshotThreads;
+    }
+
+    private int readSnapshotThreads(HibernateConnection connection) {
+        String value = connection.getProperties().getProperty(SNAPSHOT_THREADS_PROPERTY);
+        if (value == null || value.trim().length() == 0) {
+            return 1;
+        }
+        if (value.trim().equalsIgnoreCase("auto")) {
+            return Runtime.getRuntime().availableProcessors();
+        }
+        try {
+            return Math.max(1, Integer.parseInt(value.trim()));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid " + SNAPSHOT_THREADS_PROPERTY + " value '" + value + "'", e);
+        }
+    }
+
+    /**
+     * Returns the profiler enabled by the <code>hibernate.profile_report</code> URL property, or null if profiling is disabled.
+     */
+    public HibernateProfiler getProfiler() {
+        return profiler;
+    }
+
+    /**
+     * Returns true if the model was read from a {@link HibernateModelCache} or a {@link HibernateSnapshotDatabase} file, or set by
+     * a {@link HibernateIncrementalSnapshot}, instead of a hibernate configuration.
+     */
+    public boolean isCachedModel() {
+        return cachedModel != null;
+    }
+
+    /**
+     * Makes the snapshot generators serve the given encoded model instead of reading the hibernate configuration.
+     * Used by {@link HibernateIncrementalSnapshot} to serve the model it merged from the previous and the current configuration.
+     */
+    void setCachedModel(byte[] model) {
+        this.cachedModel = ByteBuffer.wrap(model);
+    }
+
+    /**
+     * Decodes the cached model into new objects placed in the given schema, or returns null if the model was not read from a cache.
+     */
+    public HibernateModel readCachedModel(Schema schema) throws DatabaseException {
+        if (cachedModel == null) {
+            return null;
+        }
+        try {
+            return HibernateModelCodec.decode(cachedModel, schema);
+        } catch (IOException e) {
+            throw new DatabaseException(e);
+        }
+    }
+
+    /**
+     * Returns the {@link HibernateTableIndex} for the current configuration, building it on first use.
+     */
+    public HibernateTableIndex getTableIndex() throws DatabaseException {
+        if (tableIndex == null) {
+            tableIndex = new HibernateTableIndex(getConfiguration());
+        }
+        return tableIndex;
+    }
+
+    /**
+     * Returns the {@link HibernateIdentifierGeneratorRegistry} for the current configuration and dialect, building it on first use.
+     */
+    public HibernateIdentifierGeneratorRegistry getIdentifierGeneratorRegistry() throws DatabaseException {
+        if (identifierGeneratorRegistry == null) {
+            identifierGeneratorRegistry = new HibernateIdentifierGeneratorRegistry(getConfiguration(), getDialect(), profiler);
+        }
+        return identifierGeneratorRegistry;
+    }
+
     @Override
     protected String getConnectionCatalogName() throws DatabaseException {
         return getDefaultCatalogName();
@@ -0,0 +1,116 @@
+package liquibase.ext.hibernate.database;
+
+import liquibase.exception.DatabaseException;
+import org.hibernate.dialect.Dialect;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Creates hibernate {@link Dialect}s by class name, returning the same instance every time the same class name is asked for.
+ * A dialect holds no state specific to a configuration, so the databases given the same registry share their dialects
+ * instead of each creating its own. Databases not given a registry use the one returned by {@link #getInstance()}.
+ * <p/>
+ * The registry also remembers the SQL type names its dialects resolve, as most columns of a model share a few combinations
+ * of JDBC type code, length, precision and scale.
+ */
+public class HibernateDialectRegistry {
+
+    private static final HibernateDialectRegistry INSTANCE = new HibernateDialectRegistry();
+
+    private final ConcurrentMap<String, RegisteredDialect> dialects = new ConcurrentHashMap<String, RegisteredDialect>();
+
+    /**
+     * Returns the registry shared by all databases which were not given a registry of their own.
+     */
+    public static HibernateDialectRegistry getInstance() {
+        return INSTANCE;
+    }
+
+    public Dialect getDialect(String className) throws DatabaseException {
+        RegisteredDialect dialect = dialects.get(className);
+        if (dialect == null) {
+            dialect = new RegisteredDialect(createDialect(className));
+            RegisteredDialect existing = dialects.putIfAbsent(className, dialect);
+            if (existing != null) {
+                dialect = existing;
+            }
+        }
+        return dialect.dialect;
+    }
+
+    /**
+     * Returns the number of dialects created so far.
+     */
+    public int size() {
+        return dialects.size();
+    }
+
+    /**
+     * Returns the SQL type the given dialect uses for a column of the given JDBC type code, length, precision and scale,
+     * like {@link Dialect#getTypeName(int, long, int, int)}. The type is only resolved by the dialect the first time,
+     * for dialects created by this registry.
+     */
+    public String getTypeName(Dialect dialect, int sqlTypeCode, long length, int precision, int scale) {
+        RegisteredDialect registeredDialect = dialects.get(dialect.getClass().getName());
+        if (registeredDialect == null || registeredDialect.dialect != dialect) {
+            return dialect.getTypeName(sqlTypeCode, length, precision, scale);
+        }
+        TypeKey key = new TypeKey(sqlTypeCode, length, precision, scale);
+        String typeName = registeredDialect.typeNames.get(key);
+        if (typeName == null) {
+            typeName = dialect.getTypeName(sqlTypeCode, length, precision, scale);
+            registeredDialect.typeNames.putIfAbsent(key, typeName);
+        }
+        return typeName;
+    }
+
+    protected Dialect createDialect(String className) throws DatabaseException {
+        try {
+            return (Dialect) Class.forName(className).newInstance();
+        } catch (Exception e) {
+            throw new DatabaseException(e);
+        }
+    }
+
+    private static class RegisteredDialect {
+
+        private final Dialect dialect;
+        private final ConcurrentMap<TypeKey, String> typeNames = new ConcurrentHashMap<TypeKey, String>();
+
+        private RegisteredDialect(Dialect dialect) {
+            this.dialect = dialect;
+        }
+    }
+
+    private static class TypeKey {
+
+        private final int sqlTypeCode;
+        private final long length;
+        private final int precision;
+        private final int scale;
+        private final int hashCode;
+
+        private TypeKey(int sqlTypeCode, long length, int precision, int scale) {
+            this.sqlTypeCode = sqlTypeCode;
+            this.length = length;
+            this.precision = precision;
+            this.scale = scale;
+            this.hashCode = ((sqlTypeCode * 31 + (int) (length ^ (length >>> 32))) * 31 + precision) * 31 + scale;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof TypeKey)) {
+                return false;
+            }
+            TypeKey other = (TypeKey) o;
+            return sqlTypeCode == other.sqlTypeCode && length == other.length && precision == other.precision && scale == other.scale;
+        }
+
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+    }
+}
@@ -0,0 +1,165 @@
+package liquibase.ext.hibernate.database;
+
+import liquibase.ext.hibernate.database.connection.HibernateConnection;
+import liquibase.logging.LogFactory;
+import liquibase.logging.Logger;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Enumeration;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The entity classes listed in the <code>META-INF/liquibase-hibernate/entity.index</code> files written at compile time by the
+ * annotation processor of the liquibase-hibernate4-entity-index module.
+ * <p/>
+ * Reading the index replaces the classpath scanning spring and hibernate would otherwise do to find entities, which is slow
+ * on large jars. It is used when present, unless the <code>hibernate.entity_index</code> URL property is set to false.
+ * Classpath roots without an index, such as jars built without the annotation processor, are still scanned.
+ */
+public class HibernateEntityIndex {
+
+    public static final String INDEX_LOCATION = "META-INF/liquibase-hibernate/entity.index";
+    public static final String ENTITY_INDEX_PROPERTY = "hibernate.entity_index";
+
+    private static final Logger LOG = LogFactory.getLogger("liquibase-hibernate");
+
+    private final ClassLoader classLoader;
+    private final Map<String, Set<String>> classNamesByRoot = new LinkedHashMap<String, Set<String>>();
+
+    /**
+     * Reads every index visible to the given class loader.
+     */
+    public HibernateEntityIndex(ClassLoader classLoader) throws IOException {
+        this.classLoader = classLoader;
+        Enumeration<URL> resources = classLoader.getResources(INDEX_LOCATION);
+        while (resources.hasMoreElements()) {
+            URL resource = resources.nextElement();
+            String url = resource.toExternalForm();
+            String root = normalizeRoot(url.substring(0, url.length() - INDEX_LOCATION.length()));
+            Set<String> classNames = classNamesByRoot.get(root);
+            if (classNames == null) {
+                classNames = new LinkedHashSet<String>();
+                classNamesByRoot.put(root, classNames);
+            }
+            read(resource, classNames);
+        }
+    }
+
+    /**
+     * Returns the index visible to the context class loader, or null if there is none or the connection disables it.
+     */
+    public static HibernateEntityIndex forConnection(HibernateConnection connection) {
+        if (!Boolean.valueOf(connection.getProperties().getProperty(ENTITY_INDEX_PROPERTY, "true"))) {
+            return null;
+        }
+        ClassLoader classLoader = Thread.currentThread().getContextClassLoader();
+        if (classLoader == null) {
+            classLoader = HibernateEntityIndex.class.getClassLoader();
+        }
+        try {
+            HibernateEntityIndex index = new HibernateEntityIndex(classLoader);
+            return index.isEmpty() ? null : index;
+        } catch (IOException e) {
+            LOG.warning("Cannot read " + INDEX_LOCATION + ", scanning for entities instead", e);
+            return null;
+        }
+    }
+
+    public boolean isEmpty() {
+        return classNamesByRoot.isEmpty();
+    }
+
+    /**
+     * Returns the indexed classes in the given packages and their sub-packages, or null if one of the packages has no indexed
+     * class, in which case it has to be scanned. Classes in roots without an index are not included, they are found by scanning
+     * the {@link #getUnindexedPackageUrls(String[]) package directories of those roots}.
+     */
+    public List<String> getClassNames(String[] packageNames) {
+        Set<String> result = new LinkedHashSet<String>();
+        for (String packageName : packageNames) {
+            String prefix = packageName.trim() + ".";
+            boolean found = false;
+            for (Set<String> classNames : classNamesByRoot.values()) {
+                for (String className : classNames) {
+                    if (className.startsWith(prefix)) {
+                        found = true;
+                        result.add(className);
+                    }
+                }
+            }
+            if (!found) {
+                return null;
+            }
+        }
+        return new ArrayList<String>(result);
+    }
+
+    /**
+     * Returns the directories of the given packages in the classpath roots which have no index, and so have to be scanned.
+     */
+    public List<URL> getUnindexedPackageUrls(String[] packageNames) throws IOException {
+        Map<String, URL> urls = new LinkedHashMap<String, URL>();
+        for (String packageName : packageNames) {
+            String path = packageName.trim().replace('.', '/') + "/";
+            Enumeration<URL> resources = classLoader.getResources(path);
+            while (resources.hasMoreElements()) {
+                URL url = resources.nextElement();
+                String external = url.toExternalForm();
+                if (external.endsWith(path) && !classNamesByRoot.containsKey(normalizeRoot(external.substring(0, external.length() - path.length())))) {
+                    urls.put(external, url);
+                }
+            }
+        }
+        return new ArrayList<URL>(urls.values());
+    }
+
+    /**
+     * Returns the classes indexed in the given classpath root, such as a persistence unit root, or null if the root has no index.
+     */
+    public List<String> getClassNames(URL root) {
+        if (root == null) {
+            return null;
+        }
+        Set<String> classNames = classNamesByRoot.get(normalizeRoot(root.toExternalForm()));
+        return classNames == null ? null : new ArrayList<String>(classNames);
+    }
+
+    /**
+     * Turns "jar:file:/x.jar!/" into "file:/x.jar" and makes sure directory roots end with a slash.
+     */
+    protected static String normalizeRoot(String root) {
+        if (root.startsWith("jar:") && root.endsWith("!/")) {
+            return root.substring("jar:".length(), root.length() - "!/".length());
+        }
+        if (root.startsWith("file:") && !root.endsWith("/") && !root.endsWith(".jar")) {
+            return root + "/";
+        }
+        return root;
+    }
+
+    private void read(URL resource, Collection<String> classNames) throws IOException {
+        InputStream in = resource.openStream();
+        try {
+            BufferedReader reader = new BufferedReader(new InputStreamReader(in, "UTF-8"));
+            String line;
+            while ((line = reader.readLine()) != null) {
+                line = line.trim();
+                if (line.length() > 0 && !line.startsWith("#")) {
+                    classNames.add(line);
+                }
+            }
+        } finally {
+            in.close();
+        }
+    }
+}
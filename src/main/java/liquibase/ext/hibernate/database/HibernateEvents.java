@@ -0,0 +1,63 @@
+package liquibase.ext.hibernate.database;
+
+/**
+ * Emits Java Flight Recorder events for the configuration bootstrap phases, the snapshot generator invocations, the diffs
+ * and the changelog generation involving a hibernate database, so slow runs can be analysed from a recording.
+ * <p/>
+ * This version does nothing. The jar also contains a Java 11 version of this class, under META-INF/versions/11, which
+ * Java 11 and later load instead and which emits the events. Recording them does not need any change to the code or the url.
+ */
+public class HibernateEvents {
+
+    private static final Span NONE = new Span(null);
+
+    /**
+     * Returns true if snapshot events are recorded, so callers only work out the event details when they are needed.
+     */
+    public static boolean isSnapshotEnabled() {
+        return false;
+    }
+
+    /**
+     * Starts the event of a phase of {@link HibernateDatabase#setConnection(liquibase.database.DatabaseConnection)}.
+     */
+    public static Span bootstrap(String url, String phase) {
+        return NONE;
+    }
+
+    /**
+     * Starts the event of a snapshot generator invocation.
+     *
+     * @param method "snapshotObject" or "addTo"
+     * @param table the table the object is or belongs to, or null
+     */
+    public static Span snapshot(String generator, String method, String objectType, String objectName, String table) {
+        return NONE;
+    }
+
+    /**
+     * Starts the event of comparing the snapshots of two databases.
+     */
+    public static Span diff(String referenceUrl, String comparisonUrl) {
+        return NONE;
+    }
+
+    /**
+     * Starts the event of a change generator handling a difference while generating a changelog.
+     */
+    public static Span changeGeneration(String generator, String objectType, String objectName) {
+        return NONE;
+    }
+
+    /**
+     * An event in progress, recorded when {@link #end()} is called.
+     */
+    public static class Span {
+
+        Span(Object event) {
+        }
+
+        public void end() {
+        }
+    }
+}
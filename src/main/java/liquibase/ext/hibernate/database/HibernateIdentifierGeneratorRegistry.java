@@ -0,0 +1,108 @@
+package liquibase.ext.hibernate.database;
+
+import org.hibernate.cfg.Configuration;
+import org.hibernate.dialect.Dialect;
+import org.hibernate.id.IdentifierGenerator;
+import org.hibernate.id.PersistentIdentifierGenerator;
+import org.hibernate.id.SequenceGenerator;
+import org.hibernate.id.enhanced.SequenceStyleGenerator;
+import org.hibernate.mapping.PersistentClass;
+import org.hibernate.mapping.RootClass;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Creates the {@link IdentifierGenerator} of every root entity of a hibernate {@link Configuration} exactly once.
+ * Sequences and generator tables shared by several entities are only reported once, in mapping order.
+ */
+public class HibernateIdentifierGeneratorRegistry {
+
+    private final List<IdentifierGenerator> identifierGenerators = new ArrayList<IdentifierGenerator>();
+    private final Set<String> sequenceNames = new LinkedHashSet<String>();
+    private final List<IdentifierGenerator> tableGenerators = new ArrayList<IdentifierGenerator>();
+
+    public HibernateIdentifierGeneratorRegistry(Configuration configuration, Dialect dialect) {
+        this(configuration, dialect, null);
+    }
+
+    /**
+     * Creates the identifier generators, recording the creation of each one with the given profiler if it is not null.
+     */
+    public HibernateIdentifierGeneratorRegistry(Configuration configuration, Dialect dialect, HibernateProfiler profiler) {
+        Set<String> seenSequences = new HashSet<String>();
+        Set<String> seenTables = new HashSet<String>();
+
+        Iterator<PersistentClass> classMappings = configuration.getClassMappings();
+        while (classMappings.hasNext()) {
+            PersistentClass persistentClass = classMappings.next();
+            if (persistentClass.isInherited()) {
+                continue;
+            }
+            long start = System.nanoTime();
+            IdentifierGenerator ig = persistentClass.getIdentifier().createIdentifierGenerator(
+                    configuration.getIdentifierGeneratorFactory(),
+                    dialect,
+                    null,
+                    null,
+                    (RootClass) persistentClass
+            );
+            identifierGenerators.add(ig);
+            if (profiler != null) {
+                profiler.record(HibernateProfiler.IDENTIFIER_GENERATOR, persistentClass.getEntityName(), persistentClass.getTable().getName(), start, 1);
+            }
+
+            String sequenceName = getSequenceName(ig);
+            if (sequenceName != null) {
+                if (seenSequences.add(sequenceName.toLowerCase(Locale.ENGLISH))) {
+                    sequenceNames.add(sequenceName);
+                }
+            } else if (ig instanceof PersistentIdentifierGenerator) {
+                Object generatorKey = ((PersistentIdentifierGenerator) ig).generatorKey();
+                if (generatorKey == null || seenTables.add(generatorKey.toString().toLowerCase(Locale.ENGLISH))) {
+                    tableGenerators.add(ig);
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the sequence backing the given generator, or null if it is not sequence based.
+     */
+    protected String getSequenceName(IdentifierGenerator ig) {
+        if (ig instanceof SequenceGenerator) {
+            return ((SequenceGenerator) ig).getSequenceName();
+        } else if (ig instanceof SequenceStyleGenerator) {
+            return (String) ((SequenceStyleGenerator) ig).generatorKey();
+        }
+        return null;
+    }
+
+    /**
+     * Returns the identifier generator of every root entity, in mapping order.
+     */
+    public List<IdentifierGenerator> getIdentifierGenerators() {
+        return Collections.unmodifiableList(identifierGenerators);
+    }
+
+    /**
+     * Returns the distinct sequence names used by the identifier generators.
+     */
+    public Set<String> getSequenceNames() {
+        return Collections.unmodifiableSet(sequenceNames);
+    }
+
+    /**
+     * Returns one persistent, non-sequence identifier generator per generator table.
+     * These are the generators that may need a table of their own, such as {@link org.hibernate.id.enhanced.TableGenerator}.
+     */
+    public List<IdentifierGenerator> getTableGenerators() {
+        return Collections.unmodifiableList(tableGenerators);
+    }
+}
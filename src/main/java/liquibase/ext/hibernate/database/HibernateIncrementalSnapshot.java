@@ -0,0 +1,658 @@
+package liquibase.ext.hibernate.database;
+
+import liquibase.CatalogAndSchema;
+import liquibase.database.DatabaseFactory;
+import liquibase.exception.DatabaseException;
+import liquibase.logging.LogFactory;
+import liquibase.logging.Logger;
+import liquibase.resource.ClassLoaderResourceAccessor;
+import liquibase.snapshot.DatabaseSnapshot;
+import liquibase.snapshot.InvalidExampleException;
+import liquibase.snapshot.SnapshotControl;
+import liquibase.snapshot.SnapshotGeneratorFactory;
+import liquibase.structure.DatabaseObject;
+import liquibase.structure.core.ForeignKey;
+import liquibase.structure.core.Schema;
+import liquibase.structure.core.Sequence;
+import liquibase.structure.core.Table;
+import org.hibernate.MappingException;
+import org.hibernate.cfg.Configuration;
+import org.hibernate.mapping.Collection;
+import org.hibernate.mapping.Component;
+import org.hibernate.mapping.Join;
+import org.hibernate.mapping.PersistentClass;
+import org.hibernate.mapping.Property;
+import org.hibernate.mapping.Value;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.NodeList;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Array;
+import java.lang.reflect.Method;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps the model extracted from a hibernate URL between runs, and only snapshots again the tables affected by the entity
+ * classes and hbm.xml files changed since the previous run.
+ * <p/>
+ * Classes and resources are loaded from the given source directories first, by a new class loader on every refresh, so
+ * recompiled entities are picked up. Hibernate has no way to rebind part of a configuration, so a change still builds a new
+ * configuration. What is saved is the snapshot: only the tables mapped by the changed sources, and the tables they share
+ * foreign keys with, are snapshotted again; the other tables are taken from the previous model. Any other changed file,
+ * such as a cfg.xml or persistence.xml, makes the refresh snapshot everything.
+ * <p/>
+ * Changes to classes which are neither mapped, nor mapped superclasses or components of mapped classes, do not affect any table.
+ */
+public class HibernateIncrementalSnapshot {
+
+    private static final Logger LOG = LogFactory.getLogger("liquibase-hibernate");
+
+    private final String url;
+    private final List<File> sourceDirectories;
+    private final ClassLoader parentClassLoader;
+
+    private final Map<String, SourceFile> sourceFiles = new HashMap<String, SourceFile>();
+    private final Map<String, Set<String>> mappingFileEntities = new HashMap<String, Set<String>>();
+
+    private HibernateDatabase database;
+    private HibernateModel model;
+    private Map<String, Set<String>> tablesBySource;
+    private Set<String> refreshedTables = Collections.emptySet();
+
+    /**
+     * @param url the hibernate URL, as given to liquibase
+     * @param sourceDirectories the directories entity classes and mapping files are compiled or copied to
+     */
+    public HibernateIncrementalSnapshot(String url, File... sourceDirectories) {
+        this(url, Thread.currentThread().getContextClassLoader(), sourceDirectories);
+    }
+
+    public HibernateIncrementalSnapshot(String url, ClassLoader parentClassLoader, File... sourceDirectories) {
+        this.url = url;
+        this.parentClassLoader = parentClassLoader;
+        this.sourceDirectories = new ArrayList<File>();
+        for (File directory : sourceDirectories) {
+            this.sourceDirectories.add(directory.getAbsoluteFile());
+        }
+    }
+
+    /**
+     * Returns a database serving the model of the current sources. If no source changed since the previous call, the database
+     * returned by the previous call is returned again, otherwise that database is closed.
+     */
+    public synchronized HibernateDatabase refresh() throws DatabaseException {
+        Set<String> changedFiles = scanSourceFiles();
+        if (database != null && changedFiles.isEmpty()) {
+            refreshedTables = Collections.emptySet();
+            return database;
+        }
+
+        Thread thread = Thread.currentThread();
+        ClassLoader contextClassLoader = thread.getContextClassLoader();
+        ClassLoader classLoader = new SourceClassLoader(toUrls(sourceDirectories), parentClassLoader);
+        thread.setContextClassLoader(classLoader);
+        HibernateDatabase newDatabase = null;
+        try {
+            newDatabase = (HibernateDatabase) DatabaseFactory.getInstance().openDatabase(url, null, null, null, new ClassLoaderResourceAccessor(classLoader));
+            Configuration configuration = newDatabase.getConfiguration();
+            Map<String, Set<String>> newTablesBySource = configuration == null ? null : getTablesBySource(configuration);
+
+            Set<String> affectedTables = findAffectedTables(changedFiles, newTablesBySource, configuration);
+            List<Table> tables;
+            if (affectedTables == null) {
+                LOG.info("Snapshotting all tables of " + url);
+                tables = new ArrayList<Table>(snapshot(newDatabase, new SnapshotControl(newDatabase)).get(Table.class));
+                refreshedTables = new LinkedHashSet<String>();
+                for (Table table : tables) {
+                    refreshedTables.add(table.getName().toLowerCase(Locale.ENGLISH));
+                }
+            } else {
+                LOG.info("Snapshotting " + affectedTables.size() + " changed tables of " + url);
+                tables = mergeTables(newDatabase, affectedTables);
+                refreshedTables = affectedTables;
+            }
+            List<Sequence> sequences = new ArrayList<Sequence>(snapshot(newDatabase, new SnapshotControl(newDatabase, Sequence.class)).get(Sequence.class));
+
+            byte[] encoded = HibernateModelCodec.encode(newDatabase.getDialect().getClass().getName(), tables, sequences);
+            newDatabase.setCachedModel(encoded);
+            // the model is served from its encoded form, the configuration would only keep the entity classes loaded
+            newDatabase.releaseConfiguration();
+            this.model = HibernateModelCodec.decode(encoded, null);
+            this.tablesBySource = newTablesBySource;
+            HibernateDatabase previousDatabase = this.database;
+            this.database = newDatabase;
+            newDatabase = null;
+            close(previousDatabase);
+            return this.database;
+        } catch (IOException e) {
+            throw new DatabaseException(e);
+        } finally {
+            // only set if the refresh failed
+            close(newDatabase);
+            thread.setContextClassLoader(contextClassLoader);
+        }
+    }
+
+    private void close(HibernateDatabase database) {
+        if (database == null) {
+            return;
+        }
+        try {
+            database.close();
+        } catch (DatabaseException e) {
+            LOG.warning("Cannot close hibernate database " + url, e);
+        }
+    }
+
+    /**
+     * Returns the lower case names of the tables snapshotted by the last {@link #refresh()}. Empty if nothing changed.
+     */
+    public synchronized Set<String> getRefreshedTables() {
+        return Collections.unmodifiableSet(refreshedTables);
+    }
+
+    /**
+     * Refreshes the model every time a source file changes, until the calling thread is interrupted.
+     * Changes are detected with a java.nio.file.WatchService when the JVM has one, and by checking the source directories every
+     * <code>pollInterval</code> milliseconds otherwise.
+     */
+    public void watch(Listener listener, long pollInterval) throws DatabaseException, InterruptedException {
+        ChangeWaiter waiter = WatchServiceWaiter.create(sourceDirectories);
+        if (waiter == null) {
+            LOG.info("No WatchService available, polling " + sourceDirectories + " for changes");
+            waiter = new ChangeWaiter();
+        }
+        try {
+            HibernateDatabase current = refresh();
+            listener.modelRefreshed(current, getRefreshedTables());
+            while (true) {
+                waiter.await(pollInterval);
+                HibernateDatabase refreshed = refresh();
+                if (refreshed != current) {
+                    current = refreshed;
+                    listener.modelRefreshed(current, getRefreshedTables());
+                }
+            }
+        } finally {
+            waiter.close();
+        }
+    }
+
+    /**
+     * Returns the tables to snapshot again, or null if everything has to be snapshotted.
+     */
+    protected Set<String> findAffectedTables(Set<String> changedFiles, Map<String, Set<String>> newTablesBySource, Configuration configuration) {
+        if (model == null || tablesBySource == null || newTablesBySource == null) {
+            return null;
+        }
+
+        Set<String> changedSources = new HashSet<String>();
+        for (String path : changedFiles) {
+            if (path.endsWith(".class")) {
+                changedSources.add(path.substring(0, path.length() - ".class".length()).replace('/', '.'));
+            } else if (path.endsWith(".hbm.xml")) {
+                Set<String> entities = mappingFileEntities.get(path);
+                if (entities != null) {
+                    changedSources.addAll(entities);
+                }
+            } else {
+                LOG.info("Changed " + path + " affects the whole configuration");
+                return null;
+            }
+        }
+
+        Set<String> changedTables = new HashSet<String>();
+        for (String source : changedSources) {
+            addAll(changedTables, tablesBySource.get(source));
+            addAll(changedTables, newTablesBySource.get(source));
+        }
+
+        Set<String> previousTables = new HashSet<String>();
+        for (Table table : model.getTables()) {
+            previousTables.add(table.getName().toLowerCase(Locale.ENGLISH));
+        }
+        Iterator<org.hibernate.mapping.Table> tableMappings = configuration.getTableMappings();
+        while (tableMappings.hasNext()) {
+            org.hibernate.mapping.Table table = tableMappings.next();
+            if (table.isPhysicalTable() && !previousTables.contains(table.getName().toLowerCase(Locale.ENGLISH))) {
+                changedTables.add(table.getName().toLowerCase(Locale.ENGLISH));
+            }
+        }
+
+        // tables sharing a foreign key with a changed table, before or after the change
+        Set<String> affectedTables = new LinkedHashSet<String>(changedTables);
+        tableMappings = configuration.getTableMappings();
+        while (tableMappings.hasNext()) {
+            org.hibernate.mapping.Table table = tableMappings.next();
+            Iterator<org.hibernate.mapping.ForeignKey> foreignKeys = table.getForeignKeyIterator();
+            while (foreignKeys.hasNext()) {
+                org.hibernate.mapping.ForeignKey foreignKey = foreignKeys.next();
+                String tableName = table.getName().toLowerCase(Locale.ENGLISH);
+                String referencedTableName = foreignKey.getReferencedTable().getName().toLowerCase(Locale.ENGLISH);
+                if (changedTables.contains(tableName) || changedTables.contains(referencedTableName)) {
+                    affectedTables.add(tableName);
+                    affectedTables.add(referencedTableName);
+                }
+            }
+        }
+        for (Table table : model.getTables()) {
+            for (ForeignKey foreignKey : table.getOutgoingForeignKeys()) {
+                if (changedTables.contains(foreignKey.getPrimaryKeyTable().getName().toLowerCase(Locale.ENGLISH))) {
+                    affectedTables.add(table.getName().toLowerCase(Locale.ENGLISH));
+                }
+            }
+        }
+        return affectedTables;
+    }
+
+    /**
+     * Returns the tables of the previous model which are not affected, followed by a new snapshot of the affected ones.
+     */
+    protected List<Table> mergeTables(HibernateDatabase newDatabase, Set<String> affectedTables) throws DatabaseException {
+        List<Table> tables = new ArrayList<Table>();
+        for (Table table : model.getTables()) {
+            if (!affectedTables.contains(table.getName().toLowerCase(Locale.ENGLISH))) {
+                tables.add(table);
+            }
+        }
+        if (affectedTables.isEmpty()) {
+            return tables;
+        }
+
+        Schema schema = new Schema(newDatabase.getDefaultCatalogName(), newDatabase.getDefaultSchemaName());
+        List<DatabaseObject> examples = new ArrayList<DatabaseObject>();
+        for (String tableName : affectedTables) {
+            examples.add(new Table().setName(tableName).setSchema(schema));
+        }
+        try {
+            DatabaseSnapshot snapshot = SnapshotGeneratorFactory.getInstance().createSnapshot(examples.toArray(new DatabaseObject[examples.size()]), newDatabase, new SnapshotControl(newDatabase));
+            for (DatabaseObject example : examples) {
+                Table table = (Table) snapshot.get(example);
+                if (table != null) {
+                    tables.add(table);
+                }
+            }
+        } catch (InvalidExampleException e) {
+            throw new DatabaseException(e);
+        }
+        return tables;
+    }
+
+    /**
+     * Maps every entity name, class name, mapped superclass and component class of the configuration to the lower case names
+     * of the tables it maps. Envers audit entities are mapped under the name of the audited entity.
+     */
+    protected Map<String, Set<String>> getTablesBySource(Configuration configuration) {
+        Map<String, Set<String>> tables = new HashMap<String, Set<String>>();
+        String auditPrefix = configuration.getProperties().getProperty("org.hibernate.envers.audit_table_prefix", "");
+        String auditSuffix = configuration.getProperties().getProperty("org.hibernate.envers.audit_table_suffix", "_AUD");
+
+        Iterator<PersistentClass> classMappings = configuration.getClassMappings();
+        while (classMappings.hasNext()) {
+            PersistentClass persistentClass = classMappings.next();
+            Set<String> classTables = new HashSet<String>();
+            Set<String> sources = new HashSet<String>();
+
+            String entityName = persistentClass.getEntityName();
+            sources.add(entityName);
+            if (entityName.length() > auditPrefix.length() + auditSuffix.length() && entityName.startsWith(auditPrefix) && entityName.endsWith(auditSuffix)) {
+                sources.add(entityName.substring(auditPrefix.length(), entityName.length() - auditSuffix.length()));
+            }
+            if (persistentClass.getClassName() != null) {
+                sources.add(persistentClass.getClassName());
+                try {
+                    Class<?> mappedClass = persistentClass.getMappedClass();
+                    for (Class<?> type = mappedClass == null ? null : mappedClass.getSuperclass(); type != null && type != Object.class; type = type.getSuperclass()) {
+                        sources.add(type.getName());
+                    }
+                } catch (MappingException e) {
+                    // class not available, only its name is tracked
+                }
+            }
+
+            classTables.add(persistentClass.getTable().getName().toLowerCase(Locale.ENGLISH));
+            Iterator<Join> joins = persistentClass.getJoinIterator();
+            while (joins.hasNext()) {
+                classTables.add(joins.next().getTable().getName().toLowerCase(Locale.ENGLISH));
+            }
+            addPropertyTables(persistentClass.getPropertyClosureIterator(), classTables, sources);
+
+            for (String source : sources) {
+                Set<String> sourceTables = tables.get(source);
+                if (sourceTables == null) {
+                    sourceTables = new HashSet<String>();
+                    tables.put(source, sourceTables);
+                }
+                sourceTables.addAll(classTables);
+            }
+        }
+        return tables;
+    }
+
+    private void addPropertyTables(Iterator<Property> properties, Set<String> tables, Set<String> sources) {
+        while (properties.hasNext()) {
+            Value value = properties.next().getValue();
+            if (value instanceof Collection) {
+                tables.add(((Collection) value).getCollectionTable().getName().toLowerCase(Locale.ENGLISH));
+                value = ((Collection) value).getElement();
+            }
+            if (value instanceof Component) {
+                Component component = (Component) value;
+                if (component.getComponentClassName() != null) {
+                    sources.add(component.getComponentClassName());
+                }
+                addPropertyTables(component.getPropertyIterator(), tables, sources);
+            }
+        }
+    }
+
+    /**
+     * Compares the files of the source directories with the previous scan and returns the paths of the changed, added and removed ones.
+     * Files whose size and modification time changed but whose content did not, such as classes recompiled unchanged, are not returned.
+     */
+    protected Set<String> scanSourceFiles() throws DatabaseException {
+        Set<String> changed = new HashSet<String>();
+        Set<String> seen = new HashSet<String>();
+        try {
+            for (File directory : sourceDirectories) {
+                scanDirectory(directory, "", seen, changed);
+            }
+        } catch (IOException e) {
+            throw new DatabaseException(e);
+        }
+        for (Iterator<String> paths = sourceFiles.keySet().iterator(); paths.hasNext(); ) {
+            String path = paths.next();
+            if (!seen.contains(path)) {
+                paths.remove();
+                changed.add(path);
+            }
+        }
+        return changed;
+    }
+
+    private void scanDirectory(File directory, String path, Set<String> seen, Set<String> changed) throws IOException, DatabaseException {
+        File[] files = directory.listFiles();
+        if (files == null) {
+            return;
+        }
+        for (File file : files) {
+            String filePath = path + file.getName();
+            if (file.isDirectory()) {
+                scanDirectory(file, filePath + "/", seen, changed);
+            } else if (seen.add(filePath)) {
+                SourceFile previous = sourceFiles.get(filePath);
+                if (previous != null && previous.length == file.length() && previous.lastModified == file.lastModified()) {
+                    continue;
+                }
+                SourceFile current = new SourceFile(file);
+                sourceFiles.put(filePath, current);
+                if (previous == null || !previous.hash.equals(current.hash)) {
+                    changed.add(filePath);
+                    if (filePath.endsWith(".hbm.xml")) {
+                        readMappingFileEntities(filePath, file);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Records the entities declared in the given hbm.xml file, keeping those of the previous version so removed entities are refreshed too.
+     */
+    private void readMappingFileEntities(String path, File file) throws IOException, DatabaseException {
+        Set<String> entities = mappingFileEntities.get(path);
+        if (entities == null) {
+            entities = new HashSet<String>();
+            mappingFileEntities.put(path, entities);
+        }
+        Document document = new HibernateMappingDocumentParser(1).parse(file.toURI().toURL());
+        String packageName = document.getDocumentElement().getAttribute("package");
+        for (String tagName : new String[]{"class", "subclass", "joined-subclass", "union-subclass"}) {
+            NodeList elements = document.getElementsByTagName(tagName);
+            for (int i = 0; i < elements.getLength(); i++) {
+                Element element = (Element) elements.item(i);
+                String entityName = element.getAttribute("entity-name");
+                String className = element.getAttribute("name");
+                if (entityName.length() > 0) {
+                    entities.add(entityName);
+                }
+                if (className.length() > 0) {
+                    entities.add(className.indexOf('.') < 0 && packageName.length() > 0 ? packageName + "." + className : className);
+                }
+            }
+        }
+    }
+
+    private DatabaseSnapshot snapshot(HibernateDatabase database, SnapshotControl snapshotControl) throws DatabaseException {
+        try {
+            return SnapshotGeneratorFactory.getInstance().createSnapshot(CatalogAndSchema.DEFAULT, database, snapshotControl);
+        } catch (InvalidExampleException e) {
+            throw new DatabaseException(e);
+        }
+    }
+
+    private static void addAll(Set<String> target, Set<String> values) {
+        if (values != null) {
+            target.addAll(values);
+        }
+    }
+
+    private static URL[] toUrls(List<File> directories) throws DatabaseException {
+        URL[] urls = new URL[directories.size()];
+        for (int i = 0; i < urls.length; i++) {
+            try {
+                urls[i] = directories.get(i).toURI().toURL();
+            } catch (MalformedURLException e) {
+                throw new DatabaseException(e);
+            }
+        }
+        return urls;
+    }
+
+    /**
+     * Notified by {@link #watch(Listener, long)} after every refresh that changed the model.
+     */
+    public interface Listener {
+
+        void modelRefreshed(HibernateDatabase database, Set<String> refreshedTables) throws DatabaseException;
+    }
+
+    private static class SourceFile {
+
+        private final long length;
+        private final long lastModified;
+        private final String hash;
+
+        private SourceFile(File file) throws IOException {
+            this.length = file.length();
+            this.lastModified = file.lastModified();
+            MessageDigest digest;
+            try {
+                digest = MessageDigest.getInstance("SHA-1");
+            } catch (NoSuchAlgorithmException e) {
+                throw new IllegalStateException(e);
+            }
+            InputStream in = new FileInputStream(file);
+            try {
+                byte[] buffer = new byte[65536];
+                int read;
+                while ((read = in.read(buffer)) != -1) {
+                    digest.update(buffer, 0, read);
+                }
+            } finally {
+                in.close();
+            }
+            StringBuilder hash = new StringBuilder();
+            for (byte b : digest.digest()) {
+                hash.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+            }
+            this.hash = hash.toString();
+        }
+    }
+
+    /**
+     * Loads classes and resources from the source directories before asking its parent, so recompiled classes are seen
+     * even if the parent class loader has loaded the previous version.
+     */
+    private static class SourceClassLoader extends URLClassLoader {
+
+        private SourceClassLoader(URL[] urls, ClassLoader parent) {
+            super(urls, parent);
+        }
+
+        @Override
+        protected synchronized Class<?> loadClass(String name, boolean resolve) throws ClassNotFoundException {
+            Class<?> loadedClass = findLoadedClass(name);
+            if (loadedClass == null && !name.startsWith("java.") && !name.startsWith("liquibase.")) {
+                try {
+                    loadedClass = findClass(name);
+                } catch (ClassNotFoundException e) {
+                    // not in the source directories
+                }
+            }
+            if (loadedClass == null) {
+                return super.loadClass(name, resolve);
+            }
+            if (resolve) {
+                resolveClass(loadedClass);
+            }
+            return loadedClass;
+        }
+
+        @Override
+        public URL getResource(String name) {
+            URL resource = findResource(name);
+            return resource == null ? super.getResource(name) : resource;
+        }
+    }
+
+    /**
+     * Waits for the next change by sleeping for the poll interval.
+     */
+    private static class ChangeWaiter {
+
+        protected void await(long timeout) throws InterruptedException {
+            Thread.sleep(timeout);
+        }
+
+        protected void close() {
+        }
+    }
+
+    /**
+     * Waits for the next change with a java.nio.file.WatchService, used through reflection as it is not available before Java 7.
+     * WatchServices do not watch subdirectories, so the directories are registered again before every wait to pick up new ones.
+     */
+    private static class WatchServiceWaiter extends ChangeWaiter {
+
+        private final List<File> directories;
+        private final Object watchService;
+        private final Object kinds;
+        private final Method toPath;
+        private final Method register;
+        private final Method poll;
+        private final Method pollEvents;
+        private final Method reset;
+        private final Method close;
+
+        private WatchServiceWaiter(List<File> directories) throws Exception {
+            this.directories = directories;
+            Class<?> fileSystemClass = Class.forName("java.nio.file.FileSystem");
+            Class<?> watchServiceClass = Class.forName("java.nio.file.WatchService");
+            Class<?> watchKeyClass = Class.forName("java.nio.file.WatchKey");
+            Class<?> kindClass = Class.forName("java.nio.file.WatchEvent$Kind");
+            Class<?> kindsClass = Class.forName("java.nio.file.StandardWatchEventKinds");
+
+            Object fileSystem = Class.forName("java.nio.file.FileSystems").getMethod("getDefault").invoke(null);
+            this.kinds = Array.newInstance(kindClass, 3);
+            Array.set(kinds, 0, kindsClass.getField("ENTRY_CREATE").get(null));
+            Array.set(kinds, 1, kindsClass.getField("ENTRY_MODIFY").get(null));
+            Array.set(kinds, 2, kindsClass.getField("ENTRY_DELETE").get(null));
+            this.toPath = File.class.getMethod("toPath");
+            this.register = Class.forName("java.nio.file.Path").getMethod("register", watchServiceClass, kinds.getClass());
+            this.poll = watchServiceClass.getMethod("poll", long.class, TimeUnit.class);
+            this.pollEvents = watchKeyClass.getMethod("pollEvents");
+            this.reset = watchKeyClass.getMethod("reset");
+            this.close = watchServiceClass.getMethod("close");
+            this.watchService = fileSystemClass.getMethod("newWatchService").invoke(fileSystem);
+        }
+
+        /**
+         * Returns a waiter for the given directories, or null if the JVM has no WatchService.
+         */
+        private static ChangeWaiter create(List<File> directories) {
+            try {
+                return new WatchServiceWaiter(directories);
+            } catch (Exception e) {
+                return null;
+            }
+        }
+
+        @Override
+        protected void await(long timeout) throws InterruptedException {
+            try {
+                for (File directory : directories) {
+                    registerAll(directory);
+                }
+                Object key = poll.invoke(watchService, timeout, TimeUnit.MILLISECONDS);
+                while (key != null) {
+                    pollEvents.invoke(key);
+                    reset.invoke(key);
+                    // let the compiler finish writing before the directories are scanned
+                    key = poll.invoke(watchService, 50L, TimeUnit.MILLISECONDS);
+                }
+            } catch (InterruptedException e) {
+                throw e;
+            } catch (Exception e) {
+                if (e.getCause() instanceof InterruptedException) {
+                    throw (InterruptedException) e.getCause();
+                }
+                LOG.warning("WatchService failed, waiting " + timeout + "ms instead", e);
+                super.await(timeout);
+            }
+        }
+
+        private void registerAll(File directory) throws Exception {
+            if (!directory.isDirectory()) {
+                return;
+            }
+            register.invoke(toPath.invoke(directory), watchService, kinds);
+            File[] files = directory.listFiles();
+            if (files != null) {
+                for (File file : files) {
+                    if (file.isDirectory()) {
+                        registerAll(file);
+                    }
+                }
+            }
+        }
+
+        @Override
+        protected void close() {
+            try {
+                close.invoke(watchService);
+            } catch (Exception e) {
+                LOG.debug("Cannot close WatchService", e);
+            }
+        }
+    }
+}
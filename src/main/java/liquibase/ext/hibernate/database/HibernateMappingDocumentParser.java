@@ -0,0 +1,183 @@
+package liquibase.ext.hibernate.database;
+
+import liquibase.exception.DatabaseException;
+import liquibase.ext.hibernate.database.connection.HibernateConnection;
+import org.hibernate.internal.util.xml.DTDEntityResolver;
+import org.w3c.dom.Document;
+import org.xml.sax.EntityResolver;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+
+import javax.xml.parsers.DocumentBuilder;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StringReader;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Parses hibernate mapping documents on a bounded pool of threads.
+ * <p/>
+ * Each thread reuses a single non-validating {@link DocumentBuilder}. DTDs are resolved offline: the hibernate DTDs are read
+ * from the hibernate jar and any other external entity resolves to an empty document, so parsing never touches the network.
+ * The documents are returned in the order of the given URLs, so adding them to a configuration stays deterministic.
+ */
+public class HibernateMappingDocumentParser {
+
+    public static final String THREADS_PROPERTY = "hibernate.mapping_parse_threads";
+
+    private static final EntityResolver OFFLINE_ENTITY_RESOLVER = new EntityResolver() {
+
+        private final EntityResolver hibernateResolver = new DTDEntityResolver();
+
+        @Override
+        public InputSource resolveEntity(String publicId, String systemId) throws SAXException, IOException {
+            InputSource source = hibernateResolver.resolveEntity(publicId, systemId);
+            if (source == null) {
+                source = new InputSource(new StringReader(""));
+            }
+            return source;
+        }
+    };
+
+    private final int threads;
+
+    private final ThreadLocal<DocumentBuilder> documentBuilder = new ThreadLocal<DocumentBuilder>() {
+        @Override
+        protected DocumentBuilder initialValue() {
+            DocumentBuilderFactory documentBuilderFactory = DocumentBuilderFactory.newInstance();
+            documentBuilderFactory.setValidating(false);
+            try {
+                DocumentBuilder builder = documentBuilderFactory.newDocumentBuilder();
+                builder.setEntityResolver(OFFLINE_ENTITY_RESOLVER);
+                return builder;
+            } catch (ParserConfigurationException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+    };
+
+    /**
+     * @param threads the maximum number of documents parsed at the same time
+     */
+    public HibernateMappingDocumentParser(int threads) {
+        this.threads = Math.max(1, threads);
+    }
+
+    /**
+     * Returns a parser using the number of threads given by the <code>hibernate.mapping_parse_threads</code> URL property,
+     * defaulting to the number of available processors.
+     */
+    public static HibernateMappingDocumentParser forConnection(HibernateConnection connection) {
+        int threads = Runtime.getRuntime().availableProcessors();
+        String value = connection.getProperties().getProperty(THREADS_PROPERTY);
+        if (value != null && value.trim().length() > 0) {
+            try {
+                threads = Integer.parseInt(value.trim());
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Invalid " + THREADS_PROPERTY + " value '" + value + "'", e);
+            }
+        }
+        return new HibernateMappingDocumentParser(threads);
+    }
+
+    public int getThreads() {
+        return threads;
+    }
+
+    /**
+     * Parses the documents at the given URLs and returns them in the same order.
+     */
+    public List<Document> parse(List<URL> urls) throws DatabaseException {
+        List<Document> documents = new ArrayList<Document>(urls.size());
+        int poolSize = Math.min(threads, urls.size());
+        if (poolSize <= 1) {
+            for (URL url : urls) {
+                documents.add(parse(url));
+            }
+            return documents;
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(poolSize, new ParserThreadFactory());
+        try {
+            List<Future<Document>> futures = new ArrayList<Future<Document>>(urls.size());
+            for (final URL url : urls) {
+                futures.add(executor.submit(new Callable<Document>() {
+                    @Override
+                    public Document call() throws Exception {
+                        return parse(url);
+                    }
+                }));
+            }
+            for (Future<Document> future : futures) {
+                documents.add(get(future));
+            }
+            return documents;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Parses a single document on the calling thread.
+     */
+    public Document parse(URL url) throws DatabaseException {
+        try {
+            InputStream in = url.openStream();
+            try {
+                InputSource source = new InputSource(in);
+                source.setSystemId(url.toExternalForm());
+                return documentBuilder.get().parse(source);
+            } finally {
+                in.close();
+            }
+        } catch (SAXException e) {
+            throw new DatabaseException("Error reading document " + url, e);
+        } catch (IOException e) {
+            throw new DatabaseException("Error reading document " + url, e);
+        }
+    }
+
+    private Document get(Future<Document> future) throws DatabaseException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new DatabaseException(e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof DatabaseException) {
+                throw (DatabaseException) cause;
+            } else if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            } else if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new DatabaseException(cause);
+        }
+    }
+
+    private static class ParserThreadFactory implements ThreadFactory {
+
+        private final ClassLoader contextClassLoader = Thread.currentThread().getContextClassLoader();
+        private final AtomicInteger count = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "liquibase-hibernate-mapping-parser-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            thread.setContextClassLoader(contextClassLoader);
+            return thread;
+        }
+    }
+}
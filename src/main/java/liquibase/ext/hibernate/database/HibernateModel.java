@@ -0,0 +1,61 @@
+package liquibase.ext.hibernate.database;
+
+import liquibase.structure.core.Sequence;
+import liquibase.structure.core.Table;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * The schema objects extracted from a hibernate configuration, as read back by {@link HibernateModelCodec}.
+ * Every decode returns new objects, so a model can be handed to a snapshot without being shared with other snapshots.
+ */
+public class HibernateModel {
+
+    private final String dialectClassName;
+    private final List<Table> tables;
+    private final List<Sequence> sequences;
+    private final Map<String, Table> tablesByName;
+
+    public HibernateModel(String dialectClassName, List<Table> tables, List<Sequence> sequences) {
+        this.dialectClassName = dialectClassName;
+        this.tables = tables;
+        this.sequences = sequences;
+        this.tablesByName = new HashMap<String, Table>();
+        for (Table table : tables) {
+            String key = table.getName() == null ? null : table.getName().toLowerCase(Locale.ENGLISH);
+            if (key != null && !tablesByName.containsKey(key)) {
+                tablesByName.put(key, table);
+            }
+        }
+    }
+
+    /**
+     * Returns the class name of the dialect the model was extracted with.
+     */
+    public String getDialectClassName() {
+        return dialectClassName;
+    }
+
+    public List<Table> getTables() {
+        return Collections.unmodifiableList(tables);
+    }
+
+    public List<Sequence> getSequences() {
+        return Collections.unmodifiableList(sequences);
+    }
+
+    /**
+     * Returns the table with the given name, ignoring case, or null if the model has no such table. The first of the tables
+     * only differing by case is returned.
+     */
+    public Table findTable(String name) {
+        if (name == null) {
+            return null;
+        }
+        return tablesByName.get(name.toLowerCase(Locale.ENGLISH));
+    }
+}
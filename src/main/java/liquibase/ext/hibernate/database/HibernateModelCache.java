@@ -0,0 +1,496 @@
+package liquibase.ext.hibernate.database;
+
+import liquibase.ext.hibernate.database.connection.HibernateConnection;
+import liquibase.logging.LogFactory;
+import liquibase.logging.Logger;
+import org.hibernate.MappingException;
+import org.hibernate.cfg.Configuration;
+import org.hibernate.mapping.Collection;
+import org.hibernate.mapping.Component;
+import org.hibernate.mapping.IndexedCollection;
+import org.hibernate.mapping.PersistentClass;
+import org.hibernate.mapping.Property;
+import org.hibernate.mapping.Value;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.JarURLConnection;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+
+/**
+ * Opt-in, content addressed cache of the models extracted from hibernate configurations, enabled with the
+ * <code>hibernate.model_cache_dir</code> URL property.
+ * <p/>
+ * Models are looked up in two steps. The URL and the {@link #MODEL_PROPERTIES properties affecting the model} name a small
+ * inputs file, which lists the mapping resources read while the configuration was built and the entity classes it mapped,
+ * along with their superclasses and embeddable classes. The model itself is stored under a hash of the content of those
+ * inputs, read from the context class loader, including the classes of the packages and persistence units scanned for
+ * entities. Changing any of them therefore misses the cache, while changes to the rest of the classpath do not. The keys do not depend on file locations or timestamps, so the cache directory can be shared between
+ * machines building the same sources.
+ */
+public class HibernateModelCache {
+
+    public static final String CACHE_DIR_PROPERTY = "hibernate.model_cache_dir";
+
+    /**
+     * The URL properties that change the extracted model, and so are part of the cache key. Other properties, such as the
+     * profiling and snapshot options, are not. Properties starting with <code>org.hibernate.envers.</code> are included too.
+     */
+    public static final Set<String> MODEL_PROPERTIES = Collections.unmodifiableSet(new HashSet<String>(Arrays.asList(
+            "dialect",
+            "hibernate.dialect",
+            "hibernate.namingStrategy",
+            "hibernate.ejb.naming_strategy",
+            "hibernate.ejb.naming_strategy_delegator",
+            HibernateDatabase.ENVERS_PROPERTY,
+            "hibernate.enhanced_id",
+            "hibernate.id.new_generator_mappings",
+            "hibernate.default_schema",
+            "hibernate.default_catalog",
+            "bean",
+            "beanClass")));
+
+    private static final String ENVERS_PROPERTY_PREFIX = "org.hibernate.envers.";
+
+    private static final String RESOURCE = "resource:";
+    private static final String CLASS = "class:";
+
+    private static final String PERSISTENCE_XML = "META-INF/persistence.xml";
+
+    private static final Logger LOG = LogFactory.getLogger("liquibase-hibernate");
+
+    private final File directory;
+    private final String key;
+    private final Set<String> resources = Collections.synchronizedSet(new TreeSet<String>());
+    private volatile boolean recording;
+    private File file;
+
+    public HibernateModelCache(File directory, String key) {
+        this.directory = directory;
+        this.key = key;
+    }
+
+    /**
+     * Returns the cache for the given connection, or null if the connection does not enable caching.
+     */
+    public static HibernateModelCache forConnection(HibernateDatabase database, HibernateConnection connection) {
+        String directory = connection.getProperties().getProperty(CACHE_DIR_PROPERTY);
+        if (directory == null || directory.trim().length() == 0) {
+            return null;
+        }
+        return new HibernateModelCache(new File(directory), computeKey(database, connection));
+    }
+
+    /**
+     * Returns the file listing the inputs of the model.
+     */
+    public File getInputsFile() {
+        return new File(directory, key + ".inputs");
+    }
+
+    /**
+     * Returns the file the model was last read from or written to, or the {@link #getInputsFile() inputs file} before that.
+     */
+    public File getFile() {
+        return file == null ? getInputsFile() : file;
+    }
+
+    /**
+     * Returns the cached model, or null if there is none or it cannot be read.
+     */
+    public byte[] read() {
+        File inputsFile = getInputsFile();
+        if (!inputsFile.isFile()) {
+            return null;
+        }
+        try {
+            Set<String> inputs = new TreeSet<String>();
+            BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(inputsFile), "UTF-8"));
+            try {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    if (line.length() > 0) {
+                        inputs.add(line);
+                    }
+                }
+            } finally {
+                reader.close();
+            }
+
+            File modelFile = getModelFile(inputs);
+            if (!modelFile.isFile()) {
+                return null;
+            }
+            InputStream in = new FileInputStream(modelFile);
+            try {
+                ByteArrayOutputStream out = new ByteArrayOutputStream((int) modelFile.length());
+                copy(in, out);
+                this.file = modelFile;
+                return out.toByteArray();
+            } finally {
+                in.close();
+            }
+        } catch (IOException e) {
+            LOG.warning("Cannot read cached hibernate model " + inputsFile, e);
+            return null;
+        }
+    }
+
+    /**
+     * Starts recording the resources the configuration reads, by making the context class loader of the current thread
+     * a recording one. Returns the previous context class loader, to be passed to {@link #stopRecording(ClassLoader)}.
+     */
+    public ClassLoader startRecording() {
+        Thread thread = Thread.currentThread();
+        ClassLoader contextClassLoader = thread.getContextClassLoader();
+        recording = true;
+        thread.setContextClassLoader(new RecordingClassLoader(getClassLoader()));
+        return contextClassLoader;
+    }
+
+    /**
+     * Stops recording resources and restores the given context class loader.
+     */
+    public void stopRecording(ClassLoader contextClassLoader) {
+        recording = false;
+        Thread.currentThread().setContextClassLoader(contextClassLoader);
+    }
+
+    /**
+     * Stores the given model, extracted from the given configuration, under the hash of the recorded resources and of the entity
+     * classes of the configuration. Files are written under a temporary name first, so concurrent readers never see a partial
+     * file, and the model is written before the inputs file naming it.
+     */
+    public void write(byte[] model, Configuration configuration) throws IOException {
+        Set<String> inputs = new TreeSet<String>();
+        synchronized (resources) {
+            for (String resource : resources) {
+                inputs.add(RESOURCE + resource);
+            }
+        }
+        for (String className : getEntityClassNames(configuration)) {
+            inputs.add(CLASS + className);
+        }
+
+        File modelFile = getModelFile(inputs);
+        writeFile(modelFile, model);
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        for (String input : inputs) {
+            out.write(input.getBytes("UTF-8"));
+            out.write('\n');
+        }
+        writeFile(getInputsFile(), out.toByteArray());
+        this.file = modelFile;
+    }
+
+    private void writeFile(File file, byte[] content) throws IOException {
+        if (!directory.isDirectory() && !directory.mkdirs() && !directory.isDirectory()) {
+            throw new IOException("Cannot create directory " + directory);
+        }
+        File tempFile = File.createTempFile(file.getName(), ".tmp", directory);
+        try {
+            OutputStream out = new FileOutputStream(tempFile);
+            try {
+                out.write(content);
+            } finally {
+                out.close();
+            }
+            if (!tempFile.renameTo(file)) {
+                file.delete();
+                if (!tempFile.renameTo(file)) {
+                    throw new IOException("Cannot move " + tempFile + " to " + file);
+                }
+            }
+        } finally {
+            if (tempFile.exists()) {
+                tempFile.delete();
+            }
+        }
+    }
+
+    /**
+     * Returns the file of the model built from the given inputs, named by the hash of their current content. Resources which
+     * are directories, such as the packages spring scans for entities, and the roots of persistence units, which hibernate
+     * scans, are hashed by the names and content of the classes they contain, so adding an entity to them misses the cache.
+     */
+    protected File getModelFile(Set<String> inputs) throws IOException {
+        MessageDigest digest = createDigest();
+        update(digest, key);
+        ClassLoader classLoader = getClassLoader();
+        for (String input : inputs) {
+            update(digest, input);
+            if (input.startsWith(CLASS)) {
+                URL url = classLoader.getResource(input.substring(CLASS.length()).replace('.', '/') + ".class");
+                if (url != null) {
+                    updateUrl(digest, url);
+                }
+            } else if (input.startsWith(RESOURCE)) {
+                String name = input.substring(RESOURCE.length());
+                Enumeration<URL> urls = classLoader.getResources(name);
+                while (urls.hasMoreElements()) {
+                    URL url = urls.nextElement();
+                    if (name.endsWith("/") || isDirectory(url)) {
+                        updateClasses(digest, url);
+                    } else {
+                        updateUrl(digest, url);
+                    }
+                    if (name.equals(PERSISTENCE_XML)) {
+                        String external = url.toExternalForm();
+                        updateClasses(digest, new URL(external.substring(0, external.length() - PERSISTENCE_XML.length())));
+                    }
+                }
+            }
+        }
+        return new File(directory, toHex(digest.digest()) + ".model");
+    }
+
+    /**
+     * Returns the names of the mapped entity classes of the given configuration, of their superclasses and of the classes of
+     * their components, excluding JDK classes.
+     */
+    protected static Set<String> getEntityClassNames(Configuration configuration) {
+        Set<String> classNames = new TreeSet<String>();
+        Iterator<PersistentClass> classMappings = configuration.getClassMappings();
+        while (classMappings.hasNext()) {
+            PersistentClass persistentClass = classMappings.next();
+            if (persistentClass.hasPojoRepresentation()) {
+                addClass(classNames, persistentClass.getMappedClass());
+            }
+            if (persistentClass.getIdentifier() != null) {
+                addValue(classNames, persistentClass.getIdentifier());
+            }
+            if (persistentClass.getIdentifierMapper() != null) {
+                addValue(classNames, persistentClass.getIdentifierMapper());
+            }
+            Iterator<Property> properties = persistentClass.getPropertyClosureIterator();
+            while (properties.hasNext()) {
+                addValue(classNames, properties.next().getValue());
+            }
+        }
+        return classNames;
+    }
+
+    private static void addValue(Set<String> classNames, Value value) {
+        if (value instanceof Component) {
+            Component component = (Component) value;
+            if (!component.isDynamic()) {
+                try {
+                    addClass(classNames, component.getComponentClass());
+                } catch (MappingException e) {
+                    // the component class cannot be loaded, its properties are still followed
+                }
+            }
+            Iterator<Property> properties = component.getPropertyIterator();
+            while (properties.hasNext()) {
+                addValue(classNames, properties.next().getValue());
+            }
+        } else if (value instanceof Collection) {
+            addValue(classNames, ((Collection) value).getElement());
+            if (value instanceof IndexedCollection) {
+                addValue(classNames, ((IndexedCollection) value).getIndex());
+            }
+        }
+    }
+
+    private static void addClass(Set<String> classNames, Class<?> type) {
+        for (Class<?> current = type; current != null && current != Object.class; current = current.getSuperclass()) {
+            if (current.getName().startsWith("java.") || !classNames.add(current.getName())) {
+                return;
+            }
+        }
+    }
+
+    protected static String computeKey(HibernateDatabase database, HibernateConnection connection) {
+        MessageDigest digest = createDigest();
+        update(digest, "format:" + HibernateModelCodec.FORMAT_VERSION);
+        update(digest, "database:" + database.getClass().getName());
+        update(digest, "prefix:" + connection.getPrefix());
+        update(digest, "path:" + connection.getPath());
+        for (String name : new TreeSet<String>(connection.getProperties().stringPropertyNames())) {
+            if (MODEL_PROPERTIES.contains(name) || name.startsWith(ENVERS_PROPERTY_PREFIX)) {
+                update(digest, "property:" + name + "=" + connection.getProperties().getProperty(name));
+            }
+        }
+        return toHex(digest.digest());
+    }
+
+    private static ClassLoader getClassLoader() {
+        ClassLoader classLoader = Thread.currentThread().getContextClassLoader();
+        if (classLoader instanceof RecordingClassLoader) {
+            classLoader = classLoader.getParent();
+        }
+        return classLoader == null ? HibernateModelCache.class.getClassLoader() : classLoader;
+    }
+
+    private static MessageDigest createDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-1");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String toHex(byte[] bytes) {
+        StringBuilder hex = new StringBuilder();
+        for (byte b : bytes) {
+            hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+        }
+        return hex.toString();
+    }
+
+    private static boolean isDirectory(URL url) {
+        File file = toFile(url);
+        return file != null && file.isDirectory();
+    }
+
+    private static File toFile(URL url) {
+        if (!"file".equals(url.getProtocol())) {
+            return null;
+        }
+        try {
+            return new File(url.toURI());
+        } catch (URISyntaxException e) {
+            return new File(url.getPath());
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Hashes the names and content of the classes in the given directory or jar directory, and in its sub-directories.
+     * The content of jar entries is hashed by their CRC.
+     */
+    private static void updateClasses(MessageDigest digest, URL url) throws IOException {
+        File directory = toFile(url);
+        if (directory != null) {
+            updateClasses(digest, directory, "");
+        } else if ("jar".equals(url.getProtocol())) {
+            JarURLConnection connection = (JarURLConnection) url.openConnection();
+            connection.setUseCaches(false);
+            JarFile jarFile = connection.getJarFile();
+            try {
+                String prefix = connection.getEntryName() == null ? "" : connection.getEntryName();
+                Map<String, Long> classes = new TreeMap<String, Long>();
+                Enumeration<JarEntry> entries = jarFile.entries();
+                while (entries.hasMoreElements()) {
+                    JarEntry entry = entries.nextElement();
+                    if (entry.getName().startsWith(prefix) && entry.getName().endsWith(".class")) {
+                        classes.put(entry.getName(), entry.getCrc());
+                    }
+                }
+                for (Map.Entry<String, Long> entry : classes.entrySet()) {
+                    update(digest, entry.getKey() + ":" + entry.getValue());
+                }
+            } finally {
+                jarFile.close();
+            }
+        }
+        digest.update((byte) 0);
+    }
+
+    private static void updateClasses(MessageDigest digest, File directory, String path) throws IOException {
+        String[] names = directory.list();
+        if (names == null) {
+            return;
+        }
+        Arrays.sort(names);
+        for (String name : names) {
+            File file = new File(directory, name);
+            if (file.isDirectory()) {
+                updateClasses(digest, file, path + name + "/");
+            } else if (name.endsWith(".class")) {
+                update(digest, path + name);
+                updateUrl(digest, file.toURI().toURL());
+            }
+        }
+    }
+
+    private static void updateUrl(MessageDigest digest, URL url) {
+        try {
+            InputStream in = url.openStream();
+            try {
+                byte[] buffer = new byte[65536];
+                int read;
+                while ((read = in.read(buffer)) != -1) {
+                    digest.update(buffer, 0, read);
+                }
+            } finally {
+                in.close();
+            }
+        } catch (IOException e) {
+            // the resource went away since it was found, its name is hashed anyway
+        }
+        digest.update((byte) 0);
+    }
+
+    private static void update(MessageDigest digest, String value) {
+        try {
+            digest.update(value.getBytes("UTF-8"));
+            digest.update((byte) 0);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static void copy(InputStream in, OutputStream out) throws IOException {
+        byte[] buffer = new byte[65536];
+        int read;
+        while ((read = in.read(buffer)) != -1) {
+            out.write(buffer, 0, read);
+        }
+    }
+
+    /**
+     * Delegates to the context class loader, recording the names of the resources other than classes looked up while the
+     * configuration is built. Lookups of the classpath roots, made when scanning for entities, are not recorded.
+     */
+    private class RecordingClassLoader extends ClassLoader {
+
+        private RecordingClassLoader(ClassLoader parent) {
+            super(parent);
+        }
+
+        @Override
+        public URL getResource(String name) {
+            record(name);
+            return super.getResource(name);
+        }
+
+        @Override
+        public Enumeration<URL> getResources(String name) throws IOException {
+            record(name);
+            return super.getResources(name);
+        }
+
+        private void record(String name) {
+            if (recording && name != null && !name.endsWith(".class")) {
+                String resource = name.startsWith("/") ? name.substring(1) : name;
+                if (resource.length() > 0) {
+                    resources.add(resource);
+                }
+            }
+        }
+    }
+}
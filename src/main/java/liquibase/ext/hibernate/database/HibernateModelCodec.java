@@ -0,0 +1,551 @@
+package liquibase.ext.hibernate.database;
+
+import liquibase.statement.DatabaseFunction;
+import liquibase.statement.SequenceCurrentValueFunction;
+import liquibase.statement.SequenceNextValueFunction;
+import liquibase.structure.DatabaseObject;
+import liquibase.structure.core.Catalog;
+import liquibase.structure.core.Column;
+import liquibase.structure.core.DataType;
+import liquibase.structure.core.Relation;
+import liquibase.structure.core.Schema;
+import liquibase.structure.core.Sequence;
+import liquibase.structure.core.Table;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Compact binary encoding of the tables and sequences of a completed hibernate snapshot.
+ * <p/>
+ * Objects are written generically from their attributes, so everything the snapshot generators set survives a round trip.
+ * Strings are written once to a string table and referenced by position, and shared objects such as the columns referenced by
+ * constraints are written once and referenced by position as well. Schemas and catalogs are written by name only: on decode, the
+ * schema matching the one passed to {@link #decode(byte[], Schema)} is replaced by that schema.
+ * <p/>
+ * The string table comes first and is followed by the objects, so a model can be decoded straight from a memory mapped file
+ * with {@link #decode(ByteBuffer, Schema)}. Decoded strings are interned, as most of them are identifiers repeated in every
+ * model decoded from the same data.
+ */
+public class HibernateModelCodec {
+
+    /**
+     * Identifies the encoding. Increment it whenever the format changes, so cached models written by older versions are not read.
+     */
+    public static final int FORMAT_VERSION = 1;
+
+    private static final int MAGIC = 0x4C484D43;
+
+    private static final int NULL = 0;
+    private static final int STRING = 1;
+    private static final int BOOLEAN = 2;
+    private static final int INTEGER = 3;
+    private static final int LONG = 4;
+    private static final int BIG_INTEGER = 5;
+    private static final int BIG_DECIMAL = 6;
+    private static final int DOUBLE = 7;
+    private static final int FLOAT = 8;
+    private static final int OBJECT = 9;
+    private static final int SCHEMA = 10;
+    private static final int CATALOG = 11;
+    private static final int LIST = 12;
+    private static final int SET = 13;
+    private static final int DATA_TYPE = 14;
+    private static final int AUTO_INCREMENT = 15;
+    private static final int FUNCTION = 16;
+    private static final int SEQUENCE_NEXT_VALUE = 17;
+    private static final int SEQUENCE_CURRENT_VALUE = 18;
+    private static final int ENUM = 19;
+    private static final int DATE = 20;
+
+    private HibernateModelCodec() {
+    }
+
+    /**
+     * Encodes the given tables and sequences, along with every object reachable from them.
+     */
+    public static byte[] encode(String dialectClassName, Collection<Table> tables, Collection<Sequence> sequences) throws IOException {
+        Encoder encoder = new Encoder();
+        List<Table> sortedTables = sortByName(tables);
+        List<Sequence> sortedSequences = sortByName(sequences);
+        for (Table table : sortedTables) {
+            encoder.collect(table);
+        }
+        for (Sequence sequence : sortedSequences) {
+            encoder.collect(sequence);
+        }
+
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(body);
+        out.writeInt(encoder.string(dialectClassName));
+        out.writeInt(encoder.objects.size());
+        for (DatabaseObject object : encoder.objects) {
+            out.writeInt(encoder.string(object.getClass().getName()));
+        }
+        for (DatabaseObject object : encoder.objects) {
+            Set<String> attributes = new TreeSet<String>(object.getAttributes());
+            attributes.remove("snapshotId");
+            out.writeInt(attributes.size());
+            for (String attribute : attributes) {
+                out.writeInt(encoder.string(attribute));
+                encoder.writeValue(out, object.getAttribute(attribute, Object.class));
+            }
+        }
+        writeObjectIds(out, encoder, sortedTables);
+        writeObjectIds(out, encoder, sortedSequences);
+        out.flush();
+
+        ByteArrayOutputStream result = new ByteArrayOutputStream(body.size() + 1024);
+        DataOutputStream header = new DataOutputStream(result);
+        header.writeInt(MAGIC);
+        header.writeInt(FORMAT_VERSION);
+        header.writeInt(encoder.strings.size());
+        for (String string : encoder.strings) {
+            byte[] bytes = string.getBytes("UTF-8");
+            header.writeInt(bytes.length);
+            header.write(bytes);
+        }
+        header.flush();
+        body.writeTo(result);
+        return result.toByteArray();
+    }
+
+    /**
+     * Decodes a model written by {@link #encode(String, Collection, Collection)}. Every call returns new objects.
+     * Objects in a schema with the same catalog and schema name as the given schema are placed in that schema.
+     */
+    public static HibernateModel decode(byte[] data, Schema schema) throws IOException {
+        return decode(new DataInputStream(new ByteArrayInputStream(data)), schema);
+    }
+
+    /**
+     * Decodes a model written by {@link #encode(String, Collection, Collection)} from the remaining bytes of the given buffer,
+     * without changing its position. The buffer may be shared by threads decoding it concurrently.
+     */
+    public static HibernateModel decode(ByteBuffer data, Schema schema) throws IOException {
+        return decode(new DataInputStream(new ByteBufferInputStream(data.duplicate())), schema);
+    }
+
+    /**
+     * Returns the class name of the dialect a model was encoded with, only reading the header and string table from the
+     * remaining bytes of the given buffer, without changing its position.
+     */
+    public static String readDialectClassName(ByteBuffer data) throws IOException {
+        ByteBuffer buffer = data.duplicate();
+        try {
+            checkHeader(buffer.getInt(), buffer.getInt());
+            int stringCount = buffer.getInt();
+            int[] offsets = new int[stringCount];
+            for (int i = 0; i < stringCount; i++) {
+                offsets[i] = buffer.position();
+                buffer.position(buffer.position() + 4 + buffer.getInt());
+            }
+            int id = buffer.getInt();
+            if (id < 0) {
+                return null;
+            }
+            buffer.position(offsets[id]);
+            byte[] bytes = new byte[buffer.getInt()];
+            buffer.get(bytes);
+            return new String(bytes, "UTF-8");
+        } catch (BufferUnderflowException e) {
+            throw new IOException("Truncated hibernate model", e);
+        } catch (IllegalArgumentException e) {
+            throw new IOException("Truncated hibernate model", e);
+        } catch (ArrayIndexOutOfBoundsException e) {
+            throw new IOException("Invalid hibernate model", e);
+        }
+    }
+
+    private static void checkHeader(int magic, int version) throws IOException {
+        if (magic != MAGIC) {
+            throw new IOException("Not an encoded hibernate model");
+        }
+        if (version != FORMAT_VERSION) {
+            throw new IOException("Unsupported hibernate model format version " + version);
+        }
+    }
+
+    private static HibernateModel decode(DataInputStream in, Schema schema) throws IOException {
+        checkHeader(in.readInt(), in.readInt());
+
+        Decoder decoder = new Decoder(schema);
+        int stringCount = in.readInt();
+        decoder.strings = new String[stringCount];
+        for (int i = 0; i < stringCount; i++) {
+            byte[] bytes = new byte[in.readInt()];
+            in.readFully(bytes);
+            decoder.strings[i] = new String(bytes, "UTF-8").intern();
+        }
+
+        String dialectClassName = decoder.string(in.readInt());
+        int objectCount = in.readInt();
+        decoder.objects = new DatabaseObject[objectCount];
+        for (int i = 0; i < objectCount; i++) {
+            decoder.objects[i] = (DatabaseObject) decoder.newInstance(decoder.string(in.readInt()));
+        }
+        for (int i = 0; i < objectCount; i++) {
+            int attributeCount = in.readInt();
+            for (int j = 0; j < attributeCount; j++) {
+                String attribute = decoder.string(in.readInt());
+                setAttribute(decoder.objects[i], attribute, decoder.readValue(in));
+            }
+        }
+
+        List<Table> tables = new ArrayList<Table>();
+        int tableCount = in.readInt();
+        for (int i = 0; i < tableCount; i++) {
+            tables.add((Table) decoder.objects[in.readInt()]);
+        }
+        List<Sequence> sequences = new ArrayList<Sequence>();
+        int sequenceCount = in.readInt();
+        for (int i = 0; i < sequenceCount; i++) {
+            sequences.add((Sequence) decoder.objects[in.readInt()]);
+        }
+        return new HibernateModel(dialectClassName, tables, sequences);
+    }
+
+    /**
+     * Sets an attribute read back from an encoded model. Some attributes are mirrored in fields, which are only set by their setters.
+     */
+    private static void setAttribute(DatabaseObject object, String attribute, Object value) {
+        if (object instanceof Relation && attribute.equals("name")) {
+            ((Relation) object).setName((String) value);
+        } else if (object instanceof Column && attribute.equals("name")) {
+            ((Column) object).setName((String) value);
+        } else if (object instanceof Column && attribute.equals("computed")) {
+            ((Column) object).setComputed((Boolean) value);
+        } else if (object instanceof Column && attribute.equals("descending")) {
+            ((Column) object).setDescending((Boolean) value);
+        } else {
+            object.setAttribute(attribute, value);
+        }
+    }
+
+    private static void writeObjectIds(DataOutputStream out, Encoder encoder, List<? extends DatabaseObject> objects) throws IOException {
+        out.writeInt(objects.size());
+        for (DatabaseObject object : objects) {
+            out.writeInt(encoder.objectIds.get(object));
+        }
+    }
+
+    private static <T extends DatabaseObject> List<T> sortByName(Collection<T> objects) {
+        List<T> sorted = new ArrayList<T>(objects);
+        Collections.sort(sorted, new Comparator<T>() {
+            @Override
+            public int compare(T o1, T o2) {
+                String name1 = o1.getName() == null ? "" : o1.getName();
+                String name2 = o2.getName() == null ? "" : o2.getName();
+                return name1.compareTo(name2);
+            }
+        });
+        return sorted;
+    }
+
+    private static class ByteBufferInputStream extends InputStream {
+        private final ByteBuffer buffer;
+
+        private ByteBufferInputStream(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public int read() {
+            return buffer.hasRemaining() ? buffer.get() & 0xFF : -1;
+        }
+
+        @Override
+        public int read(byte[] bytes, int offset, int length) {
+            if (length == 0) {
+                return 0;
+            }
+            if (!buffer.hasRemaining()) {
+                return -1;
+            }
+            length = Math.min(length, buffer.remaining());
+            buffer.get(bytes, offset, length);
+            return length;
+        }
+
+        @Override
+        public int available() {
+            return buffer.remaining();
+        }
+    }
+
+    private static class Encoder {
+        private final List<String> strings = new ArrayList<String>();
+        private final Map<String, Integer> stringIds = new HashMap<String, Integer>();
+        private final List<DatabaseObject> objects = new ArrayList<DatabaseObject>();
+        private final Map<DatabaseObject, Integer> objectIds = new IdentityHashMap<DatabaseObject, Integer>();
+
+        private int string(String string) {
+            if (string == null) {
+                return -1;
+            }
+            Integer id = stringIds.get(string);
+            if (id == null) {
+                id = strings.size();
+                strings.add(string);
+                stringIds.put(string, id);
+            }
+            return id;
+        }
+
+        /**
+         * Assigns ids to the given object and every object reachable from its attributes, depth first.
+         */
+        private void collect(Object value) {
+            if (value instanceof Schema || value instanceof Catalog) {
+                return;
+            }
+            if (value instanceof DatabaseObject) {
+                DatabaseObject object = (DatabaseObject) value;
+                if (objectIds.containsKey(object)) {
+                    return;
+                }
+                objectIds.put(object, objects.size());
+                objects.add(object);
+                for (String attribute : new TreeSet<String>(object.getAttributes())) {
+                    collect(object.getAttribute(attribute, Object.class));
+                }
+            } else if (value instanceof Collection) {
+                for (Object element : (Collection) value) {
+                    collect(element);
+                }
+            }
+        }
+
+        private void writeValue(DataOutputStream out, Object value) throws IOException {
+            if (value == null) {
+                out.writeByte(NULL);
+            } else if (value instanceof String) {
+                out.writeByte(STRING);
+                out.writeInt(string((String) value));
+            } else if (value instanceof Boolean) {
+                out.writeByte(BOOLEAN);
+                out.writeBoolean((Boolean) value);
+            } else if (value instanceof Integer) {
+                out.writeByte(INTEGER);
+                out.writeInt((Integer) value);
+            } else if (value instanceof Long) {
+                out.writeByte(LONG);
+                out.writeLong((Long) value);
+            } else if (value instanceof BigInteger) {
+                out.writeByte(BIG_INTEGER);
+                out.writeInt(string(value.toString()));
+            } else if (value instanceof BigDecimal) {
+                out.writeByte(BIG_DECIMAL);
+                out.writeInt(string(value.toString()));
+            } else if (value instanceof Double) {
+                out.writeByte(DOUBLE);
+                out.writeDouble((Double) value);
+            } else if (value instanceof Float) {
+                out.writeByte(FLOAT);
+                out.writeFloat((Float) value);
+            } else if (value instanceof Schema) {
+                out.writeByte(SCHEMA);
+                out.writeInt(string(((Schema) value).getCatalogName()));
+                out.writeInt(string(((Schema) value).getName()));
+            } else if (value instanceof Catalog) {
+                out.writeByte(CATALOG);
+                out.writeInt(string(((Catalog) value).getName()));
+            } else if (value instanceof DatabaseObject) {
+                out.writeByte(OBJECT);
+                out.writeInt(objectIds.get(value));
+            } else if (value instanceof List) {
+                out.writeByte(LIST);
+                writeValues(out, (Collection) value);
+            } else if (value instanceof Set) {
+                out.writeByte(SET);
+                writeValues(out, (Collection) value);
+            } else if (value instanceof DataType) {
+                DataType dataType = (DataType) value;
+                out.writeByte(DATA_TYPE);
+                out.writeInt(string(dataType.getTypeName()));
+                writeValue(out, dataType.getDataTypeId());
+                writeValue(out, dataType.getColumnSize());
+                writeValue(out, dataType.getColumnSizeUnit());
+                writeValue(out, dataType.getDecimalDigits());
+                writeValue(out, dataType.getRadix());
+                writeValue(out, dataType.getCharacterOctetLength());
+            } else if (value instanceof Column.AutoIncrementInformation) {
+                out.writeByte(AUTO_INCREMENT);
+                writeValue(out, ((Column.AutoIncrementInformation) value).getStartWith());
+                writeValue(out, ((Column.AutoIncrementInformation) value).getIncrementBy());
+            } else if (value instanceof SequenceNextValueFunction) {
+                out.writeByte(SEQUENCE_NEXT_VALUE);
+                out.writeInt(string(((SequenceNextValueFunction) value).getValue()));
+                out.writeInt(string(((SequenceNextValueFunction) value).getSequenceSchemaName()));
+            } else if (value instanceof SequenceCurrentValueFunction) {
+                out.writeByte(SEQUENCE_CURRENT_VALUE);
+                out.writeInt(string(((SequenceCurrentValueFunction) value).getValue()));
+                out.writeInt(string(((SequenceCurrentValueFunction) value).getSequenceSchemaName()));
+            } else if (value.getClass().equals(DatabaseFunction.class)) {
+                out.writeByte(FUNCTION);
+                out.writeInt(string(((DatabaseFunction) value).getValue()));
+            } else if (value instanceof Enum) {
+                out.writeByte(ENUM);
+                out.writeInt(string(((Enum) value).getDeclaringClass().getName()));
+                out.writeInt(string(((Enum) value).name()));
+            } else if (value instanceof Date) {
+                out.writeByte(DATE);
+                out.writeInt(string(value.getClass().getName()));
+                out.writeLong(((Date) value).getTime());
+            } else {
+                throw new IOException("Cannot encode value of type " + value.getClass().getName());
+            }
+        }
+
+        private void writeValues(DataOutputStream out, Collection values) throws IOException {
+            out.writeInt(values.size());
+            for (Object element : values) {
+                writeValue(out, element);
+            }
+        }
+    }
+
+    private static class Decoder {
+        private final Schema schema;
+        private String[] strings;
+        private DatabaseObject[] objects;
+
+        private Decoder(Schema schema) {
+            this.schema = schema;
+        }
+
+        private String string(int id) {
+            return id < 0 ? null : strings[id];
+        }
+
+        private Object newInstance(String className) throws IOException {
+            try {
+                return Class.forName(className).newInstance();
+            } catch (Exception e) {
+                throw new IOException("Cannot create " + className, e);
+            }
+        }
+
+        private Object readValue(DataInputStream in) throws IOException {
+            int type = in.readByte();
+            switch (type) {
+                case NULL:
+                    return null;
+                case STRING:
+                    return string(in.readInt());
+                case BOOLEAN:
+                    return in.readBoolean();
+                case INTEGER:
+                    return in.readInt();
+                case LONG:
+                    return in.readLong();
+                case BIG_INTEGER:
+                    return new BigInteger(string(in.readInt()));
+                case BIG_DECIMAL:
+                    return new BigDecimal(string(in.readInt()));
+                case DOUBLE:
+                    return in.readDouble();
+                case FLOAT:
+                    return in.readFloat();
+                case OBJECT:
+                    return objects[in.readInt()];
+                case SCHEMA:
+                    return readSchema(string(in.readInt()), string(in.readInt()));
+                case CATALOG:
+                    String catalogName = string(in.readInt());
+                    if (schema != null && equalsIgnoreCase(catalogName, schema.getCatalogName())) {
+                        return schema.getCatalog();
+                    }
+                    return new Catalog(catalogName);
+                case LIST:
+                    return readValues(in, new ArrayList<Object>());
+                case SET:
+                    return readValues(in, new HashSet<Object>());
+                case DATA_TYPE:
+                    DataType dataType = new DataType(string(in.readInt()));
+                    dataType.setDataTypeId((Integer) readValue(in));
+                    dataType.setColumnSize((Integer) readValue(in));
+                    dataType.setColumnSizeUnit((DataType.ColumnSizeUnit) readValue(in));
+                    dataType.setDecimalDigits((Integer) readValue(in));
+                    dataType.setRadix((Integer) readValue(in));
+                    dataType.setCharacterOctetLength((Integer) readValue(in));
+                    return dataType;
+                case AUTO_INCREMENT:
+                    BigInteger startWith = (BigInteger) readValue(in);
+                    BigInteger incrementBy = (BigInteger) readValue(in);
+                    return new Column.AutoIncrementInformation(startWith, incrementBy);
+                case SEQUENCE_NEXT_VALUE:
+                    SequenceNextValueFunction nextValue = new SequenceNextValueFunction(string(in.readInt()));
+                    nextValue.setSequenceSchemaName(string(in.readInt()));
+                    return nextValue;
+                case SEQUENCE_CURRENT_VALUE:
+                    SequenceCurrentValueFunction currentValue = new SequenceCurrentValueFunction(string(in.readInt()));
+                    currentValue.setSequenceSchemaName(string(in.readInt()));
+                    return currentValue;
+                case FUNCTION:
+                    return new DatabaseFunction(string(in.readInt()));
+                case ENUM:
+                    return readEnum(string(in.readInt()), string(in.readInt()));
+                case DATE:
+                    return readDate(string(in.readInt()), in.readLong());
+                default:
+                    throw new IOException("Unknown value type " + type);
+            }
+        }
+
+        private Schema readSchema(String catalogName, String schemaName) {
+            if (schema != null && equalsIgnoreCase(catalogName, schema.getCatalogName()) && equalsIgnoreCase(schemaName, schema.getName())) {
+                return schema;
+            }
+            return new Schema(catalogName, schemaName);
+        }
+
+        private Collection<Object> readValues(DataInputStream in, Collection<Object> values) throws IOException {
+            int size = in.readInt();
+            for (int i = 0; i < size; i++) {
+                values.add(readValue(in));
+            }
+            return values;
+        }
+
+        private Object readEnum(String className, String name) throws IOException {
+            try {
+                return Enum.valueOf((Class<Enum>) Class.forName(className), name);
+            } catch (Exception e) {
+                throw new IOException("Cannot read " + className + "." + name, e);
+            }
+        }
+
+        private Object readDate(String className, long time) throws IOException {
+            try {
+                return Class.forName(className).getConstructor(long.class).newInstance(time);
+            } catch (Exception e) {
+                throw new IOException("Cannot read " + className, e);
+            }
+        }
+
+        private boolean equalsIgnoreCase(String a, String b) {
+            return a == null ? b == null : a.equalsIgnoreCase(b);
+        }
+    }
+}
@@ -0,0 +1,338 @@
+package liquibase.ext.hibernate.database;
+
+import liquibase.ext.hibernate.database.connection.HibernateConnection;
+import liquibase.logging.LogFactory;
+import liquibase.logging.Logger;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Opt-in instrumentation of a {@link HibernateDatabase}, recording the wall time, call count and objects produced of the
+ * configuration bootstrap phases, of each snapshot generator's snapshotObject and addTo, of the hibernate table lookups and of
+ * the identifier generator creation. Snapshot generator time is also summed up per table.
+ * <p/>
+ * The <code>hibernate.profile_report</code> URL property enables it and names the file the report is written to when the
+ * database is closed, or when the JVM exits if it never is. The report is CSV if the file name ends with ".csv", JSON otherwise.
+ */
+public class HibernateProfiler {
+
+    public static final String REPORT_PROPERTY = "hibernate.profile_report";
+
+    public static final String BOOTSTRAP = "bootstrap";
+    public static final String SNAPSHOT_OBJECT = "snapshotObject";
+    public static final String ADD_TO = "addTo";
+    public static final String FIND_TABLE = "findHibernateTable";
+    public static final String IDENTIFIER_GENERATOR = "identifierGenerator";
+
+    public static final int SLOWEST_TABLES = 20;
+
+    private static final Logger LOG = LogFactory.getLogger("liquibase-hibernate");
+
+    private final File reportFile;
+    private final Map<String, Timing> timings = new HashMap<String, Timing>();
+    private final Map<String, Timing> tables = new HashMap<String, Timing>();
+    private boolean written = true;
+    private Thread shutdownHook;
+
+    public HibernateProfiler(File reportFile) {
+        this.reportFile = reportFile;
+    }
+
+    /**
+     * Returns a profiler writing to the file named by the <code>hibernate.profile_report</code> URL property, or null if the property is not set.
+     * The report is written when the JVM exits if it has not been written since the last recording, unless
+     * {@link #removeShutdownHook()} is called first.
+     */
+    public static HibernateProfiler forConnection(HibernateConnection connection) {
+        String report = connection.getProperties().getProperty(REPORT_PROPERTY);
+        if (report == null || report.trim().length() == 0) {
+            return null;
+        }
+        final HibernateProfiler profiler = new HibernateProfiler(new File(report.trim()));
+        profiler.shutdownHook = new Thread("liquibase-hibernate-profiler") {
+            @Override
+            public void run() {
+                if (!profiler.isWritten()) {
+                    profiler.writeReportQuietly();
+                }
+            }
+        };
+        Runtime.getRuntime().addShutdownHook(profiler.shutdownHook);
+        return profiler;
+    }
+
+    /**
+     * Removes the shutdown hook writing the report, so the JVM does not keep the profiler until it exits.
+     * Returns false if there was none, or the JVM is already shutting down.
+     */
+    public synchronized boolean removeShutdownHook() {
+        if (shutdownHook == null) {
+            return false;
+        }
+        Thread hook = shutdownHook;
+        shutdownHook = null;
+        try {
+            return Runtime.getRuntime().removeShutdownHook(hook);
+        } catch (IllegalStateException e) {
+            // the JVM is shutting down, the hook writes the report if it is still needed
+            return false;
+        }
+    }
+
+    public File getReportFile() {
+        return reportFile;
+    }
+
+    /**
+     * Records one call of the given category, started at the given {@link System#nanoTime()}.
+     *
+     * @param name what was called in the category, such as the phase or the generator class name
+     * @param table the table the call worked on, or null if it is not about a single table
+     * @param objects the number of objects the call produced
+     */
+    public void record(String category, String name, String table, long startNanos, int objects) {
+        long nanos = System.nanoTime() - startNanos;
+        synchronized (this) {
+            String key = category + "/" + name;
+            Timing timing = timings.get(key);
+            if (timing == null) {
+                timing = new Timing(category, name);
+                timings.put(key, timing);
+            }
+            timing.add(nanos, objects);
+
+            if (table != null && (SNAPSHOT_OBJECT.equals(category) || ADD_TO.equals(category))) {
+                String tableKey = table.toLowerCase(Locale.ENGLISH);
+                Timing tableTiming = tables.get(tableKey);
+                if (tableTiming == null) {
+                    tableTiming = new Timing("table", table);
+                    tables.put(tableKey, tableTiming);
+                }
+                tableTiming.add(nanos, objects);
+            }
+            written = false;
+        }
+    }
+
+    /**
+     * Returns what was recorded, by category then slowest first.
+     */
+    public synchronized List<Timing> getTimings() {
+        List<Timing> list = new ArrayList<Timing>(timings.values());
+        Collections.sort(list, new Comparator<Timing>() {
+            @Override
+            public int compare(Timing o1, Timing o2) {
+                int result = o1.getCategory().compareTo(o2.getCategory());
+                if (result != 0) {
+                    return result;
+                }
+                return compareSlowestFirst(o1, o2);
+            }
+        });
+        return list;
+    }
+
+    /**
+     * Returns the tables snapshot generators spent the most time on, slowest first.
+     */
+    public synchronized List<Timing> getSlowestTables(int limit) {
+        List<Timing> list = new ArrayList<Timing>(tables.values());
+        Collections.sort(list, new Comparator<Timing>() {
+            @Override
+            public int compare(Timing o1, Timing o2) {
+                return compareSlowestFirst(o1, o2);
+            }
+        });
+        return list.size() > limit ? new ArrayList<Timing>(list.subList(0, limit)) : list;
+    }
+
+    public synchronized boolean isWritten() {
+        return written;
+    }
+
+    /**
+     * Writes the report to the report file, as CSV if its name ends with ".csv" and as JSON otherwise.
+     */
+    public void writeReport() throws IOException {
+        List<Timing> timings;
+        List<Timing> slowestTables;
+        synchronized (this) {
+            timings = getTimings();
+            slowestTables = getSlowestTables(SLOWEST_TABLES);
+            written = true;
+        }
+        File parent = reportFile.getAbsoluteFile().getParentFile();
+        if (parent != null) {
+            parent.mkdirs();
+        }
+        PrintWriter writer = new PrintWriter(new OutputStreamWriter(new FileOutputStream(reportFile), "UTF-8"));
+        try {
+            if (reportFile.getName().toLowerCase(Locale.ENGLISH).endsWith(".csv")) {
+                writeCsv(writer, timings, slowestTables);
+            } else {
+                writeJson(writer, timings, slowestTables);
+            }
+        } finally {
+            writer.close();
+        }
+        if (writer.checkError()) {
+            throw new IOException("Error writing " + reportFile);
+        }
+    }
+
+    /**
+     * Writes the report, logging instead of failing if it cannot be written.
+     */
+    public void writeReportQuietly() {
+        try {
+            writeReport();
+            LOG.info("Wrote hibernate profile report " + reportFile);
+        } catch (IOException e) {
+            LOG.warning("Cannot write hibernate profile report " + reportFile, e);
+        }
+    }
+
+    protected void writeCsv(PrintWriter writer, List<Timing> timings, List<Timing> slowestTables) {
+        writer.println("category,name,count,total_ms,max_ms,objects");
+        for (Timing timing : timings) {
+            writeCsvRow(writer, timing);
+        }
+        for (Timing timing : slowestTables) {
+            writeCsvRow(writer, timing);
+        }
+    }
+
+    private void writeCsvRow(PrintWriter writer, Timing timing) {
+        writer.print(csv(timing.getCategory()));
+        writer.print(',');
+        writer.print(csv(timing.getName()));
+        writer.print(',');
+        writer.print(timing.getCount());
+        writer.print(',');
+        writer.print(millis(timing.getTotalNanos()));
+        writer.print(',');
+        writer.print(millis(timing.getMaxNanos()));
+        writer.print(',');
+        writer.println(timing.getObjects());
+    }
+
+    protected void writeJson(PrintWriter writer, List<Timing> timings, List<Timing> slowestTables) {
+        writer.println("{");
+        writer.println("  \"timings\": [");
+        writeJsonRows(writer, timings, true);
+        writer.println("  ],");
+        writer.println("  \"slowestTables\": [");
+        writeJsonRows(writer, slowestTables, false);
+        writer.println("  ]");
+        writer.println("}");
+    }
+
+    private void writeJsonRows(PrintWriter writer, List<Timing> timings, boolean withCategory) {
+        for (int i = 0; i < timings.size(); i++) {
+            Timing timing = timings.get(i);
+            writer.print("    {");
+            if (withCategory) {
+                writer.print("\"category\": " + json(timing.getCategory()) + ", ");
+            }
+            writer.print("\"name\": " + json(timing.getName())
+                    + ", \"count\": " + timing.getCount()
+                    + ", \"totalMs\": " + millis(timing.getTotalNanos())
+                    + ", \"maxMs\": " + millis(timing.getMaxNanos())
+                    + ", \"objects\": " + timing.getObjects() + "}");
+            writer.println(i < timings.size() - 1 ? "," : "");
+        }
+    }
+
+    private static int compareSlowestFirst(Timing o1, Timing o2) {
+        if (o1.getTotalNanos() != o2.getTotalNanos()) {
+            return o1.getTotalNanos() > o2.getTotalNanos() ? -1 : 1;
+        }
+        return o1.getName().compareTo(o2.getName());
+    }
+
+    private static String millis(long nanos) {
+        return String.format(Locale.ENGLISH, "%.3f", nanos / 1000000d);
+    }
+
+    private static String csv(String value) {
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0) {
+            return value;
+        }
+        return "\"" + value.replace("\"", "\"\"") + "\"";
+    }
+
+    private static String json(String value) {
+        StringBuilder json = new StringBuilder("\"");
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                json.append('\\').append(c);
+            } else if (c < ' ') {
+                json.append(String.format("\\u%04x", (int) c));
+            } else {
+                json.append(c);
+            }
+        }
+        return json.append('"').toString();
+    }
+
+    /**
+     * The calls recorded for one name of a category.
+     */
+    public static class Timing {
+
+        private final String category;
+        private final String name;
+        private long count;
+        private long totalNanos;
+        private long maxNanos;
+        private long objects;
+
+        public Timing(String category, String name) {
+            this.category = category;
+            this.name = name;
+        }
+
+        void add(long nanos, int objects) {
+            this.count++;
+            this.totalNanos += nanos;
+            this.maxNanos = Math.max(maxNanos, nanos);
+            this.objects += objects;
+        }
+
+        public String getCategory() {
+            return category;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        public long getTotalNanos() {
+            return totalNanos;
+        }
+
+        public long getMaxNanos() {
+            return maxNanos;
+        }
+
+        public long getObjects() {
+            return objects;
+        }
+    }
+}
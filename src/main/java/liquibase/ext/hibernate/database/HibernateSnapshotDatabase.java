@@ -0,0 +1,146 @@
+package liquibase.ext.hibernate.database;
+
+import liquibase.CatalogAndSchema;
+import liquibase.database.DatabaseConnection;
+import liquibase.exception.DatabaseException;
+import liquibase.ext.hibernate.database.connection.HibernateConnection;
+import liquibase.snapshot.DatabaseSnapshot;
+import liquibase.snapshot.InvalidExampleException;
+import liquibase.snapshot.SnapshotControl;
+import liquibase.snapshot.SnapshotGeneratorFactory;
+import liquibase.structure.core.Sequence;
+import liquibase.structure.core.Table;
+import org.hibernate.cfg.Configuration;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Database implementation for hibernate models exported to a file by {@link #export(HibernateDatabase, File)}, with URLs like
+ * <code>hibernate:snapshot:target/auction.model</code>.
+ * <p/>
+ * The file holds the snapshot of the hibernate model encoded by {@link HibernateModelCodec}, so neither the hibernate
+ * configuration nor the entity classes are needed to diff against it, only the dialect class. The file is memory mapped, and
+ * the path is looked up on the classpath if there is no such file.
+ */
+public class HibernateSnapshotDatabase extends HibernateDatabase {
+
+    public boolean isCorrectDatabaseImplementation(DatabaseConnection conn) throws DatabaseException {
+        return conn.getURL().startsWith("hibernate:snapshot:");
+    }
+
+    /**
+     * Snapshots the given database and writes its model to the given file, which can then be read with a
+     * <code>hibernate:snapshot:</code> URL. The file is written under a temporary name first, so readers never see a partial model.
+     */
+    public static void export(HibernateDatabase database, File file) throws DatabaseException {
+        DatabaseSnapshot snapshot;
+        try {
+            snapshot = SnapshotGeneratorFactory.getInstance().createSnapshot(CatalogAndSchema.DEFAULT, database, new SnapshotControl(database));
+        } catch (InvalidExampleException e) {
+            throw new DatabaseException(e);
+        }
+        try {
+            byte[] model = HibernateModelCodec.encode(database.getDialect().getClass().getName(), snapshot.get(Table.class), snapshot.get(Sequence.class));
+            File directory = file.getAbsoluteFile().getParentFile();
+            if (!directory.isDirectory() && !directory.mkdirs() && !directory.isDirectory()) {
+                throw new IOException("Cannot create directory " + directory);
+            }
+            File tempFile = File.createTempFile(file.getName(), ".tmp", directory);
+            try {
+                OutputStream out = new FileOutputStream(tempFile);
+                try {
+                    out.write(model);
+                } finally {
+                    out.close();
+                }
+                if (file.exists() && !file.delete()) {
+                    throw new IOException("Cannot replace " + file);
+                }
+                if (!tempFile.renameTo(file)) {
+                    throw new IOException("Cannot move " + tempFile + " to " + file);
+                }
+            } finally {
+                if (tempFile.exists()) {
+                    tempFile.delete();
+                }
+            }
+        } catch (IOException e) {
+            throw new DatabaseException("Cannot export hibernate model to " + file, e);
+        }
+    }
+
+    @Override
+    protected boolean readModel(HibernateConnection connection) throws DatabaseException {
+        String path = connection.getPath();
+        try {
+            File file = new File(path);
+            if (file.isFile()) {
+                LOG.info("Mapping hibernate model " + file);
+                useEncodedModel(map(file));
+            } else {
+                LOG.info("Reading hibernate model " + path + " from the classpath");
+                useEncodedModel(ByteBuffer.wrap(readResource(path)));
+            }
+        } catch (IOException e) {
+            throw new DatabaseException("Cannot read hibernate model " + path, e);
+        }
+        return true;
+    }
+
+    @Override
+    protected Configuration buildConfiguration(HibernateConnection connection) throws DatabaseException {
+        throw new DatabaseException(connection.getUrl() + " is an exported hibernate model, it has no hibernate configuration");
+    }
+
+    private ByteBuffer map(File file) throws IOException {
+        FileInputStream in = new FileInputStream(file);
+        try {
+            FileChannel channel = in.getChannel();
+            // the mapping stays valid once the channel is closed
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        } finally {
+            in.close();
+        }
+    }
+
+    private byte[] readResource(String path) throws IOException {
+        String name = path.startsWith("/") ? path.substring(1) : path;
+        ClassLoader classLoader = Thread.currentThread().getContextClassLoader();
+        if (classLoader == null) {
+            classLoader = getClass().getClassLoader();
+        }
+        InputStream in = classLoader.getResourceAsStream(name);
+        if (in == null) {
+            throw new IOException("No such file or classpath resource");
+        }
+        try {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buffer = new byte[65536];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                out.write(buffer, 0, read);
+            }
+            return out.toByteArray();
+        } finally {
+            in.close();
+        }
+    }
+
+    @Override
+    public String getShortName() {
+        return "hibernateSnapshot";
+    }
+
+    @Override
+    protected String getDefaultDatabaseProductName() {
+        return "Hibernate Snapshot";
+    }
+}
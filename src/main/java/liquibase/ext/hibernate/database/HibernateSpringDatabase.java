@@ -19,23 +19,31 @@ import org.springframework.core.io.ClassPathResource;
 import org.springframework.core.io.Resource;
 import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
 import org.springframework.core.io.support.ResourcePatternResolver;
+import org.springframework.core.type.classreading.CachingMetadataReaderFactory;
+import org.springframework.core.type.classreading.MetadataReader;
+import org.springframework.core.type.classreading.MetadataReaderFactory;
+import org.springframework.core.type.filter.AnnotationTypeFilter;
+import org.springframework.core.type.filter.TypeFilter;
 import org.springframework.orm.hibernate4.LocalSessionFactoryBean;
 import org.springframework.orm.jpa.persistenceunit.DefaultPersistenceUnitManager;
+import org.springframework.orm.jpa.persistenceunit.MutablePersistenceUnitInfo;
+import org.springframework.orm.jpa.persistenceunit.PersistenceUnitPostProcessor;
 import org.springframework.orm.jpa.persistenceunit.SmartPersistenceUnitInfo;
 import org.springframework.orm.jpa.vendor.HibernateJpaVendorAdapter;
 import org.w3c.dom.Document;
-import org.xml.sax.EntityResolver;
-import org.xml.sax.InputSource;
-import org.xml.sax.SAXException;
 
+import javax.persistence.Embeddable;
+import javax.persistence.Entity;
+import javax.persistence.MappedSuperclass;
 import javax.persistence.spi.PersistenceUnitInfo;
-import javax.xml.parsers.DocumentBuilder;
-import javax.xml.parsers.DocumentBuilderFactory;
 import java.io.IOException;
-import java.io.StringReader;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Properties;
+import java.util.Set;
 
 /**
  * Database implementation for "spring" hibernate configurations.
@@ -43,6 +51,14 @@ import java.util.Properties;
  */
 public class HibernateSpringDatabase extends HibernateDatabase {
 
+    /**
+     * The filters spring uses to find the entity classes when scanning packages.
+     */
+    private static final TypeFilter[] ENTITY_TYPE_FILTERS = new TypeFilter[] {
+            new AnnotationTypeFilter(Entity.class, false),
+            new AnnotationTypeFilter(Embeddable.class, false),
+            new AnnotationTypeFilter(MappedSuperclass.class, false)};
+
     public boolean isCorrectDatabaseImplementation(DatabaseConnection conn) throws DatabaseException {
         return conn.getURL().startsWith("hibernate:spring:");
     }
@@ -83,10 +99,6 @@ public class HibernateSpringDatabase extends HibernateDatabase {
     protected Configuration buildConfigurationFromXml(HibernateConnection connection) throws DatabaseException {
         Configuration config = new Configuration();
 
-        // Disable xml validation
-        DocumentBuilderFactory documentBuilderFactory = DocumentBuilderFactory.newInstance();
-        documentBuilderFactory.setValidating(false);
-
         // Read configuration
         BeanDefinitionRegistry registry = new SimpleBeanDefinitionRegistry();
         XmlBeanDefinitionReader reader = new XmlBeanDefinitionReader(registry);
@@ -133,28 +145,18 @@ public class HibernateSpringDatabase extends HibernateDatabase {
                 List<TypedStringValue> mappingLocations = (List<TypedStringValue>) mappingLocationsProp.getValue();
                 if (mappingLocations != null) {
                     ResourcePatternResolver resourcePatternResolver = new PathMatchingResourcePatternResolver();
+                    List<URL> mappingUrls = new ArrayList<URL>();
                     for (TypedStringValue mappingLocation : mappingLocations) {
                         LOG.info("Found mappingLocation " + mappingLocation.getValue());
                         Resource[] resources = resourcePatternResolver.getResources(mappingLocation.getValue());
                         for (int i = 0; i < resources.length; i++) {
                             LOG.info("Adding resource  " + resources[i].getURL());
-                            try {
-                                DocumentBuilder documentBuilder = documentBuilderFactory.newDocumentBuilder();
-                                // Disable DTD resolution
-                                documentBuilder.setEntityResolver(new EntityResolver() {
-
-                                    @Override
-                                    public InputSource resolveEntity(String arg0, String arg1) throws SAXException, IOException {
-                                        return new InputSource(new StringReader(""));
-                                    }
-                                });
-                                Document document = documentBuilder.parse(resources[i].getInputStream());
-                                config.addDocument(document);
-                            } catch (SAXException e) {
-                                throw new DatabaseException("Error reading document " + resources[i].getURL(), e);
-                            }
+                            mappingUrls.add(resources[i].getURL());
                         }
                     }
+                    for (Document document : HibernateMappingDocumentParser.forConnection(connection).parse(mappingUrls)) {
+                        config.addDocument(document);
+                    }
                 }
             }
         } catch (Exception e) {
@@ -216,7 +218,26 @@ public class HibernateSpringDatabase extends HibernateDatabase {
 
         DefaultPersistenceUnitManager internalPersistenceUnitManager = new DefaultPersistenceUnitManager();
 
-        internalPersistenceUnitManager.setPackagesToScan(packagesToScan);
+        HibernateEntityIndex entityIndex = HibernateEntityIndex.forConnection(connection);
+        final List<String> indexedClassNames = entityIndex == null ? null : getIndexedClassNames(entityIndex, packagesToScan);
+        if (indexedClassNames == null) {
+            internalPersistenceUnitManager.setPackagesToScan(packagesToScan);
+        } else {
+            LOG.info("Found " + indexedClassNames.size() + " indexed classes, only scanning the packages without an index");
+            // mapping resources, even none, make spring build the default unit without scanning anything
+            internalPersistenceUnitManager.setMappingResources(new String[0]);
+            internalPersistenceUnitManager.setPersistenceUnitPostProcessors(new PersistenceUnitPostProcessor() {
+                @Override
+                public void postProcessPersistenceUnitInfo(MutablePersistenceUnitInfo pui) {
+                    if (DefaultPersistenceUnitManager.ORIGINAL_DEFAULT_PERSISTENCE_UNIT_NAME.equals(pui.getPersistenceUnitName())
+                            && pui.excludeUnlistedClasses() && pui.getManagedClassNames().isEmpty()) {
+                        for (String className : indexedClassNames) {
+                            pui.addManagedClassName(className);
+                        }
+                    }
+                }
+            });
+        }
 
         String dialectName = connection.getProperties().getProperty("dialect", null);
         if (dialectName == null) {
@@ -247,6 +268,38 @@ public class HibernateSpringDatabase extends HibernateDatabase {
 
     }
 
+    /**
+     * Returns the indexed entity classes in the given packages, along with those found by scanning the classpath roots without an
+     * index, or null if the packages have to be scanned as a whole.
+     */
+    protected List<String> getIndexedClassNames(HibernateEntityIndex entityIndex, String[] packagesToScan) {
+        List<String> indexedClassNames = entityIndex.getClassNames(packagesToScan);
+        if (indexedClassNames == null) {
+            return null;
+        }
+        Set<String> classNames = new LinkedHashSet<String>(indexedClassNames);
+        try {
+            ResourcePatternResolver resolver = new PathMatchingResourcePatternResolver(Thread.currentThread().getContextClassLoader());
+            MetadataReaderFactory readerFactory = new CachingMetadataReaderFactory(resolver);
+            for (URL packageUrl : entityIndex.getUnindexedPackageUrls(packagesToScan)) {
+                LOG.info("Scanning " + packageUrl + ", which has no entity index");
+                for (Resource resource : resolver.getResources(packageUrl.toExternalForm() + "**/*.class")) {
+                    MetadataReader reader = readerFactory.getMetadataReader(resource);
+                    for (TypeFilter filter : ENTITY_TYPE_FILTERS) {
+                        if (filter.match(reader, readerFactory)) {
+                            classNames.add(reader.getClassMetadata().getClassName());
+                            break;
+                        }
+                    }
+                }
+            }
+        } catch (IOException e) {
+            LOG.warning("Cannot scan the classpath roots without an entity index, scanning all of them", e);
+            return null;
+        }
+        return new ArrayList<String>(classNames);
+    }
+
     @Override
     public String getShortName() {
         return "hibernateSpring";
@@ -0,0 +1,222 @@
+package liquibase.ext.hibernate.database;
+
+import liquibase.snapshot.DatabaseSnapshot;
+import liquibase.structure.core.Column;
+import liquibase.structure.core.ForeignKey;
+import liquibase.structure.core.Index;
+import liquibase.structure.core.PrimaryKey;
+import liquibase.structure.core.Sequence;
+import liquibase.structure.core.Table;
+import liquibase.structure.core.UniqueConstraint;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Structural hashes of the tables and sequences of a hibernate snapshot, used to find the tables changed since the model was
+ * last applied to a database.
+ * <p/>
+ * The hash of a table covers its columns, with their types, nullability, defaults and remarks, its primary key, unique
+ * constraints, indexes and outgoing foreign keys. It does not depend on the order hibernate lists them in. Fingerprints are
+ * keyed by "table:" or "sequence:" followed by the object name, and keys are compared ignoring case.
+ * <p/>
+ * The state file is a text file with one key and hash per line, sorted by key.
+ */
+public class HibernateTableFingerprints {
+
+    public static final String TABLE_PREFIX = "table:";
+    public static final String SEQUENCE_PREFIX = "sequence:";
+
+    private static final String HEADER = "# liquibase-hibernate table fingerprints";
+
+    private final Map<String, String> fingerprints;
+
+    private HibernateTableFingerprints(Map<String, String> fingerprints) {
+        this.fingerprints = fingerprints;
+    }
+
+    /**
+     * Computes the fingerprints of every table and sequence of the given snapshot.
+     */
+    public static HibernateTableFingerprints compute(DatabaseSnapshot snapshot) {
+        Map<String, String> fingerprints = new TreeMap<String, String>(String.CASE_INSENSITIVE_ORDER);
+        for (Table table : snapshot.get(Table.class)) {
+            fingerprints.put(TABLE_PREFIX + table.getName(), fingerprint(table));
+        }
+        for (Sequence sequence : snapshot.get(Sequence.class)) {
+            fingerprints.put(SEQUENCE_PREFIX + sequence.getName(), fingerprint(sequence));
+        }
+        return new HibernateTableFingerprints(fingerprints);
+    }
+
+    /**
+     * Reads the fingerprints written by {@link #write(File)}, or returns null if the file does not exist.
+     */
+    public static HibernateTableFingerprints read(File file) throws IOException {
+        if (!file.isFile()) {
+            return null;
+        }
+        Map<String, String> fingerprints = new TreeMap<String, String>(String.CASE_INSENSITIVE_ORDER);
+        BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(file), "UTF-8"));
+        try {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                line = line.trim();
+                if (line.length() == 0 || line.startsWith("#")) {
+                    continue;
+                }
+                int separator = line.lastIndexOf(' ');
+                if (separator <= 0) {
+                    throw new IOException("Invalid fingerprint in " + file + ": " + line);
+                }
+                fingerprints.put(line.substring(0, separator), line.substring(separator + 1));
+            }
+        } finally {
+            reader.close();
+        }
+        return new HibernateTableFingerprints(fingerprints);
+    }
+
+    /**
+     * Writes the fingerprints to the given file. The file is written under a temporary name first, so an interrupted write
+     * leaves the previous state in place.
+     */
+    public void write(File file) throws IOException {
+        File directory = file.getAbsoluteFile().getParentFile();
+        if (!directory.isDirectory() && !directory.mkdirs() && !directory.isDirectory()) {
+            throw new IOException("Cannot create directory " + directory);
+        }
+        File tempFile = File.createTempFile(file.getName(), ".tmp", directory);
+        try {
+            Writer writer = new OutputStreamWriter(new FileOutputStream(tempFile), "UTF-8");
+            try {
+                writer.write(HEADER + "\n");
+                for (Map.Entry<String, String> entry : fingerprints.entrySet()) {
+                    writer.write(entry.getKey() + " " + entry.getValue() + "\n");
+                }
+            } finally {
+                writer.close();
+            }
+            if (file.exists() && !file.delete()) {
+                throw new IOException("Cannot replace " + file);
+            }
+            if (!tempFile.renameTo(file)) {
+                throw new IOException("Cannot move " + tempFile + " to " + file);
+            }
+        } finally {
+            if (tempFile.exists()) {
+                tempFile.delete();
+            }
+        }
+    }
+
+    /**
+     * Returns the fingerprint keys, with the case of the object names.
+     */
+    public Set<String> getKeys() {
+        return Collections.unmodifiableSet(fingerprints.keySet());
+    }
+
+    public String get(String key) {
+        return fingerprints.get(key);
+    }
+
+    /**
+     * Returns the keys of the objects which were added, changed or removed since the given previous fingerprints.
+     * Removed objects keep the case of the previous name.
+     */
+    public Set<String> getChangedKeys(HibernateTableFingerprints previous) {
+        Set<String> changed = new LinkedHashSet<String>();
+        for (Map.Entry<String, String> entry : fingerprints.entrySet()) {
+            if (!entry.getValue().equals(previous.fingerprints.get(entry.getKey()))) {
+                changed.add(entry.getKey());
+            }
+        }
+        for (String key : previous.fingerprints.keySet()) {
+            if (!fingerprints.containsKey(key)) {
+                changed.add(key);
+            }
+        }
+        return changed;
+    }
+
+    protected static String fingerprint(Table table) {
+        List<String> lines = new ArrayList<String>();
+        for (Column column : table.getColumns()) {
+            lines.add("column:" + column.getName().toLowerCase() + "|" + column.getType() + "|" + column.isNullable() + "|" + column.isAutoIncrement()
+                    + "|" + column.getDefaultValue() + "|" + column.getRemarks());
+        }
+        PrimaryKey primaryKey = table.getPrimaryKey();
+        if (primaryKey != null) {
+            lines.add("primaryKey:" + primaryKey.getName() + "|" + String.valueOf(primaryKey.getColumnNames()).toLowerCase());
+        }
+        for (UniqueConstraint uniqueConstraint : table.getUniqueConstraints()) {
+            lines.add("unique:" + uniqueConstraint.getName() + "|" + String.valueOf(uniqueConstraint.getColumnNames()).toLowerCase());
+        }
+        for (Index index : table.getIndexes()) {
+            lines.add("index:" + index.getName() + "|" + index.isUnique() + "|" + getColumnNames(index.getColumns()));
+        }
+        for (ForeignKey foreignKey : table.getOutgoingForeignKeys()) {
+            lines.add("foreignKey:" + foreignKey.getName() + "|" + getColumnNames(foreignKey.getForeignKeyColumns())
+                    + "|" + (foreignKey.getPrimaryKeyTable() == null ? null : foreignKey.getPrimaryKeyTable().getName().toLowerCase())
+                    + "|" + getColumnNames(foreignKey.getPrimaryKeyColumns()) + "|" + foreignKey.getDeleteRule() + "|" + foreignKey.getUpdateRule());
+        }
+        Collections.sort(lines);
+        return hash(lines);
+    }
+
+    protected static String fingerprint(Sequence sequence) {
+        return hash(Collections.singletonList("sequence:" + sequence.getStartValue() + "|" + sequence.getIncrementBy()));
+    }
+
+    private static String getColumnNames(List<Column> columns) {
+        if (columns == null) {
+            return null;
+        }
+        StringBuilder names = new StringBuilder();
+        for (Column column : columns) {
+            if (names.length() > 0) {
+                names.append(',');
+            }
+            names.append(column.getName().toLowerCase());
+        }
+        return names.toString();
+    }
+
+    private static String hash(List<String> lines) {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-1");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        try {
+            for (String line : lines) {
+                digest.update(line.getBytes("UTF-8"));
+                digest.update((byte) 0);
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        StringBuilder hash = new StringBuilder();
+        for (byte b : digest.digest()) {
+            hash.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+        }
+        return hash.toString();
+    }
+}
@@ -0,0 +1,139 @@
+package liquibase.ext.hibernate.database;
+
+import org.hibernate.cfg.Configuration;
+import org.hibernate.mapping.Column;
+import org.hibernate.mapping.ForeignKey;
+import org.hibernate.mapping.Table;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Case-insensitive index of the {@link Table} mappings in a hibernate {@link Configuration}.
+ * It is built once per Configuration so the snapshot generators can resolve tables by name without scanning all table mappings.
+ */
+public class HibernateTableIndex {
+
+    private final Map<String, Table> tablesByName = new HashMap<String, Table>();
+    private final Map<String, Table> tablesByQualifiedName = new HashMap<String, Table>();
+    private final Map<Table, Map<String, Column>> columnsByTable = new IdentityHashMap<Table, Map<String, Column>>();
+    private final Map<String, List<ForeignKey>> foreignKeysByTableName = new HashMap<String, List<ForeignKey>>();
+
+    public HibernateTableIndex(Configuration configuration) {
+        if (configuration == null) {
+            // the model was read from a HibernateModelCache, there are no table mappings
+            return;
+        }
+        Iterator<Table> tableMappings = configuration.getTableMappings();
+        while (tableMappings.hasNext()) {
+            Table hibernateTable = tableMappings.next();
+            if (hibernateTable.getName() == null) {
+                continue;
+            }
+
+            // first mapping wins, like the linear scan this index replaces
+            String name = normalize(hibernateTable.getName());
+            if (!tablesByName.containsKey(name)) {
+                tablesByName.put(name, hibernateTable);
+            }
+            String qualifiedName = qualify(hibernateTable.getCatalog(), hibernateTable.getSchema(), hibernateTable.getName());
+            if (!tablesByQualifiedName.containsKey(qualifiedName)) {
+                tablesByQualifiedName.put(qualifiedName, hibernateTable);
+            }
+
+            Iterator fkIterator = hibernateTable.getForeignKeyIterator();
+            while (fkIterator.hasNext()) {
+                List<ForeignKey> foreignKeys = foreignKeysByTableName.get(name);
+                if (foreignKeys == null) {
+                    foreignKeys = new ArrayList<ForeignKey>();
+                    foreignKeysByTableName.put(name, foreignKeys);
+                }
+                foreignKeys.add((ForeignKey) fkIterator.next());
+            }
+        }
+    }
+
+    /**
+     * Returns the hibernate table with the given name, preferring a table in the given catalog and schema.
+     * The default {@link HibernateDatabase#DEFAULT_SCHEMA} catalog and schema match tables without an explicit catalog or schema.
+     * Returns null if no table has the given name.
+     */
+    public Table findTable(String catalog, String schema, String name) {
+        if (name == null) {
+            return null;
+        }
+        Table hibernateTable = tablesByQualifiedName.get(qualify(catalog, schema, name));
+        if (hibernateTable == null) {
+            hibernateTable = tablesByName.get(normalize(name));
+        }
+        return hibernateTable;
+    }
+
+    /**
+     * Returns the column of the given hibernate table with the given name, ignoring case.
+     * The name to column index of each table is built the first time one of its columns is looked up.
+     * Returns null if the table has no such column.
+     */
+    public Column findColumn(Table hibernateTable, String name) {
+        if (name == null) {
+            return null;
+        }
+        Map<String, Column> columns = columnsByTable.get(hibernateTable);
+        if (columns == null) {
+            columns = new HashMap<String, Column>();
+            Iterator columnIterator = hibernateTable.getColumnIterator();
+            while (columnIterator.hasNext()) {
+                Column hibernateColumn = (Column) columnIterator.next();
+                String columnName = normalize(hibernateColumn.getName());
+                if (!columns.containsKey(columnName)) {
+                    columns.put(columnName, hibernateColumn);
+                }
+            }
+            columnsByTable.put(hibernateTable, columns);
+        }
+        return columns.get(normalize(name));
+    }
+
+    /**
+     * Returns the foreign keys owned by all hibernate tables with the given name, ignoring case, in mapping order.
+     * Use {@link ForeignKey#getTable()} to tell apart owning tables with the same name in different schemas.
+     */
+    public List<ForeignKey> getForeignKeys(String tableName) {
+        if (tableName == null) {
+            return Collections.emptyList();
+        }
+        List<ForeignKey> foreignKeys = foreignKeysByTableName.get(normalize(tableName));
+        if (foreignKeys == null) {
+            return Collections.emptyList();
+        }
+        return Collections.unmodifiableList(foreignKeys);
+    }
+
+    /**
+     * Returns the number of distinct table names in the index.
+     */
+    public int size() {
+        return tablesByName.size();
+    }
+
+    private String qualify(String catalog, String schema, String name) {
+        return normalizeContainer(catalog) + "." + normalizeContainer(schema) + "." + normalize(name);
+    }
+
+    private String normalizeContainer(String name) {
+        if (name == null || name.equalsIgnoreCase(HibernateDatabase.DEFAULT_SCHEMA)) {
+            return "";
+        }
+        return normalize(name);
+    }
+
+    private String normalize(String name) {
+        return name.toLowerCase(Locale.ENGLISH);
+    }
+}
@@ -9,9 +9,12 @@ import org.hibernate.jpa.boot.internal.EntityManagerFactoryBuilderImpl;
 import org.hibernate.jpa.boot.spi.Bootstrap;
 import org.hibernate.service.ServiceRegistry;
 import org.springframework.orm.jpa.persistenceunit.DefaultPersistenceUnitManager;
+import org.springframework.orm.jpa.persistenceunit.MutablePersistenceUnitInfo;
+import org.springframework.orm.jpa.persistenceunit.PersistenceUnitPostProcessor;
 
 import javax.persistence.spi.PersistenceUnitInfo;
 import java.util.Collections;
+import java.util.List;
 
 /**
  * Database implementation for JPA configurations.
@@ -19,6 +22,8 @@ import java.util.Collections;
  */
 public class JpaPersistenceDatabase extends HibernateDatabase {
 
+    private static final String ARCHIVE_AUTODETECTION = "hibernate.archive.autodetection";
+
     public boolean isCorrectDatabaseImplementation(DatabaseConnection conn) throws DatabaseException {
         return conn.getURL().startsWith("jpa:persistence:");
     }
@@ -46,6 +51,16 @@ public class JpaPersistenceDatabase extends HibernateDatabase {
         internalPersistenceUnitManager.setPersistenceXmlLocation(connection.getPath());
         internalPersistenceUnitManager.setDefaultPersistenceUnitRootLocation(null);
 
+        final HibernateEntityIndex entityIndex = HibernateEntityIndex.forConnection(connection);
+        if (entityIndex != null) {
+            internalPersistenceUnitManager.setPersistenceUnitPostProcessors(new PersistenceUnitPostProcessor() {
+                @Override
+                public void postProcessPersistenceUnitInfo(MutablePersistenceUnitInfo pui) {
+                    addIndexedClasses(pui, entityIndex);
+                }
+            });
+        }
+
         internalPersistenceUnitManager.preparePersistenceUnitInfos();
         PersistenceUnitInfo persistenceUnitInfo = internalPersistenceUnitManager.obtainDefaultPersistenceUnitInfo();
 
@@ -55,6 +70,26 @@ public class JpaPersistenceDatabase extends HibernateDatabase {
         return builder.buildHibernateConfiguration(serviceRegistry);
     }
 
+    /**
+     * Lists the indexed classes of the persistence unit root in the unit, and turns off hibernate's class detection so the root
+     * is not scanned. Units excluding unlisted classes, or explicitly configuring detection, are left alone.
+     */
+    protected void addIndexedClasses(MutablePersistenceUnitInfo pui, HibernateEntityIndex entityIndex) {
+        if (pui.excludeUnlistedClasses() || pui.getProperties().getProperty(ARCHIVE_AUTODETECTION) != null) {
+            return;
+        }
+        List<String> classNames = entityIndex.getClassNames(pui.getPersistenceUnitRootUrl());
+        if (classNames == null) {
+            return;
+        }
+        LOG.info("Found " + classNames.size() + " indexed classes for persistence unit " + pui.getPersistenceUnitName());
+        for (String className : classNames) {
+            if (!pui.getManagedClassNames().contains(className)) {
+                pui.addManagedClassName(className);
+            }
+        }
+        pui.getProperties().setProperty(ARCHIVE_AUTODETECTION, "hbm");
+    }
 
     @Override
     public String getShortName() {
@@ -13,12 +13,16 @@ import java.util.concurrent.Executor;
  * Beyond standard Connection methods, this class exposes {@link #getPrefix()}, {@link #getPath()} and {@link #getProperties()} to access the setting passed in the JDBC URL.
  */
 public class HibernateConnection implements Connection {
+
     private String prefix;
     private String url;
 
     private String path;
     private Properties properties;
 
+    private HibernateMetadataIndex.Source metadataSource;
+    private HibernateMetadataIndex metadataIndex;
+
     public HibernateConnection(String url) {
         this.url = url;
 
@@ -60,6 +64,27 @@ public class HibernateConnection implements Connection {
         return properties;
     }
 
+    /**
+     * Sets where the tables returned by {@link #getMetaData()} come from. The index is built the first time it is needed and kept for the life of the connection.
+     */
+    public synchronized void setMetadataSource(HibernateMetadataIndex.Source metadataSource) {
+        this.metadataSource = metadataSource;
+        this.metadataIndex = null;
+    }
+
+    /**
+     * Returns the index of the hibernate model backing the DatabaseMetaData result sets, building it on first use.
+     * Returns an empty index if no metadata source has been set.
+     */
+    public synchronized HibernateMetadataIndex getMetadataIndex() throws SQLException {
+        if (metadataIndex == null) {
+            if (metadataSource == null) {
+                return HibernateMetadataIndex.EMPTY;
+            }
+            metadataIndex = metadataSource.buildMetadataIndex();
+        }
+        return metadataIndex;
+    }
     /**
      * Returns the entire connection URL
      */
@@ -140,7 +165,7 @@ public class HibernateConnection implements Connection {
     }
 
     public DatabaseMetaData getMetaData() throws SQLException {
-        return new HibernateConnectionMetadata(url);
+        return new HibernateConnectionMetadata(url, this);
     }
 
     public void setReadOnly(boolean readOnly) throws SQLException {
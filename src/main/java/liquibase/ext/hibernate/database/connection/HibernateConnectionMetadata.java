@@ -11,11 +11,30 @@ import java.sql.*;
 public class HibernateConnectionMetadata implements DatabaseMetaData {
 
     private String url;
+    private HibernateConnection connection;
 
     public HibernateConnectionMetadata(String url) {
         this.url = url;
     }
 
+    /**
+     * Creates metadata whose table, column, key and index result sets describe the hibernate model of the given connection.
+     */
+    public HibernateConnectionMetadata(String url, HibernateConnection connection) {
+        this.url = url;
+        this.connection = connection;
+    }
+
+    /**
+     * Returns the index of the hibernate model, or an empty index if this metadata is not attached to a connection.
+     */
+    protected HibernateMetadataIndex getMetadataIndex() throws SQLException {
+        if (connection == null) {
+            return HibernateMetadataIndex.EMPTY;
+        }
+        return connection.getMetadataIndex();
+    }
+
     public boolean allProceduresAreCallable() throws SQLException {
         return false;
     }
@@ -497,23 +516,23 @@ public class HibernateConnectionMetadata implements DatabaseMetaData {
     }
 
     public ResultSet getTables(String catalog, String schemaPattern, String tableNamePattern, String[] types) throws SQLException {
-        return null;
+        return getMetadataIndex().getTables(catalog, schemaPattern, tableNamePattern, types);
     }
 
     public ResultSet getSchemas() throws SQLException {
-        return null;
+        return getMetadataIndex().getSchemas(null, null);
     }
 
     public ResultSet getCatalogs() throws SQLException {
-        return null;
+        return getMetadataIndex().getCatalogs();
     }
 
     public ResultSet getTableTypes() throws SQLException {
-        return null;
+        return getMetadataIndex().getTableTypes();
     }
 
     public ResultSet getColumns(String catalog, String schemaPattern, String tableNamePattern, String columnNamePattern) throws SQLException {
-        return null;
+        return getMetadataIndex().getColumns(catalog, schemaPattern, tableNamePattern, columnNamePattern);
     }
 
     public ResultSet getColumnPrivileges(String catalog, String schema, String table, String columnNamePattern) throws SQLException {
@@ -533,19 +552,19 @@ public class HibernateConnectionMetadata implements DatabaseMetaData {
     }
 
     public ResultSet getPrimaryKeys(String catalog, String schema, String table) throws SQLException {
-        return null;
+        return getMetadataIndex().getPrimaryKeys(catalog, schema, table);
     }
 
     public ResultSet getImportedKeys(String catalog, String schema, String table) throws SQLException {
-        return null;
+        return getMetadataIndex().getImportedKeys(catalog, schema, table);
     }
 
     public ResultSet getExportedKeys(String catalog, String schema, String table) throws SQLException {
-        return null;
+        return getMetadataIndex().getExportedKeys(catalog, schema, table);
     }
 
     public ResultSet getCrossReference(String parentCatalog, String parentSchema, String parentTable, String foreignCatalog, String foreignSchema, String foreignTable) throws SQLException {
-        return null;
+        return getMetadataIndex().getCrossReference(parentCatalog, parentSchema, parentTable, foreignCatalog, foreignSchema, foreignTable);
     }
 
     public ResultSet getTypeInfo() throws SQLException {
@@ -553,7 +572,7 @@ public class HibernateConnectionMetadata implements DatabaseMetaData {
     }
 
     public ResultSet getIndexInfo(String catalog, String schema, String table, boolean unique, boolean approximate) throws SQLException {
-        return null;
+        return getMetadataIndex().getIndexInfo(catalog, schema, table, unique);
     }
 
     public boolean supportsResultSetType(int type) throws SQLException {
@@ -609,7 +628,7 @@ public class HibernateConnectionMetadata implements DatabaseMetaData {
     }
 
     public Connection getConnection() throws SQLException {
-        return null;
+        return connection;
     }
 
     public boolean supportsSavepoints() throws SQLException {
@@ -681,7 +700,7 @@ public class HibernateConnectionMetadata implements DatabaseMetaData {
     }
 
     public ResultSet getSchemas(String catalog, String schemaPattern) throws SQLException {
-        return null;
+        return getMetadataIndex().getSchemas(catalog, schemaPattern);
     }
 
     public boolean supportsStoredFunctionsUsingCallSyntax() throws SQLException {
@@ -0,0 +1,493 @@
+package liquibase.ext.hibernate.database.connection;
+
+import liquibase.structure.core.Column;
+import liquibase.structure.core.DataType;
+import liquibase.structure.core.ForeignKey;
+import liquibase.structure.core.ForeignKeyConstraintType;
+import liquibase.structure.core.Index;
+import liquibase.structure.core.PrimaryKey;
+import liquibase.structure.core.Schema;
+import liquibase.structure.core.Table;
+import liquibase.structure.core.UniqueConstraint;
+
+import java.sql.DatabaseMetaData;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * The rows of the java.sql.DatabaseMetaData result sets describing a hibernate model, built once from the snapshotted tables.
+ * Rows are grouped by table, so queries for a single table do not go through the whole model, and are kept in the order
+ * the JDBC specification gives for each result set.
+ * <p/>
+ * Name patterns follow the JDBC rules ('%' and '_' wildcards, '\' escape) but ignore case, like the hibernate database does.
+ */
+public class HibernateMetadataIndex {
+
+    public static final String[] TABLE_COLUMNS = {"TABLE_CAT", "TABLE_SCHEM", "TABLE_NAME", "TABLE_TYPE", "REMARKS", "TYPE_CAT",
+            "TYPE_SCHEM", "TYPE_NAME", "SELF_REFERENCING_COL_NAME", "REF_GENERATION"};
+    public static final String[] COLUMN_COLUMNS = {"TABLE_CAT", "TABLE_SCHEM", "TABLE_NAME", "COLUMN_NAME", "DATA_TYPE", "TYPE_NAME",
+            "COLUMN_SIZE", "BUFFER_LENGTH", "DECIMAL_DIGITS", "NUM_PREC_RADIX", "NULLABLE", "REMARKS", "COLUMN_DEF", "SQL_DATA_TYPE",
+            "SQL_DATETIME_SUB", "CHAR_OCTET_LENGTH", "ORDINAL_POSITION", "IS_NULLABLE", "SCOPE_CATALOG", "SCOPE_SCHEMA", "SCOPE_TABLE",
+            "SOURCE_DATA_TYPE", "IS_AUTOINCREMENT", "IS_GENERATEDCOLUMN"};
+    public static final String[] PRIMARY_KEY_COLUMNS = {"TABLE_CAT", "TABLE_SCHEM", "TABLE_NAME", "COLUMN_NAME", "KEY_SEQ", "PK_NAME"};
+    public static final String[] FOREIGN_KEY_COLUMNS = {"PKTABLE_CAT", "PKTABLE_SCHEM", "PKTABLE_NAME", "PKCOLUMN_NAME", "FKTABLE_CAT",
+            "FKTABLE_SCHEM", "FKTABLE_NAME", "FKCOLUMN_NAME", "KEY_SEQ", "UPDATE_RULE", "DELETE_RULE", "FK_NAME", "PK_NAME", "DEFERRABILITY"};
+    public static final String[] INDEX_COLUMNS = {"TABLE_CAT", "TABLE_SCHEM", "TABLE_NAME", "NON_UNIQUE", "INDEX_QUALIFIER", "INDEX_NAME",
+            "TYPE", "ORDINAL_POSITION", "COLUMN_NAME", "ASC_OR_DESC", "CARDINALITY", "PAGES", "FILTER_CONDITION"};
+    public static final String[] SCHEMA_COLUMNS = {"TABLE_SCHEM", "TABLE_CATALOG"};
+    public static final String[] CATALOG_COLUMNS = {"TABLE_CAT"};
+    public static final String[] TABLE_TYPE_COLUMNS = {"TABLE_TYPE"};
+
+    /**
+     * An index without tables, used when a connection has no hibernate model attached.
+     */
+    public static final HibernateMetadataIndex EMPTY = new HibernateMetadataIndex(null, Collections.<Table>emptyList());
+
+    private static final String TABLE_TYPE = "TABLE";
+
+    private static final int TABLE_NAME = 2;
+    private static final int PKTABLE_NAME = 2;
+    private static final int FKTABLE_NAME = 6;
+
+    /**
+     * Supplies the tables to index, called the first time the metadata of a connection is read.
+     */
+    public interface Source {
+
+        HibernateMetadataIndex buildMetadataIndex() throws SQLException;
+    }
+
+    private final Map<String, TableEntry> tables = new TreeMap<String, TableEntry>();
+    private final Set<String> schemaNames = new TreeSet<String>(String.CASE_INSENSITIVE_ORDER);
+
+    public HibernateMetadataIndex(String defaultSchemaName, Collection<Table> tables) {
+        if (defaultSchemaName != null) {
+            schemaNames.add(defaultSchemaName);
+        }
+        for (Table table : tables) {
+            String schemaName = getSchemaName(table, defaultSchemaName);
+            if (schemaName != null) {
+                schemaNames.add(schemaName);
+            }
+            this.tables.put(table.getName().toLowerCase(), new TableEntry(table, schemaName));
+        }
+
+        for (TableEntry entry : this.tables.values()) {
+            for (ForeignKey foreignKey : entry.table.getOutgoingForeignKeys()) {
+                addForeignKey(entry, foreignKey, defaultSchemaName);
+            }
+        }
+        for (TableEntry entry : this.tables.values()) {
+            Collections.sort(entry.importedKeys, new RowComparator(0, 1, PKTABLE_NAME, 8));
+            Collections.sort(entry.exportedKeys, new RowComparator(4, 5, FKTABLE_NAME, 8));
+            Collections.sort(entry.primaryKey, new RowComparator(3));
+        }
+    }
+
+    public HibernateResultSet getTables(String catalog, String schemaPattern, String tableNamePattern, String[] types) {
+        List<Object[]> rows = new ArrayList<Object[]>();
+        if (types == null || containsIgnoreCase(types, TABLE_TYPE)) {
+            for (TableEntry entry : findTables(catalog, schemaPattern, tableNamePattern, true)) {
+                rows.add(entry.tableRow);
+            }
+        }
+        return new HibernateResultSet(TABLE_COLUMNS, rows);
+    }
+
+    public HibernateResultSet getColumns(String catalog, String schemaPattern, String tableNamePattern, String columnNamePattern) {
+        List<Object[]> rows = new ArrayList<Object[]>();
+        for (TableEntry entry : findTables(catalog, schemaPattern, tableNamePattern, true)) {
+            for (Object[] row : entry.columns) {
+                if (matches(columnNamePattern, (String) row[3])) {
+                    rows.add(row);
+                }
+            }
+        }
+        return new HibernateResultSet(COLUMN_COLUMNS, rows);
+    }
+
+    public HibernateResultSet getPrimaryKeys(String catalog, String schema, String table) {
+        List<Object[]> rows = new ArrayList<Object[]>();
+        for (TableEntry entry : findTables(catalog, schema, table, false)) {
+            rows.addAll(entry.primaryKey);
+        }
+        return new HibernateResultSet(PRIMARY_KEY_COLUMNS, rows);
+    }
+
+    public HibernateResultSet getImportedKeys(String catalog, String schema, String table) {
+        List<Object[]> rows = new ArrayList<Object[]>();
+        for (TableEntry entry : findTables(catalog, schema, table, false)) {
+            rows.addAll(entry.importedKeys);
+        }
+        return new HibernateResultSet(FOREIGN_KEY_COLUMNS, rows);
+    }
+
+    public HibernateResultSet getExportedKeys(String catalog, String schema, String table) {
+        List<Object[]> rows = new ArrayList<Object[]>();
+        for (TableEntry entry : findTables(catalog, schema, table, false)) {
+            rows.addAll(entry.exportedKeys);
+        }
+        return new HibernateResultSet(FOREIGN_KEY_COLUMNS, rows);
+    }
+
+    public HibernateResultSet getCrossReference(String parentCatalog, String parentSchema, String parentTable, String foreignCatalog, String foreignSchema, String foreignTable) {
+        Set<String> foreignTables = new HashSet<String>();
+        for (TableEntry entry : findTables(foreignCatalog, foreignSchema, foreignTable, false)) {
+            foreignTables.add(((String) entry.tableRow[TABLE_NAME]).toLowerCase());
+        }
+        List<Object[]> rows = new ArrayList<Object[]>();
+        for (TableEntry entry : findTables(parentCatalog, parentSchema, parentTable, false)) {
+            for (Object[] row : entry.exportedKeys) {
+                if (foreignTables.contains(((String) row[FKTABLE_NAME]).toLowerCase())) {
+                    rows.add(row);
+                }
+            }
+        }
+        return new HibernateResultSet(FOREIGN_KEY_COLUMNS, rows);
+    }
+
+    public HibernateResultSet getIndexInfo(String catalog, String schema, String table, boolean unique) {
+        List<Object[]> rows = new ArrayList<Object[]>();
+        for (TableEntry entry : findTables(catalog, schema, table, false)) {
+            for (Object[] row : entry.indexes) {
+                if (!unique || !((Boolean) row[3])) {
+                    rows.add(row);
+                }
+            }
+        }
+        return new HibernateResultSet(INDEX_COLUMNS, rows);
+    }
+
+    public HibernateResultSet getSchemas(String catalog, String schemaPattern) {
+        List<Object[]> rows = new ArrayList<Object[]>();
+        if (catalog == null || catalog.length() == 0) {
+            for (String schemaName : schemaNames) {
+                if (matches(schemaPattern, schemaName)) {
+                    rows.add(new Object[]{schemaName, null});
+                }
+            }
+        }
+        return new HibernateResultSet(SCHEMA_COLUMNS, rows);
+    }
+
+    public HibernateResultSet getCatalogs() {
+        return new HibernateResultSet(CATALOG_COLUMNS, Collections.<Object[]>emptyList());
+    }
+
+    public HibernateResultSet getTableTypes() {
+        return new HibernateResultSet(TABLE_TYPE_COLUMNS, Collections.singletonList(new Object[]{TABLE_TYPE}));
+    }
+
+    /**
+     * Returns true if the value matches the JDBC search pattern, ignoring case. A null pattern matches everything.
+     */
+    protected static boolean matches(String pattern, String value) {
+        if (pattern == null) {
+            return true;
+        }
+        if (value == null) {
+            return false;
+        }
+        return matches(pattern, 0, value, 0);
+    }
+
+    private static boolean matches(String pattern, int patternIndex, String value, int valueIndex) {
+        while (patternIndex < pattern.length()) {
+            char c = pattern.charAt(patternIndex);
+            if (c == '%') {
+                while (patternIndex < pattern.length() && pattern.charAt(patternIndex) == '%') {
+                    patternIndex++;
+                }
+                if (patternIndex == pattern.length()) {
+                    return true;
+                }
+                for (int i = valueIndex; i <= value.length(); i++) {
+                    if (matches(pattern, patternIndex, value, i)) {
+                        return true;
+                    }
+                }
+                return false;
+            }
+            if (valueIndex >= value.length()) {
+                return false;
+            }
+            if (c == '\\' && patternIndex + 1 < pattern.length()) {
+                c = pattern.charAt(++patternIndex);
+            } else if (c == '_') {
+                patternIndex++;
+                valueIndex++;
+                continue;
+            }
+            if (Character.toUpperCase(c) != Character.toUpperCase(value.charAt(valueIndex))) {
+                return false;
+            }
+            patternIndex++;
+            valueIndex++;
+        }
+        return valueIndex == value.length();
+    }
+
+    /**
+     * Finds the tables matching the given names. Without wildcards, or if patterns are not allowed, the table name is looked up directly.
+     */
+    private List<TableEntry> findTables(String catalog, String schemaPattern, String tableNamePattern, boolean patterns) {
+        List<TableEntry> found = new ArrayList<TableEntry>();
+        if (tableNamePattern != null && (!patterns || !hasWildcards(tableNamePattern))) {
+            TableEntry entry = tables.get((patterns ? unescape(tableNamePattern) : tableNamePattern).toLowerCase());
+            if (entry != null && matchesSchema(entry, catalog, schemaPattern, patterns)) {
+                found.add(entry);
+            }
+            return found;
+        }
+        for (TableEntry entry : tables.values()) {
+            if (matchesSchema(entry, catalog, schemaPattern, patterns) && matches(tableNamePattern, (String) entry.tableRow[TABLE_NAME])) {
+                found.add(entry);
+            }
+        }
+        return found;
+    }
+
+    private boolean matchesSchema(TableEntry entry, String catalog, String schemaPattern, boolean patterns) {
+        if (catalog != null && catalog.length() > 0 && !catalog.equalsIgnoreCase(entry.catalogName)) {
+            return false;
+        }
+        if (schemaPattern == null || entry.schemaName == null) {
+            return true;
+        }
+        return patterns ? matches(schemaPattern, entry.schemaName) : schemaPattern.equalsIgnoreCase(entry.schemaName);
+    }
+
+    private void addForeignKey(TableEntry entry, ForeignKey foreignKey, String defaultSchemaName) {
+        Table primaryKeyTable = foreignKey.getPrimaryKeyTable();
+        TableEntry primaryKeyEntry = primaryKeyTable == null ? null : tables.get(primaryKeyTable.getName().toLowerCase());
+        String primaryKeyTableName = primaryKeyTable == null ? null : primaryKeyTable.getName();
+        String primaryKeySchemaName = primaryKeyEntry == null ? defaultSchemaName : primaryKeyEntry.schemaName;
+        String primaryKeyName = primaryKeyEntry == null || primaryKeyEntry.table.getPrimaryKey() == null ? null : primaryKeyEntry.table.getPrimaryKey().getName();
+
+        List<Column> primaryKeyColumns = foreignKey.getPrimaryKeyColumns();
+        List<Column> foreignKeyColumns = foreignKey.getForeignKeyColumns();
+        for (int i = 0; i < foreignKeyColumns.size(); i++) {
+            Object[] row = new Object[]{
+                    null,
+                    primaryKeySchemaName,
+                    primaryKeyTableName,
+                    primaryKeyColumns == null || i >= primaryKeyColumns.size() ? null : primaryKeyColumns.get(i).getName(),
+                    null,
+                    entry.schemaName,
+                    entry.tableRow[TABLE_NAME],
+                    foreignKeyColumns.get(i).getName(),
+                    (short) (i + 1),
+                    toRule(foreignKey.getUpdateRule()),
+                    toRule(foreignKey.getDeleteRule()),
+                    foreignKey.getName(),
+                    primaryKeyName,
+                    (short) DatabaseMetaData.importedKeyNotDeferrable
+            };
+            entry.importedKeys.add(row);
+            if (primaryKeyEntry != null) {
+                primaryKeyEntry.exportedKeys.add(row);
+            }
+        }
+    }
+
+    private static short toRule(ForeignKeyConstraintType rule) {
+        if (rule == null) {
+            return (short) DatabaseMetaData.importedKeyNoAction;
+        }
+        switch (rule) {
+            case importedKeyCascade:
+                return (short) DatabaseMetaData.importedKeyCascade;
+            case importedKeySetNull:
+                return (short) DatabaseMetaData.importedKeySetNull;
+            case importedKeySetDefault:
+                return (short) DatabaseMetaData.importedKeySetDefault;
+            case importedKeyRestrict:
+                return (short) DatabaseMetaData.importedKeyRestrict;
+            default:
+                return (short) DatabaseMetaData.importedKeyNoAction;
+        }
+    }
+
+    private static String getSchemaName(Table table, String defaultSchemaName) {
+        Schema schema = table.getSchema();
+        if (schema == null || schema.getName() == null) {
+            return defaultSchemaName;
+        }
+        return schema.getName();
+    }
+
+    private static boolean hasWildcards(String pattern) {
+        for (int i = 0; i < pattern.length(); i++) {
+            char c = pattern.charAt(i);
+            if (c == '\\') {
+                i++;
+            } else if (c == '%' || c == '_') {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String unescape(String pattern) {
+        if (pattern.indexOf('\\') < 0) {
+            return pattern;
+        }
+        StringBuilder unescaped = new StringBuilder(pattern.length());
+        for (int i = 0; i < pattern.length(); i++) {
+            char c = pattern.charAt(i);
+            if (c == '\\' && i + 1 < pattern.length()) {
+                c = pattern.charAt(++i);
+            }
+            unescaped.append(c);
+        }
+        return unescaped.toString();
+    }
+
+    private static boolean containsIgnoreCase(String[] values, String value) {
+        for (String candidate : values) {
+            if (value.equalsIgnoreCase(candidate)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String yesNo(Boolean value) {
+        if (value == null) {
+            return "";
+        }
+        return value ? "YES" : "NO";
+    }
+
+    /**
+     * The rows describing one table.
+     */
+    private static class TableEntry {
+
+        private final Table table;
+        private final String catalogName;
+        private final String schemaName;
+        private final Object[] tableRow;
+        private final List<Object[]> columns = new ArrayList<Object[]>();
+        private final List<Object[]> primaryKey = new ArrayList<Object[]>();
+        private final List<Object[]> importedKeys = new ArrayList<Object[]>();
+        private final List<Object[]> exportedKeys = new ArrayList<Object[]>();
+        private final List<Object[]> indexes = new ArrayList<Object[]>();
+
+        private TableEntry(Table table, String schemaName) {
+            this.table = table;
+            this.schemaName = schemaName;
+            this.catalogName = table.getSchema() == null ? null : table.getSchema().getCatalogName();
+            this.tableRow = new Object[]{null, schemaName, table.getName(), TABLE_TYPE, table.getRemarks(), null, null, null, null, null};
+
+            List<Column> tableColumns = table.getColumns();
+            for (int i = 0; i < tableColumns.size(); i++) {
+                columns.add(columnRow(tableColumns.get(i), i + 1));
+            }
+
+            PrimaryKey tablePrimaryKey = table.getPrimaryKey();
+            if (tablePrimaryKey != null) {
+                List<Column> primaryKeyColumns = tablePrimaryKey.getColumns();
+                for (int i = 0; i < primaryKeyColumns.size(); i++) {
+                    primaryKey.add(new Object[]{null, schemaName, table.getName(), primaryKeyColumns.get(i).getName(), (short) (i + 1), tablePrimaryKey.getName()});
+                }
+            }
+
+            Set<String> indexNames = new HashSet<String>();
+            for (Index index : table.getIndexes()) {
+                if (index.getName() != null) {
+                    indexNames.add(index.getName().toLowerCase());
+                }
+                addIndexRows(index.getName(), !Boolean.TRUE.equals(index.isUnique()), index.getColumns());
+            }
+            for (UniqueConstraint uniqueConstraint : table.getUniqueConstraints()) {
+                if (uniqueConstraint.getName() == null || !indexNames.contains(uniqueConstraint.getName().toLowerCase())) {
+                    addIndexRows(uniqueConstraint.getName(), false, uniqueConstraint.getColumns());
+                }
+            }
+            Collections.sort(indexes, new RowComparator(3, 5, 7));
+        }
+
+        private Object[] columnRow(Column column, int position) {
+            DataType type = column.getType();
+            Integer dataType = type == null || type.getDataTypeId() == null ? Types.OTHER : type.getDataTypeId();
+            Boolean nullable = column.isNullable();
+            return new Object[]{
+                    null,
+                    schemaName,
+                    table.getName(),
+                    column.getName(),
+                    dataType,
+                    type == null ? null : type.getTypeName(),
+                    type == null ? null : type.getColumnSize(),
+                    null,
+                    type == null ? null : type.getDecimalDigits(),
+                    10,
+                    nullable == null ? DatabaseMetaData.columnNullableUnknown : (nullable ? DatabaseMetaData.columnNullable : DatabaseMetaData.columnNoNulls),
+                    column.getRemarks(),
+                    column.getDefaultValue() == null ? null : column.getDefaultValue().toString(),
+                    null,
+                    null,
+                    null,
+                    position,
+                    yesNo(nullable),
+                    null,
+                    null,
+                    null,
+                    null,
+                    yesNo(column.isAutoIncrement()),
+                    yesNo(column.getComputed() == null ? Boolean.FALSE : column.getComputed())
+            };
+        }
+
+        private void addIndexRows(String name, boolean nonUnique, List<Column> indexColumns) {
+            for (int i = 0; i < indexColumns.size(); i++) {
+                Column column = indexColumns.get(i);
+                indexes.add(new Object[]{null, schemaName, table.getName(), nonUnique, null, name, DatabaseMetaData.tableIndexOther,
+                        (short) (i + 1), column.getName(), Boolean.TRUE.equals(column.getDescending()) ? "D" : "A", null, null, null});
+            }
+        }
+    }
+
+    /**
+     * Orders rows by the given columns, nulls first.
+     */
+    private static class RowComparator implements Comparator<Object[]> {
+
+        private final int[] columns;
+
+        private RowComparator(int... columns) {
+            this.columns = columns;
+        }
+
+        @Override
+        public int compare(Object[] o1, Object[] o2) {
+            for (int column : columns) {
+                Comparable value1 = (Comparable) o1[column];
+                Comparable value2 = (Comparable) o2[column];
+                int result;
+                if (value1 == null) {
+                    result = value2 == null ? 0 : -1;
+                } else if (value2 == null) {
+                    result = 1;
+                } else {
+                    result = value1.compareTo(value2);
+                }
+                if (result != 0) {
+                    return result;
+                }
+            }
+            return 0;
+        }
+    }
+}
@@ -0,0 +1,157 @@
+package liquibase.ext.hibernate.database.connection;
+
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.List;
+
+/**
+ * java.sql.ResultSetMetaData of a {@link HibernateResultSet}. Column types are taken from the java type of the first non null value.
+ */
+public class HibernateResultSetMetaData implements ResultSetMetaData {
+
+    private final String[] columnNames;
+    private final Class<?>[] columnClasses;
+
+    public HibernateResultSetMetaData(String[] columnNames, List<Object[]> rows) {
+        this.columnNames = columnNames;
+        this.columnClasses = new Class<?>[columnNames.length];
+        for (int i = 0; i < columnNames.length; i++) {
+            columnClasses[i] = String.class;
+            for (Object[] row : rows) {
+                if (row[i] != null) {
+                    columnClasses[i] = row[i].getClass();
+                    break;
+                }
+            }
+        }
+    }
+
+    public int getColumnCount() throws SQLException {
+        return columnNames.length;
+    }
+
+    public boolean isAutoIncrement(int column) throws SQLException {
+        return false;
+    }
+
+    public boolean isCaseSensitive(int column) throws SQLException {
+        return false;
+    }
+
+    public boolean isSearchable(int column) throws SQLException {
+        return false;
+    }
+
+    public boolean isCurrency(int column) throws SQLException {
+        return false;
+    }
+
+    public int isNullable(int column) throws SQLException {
+        return columnNullableUnknown;
+    }
+
+    public boolean isSigned(int column) throws SQLException {
+        return Number.class.isAssignableFrom(getColumnClass(column));
+    }
+
+    public int getColumnDisplaySize(int column) throws SQLException {
+        return 0;
+    }
+
+    public String getColumnLabel(int column) throws SQLException {
+        return getColumnName(column);
+    }
+
+    public String getColumnName(int column) throws SQLException {
+        checkColumn(column);
+        return columnNames[column - 1];
+    }
+
+    public String getSchemaName(int column) throws SQLException {
+        return "";
+    }
+
+    public int getPrecision(int column) throws SQLException {
+        return 0;
+    }
+
+    public int getScale(int column) throws SQLException {
+        return 0;
+    }
+
+    public String getTableName(int column) throws SQLException {
+        return "";
+    }
+
+    public String getCatalogName(int column) throws SQLException {
+        return "";
+    }
+
+    public int getColumnType(int column) throws SQLException {
+        Class<?> columnClass = getColumnClass(column);
+        if (columnClass == Integer.class) {
+            return Types.INTEGER;
+        } else if (columnClass == Short.class) {
+            return Types.SMALLINT;
+        } else if (columnClass == Long.class) {
+            return Types.BIGINT;
+        } else if (columnClass == Boolean.class) {
+            return Types.BOOLEAN;
+        }
+        return Types.VARCHAR;
+    }
+
+    public String getColumnTypeName(int column) throws SQLException {
+        switch (getColumnType(column)) {
+            case Types.INTEGER:
+                return "INTEGER";
+            case Types.SMALLINT:
+                return "SMALLINT";
+            case Types.BIGINT:
+                return "BIGINT";
+            case Types.BOOLEAN:
+                return "BOOLEAN";
+            default:
+                return "VARCHAR";
+        }
+    }
+
+    public boolean isReadOnly(int column) throws SQLException {
+        return true;
+    }
+
+    public boolean isWritable(int column) throws SQLException {
+        return false;
+    }
+
+    public boolean isDefinitelyWritable(int column) throws SQLException {
+        return false;
+    }
+
+    public String getColumnClassName(int column) throws SQLException {
+        return getColumnClass(column).getName();
+    }
+
+    public <T> T unwrap(Class<T> iface) throws SQLException {
+        if (iface.isInstance(this)) {
+            return iface.cast(this);
+        }
+        throw new SQLException("Not a wrapper for " + iface.getName());
+    }
+
+    public boolean isWrapperFor(Class<?> iface) throws SQLException {
+        return iface.isInstance(this);
+    }
+
+    private Class<?> getColumnClass(int column) throws SQLException {
+        checkColumn(column);
+        return columnClasses[column - 1];
+    }
+
+    private void checkColumn(int column) throws SQLException {
+        if (column < 1 || column > columnNames.length) {
+            throw new SQLException("Invalid column index " + column);
+        }
+    }
+}
@@ -4,7 +4,9 @@ import liquibase.change.Change;
 import liquibase.database.Database;
 import liquibase.diff.ObjectDifferences;
 import liquibase.diff.output.DiffOutputControl;
+import liquibase.diff.output.changelog.ChangeGeneratorChain;
 import liquibase.ext.hibernate.database.HibernateDatabase;
+import liquibase.ext.hibernate.database.HibernateEvents;
 import liquibase.structure.DatabaseObject;
 import liquibase.structure.core.Column;
 
@@ -24,6 +26,19 @@ public class ChangedColumnChangeGenerator extends liquibase.diff.output.changelo
         return PRIORITY_NONE;
     }
 
+    @Override
+    public Change[] fixChanged(DatabaseObject changedObject, ObjectDifferences differences, DiffOutputControl control, Database referenceDatabase, Database comparisonDatabase, ChangeGeneratorChain chain) {
+        if (!(referenceDatabase instanceof HibernateDatabase) && !(comparisonDatabase instanceof HibernateDatabase)) {
+            return super.fixChanged(changedObject, differences, control, referenceDatabase, comparisonDatabase, chain);
+        }
+        HibernateEvents.Span event = HibernateEvents.changeGeneration(getClass().getName(), changedObject.getClass().getSimpleName(), changedObject.getName());
+        try {
+            return super.fixChanged(changedObject, differences, control, referenceDatabase, comparisonDatabase, chain);
+        } finally {
+            event.end();
+        }
+    }
+
     @Override
     protected void handleTypeDifferences(Column column, ObjectDifferences differences, DiffOutputControl control, List<Change> changes, Database referenceDatabase, Database comparisonDatabase) {
         if (referenceDatabase instanceof HibernateDatabase || comparisonDatabase instanceof HibernateDatabase) {
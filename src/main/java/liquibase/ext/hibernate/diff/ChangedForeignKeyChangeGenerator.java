@@ -6,6 +6,7 @@ import liquibase.diff.ObjectDifferences;
 import liquibase.diff.output.DiffOutputControl;
 import liquibase.diff.output.changelog.ChangeGeneratorChain;
 import liquibase.ext.hibernate.database.HibernateDatabase;
+import liquibase.ext.hibernate.database.HibernateEvents;
 import liquibase.structure.DatabaseObject;
 import liquibase.structure.core.ForeignKey;
 
@@ -26,6 +27,7 @@ public class ChangedForeignKeyChangeGenerator extends liquibase.diff.output.chan
     @Override
     public Change[] fixChanged(DatabaseObject changedObject, ObjectDifferences differences, DiffOutputControl control, Database referenceDatabase, Database comparisonDatabase, ChangeGeneratorChain chain) {
         if (referenceDatabase instanceof HibernateDatabase || comparisonDatabase instanceof HibernateDatabase) {
+            HibernateEvents.changeGeneration(getClass().getName(), changedObject.getClass().getSimpleName(), changedObject.getName()).end();
             return null;
         } else {
             return super.fixChanged(changedObject, differences, control, referenceDatabase, comparisonDatabase, chain);
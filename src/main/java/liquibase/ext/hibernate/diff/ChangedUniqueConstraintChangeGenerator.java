@@ -8,6 +8,7 @@ import liquibase.diff.output.DiffOutputControl;
 import liquibase.diff.output.changelog.ChangeGeneratorChain;
 import liquibase.diff.output.changelog.ChangedObjectChangeGenerator;
 import liquibase.ext.hibernate.database.HibernateDatabase;
+import liquibase.ext.hibernate.database.HibernateEvents;
 import liquibase.structure.DatabaseObject;
 import liquibase.structure.core.UniqueConstraint;
 
@@ -38,6 +39,7 @@ public class ChangedUniqueConstraintChangeGenerator implements ChangedObjectChan
     @Override
     public Change[] fixChanged(DatabaseObject changedObject, ObjectDifferences differences, DiffOutputControl control, Database referenceDatabase, Database comparisonDatabase, ChangeGeneratorChain chain) {
         if (referenceDatabase instanceof HibernateDatabase || comparisonDatabase instanceof HibernateDatabase) {
+            HibernateEvents.changeGeneration(getClass().getName(), changedObject.getClass().getSimpleName(), changedObject.getName()).end();
             return null;
         } else {
             return chain.fixChanged(changedObject, differences, control, referenceDatabase, comparisonDatabase);
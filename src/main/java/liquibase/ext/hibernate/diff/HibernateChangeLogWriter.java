@@ -0,0 +1,567 @@
+package liquibase.ext.hibernate.diff;
+
+import liquibase.change.Change;
+import liquibase.changelog.ChangeLogInclude;
+import liquibase.changelog.ChangeSet;
+import liquibase.configuration.GlobalConfiguration;
+import liquibase.configuration.LiquibaseConfiguration;
+import liquibase.database.Database;
+import liquibase.database.ObjectQuotingStrategy;
+import liquibase.diff.DiffResult;
+import liquibase.diff.ObjectDifferences;
+import liquibase.diff.output.DiffOutputControl;
+import liquibase.diff.output.changelog.ChangeGeneratorFactory;
+import liquibase.diff.output.changelog.ChangedObjectChangeGenerator;
+import liquibase.diff.output.changelog.DiffToChangeLog;
+import liquibase.diff.output.changelog.MissingObjectChangeGenerator;
+import liquibase.diff.output.changelog.UnexpectedObjectChangeGenerator;
+import liquibase.exception.DatabaseException;
+import liquibase.exception.UnexpectedLiquibaseException;
+import liquibase.serializer.ChangeLogSerializer;
+import liquibase.serializer.ChangeLogSerializerFactory;
+import liquibase.serializer.core.formattedsql.FormattedSqlChangeLogSerializer;
+import liquibase.serializer.core.json.JsonChangeLogSerializer;
+import liquibase.serializer.core.xml.XMLChangeLogSerializer;
+import liquibase.serializer.core.yaml.YamlChangeLogSerializer;
+import liquibase.structure.DatabaseObject;
+import liquibase.structure.DatabaseObjectComparator;
+import liquibase.structure.core.Column;
+import liquibase.structure.core.ForeignKey;
+import liquibase.structure.core.Index;
+import liquibase.structure.core.PrimaryKey;
+import liquibase.structure.core.Table;
+import liquibase.structure.core.UniqueConstraint;
+
+import javax.xml.parsers.ParserConfigurationException;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintStream;
+import java.io.Writer;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Writes the changelog of a diff like {@link DiffToChangeLog}, but serializes each changeSet as soon as it is generated instead
+ * of building the complete list of changeSets first, so that the changelog of a large hibernate model fits in a small heap.
+ * <p/>
+ * The changes creating missing objects are grouped by table: each table is followed by its columns, primary key, unique
+ * constraints and indexes. Tables are ordered so that referenced tables come before the tables referencing them, and each
+ * foreign key is created right after the later of its two tables, which also orders foreign keys between tables referencing
+ * each other. Missing objects which do not belong to a table, unexpected objects and changed objects are written in the
+ * standard liquibase order.
+ * <p/>
+ * {@link #printPerTable(File, String)} writes each table to a file of its own, along with a master changelog including them.
+ */
+public class HibernateChangeLogWriter extends DiffToChangeLog {
+
+    private static final String TABLES_DIRECTORY = "tables";
+
+    private DiffResult diffResult;
+    private final DiffOutputControl diffOutputControl;
+    private String changeSetContext;
+
+    public HibernateChangeLogWriter(DiffResult diffResult, DiffOutputControl diffOutputControl) {
+        super(diffResult, diffOutputControl);
+        this.diffResult = diffResult;
+        this.diffOutputControl = diffOutputControl;
+    }
+
+    @Override
+    public void setDiffResult(DiffResult diffResult) {
+        super.setDiffResult(diffResult);
+        this.diffResult = diffResult;
+    }
+
+    @Override
+    public void setChangeSetContext(String changeSetContext) {
+        super.setChangeSetContext(changeSetContext);
+        this.changeSetContext = changeSetContext;
+    }
+
+    /**
+     * Returns the changeSets in the order they are written. Only meant for small diffs, as the changeSets are all kept in memory.
+     */
+    @Override
+    public List<ChangeSet> generateChangeSets() {
+        final List<ChangeSet> changeSets = new ArrayList<ChangeSet>();
+        try {
+            generateChangeSets(new ChangeSetHandler() {
+                @Override
+                public void startGroup(String group, String tableName) {
+                }
+
+                @Override
+                public void handle(ChangeSet changeSet) {
+                    changeSets.add(changeSet);
+                }
+            });
+        } catch (IOException e) {
+            throw new UnexpectedLiquibaseException(e);
+        }
+        return changeSets;
+    }
+
+    @Override
+    public void print(PrintStream out, ChangeLogSerializer changeLogSerializer) throws ParserConfigurationException, IOException, DatabaseException {
+        final ChangeLogStream stream = new ChangeLogStream(out, changeLogSerializer);
+        generateChangeSets(new ChangeSetHandler() {
+            @Override
+            public void startGroup(String group, String tableName) {
+            }
+
+            @Override
+            public void handle(ChangeSet changeSet) throws IOException {
+                stream.write(changeSet);
+            }
+        });
+        stream.finish();
+        out.flush();
+    }
+
+    /**
+     * Writes the changes of each table to its own file of the "tables" subdirectory of the given directory, the other changes
+     * to files named after their kind, and a "changelog" file including all of them in order. Only the files with changes are
+     * written. The extension selects the changelog serializer; the master changelog of formatted SQL changelogs is written as XML.
+     *
+     * @return the master changelog file
+     */
+    public File printPerTable(final File directory, final String extension) throws IOException {
+        final File tablesDirectory = new File(directory, TABLES_DIRECTORY);
+        if (!tablesDirectory.isDirectory() && !tablesDirectory.mkdirs()) {
+            throw new IOException("Cannot create directory " + tablesDirectory);
+        }
+        final ChangeLogSerializer serializer = getSerializer(extension);
+        final List<String> includes = new ArrayList<String>();
+        final Set<String> fileNames = new HashSet<String>();
+        final String[] currentFile = new String[1];
+        final ChangeLogStream[] currentStream = new ChangeLogStream[1];
+        final OutputStream[] currentOut = new OutputStream[1];
+        try {
+            generateChangeSets(new ChangeSetHandler() {
+                @Override
+                public void startGroup(String group, String tableName) throws IOException {
+                    closeGroup();
+                    String name = (tableName == null ? group : tableName).replaceAll("[^A-Za-z0-9._-]+", "_");
+                    String uniqueName = name;
+                    for (int i = 2; !fileNames.add((tableName == null ? "" : TABLES_DIRECTORY + "/") + uniqueName.toLowerCase()); i++) {
+                        uniqueName = name + "-" + i;
+                    }
+                    currentFile[0] = (tableName == null ? "" : TABLES_DIRECTORY + "/") + uniqueName + "." + extension;
+                    setChangeSetPath(new File(directory, currentFile[0]).getPath());
+                }
+
+                @Override
+                public void handle(ChangeSet changeSet) throws IOException {
+                    if (currentStream[0] == null) {
+                        currentOut[0] = new FileOutputStream(new File(directory, currentFile[0]));
+                        currentStream[0] = new ChangeLogStream(currentOut[0], serializer);
+                        includes.add(currentFile[0]);
+                    }
+                    currentStream[0].write(changeSet);
+                }
+
+                @Override
+                public void finish() throws IOException {
+                    closeGroup();
+                }
+
+                private void closeGroup() throws IOException {
+                    if (currentStream[0] != null) {
+                        currentStream[0].finish();
+                        currentOut[0].close();
+                        currentStream[0] = null;
+                        currentOut[0] = null;
+                    }
+                }
+            });
+        } finally {
+            if (currentOut[0] != null) {
+                currentOut[0].close();
+            }
+        }
+
+        String masterExtension = serializer instanceof FormattedSqlChangeLogSerializer ? "xml" : extension;
+        List<ChangeLogInclude> children = new ArrayList<ChangeLogInclude>();
+        for (String include : includes) {
+            ChangeLogInclude changeLogInclude = new ChangeLogInclude();
+            changeLogInclude.setFile(include);
+            changeLogInclude.setRelativeToChangelogFile(true);
+            children.add(changeLogInclude);
+        }
+        File masterFile = new File(directory, "changelog." + masterExtension);
+        OutputStream out = new FileOutputStream(masterFile);
+        try {
+            getSerializer(masterExtension).write(children, out);
+        } finally {
+            out.close();
+        }
+        return masterFile;
+    }
+
+    /**
+     * Generates the changeSets group by group, passing each one to the handler as soon as it is generated.
+     */
+    protected void generateChangeSets(ChangeSetHandler handler) throws IOException {
+        ChangeGeneratorFactory changeGeneratorFactory = ChangeGeneratorFactory.getInstance();
+        Database referenceDatabase = diffResult.getReferenceSnapshot().getDatabase();
+        Database comparisonDatabase = diffResult.getComparisonSnapshot().getDatabase();
+        String created = null;
+        if (LiquibaseConfiguration.getInstance().getProperty(GlobalConfiguration.class, GlobalConfiguration.GENERATE_CHANGESET_CREATED_VALUES).getValue(Boolean.class)) {
+            created = new SimpleDateFormat("yyyy-MM-dd HH:mmZ").format(new Date());
+        }
+
+        List<DatabaseObject> objectsBeforeTables = new ArrayList<DatabaseObject>();
+        List<DatabaseObject> objectsAfterTables = new ArrayList<DatabaseObject>();
+        Map<String, TableGroup> tableGroups = new LinkedHashMap<String, TableGroup>();
+        List<ForeignKey> foreignKeys = new ArrayList<ForeignKey>();
+        boolean afterTables = false;
+        for (Class<? extends DatabaseObject> type : getOrderedOutputTypes(MissingObjectChangeGenerator.class)) {
+            if (Table.class.isAssignableFrom(type)) {
+                afterTables = true;
+            }
+            for (DatabaseObject object : diffResult.getMissingObjects(type, new MissingObjectComparator())) {
+                if (object == null || referenceDatabase.isLiquibaseObject(object) || referenceDatabase.isSystemObject(object)) {
+                    continue;
+                }
+                if (object instanceof ForeignKey && ((ForeignKey) object).getForeignKeyTable() != null) {
+                    ForeignKey foreignKey = (ForeignKey) object;
+                    getTableGroup(tableGroups, foreignKey.getForeignKeyTable(), referenceDatabase);
+                    if (foreignKey.getPrimaryKeyTable() != null) {
+                        getTableGroup(tableGroups, foreignKey.getPrimaryKeyTable(), referenceDatabase);
+                    }
+                    foreignKeys.add(foreignKey);
+                    continue;
+                }
+                Table table = getTable(object);
+                if (table != null) {
+                    getTableGroup(tableGroups, table, referenceDatabase).objects.add(object);
+                } else if (afterTables) {
+                    objectsAfterTables.add(object);
+                } else {
+                    objectsBeforeTables.add(object);
+                }
+            }
+        }
+
+        for (ForeignKey foreignKey : foreignKeys) {
+            TableGroup tableGroup = getTableGroup(tableGroups, foreignKey.getForeignKeyTable(), referenceDatabase);
+            if (foreignKey.getPrimaryKeyTable() != null) {
+                tableGroup.dependencies.add(getTableGroup(tableGroups, foreignKey.getPrimaryKeyTable(), referenceDatabase));
+            }
+        }
+        List<TableGroup> orderedTableGroups = sort(tableGroups.values());
+        for (ForeignKey foreignKey : foreignKeys) {
+            TableGroup tableGroup = getTableGroup(tableGroups, foreignKey.getForeignKeyTable(), referenceDatabase);
+            if (foreignKey.getPrimaryKeyTable() != null) {
+                TableGroup referencedTableGroup = getTableGroup(tableGroups, foreignKey.getPrimaryKeyTable(), referenceDatabase);
+                if (referencedTableGroup.position > tableGroup.position) {
+                    tableGroup = referencedTableGroup;
+                }
+            }
+            tableGroup.objects.add(foreignKey);
+        }
+
+        handler.startGroup("objects", null);
+        fixMissing(objectsBeforeTables, handler, created);
+        for (TableGroup tableGroup : orderedTableGroups) {
+            handler.startGroup("table", tableGroup.name);
+            fixMissing(tableGroup.objects, handler, created);
+            tableGroup.objects = null;
+        }
+        handler.startGroup("dependent-objects", null);
+        fixMissing(objectsAfterTables, handler, created);
+
+        handler.startGroup("unexpected", null);
+        DatabaseObjectComparator comparator = new DatabaseObjectComparator();
+        for (Class<? extends DatabaseObject> type : getOrderedOutputTypes(UnexpectedObjectChangeGenerator.class)) {
+            for (DatabaseObject object : diffResult.getUnexpectedObjects(type, comparator)) {
+                if (comparisonDatabase.isLiquibaseObject(object) || comparisonDatabase.isSystemObject(object)) {
+                    continue;
+                }
+                ObjectQuotingStrategy quotingStrategy = diffOutputControl.getObjectQuotingStrategy();
+                Change[] changes = changeGeneratorFactory.fixUnexpected(object, diffOutputControl, referenceDatabase, comparisonDatabase);
+                handle(changes, handler, quotingStrategy, created);
+            }
+        }
+
+        handler.startGroup("changed", null);
+        for (Class<? extends DatabaseObject> type : getOrderedOutputTypes(ChangedObjectChangeGenerator.class)) {
+            for (Map.Entry<? extends DatabaseObject, ObjectDifferences> entry : diffResult.getChangedObjects(type, comparator).entrySet()) {
+                if (referenceDatabase.isLiquibaseObject(entry.getKey()) || referenceDatabase.isSystemObject(entry.getKey())) {
+                    continue;
+                }
+                ObjectQuotingStrategy quotingStrategy = diffOutputControl.getObjectQuotingStrategy();
+                Change[] changes = changeGeneratorFactory.fixChanged(entry.getKey(), entry.getValue(), diffOutputControl, referenceDatabase, comparisonDatabase);
+                handle(changes, handler, quotingStrategy, created);
+            }
+        }
+        handler.finish();
+    }
+
+    private void fixMissing(List<DatabaseObject> objects, ChangeSetHandler handler, String created) throws IOException {
+        ChangeGeneratorFactory changeGeneratorFactory = ChangeGeneratorFactory.getInstance();
+        Database referenceDatabase = diffResult.getReferenceSnapshot().getDatabase();
+        Database comparisonDatabase = diffResult.getComparisonSnapshot().getDatabase();
+        for (DatabaseObject object : objects) {
+            ObjectQuotingStrategy quotingStrategy = diffOutputControl.getObjectQuotingStrategy();
+            Change[] changes = changeGeneratorFactory.fixMissing(object, diffOutputControl, referenceDatabase, comparisonDatabase);
+            handle(changes, handler, quotingStrategy, created);
+        }
+    }
+
+    /**
+     * Wraps the changes in a changeSet, the same way {@link DiffToChangeLog} does, and passes it to the handler.
+     */
+    private void handle(Change[] changes, ChangeSetHandler handler, ObjectQuotingStrategy quotingStrategy, String created) throws IOException {
+        if (changes == null) {
+            return;
+        }
+        String context = changeSetContext;
+        if (diffOutputControl.getContext() != null) {
+            context = diffOutputControl.getContext().toString().replaceFirst("^\\(", "").replaceFirst("\\)$", "");
+        }
+        ChangeSet changeSet = new ChangeSet(generateId(changes), getChangeSetAuthor(), false, false, getChangeSetPath(), context, null, false, quotingStrategy, null);
+        changeSet.setCreated(created);
+        if (diffOutputControl.getLabels() != null) {
+            changeSet.setLabels(diffOutputControl.getLabels());
+        }
+        for (Change change : changes) {
+            changeSet.addChange(change);
+        }
+        handler.handle(changeSet);
+    }
+
+    /**
+     * Returns the table the given missing object is created with, or null if it does not belong to a table.
+     */
+    protected Table getTable(DatabaseObject object) {
+        if (object instanceof Table) {
+            return (Table) object;
+        } else if (object instanceof Column) {
+            return ((Column) object).getRelation() instanceof Table ? (Table) ((Column) object).getRelation() : null;
+        } else if (object instanceof PrimaryKey) {
+            return ((PrimaryKey) object).getTable();
+        } else if (object instanceof UniqueConstraint) {
+            return ((UniqueConstraint) object).getTable();
+        } else if (object instanceof Index) {
+            return ((Index) object).getTable();
+        }
+        return null;
+    }
+
+    /**
+     * Tables are matched by name, as the foreign keys of a hibernate snapshot reference their tables through tables of their own.
+     */
+    private TableGroup getTableGroup(Map<String, TableGroup> tableGroups, Table table, Database database) {
+        String key = database.isCaseSensitive() ? table.getName() : table.getName().toLowerCase();
+        TableGroup tableGroup = tableGroups.get(key);
+        if (tableGroup == null) {
+            tableGroup = new TableGroup(table.getName());
+            tableGroups.put(key, tableGroup);
+        }
+        return tableGroup;
+    }
+
+    /**
+     * Orders the tables so that each comes after the tables it references, keeping the original order otherwise.
+     * References closing a cycle are ignored.
+     */
+    private List<TableGroup> sort(Iterable<TableGroup> tableGroups) {
+        List<TableGroup> sorted = new ArrayList<TableGroup>();
+        Set<TableGroup> visited = new HashSet<TableGroup>();
+        Map<TableGroup, Integer> nextDependency = new HashMap<TableGroup, Integer>();
+        List<TableGroup> path = new ArrayList<TableGroup>();
+        for (TableGroup root : tableGroups) {
+            if (!visited.add(root)) {
+                continue;
+            }
+            path.add(root);
+            nextDependency.put(root, 0);
+            while (!path.isEmpty()) {
+                TableGroup tableGroup = path.get(path.size() - 1);
+                int next = nextDependency.get(tableGroup);
+                if (next < tableGroup.dependencies.size()) {
+                    nextDependency.put(tableGroup, next + 1);
+                    TableGroup dependency = tableGroup.dependencies.get(next);
+                    if (visited.add(dependency)) {
+                        path.add(dependency);
+                        nextDependency.put(dependency, 0);
+                    }
+                } else {
+                    path.remove(path.size() - 1);
+                    nextDependency.remove(tableGroup);
+                    tableGroup.position = sorted.size();
+                    tableGroup.dependencies = Collections.emptyList();
+                    sorted.add(tableGroup);
+                }
+            }
+        }
+        return sorted;
+    }
+
+    private ChangeLogSerializer getSerializer(String extension) {
+        ChangeLogSerializer serializer = ChangeLogSerializerFactory.getInstance().getSerializer(extension);
+        if (serializer == null) {
+            throw new UnexpectedLiquibaseException("No changelog serializer for " + extension + " files");
+        }
+        return serializer;
+    }
+
+    /**
+     * Receives the changeSets as they are generated.
+     */
+    protected abstract static class ChangeSetHandler {
+
+        /**
+         * Called before the changeSets of each group are generated.
+         *
+         * @param tableName the table the changeSets of the group are about, or null for the other groups
+         */
+        public abstract void startGroup(String group, String tableName) throws IOException;
+
+        public abstract void handle(ChangeSet changeSet) throws IOException;
+
+        /**
+         * Called after the last changeSet.
+         */
+        public void finish() throws IOException {
+        }
+    }
+
+    private static class TableGroup {
+
+        private final String name;
+        private List<DatabaseObject> objects = new ArrayList<DatabaseObject>();
+        private List<TableGroup> dependencies = new ArrayList<TableGroup>();
+        private int position;
+
+        private TableGroup(String name) {
+            this.name = name;
+        }
+    }
+
+    /**
+     * Sorts missing columns in the order they are defined, as {@link DiffToChangeLog} does.
+     */
+    private static class MissingObjectComparator extends DatabaseObjectComparator {
+        @Override
+        public int compare(DatabaseObject o1, DatabaseObject o2) {
+            if (o1 instanceof Column && o1.getAttribute("order", Integer.class) != null && o2.getAttribute("order", Integer.class) != null) {
+                int i = o1.getAttribute("order", Integer.class).compareTo(o2.getAttribute("order", Integer.class));
+                if (i != 0) {
+                    return i;
+                }
+            }
+            return super.compare(o1, o2);
+        }
+    }
+
+    /**
+     * Writes a changelog one changeSet at a time. Each changeSet is serialized as a changelog of its own, which is then
+     * stripped of everything but the changeSet. Changelogs of unknown serializers are written in one go at the end.
+     */
+    private static class ChangeLogStream {
+
+        private final OutputStream out;
+        private final ChangeLogSerializer serializer;
+        private final String encoding;
+        private final Format format;
+        private Writer writer;
+        private List<ChangeSet> bufferedChangeSets;
+
+        private ChangeLogStream(OutputStream out, ChangeLogSerializer serializer) {
+            this.out = out;
+            this.serializer = serializer;
+            this.encoding = LiquibaseConfiguration.getInstance().getConfiguration(GlobalConfiguration.class).getOutputEncoding();
+            this.format = Format.of(serializer);
+            if (format == null) {
+                bufferedChangeSets = new ArrayList<ChangeSet>();
+            }
+        }
+
+        private void write(ChangeSet changeSet) throws IOException {
+            if (format == null) {
+                bufferedChangeSets.add(changeSet);
+                return;
+            }
+            ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+            serializer.write(Collections.singletonList(changeSet), buffer);
+            String document = new String(buffer.toByteArray(), encoding);
+
+            Matcher header = format.header.matcher(document);
+            Matcher footer = format.footer.matcher(document);
+            if (!header.find() || !footer.find(header.end())) {
+                throw new UnexpectedLiquibaseException("Unexpected " + serializer.getClass().getName() + " output: " + document);
+            }
+            if (writer == null) {
+                writer = new OutputStreamWriter(out, encoding);
+                writer.write(document.substring(0, header.end()));
+            } else {
+                writer.write(format.separator);
+            }
+            writer.write(document.substring(header.end(), footer.start()).replaceFirst("\\s+$", ""));
+        }
+
+        /**
+         * Ends the changelog, leaving the stream open.
+         */
+        private void finish() throws IOException {
+            if (writer == null) {
+                serializer.write(bufferedChangeSets == null ? Collections.<ChangeSet>emptyList() : bufferedChangeSets, out);
+                return;
+            }
+            writer.write("\n");
+            writer.write(format.end);
+            writer.flush();
+        }
+    }
+
+    /**
+     * Where the changeSets are in the changelogs written by the standard serializers.
+     */
+    private enum Format {
+        XML("(?s)^.*?<databaseChangeLog[^>]*>\\r?\\n", "</databaseChangeLog>\\s*$", "\n", "</databaseChangeLog>\n"),
+        JSON("^\\{ \"databaseChangeLog\": \\[\\r?\\n", "\\]\\}\\s*$", ",\n", "]}\n"),
+        YAML("^databaseChangeLog:\\r?\\n", "\\s*$", "\n", ""),
+        SQL("^--liquibase formatted sql\\r?\\n\\r?\\n", "\\s*$", "\n\n", "");
+
+        private final Pattern header;
+        private final Pattern footer;
+        private final String separator;
+        private final String end;
+
+        Format(String header, String footer, String separator, String end) {
+            this.header = Pattern.compile(header);
+            this.footer = Pattern.compile(footer);
+            this.separator = separator;
+            this.end = end;
+        }
+
+        private static Format of(ChangeLogSerializer serializer) {
+            if (serializer.getClass() == XMLChangeLogSerializer.class) {
+                return XML;
+            } else if (serializer.getClass() == JsonChangeLogSerializer.class) {
+                return JSON;
+            } else if (serializer.getClass() == YamlChangeLogSerializer.class) {
+                return YAML;
+            } else if (serializer.getClass() == FormattedSqlChangeLogSerializer.class) {
+                return SQL;
+            }
+            return null;
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package liquibase.ext.hibernate.diff;
+
+import liquibase.database.Database;
+import liquibase.diff.DiffResult;
+import liquibase.diff.compare.CompareControl;
+import liquibase.diff.core.StandardDiffGenerator;
+import liquibase.exception.DatabaseException;
+import liquibase.ext.hibernate.database.HibernateDatabase;
+import liquibase.ext.hibernate.database.HibernateEvents;
+import liquibase.snapshot.DatabaseSnapshot;
+
+/**
+ * Compares snapshots like the standard diff generator does when one of the databases is a hibernate database, recording the
+ * comparison as a {@link HibernateEvents} event.
+ */
+public class HibernateDiffGenerator extends StandardDiffGenerator {
+
+    @Override
+    public int getPriority() {
+        return PRIORITY_DATABASE;
+    }
+
+    @Override
+    public boolean supports(Database referenceDatabase, Database comparisonDatabase) {
+        return referenceDatabase instanceof HibernateDatabase || comparisonDatabase instanceof HibernateDatabase;
+    }
+
+    @Override
+    public DiffResult compare(DatabaseSnapshot referenceSnapshot, DatabaseSnapshot comparisonSnapshot, CompareControl compareControl) throws DatabaseException {
+        HibernateEvents.Span event = HibernateEvents.diff(getUrl(referenceSnapshot), getUrl(comparisonSnapshot));
+        try {
+            return super.compare(referenceSnapshot, comparisonSnapshot, compareControl);
+        } finally {
+            event.end();
+        }
+    }
+
+    private String getUrl(DatabaseSnapshot snapshot) {
+        if (snapshot == null || snapshot.getDatabase() == null || snapshot.getDatabase().getConnection() == null) {
+            return null;
+        }
+        return snapshot.getDatabase().getConnection().getURL();
+    }
+}
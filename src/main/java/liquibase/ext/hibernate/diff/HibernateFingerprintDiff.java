@@ -0,0 +1,136 @@
+package liquibase.ext.hibernate.diff;
+
+import liquibase.CatalogAndSchema;
+import liquibase.database.Database;
+import liquibase.diff.DiffGeneratorFactory;
+import liquibase.diff.DiffResult;
+import liquibase.diff.compare.CompareControl;
+import liquibase.exception.DatabaseException;
+import liquibase.ext.hibernate.database.HibernateDatabase;
+import liquibase.ext.hibernate.database.HibernateTableFingerprints;
+import liquibase.ext.hibernate.snapshot.HibernateTargetedSnapshot;
+import liquibase.logging.LogFactory;
+import liquibase.logging.Logger;
+import liquibase.snapshot.DatabaseSnapshot;
+import liquibase.snapshot.InvalidExampleException;
+import liquibase.snapshot.SnapshotControl;
+import liquibase.snapshot.SnapshotGeneratorFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Diffs a hibernate model against a database, only snapshotting and comparing the tables and sequences whose
+ * {@link HibernateTableFingerprints} changed since the model was last applied.
+ * <p/>
+ * The fingerprints of the applied model are kept in a state file, written by {@link #markApplied()} once the changelog
+ * generated from the diff has been applied. Without a state file, everything is compared. Changes made to the database
+ * outside of the hibernate model are only noticed in the tables compared, so a full diff is still worth running now and then.
+ */
+public class HibernateFingerprintDiff {
+
+    private static final Logger LOG = LogFactory.getLogger("liquibase-hibernate");
+
+    private final HibernateDatabase hibernateDatabase;
+    private final Database database;
+    private final File stateFile;
+
+    private boolean targetedSnapshot;
+
+    private HibernateTableFingerprints fingerprints;
+    private Set<String> changedKeys;
+
+    /**
+     * @param hibernateDatabase the reference database
+     * @param database the database the changes are applied to
+     * @param stateFile the file the fingerprints of the applied model are kept in
+     */
+    public HibernateFingerprintDiff(HibernateDatabase hibernateDatabase, Database database, File stateFile) {
+        this.hibernateDatabase = hibernateDatabase;
+        this.database = database;
+        this.stateFile = stateFile;
+    }
+
+    /**
+     * Whether the database is only snapshotted for the tables and sequences of the hibernate model when everything is compared,
+     * like {@link HibernateTargetedDiff} does, rather than for its whole default schema. False by default.
+     */
+    public void setTargetedSnapshot(boolean targetedSnapshot) {
+        this.targetedSnapshot = targetedSnapshot;
+    }
+
+    /**
+     * Compares the changed tables and sequences of the hibernate model with the database.
+     */
+    public DiffResult compare(CompareControl compareControl) throws DatabaseException {
+        DatabaseSnapshot hibernateSnapshot = snapshot(hibernateDatabase);
+        fingerprints = HibernateTableFingerprints.compute(hibernateSnapshot);
+        HibernateTableFingerprints applied;
+        try {
+            applied = HibernateTableFingerprints.read(stateFile);
+        } catch (IOException e) {
+            throw new DatabaseException(e);
+        }
+
+        if (applied == null) {
+            LOG.info("No fingerprints in " + stateFile + ", comparing everything");
+            changedKeys = null;
+            DatabaseSnapshot snapshot = targetedSnapshot ? HibernateTargetedSnapshot.create(hibernateSnapshot, database) : snapshot(database);
+            return DiffGeneratorFactory.getInstance().compare(hibernateSnapshot, snapshot, compareControl);
+        }
+
+        changedKeys = fingerprints.getChangedKeys(applied);
+        LOG.info("Comparing " + changedKeys.size() + " changed tables and sequences of " + fingerprints.getKeys().size());
+        // hibernate snapshots tables it does not map as empty tables, so removed ones are only looked for in the database
+        Set<String> mappedKeys = new LinkedHashSet<String>(changedKeys);
+        mappedKeys.retainAll(fingerprints.getKeys());
+        return DiffGeneratorFactory.getInstance().compare(snapshot(hibernateDatabase, mappedKeys), snapshot(database, changedKeys), compareControl);
+    }
+
+    /**
+     * Returns the fingerprint keys of the tables and sequences compared by the last {@link #compare(CompareControl)},
+     * or null if everything was compared.
+     */
+    public Set<String> getChangedKeys() {
+        return changedKeys == null ? null : Collections.unmodifiableSet(changedKeys);
+    }
+
+    /**
+     * Records the model compared by the last {@link #compare(CompareControl)} as applied to the database.
+     */
+    public void markApplied() throws IOException {
+        if (fingerprints == null) {
+            throw new IllegalStateException("Nothing compared yet");
+        }
+        fingerprints.write(stateFile);
+    }
+
+    private DatabaseSnapshot snapshot(Database database) throws DatabaseException {
+        try {
+            return SnapshotGeneratorFactory.getInstance().createSnapshot(CatalogAndSchema.DEFAULT, database, new SnapshotControl(database));
+        } catch (InvalidExampleException e) {
+            throw new DatabaseException(e);
+        }
+    }
+
+    /**
+     * Snapshots only the given tables and sequences, and the objects they contain.
+     */
+    private DatabaseSnapshot snapshot(Database database, Set<String> keys) throws DatabaseException {
+        List<String> tableNames = new ArrayList<String>();
+        List<String> sequenceNames = new ArrayList<String>();
+        for (String key : keys) {
+            if (key.startsWith(HibernateTableFingerprints.TABLE_PREFIX)) {
+                tableNames.add(key.substring(HibernateTableFingerprints.TABLE_PREFIX.length()));
+            } else if (key.startsWith(HibernateTableFingerprints.SEQUENCE_PREFIX)) {
+                sequenceNames.add(key.substring(HibernateTableFingerprints.SEQUENCE_PREFIX.length()));
+            }
+        }
+        return HibernateTargetedSnapshot.create(tableNames, sequenceNames, database);
+    }
+}
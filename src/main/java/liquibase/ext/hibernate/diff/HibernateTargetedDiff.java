@@ -0,0 +1,52 @@
+package liquibase.ext.hibernate.diff;
+
+import liquibase.CatalogAndSchema;
+import liquibase.database.Database;
+import liquibase.diff.DiffGeneratorFactory;
+import liquibase.diff.DiffResult;
+import liquibase.diff.compare.CompareControl;
+import liquibase.exception.DatabaseException;
+import liquibase.ext.hibernate.database.HibernateDatabase;
+import liquibase.ext.hibernate.snapshot.HibernateTargetedSnapshot;
+import liquibase.logging.LogFactory;
+import liquibase.logging.Logger;
+import liquibase.snapshot.DatabaseSnapshot;
+import liquibase.snapshot.InvalidExampleException;
+import liquibase.snapshot.SnapshotControl;
+import liquibase.snapshot.SnapshotGeneratorFactory;
+import liquibase.structure.core.Table;
+
+/**
+ * Diffs a hibernate model against a database schema shared with other applications, only snapshotting the tables and sequences
+ * the model maps, and their columns, keys, constraints and indexes, instead of the whole schema.
+ * <p/>
+ * Tables of the schema which are not mapped are never reported, so tables removed from the model are not dropped either.
+ */
+public class HibernateTargetedDiff {
+
+    private static final Logger LOG = LogFactory.getLogger("liquibase-hibernate");
+
+    private final HibernateDatabase hibernateDatabase;
+    private final Database database;
+
+    /**
+     * @param hibernateDatabase the reference database
+     * @param database the database the changes are applied to
+     */
+    public HibernateTargetedDiff(HibernateDatabase hibernateDatabase, Database database) {
+        this.hibernateDatabase = hibernateDatabase;
+        this.database = database;
+    }
+
+    public DiffResult compare(CompareControl compareControl) throws DatabaseException {
+        DatabaseSnapshot hibernateSnapshot;
+        try {
+            hibernateSnapshot = SnapshotGeneratorFactory.getInstance().createSnapshot(CatalogAndSchema.DEFAULT, hibernateDatabase, new SnapshotControl(hibernateDatabase));
+        } catch (InvalidExampleException e) {
+            throw new DatabaseException(e);
+        }
+        DatabaseSnapshot snapshot = HibernateTargetedSnapshot.create(hibernateSnapshot, database);
+        LOG.info("Snapshotted " + snapshot.get(Table.class).size() + " mapped tables of " + database.getConnection().getURL());
+        return DiffGeneratorFactory.getInstance().compare(hibernateSnapshot, snapshot, compareControl);
+    }
+}
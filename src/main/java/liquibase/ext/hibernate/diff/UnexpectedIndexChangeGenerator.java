@@ -5,6 +5,7 @@ import liquibase.database.Database;
 import liquibase.diff.output.DiffOutputControl;
 import liquibase.diff.output.changelog.ChangeGeneratorChain;
 import liquibase.ext.hibernate.database.HibernateDatabase;
+import liquibase.ext.hibernate.database.HibernateEvents;
 import liquibase.structure.DatabaseObject;
 import liquibase.structure.core.Index;
 
@@ -25,6 +26,7 @@ public class UnexpectedIndexChangeGenerator extends liquibase.diff.output.change
     @Override
     public Change[] fixUnexpected(DatabaseObject unexpectedObject, DiffOutputControl control, Database referenceDatabase, Database comparisonDatabase, ChangeGeneratorChain chain) {
         if (referenceDatabase instanceof HibernateDatabase || comparisonDatabase instanceof HibernateDatabase) {
+            HibernateEvents.changeGeneration(getClass().getName(), unexpectedObject.getClass().getSimpleName(), unexpectedObject.getName()).end();
             return null;
         } else {
             return super.fixUnexpected(unexpectedObject, control, referenceDatabase, comparisonDatabase, chain);
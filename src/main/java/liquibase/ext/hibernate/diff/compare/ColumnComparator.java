@@ -0,0 +1,37 @@
+package liquibase.ext.hibernate.diff.compare;
+
+import liquibase.database.Database;
+import liquibase.diff.compare.DatabaseObjectComparatorChain;
+import liquibase.structure.DatabaseObject;
+import liquibase.structure.core.Column;
+
+/**
+ * Matches columns by the keys of their name and of the name of their table or view, which must be the same object.
+ */
+public class ColumnComparator extends HibernateDatabaseObjectComparator {
+
+    public ColumnComparator() {
+        super(Column.class);
+    }
+
+    @Override
+    public String[] hash(DatabaseObject databaseObject, Database accordingTo, DatabaseObjectComparatorChain chain) {
+        Column column = (Column) databaseObject;
+        if (column.getRelation() == null) {
+            return new String[]{key(column.getName())};
+        }
+        return new String[]{key(column.getRelation().getName()) + ":" + key(column.getName())};
+    }
+
+    @Override
+    public boolean isSameObject(DatabaseObject databaseObject1, DatabaseObject databaseObject2, Database accordingTo, DatabaseObjectComparatorChain chain) {
+        if (!(databaseObject1 instanceof Column) || !(databaseObject2 instanceof Column)) {
+            return false;
+        }
+        if (databaseObject1 == databaseObject2) {
+            return true;
+        }
+        return nameMatches(databaseObject1.getName(), databaseObject2.getName())
+                && sameObject(((Column) databaseObject1).getRelation(), ((Column) databaseObject2).getRelation(), accordingTo, chain);
+    }
+}
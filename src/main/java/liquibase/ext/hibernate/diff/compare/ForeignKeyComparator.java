@@ -0,0 +1,103 @@
+package liquibase.ext.hibernate.diff.compare;
+
+import liquibase.database.Database;
+import liquibase.diff.compare.DatabaseObjectComparatorChain;
+import liquibase.structure.DatabaseObject;
+import liquibase.structure.core.Column;
+import liquibase.structure.core.ForeignKey;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Matches foreign keys by the key of their name, or by the keys of their tables and columns when the names differ, as
+ * hibernate generates names the database does not necessarily use.
+ */
+public class ForeignKeyComparator extends HibernateDatabaseObjectComparator {
+
+    public ForeignKeyComparator() {
+        super(ForeignKey.class);
+    }
+
+    @Override
+    public String[] hash(DatabaseObject databaseObject, Database accordingTo, DatabaseObjectComparatorChain chain) {
+        ForeignKey foreignKey = (ForeignKey) databaseObject;
+        List<String> hashes = new ArrayList<String>(2);
+        if (foreignKey.getName() != null) {
+            hashes.add(key(foreignKey.getName()));
+        }
+        String columnsKey = getColumnsKey(foreignKey);
+        if (columnsKey != null) {
+            hashes.add(columnsKey);
+        }
+        if (hashes.isEmpty()) {
+            // such a foreign key is the same as no other, but it still has to be found in the snapshot
+            hashes.add("null");
+        }
+        return hashes.toArray(new String[hashes.size()]);
+    }
+
+    @Override
+    public boolean isSameObject(DatabaseObject databaseObject1, DatabaseObject databaseObject2, Database accordingTo, DatabaseObjectComparatorChain chain) {
+        if (!(databaseObject1 instanceof ForeignKey) || !(databaseObject2 instanceof ForeignKey)) {
+            return false;
+        }
+        if (databaseObject1 == databaseObject2) {
+            return true;
+        }
+        ForeignKey foreignKey1 = (ForeignKey) databaseObject1;
+        ForeignKey foreignKey2 = (ForeignKey) databaseObject2;
+        if (foreignKey1.getName() != null && foreignKey2.getName() != null && isSameName(foreignKey1, foreignKey2, accordingTo, chain)) {
+            return true;
+        }
+
+        String columnsKey1 = getColumnsKey(foreignKey1);
+        String columnsKey2 = getColumnsKey(foreignKey2);
+        return columnsKey1 != null && columnsKey1.equals(columnsKey2)
+                && sameObject(foreignKey1.getForeignKeyTable(), foreignKey2.getForeignKeyTable(), accordingTo, chain)
+                && sameObject(foreignKey1.getPrimaryKeyTable(), foreignKey2.getPrimaryKeyTable(), accordingTo, chain);
+    }
+
+    private boolean isSameName(ForeignKey foreignKey1, ForeignKey foreignKey2, Database accordingTo, DatabaseObjectComparatorChain chain) {
+        if (foreignKey1.getSchema() != null && foreignKey2.getSchema() != null
+                && !sameObject(foreignKey1.getSchema(), foreignKey2.getSchema(), accordingTo, chain)) {
+            return false;
+        }
+        if (!foreignKey1.getClass().isAssignableFrom(foreignKey2.getClass()) && !foreignKey2.getClass().isAssignableFrom(foreignKey1.getClass())) {
+            return false;
+        }
+        return nameMatches(foreignKey1.getName(), foreignKey2.getName());
+    }
+
+    /**
+     * Returns the key of the table and columns of the foreign key followed by those of the table and columns it references,
+     * or null if either list of columns is missing.
+     */
+    private String getColumnsKey(ForeignKey foreignKey) {
+        if (foreignKey.getForeignKeyColumns() == null || foreignKey.getPrimaryKeyColumns() == null) {
+            return null;
+        }
+        StringBuilder key = new StringBuilder();
+        key.append(foreignKey.getForeignKeyTable() == null ? "null" : key(foreignKey.getForeignKeyTable().getName()));
+        appendColumns(foreignKey.getForeignKeyColumns(), key);
+        key.append('>');
+        key.append(foreignKey.getPrimaryKeyTable() == null ? "null" : key(foreignKey.getPrimaryKeyTable().getName()));
+        appendColumns(foreignKey.getPrimaryKeyColumns(), key);
+        return key.toString();
+    }
+
+    private void appendColumns(List<Column> columns, StringBuilder key) {
+        key.append('(');
+        for (int i = 0; i < columns.size(); i++) {
+            if (i > 0) {
+                key.append(',');
+            }
+            Column column = columns.get(i);
+            key.append(key(column.getName()));
+            if (column.getDescending() != null && column.getDescending()) {
+                key.append(" desc");
+            }
+        }
+        key.append(')');
+    }
+}
@@ -0,0 +1,91 @@
+package liquibase.ext.hibernate.diff.compare;
+
+import liquibase.database.Database;
+import liquibase.diff.ObjectDifferences;
+import liquibase.diff.compare.CompareControl;
+import liquibase.diff.compare.DatabaseObjectComparator;
+import liquibase.diff.compare.DatabaseObjectComparatorChain;
+import liquibase.diff.compare.DatabaseObjectComparatorFactory;
+import liquibase.ext.hibernate.database.HibernateDatabase;
+import liquibase.structure.DatabaseObject;
+import liquibase.structure.core.Column;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Base class for the comparators used in place of the liquibase ones when objects are compared according to a
+ * {@link HibernateDatabase}, which is not case sensitive.
+ * <p/>
+ * The liquibase comparators correct the case of both names and compare them ignoring case every time two objects are compared,
+ * and hash foreign keys and indexes by their table, so looking one up in a snapshot compares it with every foreign key or index
+ * of the table. These hash objects by lower case keys of the names identifying them and compare the keys, so a lookup only
+ * compares the objects sharing a key. Differences between matched objects are still found by the liquibase comparators.
+ */
+public abstract class HibernateDatabaseObjectComparator implements DatabaseObjectComparator {
+
+    private final Class<? extends DatabaseObject> objectType;
+
+    protected HibernateDatabaseObjectComparator(Class<? extends DatabaseObject> objectType) {
+        this.objectType = objectType;
+    }
+
+    @Override
+    public int getPriority(Class<? extends DatabaseObject> objectType, Database database) {
+        if (this.objectType.isAssignableFrom(objectType) && database instanceof HibernateDatabase && !database.isCaseSensitive()) {
+            return PRIORITY_DATABASE;
+        }
+        return PRIORITY_NONE;
+    }
+
+    @Override
+    public ObjectDifferences findDifferences(DatabaseObject databaseObject1, DatabaseObject databaseObject2, Database accordingTo, CompareControl compareControl, DatabaseObjectComparatorChain chain, Set<String> exclude) {
+        return chain.findDifferences(databaseObject1, databaseObject2, accordingTo, compareControl, exclude);
+    }
+
+    /**
+     * Returns the lower case key of the given name, or "null" if there is no name.
+     */
+    protected static String key(String name) {
+        if (name == null) {
+            return "null";
+        }
+        return name.toLowerCase(Locale.ENGLISH);
+    }
+
+    /**
+     * Returns the keys of the names of the given columns, separated by commas.
+     */
+    protected static String key(List<Column> columns) {
+        StringBuilder key = new StringBuilder();
+        for (Column column : columns) {
+            if (key.length() > 0) {
+                key.append(',');
+            }
+            key.append(key(column.getName()));
+        }
+        return key.toString();
+    }
+
+    /**
+     * Whether the given names are the same ignoring case, like the liquibase comparators compare names for a database which is
+     * not case sensitive.
+     */
+    protected static boolean nameMatches(String name1, String name2) {
+        if (name1 == null || name2 == null) {
+            return name1 == null && name2 == null;
+        }
+        return name1 == name2 || key(name1).equals(key(name2));
+    }
+
+    /**
+     * Compares the given objects with the comparators of their type, unless they are the same instance.
+     */
+    protected static boolean sameObject(DatabaseObject databaseObject1, DatabaseObject databaseObject2, Database accordingTo, DatabaseObjectComparatorChain chain) {
+        if (databaseObject1 == databaseObject2) {
+            return true;
+        }
+        return DatabaseObjectComparatorFactory.getInstance().isSameObject(databaseObject1, databaseObject2, chain.getSchemaComparisons(), accordingTo);
+    }
+}
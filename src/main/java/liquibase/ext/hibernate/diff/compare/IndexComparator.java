@@ -0,0 +1,82 @@
+package liquibase.ext.hibernate.diff.compare;
+
+import liquibase.database.Database;
+import liquibase.diff.compare.DatabaseObjectComparatorChain;
+import liquibase.structure.DatabaseObject;
+import liquibase.structure.core.Index;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Matches indexes of the same table by the key of their name, or by their columns when the names differ. Indexes without a
+ * table are matched by name.
+ */
+public class IndexComparator extends HibernateDatabaseObjectComparator {
+
+    public IndexComparator() {
+        super(Index.class);
+    }
+
+    @Override
+    public String[] hash(DatabaseObject databaseObject, Database accordingTo, DatabaseObjectComparatorChain chain) {
+        Index index = (Index) databaseObject;
+        String nameKey = key(index.getName());
+        List<String> hashes = new ArrayList<String>(3);
+        hashes.add(nameKey);
+        if (index.getTable() != null) {
+            String tableKey = key(index.getTable().getName());
+            hashes.add(tableKey + "#" + nameKey);
+            if (!index.getColumns().isEmpty()) {
+                hashes.add(tableKey + "(" + key(index.getColumns()) + ")");
+            }
+        }
+        return hashes.toArray(new String[hashes.size()]);
+    }
+
+    @Override
+    public boolean isSameObject(DatabaseObject databaseObject1, DatabaseObject databaseObject2, Database accordingTo, DatabaseObjectComparatorChain chain) {
+        if (!(databaseObject1 instanceof Index) || !(databaseObject2 instanceof Index)) {
+            return false;
+        }
+        if (databaseObject1 == databaseObject2) {
+            return true;
+        }
+        Index index1 = (Index) databaseObject1;
+        Index index2 = (Index) databaseObject2;
+        int size1 = index1.getColumns().size();
+        int size2 = index2.getColumns().size();
+
+        if (index1.getTable() != null && index2.getTable() != null) {
+            if (!sameObject(index1.getTable(), index2.getTable(), accordingTo, chain)) {
+                return false;
+            }
+            if (index1.getSchema() != null && index2.getSchema() != null && !sameObject(index1.getSchema(), index2.getSchema(), accordingTo, chain)) {
+                return false;
+            }
+            if (index1.getName() != null && index2.getName() != null && nameMatches(index1.getName(), index2.getName())) {
+                return true;
+            }
+            if (size1 == 0 || size2 == 0) {
+                return nameMatches(index1.getName(), index2.getName());
+            }
+            if (size1 != size2) {
+                return false;
+            }
+            for (int i = 0; i < size1; i++) {
+                if (!sameObject(index1.getColumns().get(i), index2.getColumns().get(i), accordingTo, chain)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        if (size1 > 0 && size2 > 0 && size1 != size2) {
+            return false;
+        }
+        if (!nameMatches(index1.getName(), index2.getName())) {
+            return false;
+        }
+        return index1.getSchema() == null || index2.getSchema() == null || sameObject(index1.getSchema(), index2.getSchema(), accordingTo, chain);
+    }
+}
@@ -0,0 +1,33 @@
+package liquibase.ext.hibernate.diff.compare;
+
+import liquibase.database.Database;
+import liquibase.diff.compare.DatabaseObjectComparatorChain;
+import liquibase.structure.DatabaseObject;
+import liquibase.structure.core.Table;
+
+/**
+ * Matches tables by the key of their name and their schema.
+ */
+public class TableComparator extends HibernateDatabaseObjectComparator {
+
+    public TableComparator() {
+        super(Table.class);
+    }
+
+    @Override
+    public String[] hash(DatabaseObject databaseObject, Database accordingTo, DatabaseObjectComparatorChain chain) {
+        return new String[]{key(databaseObject.getName())};
+    }
+
+    @Override
+    public boolean isSameObject(DatabaseObject databaseObject1, DatabaseObject databaseObject2, Database accordingTo, DatabaseObjectComparatorChain chain) {
+        if (!(databaseObject1 instanceof Table) || !(databaseObject2 instanceof Table)) {
+            return false;
+        }
+        if (databaseObject1 == databaseObject2) {
+            return true;
+        }
+        return nameMatches(databaseObject1.getName(), databaseObject2.getName())
+                && sameObject(databaseObject1.getSchema(), databaseObject2.getSchema(), accordingTo, chain);
+    }
+}
@@ -1,7 +1,5 @@
 package liquibase.ext.hibernate.snapshot;
 
-import liquibase.datatype.DataTypeFactory;
-import liquibase.datatype.core.UnknownType;
 import liquibase.exception.DatabaseException;
 import liquibase.ext.hibernate.database.HibernateDatabase;
 import liquibase.snapshot.DatabaseSnapshot;
@@ -13,7 +11,6 @@ import liquibase.structure.core.Column;
 import liquibase.structure.core.PrimaryKey;
 import liquibase.structure.core.Table;
 import liquibase.util.SqlUtil;
-import liquibase.util.StringUtils;
 import org.hibernate.cfg.Configuration;
 import org.hibernate.dialect.Dialect;
 import org.hibernate.dialect.PostgreSQL81Dialect;
@@ -24,8 +21,9 @@ import org.hibernate.mapping.*;
 import java.rmi.UnexpectedException;
 import java.util.*;
 import java.util.List;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 /**
  * Columns are snapshotted along with with Tables in {@link TableSnapshotGenerator} but this class needs to be here to keep the default ColumnSnapshotGenerator from running.
@@ -33,7 +31,10 @@ import java.util.regex.Pattern;
  */
 public class ColumnSnapshotGenerator extends HibernateSnapshotGenerator {
 
-    private final static Pattern pattern = Pattern.compile("([^\\(]*)\\s*\\(?\\s*(\\d*)?\\s*,?\\s*(\\d*)?\\s*([^\\(]*?)\\)?");
+    private static final String MAPPING_SCRATCH_KEY = "liquibase-hibernate.mapping";
+    private static final String SQL_TYPE_CODES_SCRATCH_KEY = "liquibase-hibernate.sqlTypeCodes";
+
+    private final HibernateSqlTypeParser sqlTypeParser = new HibernateSqlTypeParser();
 
     public ColumnSnapshotGenerator() {
         super(Column.class, new Class[]{Table.class});
@@ -48,10 +49,9 @@ public class ColumnSnapshotGenerator extends HibernateSnapshotGenerator {
             }
             Relation relation = snapshot.get(column.getRelation());
             if (relation != null) {
-                for (Column columnSnapshot : relation.getColumns()) {
-                    if (columnSnapshot.getName().equalsIgnoreCase(column.getName())) {
-                        return columnSnapshot;
-                    }
+                Column columnSnapshot = findCanonicalColumn(relation, column.getName(), snapshot);
+                if (columnSnapshot != null) {
+                    return columnSnapshot;
                 }
             }
             snapshotColumn((Column) example, snapshot);
@@ -64,24 +64,36 @@ public class ColumnSnapshotGenerator extends HibernateSnapshotGenerator {
     @Override
     protected void addTo(DatabaseObject foundObject, DatabaseSnapshot snapshot) throws DatabaseException, InvalidExampleException {
         if (foundObject instanceof Table) {
-            org.hibernate.mapping.Table hibernateTable = findHibernateTable(foundObject, snapshot);
+            Table table = (Table) foundObject;
+            org.hibernate.mapping.Table hibernateTable = findHibernateTable(table, snapshot);
             if (hibernateTable == null) {
                 return;
             }
+            addColumns(table, hibernateTable, snapshot);
+        }
+    }
 
-            Iterator columnIterator = hibernateTable.getColumnIterator();
-            while (columnIterator.hasNext()) {
-                org.hibernate.mapping.Column hibernateColumn = (org.hibernate.mapping.Column) columnIterator.next();
-                Column column = new Column();
-                column.setName(hibernateColumn.getName());
-                column.setRelation((Table) foundObject);
+    @Override
+    protected void prepareBulkAddTo(List<Table> tables, DatabaseSnapshot snapshot) throws DatabaseException {
+        getMapping(snapshot);
+        getSqlTypeCodes(snapshot);
+    }
 
-                snapshotColumn(column, snapshot);
+    @Override
+    protected void bulkAddTo(Table table, org.hibernate.mapping.Table hibernateTable, DatabaseSnapshot snapshot) throws DatabaseException, InvalidExampleException {
+        addColumns(table, hibernateTable, snapshot);
+    }
 
+    private void addColumns(Table table, org.hibernate.mapping.Table hibernateTable, DatabaseSnapshot snapshot) throws DatabaseException {
+        Iterator columnIterator = hibernateTable.getColumnIterator();
+        while (columnIterator.hasNext()) {
+            org.hibernate.mapping.Column hibernateColumn = (org.hibernate.mapping.Column) columnIterator.next();
+            // the key and index generators may already have created the column
+            Column column = getCanonicalColumn(table, hibernateColumn.getName(), snapshot);
 
-                ((Table) foundObject).getColumns().add(column);
+            snapshotColumn(column, hibernateTable, hibernateColumn, snapshot);
 
-            }
+            table.getColumns().add(column);
         }
     }
 
@@ -93,108 +105,145 @@ public class ColumnSnapshotGenerator extends HibernateSnapshotGenerator {
             return;
         }
 
-        Configuration cfg = database.getConfiguration();
+        org.hibernate.mapping.Column hibernateColumn = database.getTableIndex().findColumn(hibernateTable, column.getName());
+        if (hibernateColumn == null) {
+            return;
+        }
+        snapshotColumn(column, hibernateTable, hibernateColumn, snapshot);
+    }
+
+    /**
+     * Populates the given column from its hibernate mapping.
+     */
+    protected void snapshotColumn(Column column, org.hibernate.mapping.Table hibernateTable, org.hibernate.mapping.Column hibernateColumn, DatabaseSnapshot snapshot) throws DatabaseException {
+        HibernateDatabase database = (HibernateDatabase) snapshot.getDatabase();
 
         Dialect dialect = database.getDialect();
-        Mapping mapping = cfg.buildMapping();
 
+        HibernateSqlTypeParser.ParsedType sqlType = sqlTypeParser.parse(getSqlType(hibernateColumn, database, snapshot), hibernateColumn.getSqlTypeCode());
+        String defaultValue = sqlType.getDefaultValue();
 
-        Iterator columnIterator = hibernateTable.getColumnIterator();
-        while (columnIterator.hasNext()) {
-            org.hibernate.mapping.Column hibernateColumn = (org.hibernate.mapping.Column) columnIterator.next();
-            if (hibernateColumn.getName().equalsIgnoreCase(column.getName())) {
-
-                String defaultValue = null;
-                String hibernateType = hibernateColumn.getSqlType(dialect, mapping);
-                Matcher defaultValueMatcher = Pattern.compile("(?i) DEFAULT\\s+(.*)").matcher(hibernateType);
-                if (defaultValueMatcher.find()) {
-                    defaultValue = defaultValueMatcher.group(1);
-                    hibernateType = hibernateType.replace(defaultValueMatcher.group(0), "");
-                }
-
-                DataType dataType = toDataType(hibernateType, hibernateColumn.getSqlTypeCode());
-                if (dataType == null) {
-                    throw new DatabaseException("Unable to find column data type for column " + hibernateColumn.getName());
-                }
+        DataType dataType = sqlType.toDataType();
+        if (dataType == null) {
+            throw new DatabaseException("Unable to find column data type for column " + hibernateColumn.getName());
+        }
 
-                column.setType(dataType);
-                LOG.info("Found column " + column.getName() + " " + column.getType().toString());
+        column.setType(dataType);
+        LOG.info("Found column " + column.getName() + " " + column.getType().toString());
 
-                column.setRemarks(hibernateColumn.getComment());
-                if (hibernateColumn.getValue() instanceof SimpleValue) {
-                    DataType parseType;
-                    if (DataTypeFactory.getInstance().from(dataType, database) instanceof UnknownType) {
-                        parseType = new DataType(((SimpleValue) hibernateColumn.getValue()).getTypeName());
-                    } else {
-                        parseType = dataType;
-                    }
+        column.setRemarks(hibernateColumn.getComment());
+        if (hibernateColumn.getValue() instanceof SimpleValue) {
+            DataType parseType;
+            if (sqlType.isUnknownType(database)) {
+                parseType = new DataType(((SimpleValue) hibernateColumn.getValue()).getTypeName());
+            } else {
+                parseType = dataType;
+            }
 
-                    if (defaultValue == null) {
-                        defaultValue = hibernateColumn.getDefaultValue();
-                    }
+            if (defaultValue == null) {
+                defaultValue = hibernateColumn.getDefaultValue();
+            }
 
-                    column.setDefaultValue(SqlUtil.parseValue(
-                            snapshot.getDatabase(),
-                            defaultValue,
-                            parseType));
-                } else {
-                    column.setDefaultValue(hibernateColumn.getDefaultValue());
+            column.setDefaultValue(SqlUtil.parseValue(
+                    snapshot.getDatabase(),
+                    defaultValue,
+                    parseType));
+        } else {
+            column.setDefaultValue(hibernateColumn.getDefaultValue());
+        }
+        column.setNullable(hibernateColumn.isNullable());
+        column.setCertainDataType(false);
+
+        org.hibernate.mapping.PrimaryKey hibernatePrimaryKey = hibernateTable.getPrimaryKey();
+        if (hibernatePrimaryKey != null) {
+            boolean isPrimaryKeyColumn = false;
+            for (org.hibernate.mapping.Column pkColumn : (List<org.hibernate.mapping.Column>) hibernatePrimaryKey.getColumns()) {
+                if (pkColumn.getName().equalsIgnoreCase(hibernateColumn.getName())) {
+                    isPrimaryKeyColumn = true;
+                    break;
                 }
-                column.setNullable(hibernateColumn.isNullable());
-                column.setCertainDataType(false);
-
-                org.hibernate.mapping.PrimaryKey hibernatePrimaryKey = hibernateTable.getPrimaryKey();
-                if (hibernatePrimaryKey != null) {
-                    boolean isPrimaryKeyColumn = false;
-                    for (org.hibernate.mapping.Column pkColumn : (List<org.hibernate.mapping.Column>) hibernatePrimaryKey.getColumns()) {
-                        if (pkColumn.getName().equalsIgnoreCase(hibernateColumn.getName())) {
-                            isPrimaryKeyColumn = true;
-                            break;
-                        }
-                    }
+            }
 
-                    if (isPrimaryKeyColumn) {
-                        String identifierGeneratorStrategy = hibernateColumn.getValue().isSimpleValue() ?
-                                ((SimpleValue) hibernateColumn.getValue()).getIdentifierGeneratorStrategy() : null;
-                        if (("native".equalsIgnoreCase(identifierGeneratorStrategy) || "identity".equalsIgnoreCase(identifierGeneratorStrategy))) {
-                            if (PostgreSQL81Dialect.class.isAssignableFrom(dialect.getClass())) {
-                                column.setAutoIncrementInformation(new Column.AutoIncrementInformation());
-                                String sequenceName = (column.getRelation().getName() + "_" + column.getName() + "_seq").toLowerCase();
-                                column.setDefaultValue(new DatabaseFunction("nextval('" + sequenceName + "'::regclass)"));
-                            } else if (dialect.getNativeIdentifierGeneratorClass().equals(IdentityGenerator.class)) {
-                                column.setAutoIncrementInformation(new Column.AutoIncrementInformation());
-                            }
-                        }
+            if (isPrimaryKeyColumn) {
+                String identifierGeneratorStrategy = hibernateColumn.getValue().isSimpleValue() ?
+                        ((SimpleValue) hibernateColumn.getValue()).getIdentifierGeneratorStrategy() : null;
+                if (("native".equalsIgnoreCase(identifierGeneratorStrategy) || "identity".equalsIgnoreCase(identifierGeneratorStrategy))) {
+                    if (PostgreSQL81Dialect.class.isAssignableFrom(dialect.getClass())) {
+                        column.setAutoIncrementInformation(new Column.AutoIncrementInformation());
+                        String sequenceName = (column.getRelation().getName() + "_" + column.getName() + "_seq").toLowerCase();
+                        column.setDefaultValue(new DatabaseFunction("nextval('" + sequenceName + "'::regclass)"));
+                    } else if (dialect.getNativeIdentifierGeneratorClass().equals(IdentityGenerator.class)) {
+                        column.setAutoIncrementInformation(new Column.AutoIncrementInformation());
                     }
                 }
-                return;
             }
         }
     }
 
-    protected DataType toDataType(String hibernateType, Integer sqlTypeCode) throws DatabaseException {
-        Matcher matcher = pattern.matcher(hibernateType);
-        if (!matcher.matches()) {
-            return null;
+    /**
+     * Returns the SQL type of the given hibernate column, like {@link org.hibernate.mapping.Column#getSqlType(Dialect, Mapping)}.
+     * The JDBC type code of basic types is resolved once per type name and snapshot, and the dialect type name is looked up in
+     * the {@link liquibase.ext.hibernate.database.HibernateDialectRegistry} by type code, length, precision and scale.
+     */
+    protected String getSqlType(org.hibernate.mapping.Column hibernateColumn, HibernateDatabase database, DatabaseSnapshot snapshot) throws DatabaseException {
+        if (hibernateColumn.getSqlType() != null) {
+            return hibernateColumn.getSqlType();
         }
-        DataType dataType = new DataType(matcher.group(1));
-        if (matcher.group(3).isEmpty()) {
-            if (!matcher.group(2).isEmpty())
-                dataType.setColumnSize(Integer.parseInt(matcher.group(2)));
-        } else {
-            dataType.setColumnSize(Integer.parseInt(matcher.group(2)));
-            dataType.setDecimalDigits(Integer.parseInt(matcher.group(3)));
+        int sqlTypeCode = getSqlTypeCode(hibernateColumn, snapshot);
+        return database.getDialectRegistry().getTypeName(database.getDialect(), sqlTypeCode, hibernateColumn.getLength(), hibernateColumn.getPrecision(), hibernateColumn.getScale());
+    }
+
+    private int getSqlTypeCode(org.hibernate.mapping.Column hibernateColumn, DatabaseSnapshot snapshot) throws DatabaseException {
+        Mapping mapping = getMapping(snapshot);
+        Value value = hibernateColumn.getValue();
+        if (value == null || value.getClass() != SimpleValue.class || hibernateColumn.getTypeIndex() != 0) {
+            return hibernateColumn.getSqlTypeCode(mapping);
+        }
+        // a plain value without type parameters always resolves to the same type for the same type name
+        SimpleValue simpleValue = (SimpleValue) value;
+        String typeName = simpleValue.getTypeName();
+        if (typeName == null || (simpleValue.getTypeParameters() != null && !simpleValue.getTypeParameters().isEmpty())) {
+            return hibernateColumn.getSqlTypeCode(mapping);
         }
+        ConcurrentMap<String, Integer> sqlTypeCodes = getSqlTypeCodes(snapshot);
+        Integer sqlTypeCode = sqlTypeCodes.get(typeName);
+        if (sqlTypeCode == null) {
+            sqlTypeCode = hibernateColumn.getSqlTypeCode(mapping);
+            sqlTypeCodes.putIfAbsent(typeName, sqlTypeCode);
+        } else if (hibernateColumn.getSqlTypeCode() != null && !hibernateColumn.getSqlTypeCode().equals(sqlTypeCode)) {
+            // let hibernate report the mismatch
+            return hibernateColumn.getSqlTypeCode(mapping);
+        }
+        return sqlTypeCode;
+    }
 
-        String extra = StringUtils.trimToNull(matcher.group(4));
-        if (extra != null) {
-            if (extra.equalsIgnoreCase("char")) {
-                dataType.setColumnSizeUnit(DataType.ColumnSizeUnit.CHAR);
-            }
+    private ConcurrentMap<String, Integer> getSqlTypeCodes(DatabaseSnapshot snapshot) {
+        ConcurrentMap<String, Integer> sqlTypeCodes = (ConcurrentMap<String, Integer>) snapshot.getScratchData(SQL_TYPE_CODES_SCRATCH_KEY);
+        if (sqlTypeCodes == null) {
+            sqlTypeCodes = new ConcurrentHashMap<String, Integer>();
+            snapshot.setScratchData(SQL_TYPE_CODES_SCRATCH_KEY, sqlTypeCodes);
         }
+        return sqlTypeCodes;
+    }
 
-        dataType.setDataTypeId(sqlTypeCode);
-        return dataType;
+    /**
+     * Returns the hibernate {@link Mapping} for the snapshot, building it only once per snapshot.
+     */
+    protected Mapping getMapping(DatabaseSnapshot snapshot) throws DatabaseException {
+        Mapping mapping = (Mapping) snapshot.getScratchData(MAPPING_SCRATCH_KEY);
+        if (mapping == null) {
+            mapping = ((HibernateDatabase) snapshot.getDatabase()).getConfiguration().buildMapping();
+            snapshot.setScratchData(MAPPING_SCRATCH_KEY, mapping);
+        }
+        return mapping;
+    }
+
+    /**
+     * Returns the case-insensitive name to column index of the snapshot columns of the given relation.
+     * Relations not populated by {@link #addTo(DatabaseObject, DatabaseSnapshot)} are indexed from their current columns.
+     */
+    protected DataType toDataType(String hibernateType, Integer sqlTypeCode) throws DatabaseException {
+        return HibernateSqlTypeParser.parseDataType(hibernateType, sqlTypeCode);
     }
 
 }
@@ -6,11 +6,14 @@ import liquibase.ext.hibernate.database.HibernateDatabase;
 import liquibase.snapshot.DatabaseSnapshot;
 import liquibase.snapshot.InvalidExampleException;
 import liquibase.structure.DatabaseObject;
+import liquibase.structure.core.Column;
 import liquibase.structure.core.ForeignKey;
 import liquibase.structure.core.Table;
-import org.hibernate.cfg.Configuration;
 
-import java.util.Iterator;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
 
 public class ForeignKeySnapshotGenerator extends HibernateSnapshotGenerator {
 
@@ -30,40 +33,86 @@ public class ForeignKeySnapshotGenerator extends HibernateSnapshotGenerator {
         }
         if (foundObject instanceof Table) {
             Table table = (Table) foundObject;
-            HibernateDatabase database = (HibernateDatabase) snapshot.getDatabase();
-            Configuration cfg = database.getConfiguration();
-            Iterator<org.hibernate.mapping.Table> tableMappings = cfg.getTableMappings();
-            while (tableMappings.hasNext()) {
-                org.hibernate.mapping.Table hibernateTable = (org.hibernate.mapping.Table) tableMappings.next();
-                Iterator fkIterator = hibernateTable.getForeignKeyIterator();
-                while (fkIterator.hasNext()) {
-                    org.hibernate.mapping.ForeignKey hibernateForeignKey = (org.hibernate.mapping.ForeignKey) fkIterator.next();
+            for (ForeignKey fk : addOutgoingForeignKeys(table, snapshot)) {
+                table.getSchema().addDatabaseObject(fk);
+            }
+        }
+    }
+
+    @Override
+    protected void bulkAddTo(Table table, org.hibernate.mapping.Table hibernateTable, DatabaseSnapshot snapshot) throws DatabaseException, InvalidExampleException {
+        if (snapshot.getSnapshotControl().shouldInclude(ForeignKey.class)) {
+            addOutgoingForeignKeys(table, snapshot);
+        }
+    }
+
+    @Override
+    protected void mergeBulkAddTo(Table table, DatabaseSnapshot snapshot) throws DatabaseException {
+        if (snapshot.getSnapshotControl().shouldInclude(ForeignKey.class)) {
+            for (ForeignKey fk : table.getOutgoingForeignKeys()) {
+                table.getSchema().addDatabaseObject(fk);
+            }
+        }
+    }
+
+    /**
+     * Adds the foreign keys the given table owns to its outgoing foreign keys and returns them.
+     */
+    private List<ForeignKey> addOutgoingForeignKeys(Table table, DatabaseSnapshot snapshot) throws DatabaseException {
+        List<ForeignKey> foreignKeys = new ArrayList<ForeignKey>();
+        HibernateDatabase database = (HibernateDatabase) snapshot.getDatabase();
+        Map<org.hibernate.mapping.Table, Boolean> ownedBy = new IdentityHashMap<org.hibernate.mapping.Table, Boolean>();
+        for (org.hibernate.mapping.ForeignKey hibernateForeignKey : database.getTableIndex().getForeignKeys(table.getName())) {
+            if (!hibernateForeignKey.isPhysicalConstraint()) {
+                continue;
+            }
+            org.hibernate.mapping.Table hibernateTable = hibernateForeignKey.getTable();
+
+            Boolean isOwner = ownedBy.get(hibernateTable);
+            if (isOwner == null) {
+                isOwner = getRegisteredTable(hibernateTable, snapshot) == table;
+                if (!isOwner) {
                     Table currentTable = new Table().setName(hibernateTable.getName());
                     currentTable.setSchema(hibernateTable.getCatalog(), hibernateTable.getSchema());
+                    DatabaseObjectComparatorFactory comparatorFactory = DatabaseObjectComparatorFactory.getInstance();
+                    // the factory caches its comparator chains in plain maps, tables may be populated on several threads
+                    synchronized (comparatorFactory) {
+                        isOwner = comparatorFactory.isSameObject(currentTable, table, null, database);
+                    }
+                }
+                ownedBy.put(hibernateTable, isOwner);
+            }
+            if (!isOwner) {
+                continue;
+            }
+
+            // references the snapshot object of the referenced table if there is one already, so it is not duplicated
+            org.hibernate.mapping.Table hibernateReferencedTable = hibernateForeignKey.getReferencedTable();
+            Table referencedTable = getRegisteredTable(hibernateReferencedTable, snapshot);
+            boolean registeredReferencedTable = referencedTable != null;
+            if (!registeredReferencedTable) {
+                referencedTable = new Table().setName(intern(hibernateReferencedTable.getName()));
+                referencedTable.setSchema(hibernateReferencedTable.getCatalog(), hibernateReferencedTable.getSchema());
+            }
+
+            ForeignKey fk = new ForeignKey();
+            fk.setName(intern(hibernateForeignKey.getName()));
+            fk.setPrimaryKeyTable(referencedTable);
+            fk.setForeignKeyTable(table);
+            for (Object column : hibernateForeignKey.getColumns()) {
+                fk.addForeignKeyColumn(getCanonicalColumn(table, ((org.hibernate.mapping.Column) column).getName(), snapshot));
+            }
+            for (Object column : hibernateForeignKey.getReferencedColumns()) {
+                fk.addPrimaryKeyColumn(getReferencedColumn(referencedTable, registeredReferencedTable, ((org.hibernate.mapping.Column) column).getName(), snapshot));
+            }
+            if (fk.getPrimaryKeyColumns() == null || fk.getPrimaryKeyColumns().isEmpty()) {
+                for (Object column : hibernateReferencedTable.getPrimaryKey().getColumns()) {
+                    fk.addPrimaryKeyColumn(getReferencedColumn(referencedTable, registeredReferencedTable, ((org.hibernate.mapping.Column) column).getName(), snapshot));
+                }
+            }
 
-                    org.hibernate.mapping.Table hibernateReferencedTable = hibernateForeignKey.getReferencedTable();
-                    Table referencedTable = new Table().setName(hibernateReferencedTable.getName());
-                    referencedTable.setSchema(hibernateReferencedTable.getCatalog(), hibernateReferencedTable.getSchema());
-
-                    if (hibernateForeignKey.isPhysicalConstraint()) {
-                        ForeignKey fk = new ForeignKey();
-                        fk.setName(hibernateForeignKey.getName());
-                        fk.setPrimaryKeyTable(referencedTable);
-                        fk.setForeignKeyTable(currentTable);
-                        for (Object column : hibernateForeignKey.getColumns()) {
-                            fk.addForeignKeyColumn(new liquibase.structure.core.Column(((org.hibernate.mapping.Column) column).getName()));
-                        }
-                        for (Object column : hibernateForeignKey.getReferencedColumns()) {
-                            fk.addPrimaryKeyColumn(new liquibase.structure.core.Column(((org.hibernate.mapping.Column) column).getName()));
-                        }
-                        if (fk.getPrimaryKeyColumns() == null || fk.getPrimaryKeyColumns().isEmpty()) {
-                            for (Object column : hibernateReferencedTable.getPrimaryKey().getColumns()) {
-                                fk.addPrimaryKeyColumn(new liquibase.structure.core.Column(((org.hibernate.mapping.Column) column).getName()));
-                            }
-                        }
-
-                        fk.setDeferrable(false);
-                        fk.setInitiallyDeferred(false);
+            fk.setDeferrable(false);
+            fk.setInitiallyDeferred(false);
 
 //			Index index = new Index();
 //			index.setName("IX_" + fk.getName());
@@ -72,14 +121,17 @@ public class ForeignKeySnapshotGenerator extends HibernateSnapshotGenerator {
 //			fk.setBackingIndex(index);
 //			table.getIndexes().add(index);
 
-                        if (DatabaseObjectComparatorFactory.getInstance().isSameObject(currentTable, table, null, database)) {
-                            table.getOutgoingForeignKeys().add(fk);
-                            table.getSchema().addDatabaseObject(fk);
-                        }
-                    }
-                }
-            }
+            table.getOutgoingForeignKeys().add(fk);
+            foreignKeys.add(fk);
+        }
+        return foreignKeys;
+    }
+
+    private Column getReferencedColumn(Table referencedTable, boolean registered, String name, DatabaseSnapshot snapshot) {
+        if (registered) {
+            return getCanonicalColumn(referencedTable, name, snapshot);
         }
+        return new Column(intern(name));
     }
 
 }
@@ -3,6 +3,9 @@ package liquibase.ext.hibernate.snapshot;
 import liquibase.database.Database;
 import liquibase.exception.DatabaseException;
 import liquibase.ext.hibernate.database.HibernateDatabase;
+import liquibase.ext.hibernate.database.HibernateEvents;
+import liquibase.ext.hibernate.database.HibernateModel;
+import liquibase.ext.hibernate.database.HibernateProfiler;
 import liquibase.logging.LogFactory;
 import liquibase.logging.Logger;
 import liquibase.snapshot.DatabaseSnapshot;
@@ -10,9 +13,18 @@ import liquibase.snapshot.InvalidExampleException;
 import liquibase.snapshot.SnapshotGenerator;
 import liquibase.snapshot.SnapshotGeneratorChain;
 import liquibase.structure.DatabaseObject;
-import org.hibernate.cfg.Configuration;
+import liquibase.structure.core.Column;
+import liquibase.structure.core.ForeignKey;
+import liquibase.structure.core.Relation;
+import liquibase.structure.core.Schema;
+import liquibase.structure.core.Table;
 
-import java.util.Iterator;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 
 /**
  * Base class for all Hibernate SnapshotGenerators
@@ -22,6 +34,10 @@ public abstract class HibernateSnapshotGenerator implements SnapshotGenerator {
     private static final int PRIORITY_HIBERNATE_ADDITIONAL = 200;
     private static final int PRIORITY_HIBERNATE_DEFAULT = 100;
 
+    private static final String POPULATED_SCRATCH_KEY = "liquibase-hibernate.populated";
+    private static final String CACHED_MODEL_SCRATCH_KEY = "liquibase-hibernate.cachedModel";
+    private static final String CANONICAL_OBJECTS_SCRATCH_KEY = "liquibase-hibernate.canonicalObjects";
+
     private Class<? extends DatabaseObject> defaultFor = null;
     private Class<? extends DatabaseObject>[] addsTo = null;
 
@@ -66,18 +82,33 @@ public abstract class HibernateSnapshotGenerator implements SnapshotGenerator {
 
     public final DatabaseObject snapshot(DatabaseObject example, DatabaseSnapshot snapshot, SnapshotGeneratorChain chain) throws DatabaseException, InvalidExampleException {
         if (defaultFor != null && defaultFor.isAssignableFrom(example.getClass())) {
+            beforeSnapshotObject(example, snapshot);
+            HibernateProfiler profiler = ((HibernateDatabase) snapshot.getDatabase()).getProfiler();
+            if (profiler == null && !HibernateEvents.isSnapshotEnabled()) {
+                return snapshotObject(example, snapshot);
+            }
+            String table = getTableName(example);
+            long start = System.nanoTime();
+            HibernateEvents.Span event = HibernateEvents.snapshot(getClass().getName(), HibernateProfiler.SNAPSHOT_OBJECT, example.getClass().getSimpleName(), example.getName(), table);
             DatabaseObject result = snapshotObject(example, snapshot);
+            event.end();
+            if (profiler != null) {
+                profiler.record(HibernateProfiler.SNAPSHOT_OBJECT, getClass().getName(), table, start, result == null ? 0 : 1);
+            }
             return result;
         }
         DatabaseObject chainResponse = chain.snapshot(example, snapshot);
         if (chainResponse == null) {
             return null;
         }
+        if (isPopulated(chainResponse, snapshot)) {
+            return chainResponse;
+        }
         if (addsTo() != null) {
             for (Class<? extends DatabaseObject> addType : addsTo()) {
                 if (addType.isAssignableFrom(example.getClass())) {
                     if (chainResponse != null) {
-                        addTo(chainResponse, snapshot);
+                        instrumentedAddTo(chainResponse, null, snapshot);
                     }
                 }
             }
@@ -86,19 +117,254 @@ public abstract class HibernateSnapshotGenerator implements SnapshotGenerator {
 
     }
 
+    /**
+     * Populates the given table of a bulk snapshot with {@link #bulkAddTo(Table, org.hibernate.mapping.Table, DatabaseSnapshot)}, recording
+     * it like the snapshot records {@link #addTo(DatabaseObject, DatabaseSnapshot)}.
+     */
+    protected final void instrumentedBulkAddTo(Table table, org.hibernate.mapping.Table hibernateTable, DatabaseSnapshot snapshot) throws DatabaseException, InvalidExampleException {
+        instrumentedAddTo(table, hibernateTable, snapshot);
+    }
+
+    /**
+     * Calls {@link #bulkAddTo(Table, org.hibernate.mapping.Table, DatabaseSnapshot)} if the hibernate table of the found object is given,
+     * {@link #addTo(DatabaseObject, DatabaseSnapshot)} otherwise.
+     */
+    private void instrumentedAddTo(DatabaseObject foundObject, org.hibernate.mapping.Table hibernateTable, DatabaseSnapshot snapshot) throws DatabaseException, InvalidExampleException {
+        HibernateProfiler profiler = ((HibernateDatabase) snapshot.getDatabase()).getProfiler();
+        if (profiler == null && !HibernateEvents.isSnapshotEnabled()) {
+            addTo(foundObject, hibernateTable, snapshot);
+            return;
+        }
+        String table = getTableName(foundObject);
+        int before = profiler == null ? 0 : countContents(foundObject);
+        long start = System.nanoTime();
+        HibernateEvents.Span event = HibernateEvents.snapshot(getClass().getName(), HibernateProfiler.ADD_TO, foundObject.getClass().getSimpleName(), foundObject.getName(), table);
+        addTo(foundObject, hibernateTable, snapshot);
+        event.end();
+        if (profiler != null) {
+            profiler.record(HibernateProfiler.ADD_TO, getClass().getName(), table, start, Math.max(0, countContents(foundObject) - before));
+        }
+    }
+
+    private void addTo(DatabaseObject foundObject, org.hibernate.mapping.Table hibernateTable, DatabaseSnapshot snapshot) throws DatabaseException, InvalidExampleException {
+        if (hibernateTable != null) {
+            bulkAddTo((Table) foundObject, hibernateTable, snapshot);
+        } else {
+            addTo(foundObject, snapshot);
+        }
+    }
+
+    /**
+     * Counts the objects an object holds in its attributes, to find how many objects addTo added.
+     */
+    private int countContents(DatabaseObject object) {
+        int count = 0;
+        for (String attribute : object.getAttributes()) {
+            Object value = object.getAttribute(attribute, Object.class);
+            if (value instanceof Collection) {
+                count += ((Collection) value).size();
+            } else if (value instanceof DatabaseObject) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Returns the name of the table the given object is or belongs to, or null if it does not belong to a table.
+     */
+    protected String getTableName(DatabaseObject object) {
+        Object table;
+        if (object instanceof Table) {
+            return object.getName();
+        } else if (object instanceof Column) {
+            table = ((Column) object).getRelation();
+        } else if (object instanceof ForeignKey) {
+            table = ((ForeignKey) object).getForeignKeyTable();
+        } else {
+            table = object.getAttribute("table", Object.class);
+        }
+        return table instanceof DatabaseObject ? ((DatabaseObject) table).getName() : null;
+    }
+
+    /**
+     * Called before {@link #snapshotObject(DatabaseObject, DatabaseSnapshot)} for work done on behalf of every object rather than the
+     * given example, so it is not recorded as the time taken to snapshot the example.
+     */
+    protected void beforeSnapshotObject(DatabaseObject example, DatabaseSnapshot snapshot) throws DatabaseException, InvalidExampleException {
+    }
+
     protected abstract DatabaseObject snapshotObject(DatabaseObject example, DatabaseSnapshot snapshot) throws DatabaseException, InvalidExampleException;
 
     protected abstract void addTo(DatabaseObject foundObject, DatabaseSnapshot snapshot) throws DatabaseException, InvalidExampleException;
 
+    /**
+     * Called on the snapshot thread before the given tables of a bulk snapshot are populated by {@link #bulkAddTo(Table, org.hibernate.mapping.Table, DatabaseSnapshot)}.
+     * Builds anything shared and lazily created, such as scratch data, so that worker threads only read it.
+     */
+    protected void prepareBulkAddTo(List<Table> tables, DatabaseSnapshot snapshot) throws DatabaseException {
+    }
+
+    /**
+     * Populates the given table of a bulk snapshot from its hibernate table, which is found once for all generators. Other threads may
+     * populate the other tables at the same time, so only the table itself may be changed, anything else is left to
+     * {@link #mergeBulkAddTo(Table, DatabaseSnapshot)}. Defaults to {@link #addTo(DatabaseObject, DatabaseSnapshot)}.
+     */
+    protected void bulkAddTo(Table table, org.hibernate.mapping.Table hibernateTable, DatabaseSnapshot snapshot) throws DatabaseException, InvalidExampleException {
+        addTo(table, snapshot);
+    }
+
+    /**
+     * Called on the snapshot thread for each table, in mapping order, once all tables are populated by {@link #bulkAddTo(Table, org.hibernate.mapping.Table, DatabaseSnapshot)},
+     * to add what it found to objects shared between tables.
+     */
+    protected void mergeBulkAddTo(Table table, DatabaseSnapshot snapshot) throws DatabaseException {
+    }
+
+    /**
+     * Marks the given object as completely populated, by a bulk snapshot or from a cached model, so {@link #addTo(DatabaseObject, DatabaseSnapshot)} is not called for it again.
+     */
+    protected void markPopulated(DatabaseObject object, DatabaseSnapshot snapshot) {
+        Map<DatabaseObject, Boolean> populated = (Map<DatabaseObject, Boolean>) snapshot.getScratchData(POPULATED_SCRATCH_KEY);
+        if (populated == null) {
+            populated = new IdentityHashMap<DatabaseObject, Boolean>();
+            snapshot.setScratchData(POPULATED_SCRATCH_KEY, populated);
+        }
+        populated.put(object, Boolean.TRUE);
+    }
+
+    protected boolean isPopulated(DatabaseObject object, DatabaseSnapshot snapshot) {
+        Map<DatabaseObject, Boolean> populated = (Map<DatabaseObject, Boolean>) snapshot.getScratchData(POPULATED_SCRATCH_KEY);
+        return populated != null && populated.containsKey(object);
+    }
+
+    /**
+     * Returns the model the database read from its {@link liquibase.ext.hibernate.database.HibernateModelCache}, decoded into the given schema once per snapshot.
+     * Returns null if the database built its hibernate configuration instead.
+     */
+    protected HibernateModel getCachedModel(Schema schema, DatabaseSnapshot snapshot) throws DatabaseException {
+        HibernateDatabase database = (HibernateDatabase) snapshot.getDatabase();
+        if (!database.isCachedModel()) {
+            return null;
+        }
+        HibernateModel model = (HibernateModel) snapshot.getScratchData(CACHED_MODEL_SCRATCH_KEY);
+        if (model == null) {
+            model = database.readCachedModel(schema);
+            snapshot.setScratchData(CACHED_MODEL_SCRATCH_KEY, model);
+        }
+        return model;
+    }
+
+    /**
+     * Registers the given table as the snapshot object of the given hibernate table, so the constraints of other tables reference it
+     * instead of a copy.
+     */
+    protected void registerTable(org.hibernate.mapping.Table hibernateTable, Table table, DatabaseSnapshot snapshot) {
+        getCanonicalObjects(snapshot).registerTable(hibernateTable, table);
+    }
+
+    /**
+     * Returns the table registered for the given hibernate table by {@link #registerTable(org.hibernate.mapping.Table, Table, DatabaseSnapshot)},
+     * or null if it was not snapshotted yet.
+     */
+    protected Table getRegisteredTable(org.hibernate.mapping.Table hibernateTable, DatabaseSnapshot snapshot) {
+        return getCanonicalObjects(snapshot).getTable(hibernateTable);
+    }
+
+    /**
+     * Returns the one column of the given relation with the given name, ignoring case, creating it if no generator did yet.
+     * The columns of the relation, its primary key, unique constraints, indexes and foreign keys all share this column.
+     */
+    protected Column getCanonicalColumn(Relation relation, String name, DatabaseSnapshot snapshot) {
+        return getCanonicalObjects(snapshot).getColumn(relation, name, true);
+    }
+
+    /**
+     * Returns the column of the given relation with the given name, ignoring case, or null if no generator created it yet.
+     */
+    protected Column findCanonicalColumn(Relation relation, String name, DatabaseSnapshot snapshot) {
+        return getCanonicalObjects(snapshot).getColumn(relation, name, false);
+    }
+
+    /**
+     * Returns the canonical objects of the given snapshot. They are created on the snapshot thread along with the first table,
+     * before tables are populated in parallel.
+     */
+    private CanonicalObjects getCanonicalObjects(DatabaseSnapshot snapshot) {
+        synchronized (snapshot) {
+            CanonicalObjects canonicalObjects = (CanonicalObjects) snapshot.getScratchData(CANONICAL_OBJECTS_SCRATCH_KEY);
+            if (canonicalObjects == null) {
+                canonicalObjects = new CanonicalObjects();
+                snapshot.setScratchData(CANONICAL_OBJECTS_SCRATCH_KEY, canonicalObjects);
+            }
+            return canonicalObjects;
+        }
+    }
+
+    /**
+     * Returns the canonical representation of the given identifier, so the names of a model share one string per identifier.
+     */
+    protected static String intern(String identifier) {
+        return identifier == null ? null : identifier.intern();
+    }
+
+    /**
+     * The one table of each hibernate table and the one column of each column name of a table in a snapshot.
+     * Tables of a parallel snapshot may be populated on several threads at once.
+     */
+    private static class CanonicalObjects {
+        private final Map<org.hibernate.mapping.Table, Table> tables = new IdentityHashMap<org.hibernate.mapping.Table, Table>();
+        private final Map<Relation, Map<String, Column>> columns = new IdentityHashMap<Relation, Map<String, Column>>();
+
+        private synchronized void registerTable(org.hibernate.mapping.Table hibernateTable, Table table) {
+            if (!tables.containsKey(hibernateTable)) {
+                tables.put(hibernateTable, table);
+            }
+        }
+
+        private synchronized Table getTable(org.hibernate.mapping.Table hibernateTable) {
+            return tables.get(hibernateTable);
+        }
+
+        private synchronized Column getColumn(Relation relation, String name, boolean create) {
+            Map<String, Column> relationColumns = columns.get(relation);
+            if (relationColumns == null) {
+                relationColumns = new HashMap<String, Column>();
+                for (Column column : relation.getColumns()) {
+                    String key = column.getName().toLowerCase(Locale.ENGLISH);
+                    if (!relationColumns.containsKey(key)) {
+                        relationColumns.put(key, column);
+                    }
+                }
+                columns.put(relation, relationColumns);
+            }
+            String key = name.toLowerCase(Locale.ENGLISH);
+            Column column = relationColumns.get(key);
+            if (column == null && create) {
+                column = new Column(intern(name)).setRelation(relation);
+                relationColumns.put(key, column);
+            }
+            return column;
+        }
+    }
+
     protected org.hibernate.mapping.Table findHibernateTable(DatabaseObject example, DatabaseSnapshot snapshot) throws DatabaseException {
         HibernateDatabase database = (HibernateDatabase) snapshot.getDatabase();
-        Configuration cfg = database.getConfiguration();
-        Iterator<org.hibernate.mapping.Table> tableMappings = cfg.getTableMappings();
-        while (tableMappings.hasNext()) {
-            org.hibernate.mapping.Table hibernateTable = (org.hibernate.mapping.Table) tableMappings.next();
-            if (hibernateTable.getName().equalsIgnoreCase(example.getName()))
-                return hibernateTable;
+        HibernateProfiler profiler = database.getProfiler();
+        if (profiler == null) {
+            return lookupHibernateTable(example, database);
         }
-        return null;
+        long start = System.nanoTime();
+        org.hibernate.mapping.Table table = lookupHibernateTable(example, database);
+        profiler.record(HibernateProfiler.FIND_TABLE, getClass().getName(), example.getName(), start, table == null ? 0 : 1);
+        return table;
+    }
+
+    private org.hibernate.mapping.Table lookupHibernateTable(DatabaseObject example, HibernateDatabase database) throws DatabaseException {
+        Schema schema = example.getSchema();
+        if (schema == null) {
+            return database.getTableIndex().findTable(null, null, example.getName());
+        }
+        return database.getTableIndex().findTable(schema.getCatalogName(), schema.getName(), example.getName());
     }
 }
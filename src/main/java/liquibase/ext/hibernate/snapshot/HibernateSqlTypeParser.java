@@ -0,0 +1,185 @@
+package liquibase.ext.hibernate.snapshot;
+
+import liquibase.database.Database;
+import liquibase.datatype.DataTypeFactory;
+import liquibase.datatype.core.UnknownType;
+import liquibase.structure.core.DataType;
+import liquibase.util.StringUtils;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Parses the SQL type strings returned by hibernate, such as <code>varchar(255)</code>, <code>numeric(19,2)</code>
+ * or <code>integer default 0</code>, without using regular expressions.
+ * Most columns of a model share a small number of type strings, so parsed types are cached by type string and JDBC type code.
+ */
+public class HibernateSqlTypeParser {
+
+    private static final String DEFAULT_KEYWORD = "default";
+
+    private final ConcurrentMap<String, ParsedType> cache = new ConcurrentHashMap<String, ParsedType>();
+
+    /**
+     * Returns the parsed form of the given hibernate SQL type, including any trailing <code>DEFAULT</code> clause.
+     * The returned object is shared by all callers passing the same type string and type code.
+     */
+    public ParsedType parse(String sqlType, Integer sqlTypeCode) {
+        String key = sqlTypeCode + ":" + sqlType;
+        ParsedType parsedType = cache.get(key);
+        if (parsedType == null) {
+            String type = sqlType;
+            String defaultValue = null;
+            int defaultIndex = indexOfDefaultClause(sqlType);
+            if (defaultIndex >= 0) {
+                int valueIndex = defaultIndex + DEFAULT_KEYWORD.length() + 1;
+                while (valueIndex < sqlType.length() && isWhitespace(sqlType.charAt(valueIndex))) {
+                    valueIndex++;
+                }
+                defaultValue = sqlType.substring(valueIndex);
+                type = sqlType.substring(0, defaultIndex);
+            }
+            parsedType = new ParsedType(parseDataType(type, sqlTypeCode), defaultValue);
+            ParsedType existing = cache.putIfAbsent(key, parsedType);
+            if (existing != null) {
+                parsedType = existing;
+            }
+        }
+        return parsedType;
+    }
+
+    /**
+     * Parses a type string without a <code>DEFAULT</code> clause into a new {@link DataType}.
+     * The type name is everything before the first parenthesis, followed by an optional size, decimal digits and size unit.
+     * Returns null if the type string cannot be parsed.
+     */
+    public static DataType parseDataType(String type, Integer sqlTypeCode) {
+        int open = type.indexOf('(');
+        if (open < 0) {
+            DataType dataType = new DataType(type);
+            dataType.setDataTypeId(sqlTypeCode);
+            return dataType;
+        }
+
+        int index = skipWhitespace(type, open + 1);
+        int sizeEnd = skipDigits(type, index);
+        String size = type.substring(index, sizeEnd);
+        index = skipWhitespace(type, sizeEnd);
+        if (index < type.length() && type.charAt(index) == ',') {
+            index++;
+        }
+        index = skipWhitespace(type, index);
+        int digitsEnd = skipDigits(type, index);
+        String decimalDigits = type.substring(index, digitsEnd);
+        index = skipWhitespace(type, digitsEnd);
+
+        String extra = type.substring(index);
+        if (extra.indexOf('(') >= 0) {
+            return null;
+        }
+        if (extra.endsWith(")")) {
+            extra = extra.substring(0, extra.length() - 1);
+        }
+
+        DataType dataType = new DataType(type.substring(0, open));
+        if (decimalDigits.isEmpty()) {
+            if (!size.isEmpty()) {
+                dataType.setColumnSize(Integer.parseInt(size));
+            }
+        } else {
+            dataType.setColumnSize(Integer.parseInt(size));
+            dataType.setDecimalDigits(Integer.parseInt(decimalDigits));
+        }
+
+        extra = StringUtils.trimToNull(extra);
+        if (extra != null && extra.equalsIgnoreCase("char")) {
+            dataType.setColumnSizeUnit(DataType.ColumnSizeUnit.CHAR);
+        }
+
+        dataType.setDataTypeId(sqlTypeCode);
+        return dataType;
+    }
+
+    /**
+     * Returns the index of the space preceding a <code>DEFAULT</code> keyword that is followed by whitespace, or -1.
+     */
+    private static int indexOfDefaultClause(String sqlType) {
+        int last = sqlType.length() - DEFAULT_KEYWORD.length() - 2;
+        for (int i = 0; i <= last; i++) {
+            if (sqlType.charAt(i) == ' '
+                    && sqlType.regionMatches(true, i + 1, DEFAULT_KEYWORD, 0, DEFAULT_KEYWORD.length())
+                    && isWhitespace(sqlType.charAt(i + DEFAULT_KEYWORD.length() + 1))) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static int skipWhitespace(String string, int index) {
+        while (index < string.length() && isWhitespace(string.charAt(index))) {
+            index++;
+        }
+        return index;
+    }
+
+    private static int skipDigits(String string, int index) {
+        while (index < string.length() && string.charAt(index) >= '0' && string.charAt(index) <= '9') {
+            index++;
+        }
+        return index;
+    }
+
+    private static boolean isWhitespace(char c) {
+        return c == ' ' || c == '\t' || c == '\n' || c == '\u000B' || c == '\f' || c == '\r';
+    }
+
+    /**
+     * An immutable, shareable parse result. Use {@link #toDataType()} to get a {@link DataType} that can be attached to a column.
+     */
+    public static class ParsedType {
+
+        private final DataType template;
+        private final String defaultValue;
+        private volatile Boolean unknownType;
+
+        private ParsedType(DataType template, String defaultValue) {
+            this.template = template;
+            this.defaultValue = defaultValue;
+        }
+
+        /**
+         * Returns a new {@link DataType} for the parsed type, or null if the type string could not be parsed.
+         */
+        public DataType toDataType() {
+            if (template == null) {
+                return null;
+            }
+            DataType dataType = new DataType(template.getTypeName());
+            dataType.setColumnSize(template.getColumnSize());
+            dataType.setDecimalDigits(template.getDecimalDigits());
+            dataType.setColumnSizeUnit(template.getColumnSizeUnit());
+            dataType.setDataTypeId(template.getDataTypeId());
+            return dataType;
+        }
+
+        /**
+         * Returns the value of the <code>DEFAULT</code> clause of the type string, or null if there is none.
+         */
+        public String getDefaultValue() {
+            return defaultValue;
+        }
+
+        /**
+         * Returns true if Liquibase classifies the parsed type as an {@link UnknownType}.
+         * The classification is computed once, all hibernate databases classify types the same way.
+         */
+        public boolean isUnknownType(Database database) {
+            Boolean unknown = unknownType;
+            if (unknown == null) {
+                unknown = DataTypeFactory.getInstance().from(template, database) instanceof UnknownType;
+                unknownType = unknown;
+            }
+            return unknown;
+        }
+    }
+}
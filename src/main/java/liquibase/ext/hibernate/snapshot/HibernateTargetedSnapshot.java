@@ -0,0 +1,101 @@
+package liquibase.ext.hibernate.snapshot;
+
+import liquibase.database.Database;
+import liquibase.exception.DatabaseException;
+import liquibase.snapshot.DatabaseSnapshot;
+import liquibase.snapshot.InvalidExampleException;
+import liquibase.snapshot.JdbcDatabaseSnapshot;
+import liquibase.snapshot.SnapshotControl;
+import liquibase.structure.DatabaseObject;
+import liquibase.structure.core.Column;
+import liquibase.structure.core.Schema;
+import liquibase.structure.core.Sequence;
+import liquibase.structure.core.Table;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Snapshot of only some tables and sequences of a database, along with their columns, keys, constraints and indexes, used to
+ * compare a hibernate model with a database schema holding many more tables than the model maps.
+ * <p/>
+ * The standard snapshot of a table includes the tables its foreign keys reference, then the tables those reference, up to most
+ * of the schema. Here the referenced tables which are not examples are left as references, so the snapshot objects and the
+ * queries made for each table scale with the number of examples. Liquibase may still read the column, key and index metadata
+ * of the whole schema in a few bulk queries once several tables have been looked up.
+ */
+public class HibernateTargetedSnapshot extends JdbcDatabaseSnapshot {
+
+    // set by init, which is called by the super constructor, so it must not have an initializer
+    private Set<String> tableNames;
+
+    public HibernateTargetedSnapshot(DatabaseObject[] examples, Database database) throws DatabaseException, InvalidExampleException {
+        super(examples, database, new SnapshotControl(database));
+    }
+
+    /**
+     * Snapshots the tables and sequences of the given snapshot of a hibernate model in the default schema of the given database.
+     */
+    public static HibernateTargetedSnapshot create(DatabaseSnapshot hibernateSnapshot, Database database) throws DatabaseException {
+        List<String> tableNames = new ArrayList<String>();
+        for (Table table : hibernateSnapshot.get(Table.class)) {
+            tableNames.add(table.getName());
+        }
+        List<String> sequenceNames = new ArrayList<String>();
+        for (Sequence sequence : hibernateSnapshot.get(Sequence.class)) {
+            sequenceNames.add(sequence.getName());
+        }
+        return create(tableNames, sequenceNames, database);
+    }
+
+    /**
+     * Snapshots the given tables and sequences of the default schema of the given database, correcting the case of their names
+     * the way the database stores unquoted names. Sequences are ignored if the database does not support them.
+     */
+    public static HibernateTargetedSnapshot create(Collection<String> tableNames, Collection<String> sequenceNames, Database database) throws DatabaseException {
+        Schema schema = new Schema(database.getDefaultCatalogName(), database.getDefaultSchemaName());
+        List<DatabaseObject> examples = new ArrayList<DatabaseObject>();
+        for (String tableName : tableNames) {
+            examples.add(new Table().setName(database.correctObjectName(tableName, Table.class)).setSchema(schema));
+        }
+        if (database.supportsSequences()) {
+            for (String sequenceName : sequenceNames) {
+                examples.add(new Sequence().setName(database.correctObjectName(sequenceName, Sequence.class)).setSchema(schema));
+            }
+        }
+        try {
+            return new HibernateTargetedSnapshot(examples.toArray(new DatabaseObject[examples.size()]), database);
+        } catch (InvalidExampleException e) {
+            throw new DatabaseException(e);
+        }
+    }
+
+    @Override
+    protected void init(DatabaseObject[] examples) throws DatabaseException, InvalidExampleException {
+        tableNames = new HashSet<String>();
+        for (DatabaseObject example : examples) {
+            if (example instanceof Table) {
+                tableNames.add(example.getName().toLowerCase());
+            }
+        }
+        super.init(examples);
+    }
+
+    @Override
+    protected <T extends DatabaseObject> T include(T example) throws DatabaseException, InvalidExampleException {
+        if (example instanceof Table && !isExample((Table) example)) {
+            return example;
+        }
+        if (example instanceof Column && ((Column) example).getRelation() instanceof Table && !isExample((Table) ((Column) example).getRelation())) {
+            return example;
+        }
+        return super.include(example);
+    }
+
+    private boolean isExample(Table table) {
+        return table.getName() == null || tableNames.contains(table.getName().toLowerCase());
+    }
+}
@@ -29,11 +29,11 @@ public class IndexSnapshotGenerator extends HibernateSnapshotGenerator {
             org.hibernate.mapping.Index hibernateIndex = (org.hibernate.mapping.Index) indexIterator.next();
             Index index = new Index();
             index.setTable(table);
-            index.setName(hibernateIndex.getName());
+            index.setName(intern(hibernateIndex.getName()));
             Iterator columnIterator = hibernateIndex.getColumnIterator();
             while (columnIterator.hasNext()) {
                 org.hibernate.mapping.Column hibernateColumn = (org.hibernate.mapping.Column) columnIterator.next();
-                index.getColumns().add(new Column(hibernateColumn.getName()).setRelation(table));
+                index.getColumns().add(getCanonicalColumn(table, hibernateColumn.getName(), snapshot));
             }
 
             if (index.getColumnNames().equalsIgnoreCase(((Index) example).getColumnNames())) {
@@ -57,20 +57,31 @@ public class IndexSnapshotGenerator extends HibernateSnapshotGenerator {
             if (hibernateTable == null) {
                 return;
             }
-            Iterator indexIterator = hibernateTable.getIndexIterator();
-            while (indexIterator.hasNext()) {
-                org.hibernate.mapping.Index hibernateIndex = (org.hibernate.mapping.Index) indexIterator.next();
-                Index index = new Index();
-                index.setTable(table);
-                index.setName(hibernateIndex.getName());
-                Iterator columnIterator = hibernateIndex.getColumnIterator();
-                while (columnIterator.hasNext()) {
-                    org.hibernate.mapping.Column hibernateColumn = (org.hibernate.mapping.Column) columnIterator.next();
-                    index.getColumns().add(new Column(hibernateColumn.getName()).setRelation(table));
-                }
-                LOG.info("Found index " + index.getName());
-                table.getIndexes().add(index);
+            addIndexes(table, hibernateTable, snapshot);
+        }
+    }
+
+    @Override
+    protected void bulkAddTo(Table table, org.hibernate.mapping.Table hibernateTable, DatabaseSnapshot snapshot) throws DatabaseException, InvalidExampleException {
+        if (snapshot.getSnapshotControl().shouldInclude(Index.class)) {
+            addIndexes(table, hibernateTable, snapshot);
+        }
+    }
+
+    private void addIndexes(Table table, org.hibernate.mapping.Table hibernateTable, DatabaseSnapshot snapshot) {
+        Iterator indexIterator = hibernateTable.getIndexIterator();
+        while (indexIterator.hasNext()) {
+            org.hibernate.mapping.Index hibernateIndex = (org.hibernate.mapping.Index) indexIterator.next();
+            Index index = new Index();
+            index.setTable(table);
+            index.setName(intern(hibernateIndex.getName()));
+            Iterator columnIterator = hibernateIndex.getColumnIterator();
+            while (columnIterator.hasNext()) {
+                org.hibernate.mapping.Column hibernateColumn = (org.hibernate.mapping.Column) columnIterator.next();
+                index.getColumns().add(getCanonicalColumn(table, hibernateColumn.getName(), snapshot));
             }
+            LOG.info("Found index " + index.getName());
+            table.getIndexes().add(index);
         }
     }
 
@@ -5,7 +5,6 @@ import liquibase.snapshot.DatabaseSnapshot;
 import liquibase.snapshot.InvalidExampleException;
 import liquibase.statement.DatabaseFunction;
 import liquibase.structure.DatabaseObject;
-import liquibase.structure.core.Column;
 import liquibase.structure.core.Index;
 import liquibase.structure.core.PrimaryKey;
 import liquibase.structure.core.Table;
@@ -47,45 +46,56 @@ public class PrimaryKeySnapshotGenerator extends HibernateSnapshotGenerator {
             if (hibernateTable == null) {
                 return;
             }
-            org.hibernate.mapping.PrimaryKey hibernatePrimaryKey = hibernateTable.getPrimaryKey();
-            if (hibernatePrimaryKey != null) {
-                PrimaryKey pk = new PrimaryKey();
-                String hbnPrimaryKeyName = hibernatePrimaryKey.getName();
-                                /*
-                 * pk name is probably truncated and maybe a duplicate in case
-                 * of tables with long prefixes
-                 */
-                String hbnTableName = hibernateTable.getName();
-                if (hbnPrimaryKeyName != null && hbnPrimaryKeyName.length() == 15 && hbnPrimaryKeyName.equals(PK_ALIAS_15.toAliasString(hbnTableName))) {
-                    LOG.warning("Hibernate primary key name is probably truncated. " + hbnPrimaryKeyName);
-                    String newAlias = NEW_PK_ALIAS.toAliasString(hbnTableName);
-                    int newAliasLength = newAlias.length();
-                    if (newAliasLength > 15) {
-                        if (newAliasLength == PKNAMELENGTH) {
-                            String suffix = "_" + Integer.toHexString(hbnTableName.hashCode()).toUpperCase() + "_" + PK;
-                            hbnPrimaryKeyName = newAlias.substring(0, PKNAMELENGTH - suffix.length()) + suffix;
-                        } else {
-                            hbnPrimaryKeyName = newAlias;
-                        }
-                        LOG.warning("Changing hibernate primary key name to " + hbnPrimaryKeyName);
+            addPrimaryKey(table, hibernateTable, snapshot);
+        }
+    }
+
+    @Override
+    protected void bulkAddTo(Table table, org.hibernate.mapping.Table hibernateTable, DatabaseSnapshot snapshot) throws DatabaseException, InvalidExampleException {
+        if (snapshot.getSnapshotControl().shouldInclude(PrimaryKey.class)) {
+            addPrimaryKey(table, hibernateTable, snapshot);
+        }
+    }
+
+    private void addPrimaryKey(Table table, org.hibernate.mapping.Table hibernateTable, DatabaseSnapshot snapshot) {
+        org.hibernate.mapping.PrimaryKey hibernatePrimaryKey = hibernateTable.getPrimaryKey();
+        if (hibernatePrimaryKey != null) {
+            PrimaryKey pk = new PrimaryKey();
+            String hbnPrimaryKeyName = hibernatePrimaryKey.getName();
+                            /*
+             * pk name is probably truncated and maybe a duplicate in case
+             * of tables with long prefixes
+             */
+            String hbnTableName = hibernateTable.getName();
+            if (hbnPrimaryKeyName != null && hbnPrimaryKeyName.length() == 15 && hbnPrimaryKeyName.equals(PK_ALIAS_15.toAliasString(hbnTableName))) {
+                LOG.warning("Hibernate primary key name is probably truncated. " + hbnPrimaryKeyName);
+                String newAlias = NEW_PK_ALIAS.toAliasString(hbnTableName);
+                int newAliasLength = newAlias.length();
+                if (newAliasLength > 15) {
+                    if (newAliasLength == PKNAMELENGTH) {
+                        String suffix = "_" + Integer.toHexString(hbnTableName.hashCode()).toUpperCase() + "_" + PK;
+                        hbnPrimaryKeyName = newAlias.substring(0, PKNAMELENGTH - suffix.length()) + suffix;
+                    } else {
+                        hbnPrimaryKeyName = newAlias;
                     }
+                    LOG.warning("Changing hibernate primary key name to " + hbnPrimaryKeyName);
                 }
-                pk.setName(hbnPrimaryKeyName);
-                pk.setTable(table);
-                for (Object hibernateColumn : hibernatePrimaryKey.getColumns()) {
-                    pk.getColumns().add(new Column(((org.hibernate.mapping.Column) hibernateColumn).getName()).setRelation(table));
-                }
-
-                LOG.info("Found primary key " + pk.getName());
-                table.setPrimaryKey(pk);
-                Index index = new Index();
-                index.setName("IX_" + pk.getName());
-                index.setTable(table);
-                index.setColumns(pk.getColumns());
-                index.setUnique(true);
-                pk.setBackingIndex(index);
-                table.getIndexes().add(index);
             }
+            pk.setName(intern(hbnPrimaryKeyName));
+            pk.setTable(table);
+            for (Object hibernateColumn : hibernatePrimaryKey.getColumns()) {
+                pk.getColumns().add(getCanonicalColumn(table, ((org.hibernate.mapping.Column) hibernateColumn).getName(), snapshot));
+            }
+
+            LOG.info("Found primary key " + pk.getName());
+            table.setPrimaryKey(pk);
+            Index index = new Index();
+            index.setName("IX_" + pk.getName());
+            index.setTable(table);
+            index.setColumns(pk.getColumns());
+            index.setUnique(true);
+            pk.setBackingIndex(index);
+            table.getIndexes().add(index);
         }
     }
 
@@ -2,19 +2,13 @@ package liquibase.ext.hibernate.snapshot;
 
 import liquibase.exception.DatabaseException;
 import liquibase.ext.hibernate.database.HibernateDatabase;
+import liquibase.ext.hibernate.database.HibernateModel;
 import liquibase.snapshot.DatabaseSnapshot;
 import liquibase.snapshot.InvalidExampleException;
 import liquibase.structure.DatabaseObject;
 import liquibase.structure.core.Schema;
 import liquibase.structure.core.Sequence;
-import org.hibernate.cfg.Configuration;
-import org.hibernate.id.IdentifierGenerator;
-import org.hibernate.id.SequenceGenerator;
-import org.hibernate.id.enhanced.SequenceStyleGenerator;
-import org.hibernate.mapping.PersistentClass;
-import org.hibernate.mapping.RootClass;
-
-import java.util.Iterator;
+import liquibase.structure.core.Table;
 
 /**
  * Sequence snapshots are not yet supported, but this class needs to be implemented in order to prevent the default SequenceSnapshotGenerator from running.
@@ -39,35 +33,33 @@ public class SequenceSnapshotGenerator extends HibernateSnapshotGenerator {
         if (foundObject instanceof Schema) {
 
             Schema schema = (Schema) foundObject;
-            HibernateDatabase database = (HibernateDatabase) snapshot.getDatabase();
-            Configuration cfg = database.getConfiguration();
-            
-            Iterator<PersistentClass> classMappings = cfg.getClassMappings();
-            while (classMappings.hasNext()) {
-                PersistentClass persistentClass = (PersistentClass) classMappings
-                        .next();
-                if ( !persistentClass.isInherited() ) {
-                    IdentifierGenerator ig = persistentClass.getIdentifier().createIdentifierGenerator(
-                            cfg.getIdentifierGeneratorFactory(),
-                            database.getDialect(),
-                            null,
-                            null,
-                            (RootClass) persistentClass
-                    );
-                    if (ig instanceof SequenceGenerator) {
-                        SequenceGenerator sequenceGenerator = (SequenceGenerator) ig;
-                        createSequence(sequenceGenerator.getSequenceName(), schema);
-                    } else if (ig instanceof SequenceStyleGenerator) {
-                        SequenceStyleGenerator sequenceGenerator = (SequenceStyleGenerator) ig;
-                        createSequence((String) sequenceGenerator.generatorKey(), schema);
-                    }
+            HibernateModel cachedModel = getCachedModel(schema, snapshot);
+            if (cachedModel != null) {
+                for (Sequence sequence : cachedModel.getSequences()) {
+                    schema.addDatabaseObject(sequence);
                 }
-                
+                return;
+            }
+
+            HibernateDatabase database = (HibernateDatabase) snapshot.getDatabase();
+            if (database.isBulkSnapshot() && snapshot.getSnapshotControl().shouldInclude(Table.class)) {
+                // found by TableSnapshotGenerator along with the tables
+                return;
             }
+            addSequences(schema, database);
+        }
+    }
+
+    /**
+     * Adds the sequences of the identifier generators of the given database to the given schema.
+     */
+    static void addSequences(Schema schema, HibernateDatabase database) throws DatabaseException {
+        for (String sequenceName : database.getIdentifierGeneratorRegistry().getSequenceNames()) {
+            createSequence(sequenceName, schema);
         }
     }
 
-    private void createSequence(String sequenceName, Schema schema) {
+    private static void createSequence(String sequenceName, Schema schema) {
         Sequence sequence = new Sequence();
         sequence.setName(sequenceName);
         sequence.setSchema(schema);
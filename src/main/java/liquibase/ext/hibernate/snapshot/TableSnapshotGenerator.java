@@ -5,6 +5,7 @@ import liquibase.datatype.LiquibaseDataType;
 import liquibase.datatype.core.UnknownType;
 import liquibase.exception.DatabaseException;
 import liquibase.ext.hibernate.database.HibernateDatabase;
+import liquibase.ext.hibernate.database.HibernateModel;
 import liquibase.ext.hibernate.snapshot.extension.ExtendedSnapshotGenerator;
 import liquibase.ext.hibernate.snapshot.extension.MultipleHiLoPerTableSnapshotGenerator;
 import liquibase.ext.hibernate.snapshot.extension.TableGeneratorSnapshotGenerator;
@@ -23,26 +24,61 @@ import org.hibernate.dialect.PostgreSQL81Dialect;
 import org.hibernate.engine.spi.Mapping;
 import org.hibernate.id.IdentifierGenerator;
 import org.hibernate.id.IdentityGenerator;
-import org.hibernate.mapping.PersistentClass;
-import org.hibernate.mapping.RootClass;
 import org.hibernate.mapping.SimpleValue;
 
 import java.lang.reflect.Method;
 import java.util.ArrayList;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 public class TableSnapshotGenerator extends HibernateSnapshotGenerator {
 
+    private static final String BULK_TABLES_SCRATCH_KEY = "liquibase-hibernate.bulkTables";
+
     private List<ExtendedSnapshotGenerator<IdentifierGenerator, Table>> tableIdGenerators =
             new ArrayList<ExtendedSnapshotGenerator<IdentifierGenerator, Table>>();
 
+    /**
+     * The generators adding to a table, in the order the SnapshotGeneratorChain calls their addTo methods.
+     */
+    private List<HibernateSnapshotGenerator> bulkGenerators = new ArrayList<HibernateSnapshotGenerator>();
+
     public TableSnapshotGenerator() {
         super(Table.class, new Class[]{Schema.class});
         tableIdGenerators.add(new MultipleHiLoPerTableSnapshotGenerator());
         tableIdGenerators.add(new TableGeneratorSnapshotGenerator());
+
+        bulkGenerators.add(new UniqueConstraintSnapshotGenerator());
+        bulkGenerators.add(new PrimaryKeySnapshotGenerator());
+        bulkGenerators.add(new IndexSnapshotGenerator());
+        bulkGenerators.add(new ForeignKeySnapshotGenerator());
+        bulkGenerators.add(new ColumnSnapshotGenerator());
+    }
+
+    /**
+     * Populates the tables of a bulk snapshot when the first of them is included, before its own snapshot is timed.
+     */
+    @Override
+    protected void beforeSnapshotObject(DatabaseObject example, DatabaseSnapshot snapshot) throws DatabaseException, InvalidExampleException {
+        BulkTables bulkTables = (BulkTables) snapshot.getScratchData(BULK_TABLES_SCRATCH_KEY);
+        if (bulkTables == null || bulkTables.populated || example.getSnapshotId() != null) {
+            return;
+        }
+        org.hibernate.mapping.Table hibernateTable = findHibernateTable(example, snapshot);
+        if (hibernateTable != null && bulkTables.tables.containsKey(hibernateTable)) {
+            populateTables(bulkTables, snapshot);
+        }
     }
 
     @Override
@@ -50,17 +86,60 @@ public class TableSnapshotGenerator extends HibernateSnapshotGenerator {
         if (example.getSnapshotId() != null) {
             return example;
         }
+        if (isPopulated(example, snapshot)) {
+            return example;
+        }
+        HibernateModel cachedModel = getCachedModel(example.getSchema(), snapshot);
+        if (cachedModel != null) {
+            Table cachedTable = cachedModel.findTable(example.getName());
+            return cachedTable == null ? example : cachedTable;
+        }
         org.hibernate.mapping.Table hibernateTable = findHibernateTable(example, snapshot);
         if (hibernateTable == null) {
             return example;
         }
 
-        Table table = new Table().setName(hibernateTable.getName());
+        BulkTables bulkTables = (BulkTables) snapshot.getScratchData(BULK_TABLES_SCRATCH_KEY);
+        if (bulkTables != null) {
+            Table bulkTable = bulkTables.tables.get(hibernateTable);
+            if (bulkTable != null) {
+                populateTables(bulkTables, snapshot);
+                return bulkTable;
+            }
+        }
+
+        if (getRegisteredTable(hibernateTable, snapshot) == example) {
+            // created by addTo for the schema, the snapshot is including it now
+            return example;
+        }
+        return createTable(hibernateTable, example, snapshot);
+    }
+
+    private Table createTable(org.hibernate.mapping.Table hibernateTable, DatabaseObject example, DatabaseSnapshot snapshot) {
+        Table table = new Table().setName(intern(hibernateTable.getName()));
         LOG.info("Found table " + table.getName());
 //        table.setSnapshotId(SnapshotIdService.getInstance().generateId());
         table.setSchema(example.getSchema());
+        registerTable(hibernateTable, table, snapshot);
 
+        return table;
+    }
 
+    /**
+     * Registers the table for the given example to be populated by {@link #populateTables(BulkTables, DatabaseSnapshot)}.
+     * Examples resolving to an already registered hibernate table share its table, like the snapshot would when including them.
+     */
+    private Table addBulkTable(BulkTables bulkTables, Table example, DatabaseSnapshot snapshot) throws DatabaseException {
+        org.hibernate.mapping.Table hibernateTable = findHibernateTable(example, snapshot);
+        if (hibernateTable == null) {
+            return example;
+        }
+        Table table = bulkTables.tables.get(hibernateTable);
+        if (table == null) {
+            table = createTable(hibernateTable, example, snapshot);
+            bulkTables.tables.put(hibernateTable, table);
+            bulkTables.order.add(hibernateTable);
+        }
         return table;
     }
 
@@ -74,8 +153,25 @@ public class TableSnapshotGenerator extends HibernateSnapshotGenerator {
 
             Schema schema = (Schema) foundObject;
             HibernateDatabase database = (HibernateDatabase) snapshot.getDatabase();
+
+            HibernateModel cachedModel = getCachedModel(schema, snapshot);
+            if (cachedModel != null) {
+                for (Table table : cachedModel.getTables()) {
+                    LOG.info("Found cached table " + table.getName());
+                    schema.addDatabaseObject(table);
+                    markPopulated(table, snapshot);
+                }
+                return;
+            }
+
             Configuration cfg = database.getConfiguration();
 
+            BulkTables bulkTables = null;
+            if (database.isBulkSnapshot()) {
+                bulkTables = new BulkTables();
+                snapshot.setScratchData(BULK_TABLES_SCRATCH_KEY, bulkTables);
+            }
+
             Iterator<org.hibernate.mapping.Table> tableMappings = cfg.getTableMappings();
             while (tableMappings.hasNext()) {
                 org.hibernate.mapping.Table hibernateTable = (org.hibernate.mapping.Table) tableMappings.next();
@@ -83,33 +179,140 @@ public class TableSnapshotGenerator extends HibernateSnapshotGenerator {
                     Table table = new Table().setName(hibernateTable.getName());
                     table.setSchema(schema);
                     LOG.info("Found table " + table.getName());
-                    schema.addDatabaseObject(snapshotObject(table, snapshot));
+                    if (bulkTables != null) {
+                        schema.addDatabaseObject(addBulkTable(bulkTables, table, snapshot));
+                    } else {
+                        schema.addDatabaseObject(snapshotObject(table, snapshot));
+                    }
                 }
             }
 
-            Iterator<PersistentClass> classMappings = cfg.getClassMappings();
-            while (classMappings.hasNext()) {
-                PersistentClass persistentClass = (PersistentClass) classMappings
-                        .next();
-                if (!persistentClass.isInherited()) {
-                    IdentifierGenerator ig = persistentClass.getIdentifier().createIdentifierGenerator(
-                            cfg.getIdentifierGeneratorFactory(),
-                            database.getDialect(),
-                            null,
-                            null,
-                            (RootClass) persistentClass
-                    );
-                    for (ExtendedSnapshotGenerator<IdentifierGenerator, Table> tableIdGenerator : tableIdGenerators) {
-                        if (tableIdGenerator.supports(ig)) {
-                            Table idTable = tableIdGenerator.snapshot(ig);
-                            idTable.setSchema(schema);
-                            schema.addDatabaseObject(snapshotObject(idTable, snapshot));
-                            break;
+            for (IdentifierGenerator ig : database.getIdentifierGeneratorRegistry().getTableGenerators()) {
+                for (ExtendedSnapshotGenerator<IdentifierGenerator, Table> tableIdGenerator : tableIdGenerators) {
+                    if (tableIdGenerator.supports(ig)) {
+                        Table idTable = tableIdGenerator.snapshot(ig);
+                        idTable.setSchema(schema);
+                        DatabaseObject idTableSnapshot = snapshotObject(idTable, snapshot);
+                        if (bulkTables != null && idTableSnapshot == idTable) {
+                            // not mapped, so the generators would not add anything to it
+                            markPopulated(idTable, snapshot);
                         }
+                        schema.addDatabaseObject(idTableSnapshot);
+                        break;
                     }
                 }
             }
+
+            if (bulkTables != null && snapshot.getSnapshotControl().shouldInclude(Sequence.class)) {
+                SequenceSnapshotGenerator.addSequences(schema, database);
+            }
+        }
+    }
+
+    /**
+     * Populates every table found by {@link #addTo(DatabaseObject, DatabaseSnapshot)} directly from its hibernate table, in one pass over the
+     * tables in mapping order, or on a pool of threads if {@link HibernateDatabase#getSnapshotThreads()} is above one. Each table is populated
+     * by a single thread running the generators in chain order, then what they found for objects shared between tables is merged on the
+     * snapshot thread in mapping order, so the snapshot is the same as the one the chain builds table by table. This is done when the first
+     * table is included rather than in addTo, so that the objects reach the snapshot in the same order too.
+     */
+    protected void populateTables(BulkTables bulkTables, final DatabaseSnapshot snapshot) throws DatabaseException, InvalidExampleException {
+        if (bulkTables.populated) {
+            return;
+        }
+        bulkTables.populated = true;
+        List<Table> tables = new ArrayList<Table>(bulkTables.order.size());
+        for (org.hibernate.mapping.Table hibernateTable : bulkTables.order) {
+            tables.add(bulkTables.tables.get(hibernateTable));
+        }
+        int threads = Math.max(1, Math.min(((HibernateDatabase) snapshot.getDatabase()).getSnapshotThreads(), tables.size()));
+        for (HibernateSnapshotGenerator generator : bulkGenerators) {
+            generator.prepareBulkAddTo(tables, snapshot);
         }
+
+        LOG.info("Populating " + tables.size() + " tables on " + threads + " threads");
+        if (threads == 1) {
+            for (org.hibernate.mapping.Table hibernateTable : bulkTables.order) {
+                populateTable(bulkTables.tables.get(hibernateTable), hibernateTable, snapshot);
+            }
+        } else {
+            ExecutorService executor = Executors.newFixedThreadPool(threads, new SnapshotThreadFactory());
+            try {
+                List<Future<Void>> futures = new ArrayList<Future<Void>>(tables.size());
+                for (final org.hibernate.mapping.Table hibernateTable : bulkTables.order) {
+                    final Table table = bulkTables.tables.get(hibernateTable);
+                    futures.add(executor.submit(new Callable<Void>() {
+                        @Override
+                        public Void call() throws Exception {
+                            populateTable(table, hibernateTable, snapshot);
+                            return null;
+                        }
+                    }));
+                }
+                for (Future<Void> future : futures) {
+                    get(future);
+                }
+            } finally {
+                executor.shutdownNow();
+            }
+        }
+
+        for (Table table : tables) {
+            for (HibernateSnapshotGenerator generator : bulkGenerators) {
+                generator.mergeBulkAddTo(table, snapshot);
+            }
+            markPopulated(table, snapshot);
+        }
+    }
+
+    private void populateTable(Table table, org.hibernate.mapping.Table hibernateTable, DatabaseSnapshot snapshot) throws DatabaseException, InvalidExampleException {
+        for (HibernateSnapshotGenerator generator : bulkGenerators) {
+            generator.instrumentedBulkAddTo(table, hibernateTable, snapshot);
+        }
+    }
+
+    private void get(Future<Void> future) throws DatabaseException, InvalidExampleException {
+        try {
+            future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new DatabaseException(e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof DatabaseException) {
+                throw (DatabaseException) cause;
+            } else if (cause instanceof InvalidExampleException) {
+                throw (InvalidExampleException) cause;
+            } else if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            } else if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new DatabaseException(cause);
+        }
+    }
+
+    private static class SnapshotThreadFactory implements ThreadFactory {
+
+        private final ClassLoader contextClassLoader = Thread.currentThread().getContextClassLoader();
+        private final AtomicInteger count = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "liquibase-hibernate-snapshot-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            thread.setContextClassLoader(contextClassLoader);
+            return thread;
+        }
+    }
+
+    /**
+     * The tables of a bulk snapshot, by hibernate table in mapping order.
+     */
+    protected static class BulkTables {
+        private final Map<org.hibernate.mapping.Table, Table> tables = new IdentityHashMap<org.hibernate.mapping.Table, Table>();
+        private final List<org.hibernate.mapping.Table> order = new ArrayList<org.hibernate.mapping.Table>();
+        private boolean populated = false;
     }
 
 	/**
@@ -4,7 +4,6 @@ import liquibase.exception.DatabaseException;
 import liquibase.snapshot.DatabaseSnapshot;
 import liquibase.snapshot.InvalidExampleException;
 import liquibase.structure.DatabaseObject;
-import liquibase.structure.core.Column;
 import liquibase.structure.core.Index;
 import liquibase.structure.core.Table;
 import liquibase.structure.core.UniqueConstraint;
@@ -34,46 +33,57 @@ public class UniqueConstraintSnapshotGenerator extends HibernateSnapshotGenerato
             if (hibernateTable == null) {
                 return;
             }
-            Iterator uniqueIterator = hibernateTable.getUniqueKeyIterator();
-            while (uniqueIterator.hasNext()) {
-                org.hibernate.mapping.UniqueKey hibernateUnique = (org.hibernate.mapping.UniqueKey) uniqueIterator.next();
+            addUniqueConstraints(table, hibernateTable, snapshot);
+        }
+    }
+
+    @Override
+    protected void bulkAddTo(Table table, org.hibernate.mapping.Table hibernateTable, DatabaseSnapshot snapshot) throws DatabaseException, InvalidExampleException {
+        if (snapshot.getSnapshotControl().shouldInclude(UniqueConstraint.class)) {
+            addUniqueConstraints(table, hibernateTable, snapshot);
+        }
+    }
+
+    private void addUniqueConstraints(Table table, org.hibernate.mapping.Table hibernateTable, DatabaseSnapshot snapshot) {
+        Iterator uniqueIterator = hibernateTable.getUniqueKeyIterator();
+        while (uniqueIterator.hasNext()) {
+            org.hibernate.mapping.UniqueKey hibernateUnique = (org.hibernate.mapping.UniqueKey) uniqueIterator.next();
+
+            UniqueConstraint uniqueConstraint = new UniqueConstraint();
+            uniqueConstraint.setName(intern(hibernateUnique.getName()));
+            uniqueConstraint.setTable(table);
+            Iterator columnIterator = hibernateUnique.getColumnIterator();
+            int i = 0;
+            while (columnIterator.hasNext()) {
+                org.hibernate.mapping.Column hibernateColumn = (org.hibernate.mapping.Column) columnIterator.next();
+                uniqueConstraint.addColumn(i, getCanonicalColumn(table, hibernateColumn.getName(), snapshot));
+                i++;
+            }
 
+            Index index = getBackingIndex(uniqueConstraint, hibernateTable, snapshot);
+            uniqueConstraint.setBackingIndex(index);
+
+            LOG.info("Found unique constraint " + uniqueConstraint.toString());
+            table.getUniqueConstraints().add(uniqueConstraint);
+        }
+        Iterator columnIterator = hibernateTable.getColumnIterator();
+        while (columnIterator.hasNext()) {
+            org.hibernate.mapping.Column column = (org.hibernate.mapping.Column) columnIterator.next();
+            if(column.isUnique()) {
                 UniqueConstraint uniqueConstraint = new UniqueConstraint();
-                uniqueConstraint.setName(hibernateUnique.getName());
                 uniqueConstraint.setTable(table);
-                Iterator columnIterator = hibernateUnique.getColumnIterator();
-                int i = 0;
-                while (columnIterator.hasNext()) {
-                    org.hibernate.mapping.Column hibernateColumn = (org.hibernate.mapping.Column) columnIterator.next();
-                    uniqueConstraint.addColumn(i, new Column(hibernateColumn.getName()).setRelation(table));
-                    i++;
+                String name = "UC_" + table.getName().toUpperCase() + column.getName().toUpperCase() + "_COL";
+                if (name.length() > 64) {
+                    name = name.substring(0, 63);
                 }
+                uniqueConstraint.addColumn(0, getCanonicalColumn(table, column.getName(), snapshot));
+                uniqueConstraint.setName(name);
+                LOG.info("Found unique constraint " + uniqueConstraint.toString());
+                table.getUniqueConstraints().add(uniqueConstraint);
 
                 Index index = getBackingIndex(uniqueConstraint, hibernateTable, snapshot);
                 uniqueConstraint.setBackingIndex(index);
 
-                LOG.info("Found unique constraint " + uniqueConstraint.toString());
-                table.getUniqueConstraints().add(uniqueConstraint);
-            }
-            Iterator columnIterator = hibernateTable.getColumnIterator();
-            while (columnIterator.hasNext()) {
-                org.hibernate.mapping.Column column = (org.hibernate.mapping.Column) columnIterator.next();
-                if(column.isUnique()) {
-                    UniqueConstraint uniqueConstraint = new UniqueConstraint();
-                    uniqueConstraint.setTable(table);
-                    String name = "UC_" + table.getName().toUpperCase() + column.getName().toUpperCase() + "_COL";
-                    if (name.length() > 64) {
-                        name = name.substring(0, 63);
-                    }
-                    uniqueConstraint.addColumn(0, new Column(column.getName()).setRelation(table));
-                    uniqueConstraint.setName(name);
-                    LOG.info("Found unique constraint " + uniqueConstraint.toString());
-                    table.getUniqueConstraints().add(uniqueConstraint);
-
-                    Index index = getBackingIndex(uniqueConstraint, hibernateTable, snapshot);
-                    uniqueConstraint.setBackingIndex(index);
-
-                }
             }
         }
     }
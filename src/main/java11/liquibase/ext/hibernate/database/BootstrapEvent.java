@@ -0,0 +1,22 @@
+package liquibase.ext.hibernate.database;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name("liquibase.hibernate.Bootstrap")
+@Label("Hibernate Bootstrap")
+@Description("A phase of building the hibernate configuration of a database")
+@Category({"Liquibase", "Hibernate"})
+class BootstrapEvent extends Event {
+
+    @Label("Url")
+    @Description("The database url")
+    String url;
+
+    @Label("Phase")
+    @Description("The bootstrap phase")
+    String phase;
+}
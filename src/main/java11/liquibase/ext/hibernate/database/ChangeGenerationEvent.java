@@ -0,0 +1,26 @@
+package liquibase.ext.hibernate.database;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name("liquibase.hibernate.ChangeGeneration")
+@Label("Hibernate Change Generation")
+@Description("A hibernate change generator handling a difference while generating a changelog")
+@Category({"Liquibase", "Hibernate"})
+class ChangeGenerationEvent extends Event {
+
+    @Label("Generator")
+    @Description("The change generator class")
+    String generator;
+
+    @Label("Object Type")
+    @Description("The type of the different object")
+    String objectType;
+
+    @Label("Object Name")
+    @Description("The name of the different object")
+    String objectName;
+}
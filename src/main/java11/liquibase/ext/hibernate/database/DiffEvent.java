@@ -0,0 +1,22 @@
+package liquibase.ext.hibernate.database;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name("liquibase.hibernate.Diff")
+@Label("Hibernate Diff")
+@Description("Comparing the snapshots of two databases, one of them a hibernate database")
+@Category({"Liquibase", "Hibernate"})
+class DiffEvent extends Event {
+
+    @Label("Reference Url")
+    @Description("The url of the reference database")
+    String referenceUrl;
+
+    @Label("Comparison Url")
+    @Description("The url of the comparison database")
+    String comparisonUrl;
+}
@@ -0,0 +1,87 @@
+package liquibase.ext.hibernate.database;
+
+import jdk.jfr.Event;
+import jdk.jfr.EventType;
+
+/**
+ * Emits Java Flight Recorder events for the configuration bootstrap phases, the snapshot generator invocations, the diffs
+ * and the changelog generation involving a hibernate database, so slow runs can be analysed from a recording.
+ * <p/>
+ * This is the Java 11 version of the class, loaded from META-INF/versions/11 of the jar. Events are only created when their
+ * type is enabled in a running recording.
+ */
+public class HibernateEvents {
+
+    private static final Span NONE = new Span(null);
+
+    private static final EventType SNAPSHOT_EVENT_TYPE = EventType.getEventType(SnapshotEvent.class);
+
+    public static boolean isSnapshotEnabled() {
+        return SNAPSHOT_EVENT_TYPE.isEnabled();
+    }
+
+    public static Span bootstrap(String url, String phase) {
+        BootstrapEvent event = new BootstrapEvent();
+        if (!event.isEnabled()) {
+            return NONE;
+        }
+        event.url = url;
+        event.phase = phase;
+        return new Span(event);
+    }
+
+    public static Span snapshot(String generator, String method, String objectType, String objectName, String table) {
+        SnapshotEvent event = new SnapshotEvent();
+        if (!event.isEnabled()) {
+            return NONE;
+        }
+        event.generator = generator;
+        event.method = method;
+        event.objectType = objectType;
+        event.objectName = objectName;
+        event.table = table;
+        return new Span(event);
+    }
+
+    public static Span diff(String referenceUrl, String comparisonUrl) {
+        DiffEvent event = new DiffEvent();
+        if (!event.isEnabled()) {
+            return NONE;
+        }
+        event.referenceUrl = referenceUrl;
+        event.comparisonUrl = comparisonUrl;
+        return new Span(event);
+    }
+
+    public static Span changeGeneration(String generator, String objectType, String objectName) {
+        ChangeGenerationEvent event = new ChangeGenerationEvent();
+        if (!event.isEnabled()) {
+            return NONE;
+        }
+        event.generator = generator;
+        event.objectType = objectType;
+        event.objectName = objectName;
+        return new Span(event);
+    }
+
+    public static class Span {
+
+        private final Event event;
+
+        Span(Object event) {
+            this.event = (Event) event;
+            if (this.event != null) {
+                this.event.begin();
+            }
+        }
+
+        public void end() {
+            if (event != null) {
+                event.end();
+                if (event.shouldCommit()) {
+                    event.commit();
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package liquibase.ext.hibernate.database;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name("liquibase.hibernate.Snapshot")
+@Label("Hibernate Snapshot")
+@Description("A snapshot generator invocation on a hibernate database")
+@Category({"Liquibase", "Hibernate"})
+class SnapshotEvent extends Event {
+
+    @Label("Generator")
+    @Description("The snapshot generator class")
+    String generator;
+
+    @Label("Method")
+    @Description("snapshotObject or addTo")
+    String method;
+
+    @Label("Object Type")
+    @Description("The type of the snapshot object")
+    String objectType;
+
+    @Label("Object Name")
+    @Description("The name of the snapshot object")
+    String objectName;
+
+    @Label("Table")
+    @Description("The table the object is or belongs to")
+    String table;
+}
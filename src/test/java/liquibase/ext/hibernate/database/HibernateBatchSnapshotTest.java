@@ -0,0 +1,131 @@
+package liquibase.ext.hibernate.database;
+
+import liquibase.CatalogAndSchema;
+import liquibase.database.Database;
+import liquibase.exception.DatabaseException;
+import liquibase.integration.commandline.CommandLineUtils;
+import liquibase.snapshot.DatabaseSnapshot;
+import liquibase.snapshot.SnapshotControl;
+import liquibase.snapshot.SnapshotGeneratorFactory;
+import liquibase.structure.core.Column;
+import liquibase.structure.core.Table;
+import org.hibernate.dialect.HSQLDialect;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class HibernateBatchSnapshotTest {
+
+    private static final List<String> URLS = Arrays.asList(
+            "hibernate:classic:com/example/pojo/Hibernate.cfg.xml",
+            "hibernate:ejb3:auction",
+            "hibernate:spring:com.example.ejb3.auction?dialect=" + HSQLDialect.class.getName(),
+            "hibernate:ejb3:auction");
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void snapshotsMatchSingleSnapshots() throws Exception {
+        HibernateBatchSnapshot batch = new HibernateBatchSnapshot(URLS, 4, getClass().getClassLoader());
+        List<DatabaseSnapshot> snapshots = batch.snapshot();
+
+        assertEquals(URLS.size(), snapshots.size());
+        for (int i = 0; i < URLS.size(); i++) {
+            DatabaseSnapshot snapshot = snapshots.get(i);
+            assertEquals(URLS.get(i), snapshot.getDatabase().getConnection().getURL());
+            assertEquals(describe(snapshot(URLS.get(i))), describe(snapshot));
+        }
+
+        HibernateDatabase ejb3 = (HibernateDatabase) snapshots.get(1).getDatabase();
+        HibernateDatabase otherEjb3 = (HibernateDatabase) snapshots.get(3).getDatabase();
+        assertNotSame(ejb3, otherEjb3);
+        assertSame(ejb3.getDialect(), otherEjb3.getDialect());
+        assertSame(ejb3.getDialect(), ((HibernateDatabase) snapshots.get(2).getDatabase()).getDialect());
+    }
+
+    @Test
+    public void writeChangeLogs() throws Exception {
+        File directory = new File(temporaryFolder.getRoot(), "changelogs");
+        HibernateBatchSnapshot batch = new HibernateBatchSnapshot(URLS, 2, getClass().getClassLoader());
+        List<File> files = batch.writeChangeLogs(directory, "xml");
+
+        assertEquals(new File(directory, "hibernate_classic_com_example_pojo_Hibernate.cfg.xml.xml"), files.get(0));
+        assertEquals(new File(directory, "hibernate_ejb3_auction.xml"), files.get(1));
+        assertEquals(new File(directory, "hibernate_ejb3_auction-2.xml"), files.get(3));
+        for (File file : files) {
+            String changeLog = read(file);
+            assertTrue(file.getName(), changeLog.contains("<createTable"));
+        }
+        assertTrue(read(files.get(1)).contains("tableName=\"Bid\""));
+    }
+
+    @Test
+    public void writeSqlChangeLogs() throws Exception {
+        File directory = new File(temporaryFolder.getRoot(), "changelogs");
+        HibernateBatchSnapshot batch = new HibernateBatchSnapshot(URLS, 2, getClass().getClassLoader());
+        List<File> files = batch.writeChangeLogs(directory, "h2.sql");
+
+        assertEquals(new File(directory, "hibernate_ejb3_auction.h2.sql"), files.get(1));
+        for (File file : files) {
+            String changeLog = read(file);
+            assertTrue(file.getName(), changeLog.startsWith("--liquibase formatted sql"));
+            assertTrue(file.getName(), changeLog.contains("CREATE TABLE"));
+        }
+    }
+
+    @Test(expected = DatabaseException.class)
+    public void rejectsSqlChangeLogsWithoutDatabaseType() throws Exception {
+        new HibernateBatchSnapshot(URLS, 2, getClass().getClassLoader()).writeChangeLogs(new File(temporaryFolder.getRoot(), "changelogs"), "sql");
+    }
+
+    @Test(expected = DatabaseException.class)
+    public void rejectsOtherUrls() throws Exception {
+        new HibernateBatchSnapshot(Arrays.asList("jdbc:hsqldb:mem:batch"), 1, getClass().getClassLoader()).snapshot();
+    }
+
+    private DatabaseSnapshot snapshot(String url) throws Exception {
+        Database database = CommandLineUtils.createDatabaseObject(this.getClass().getClassLoader(), url, null, null, null, null, null, false, false, null, null, null, null, null, null, null);
+        return SnapshotGeneratorFactory.getInstance().createSnapshot(CatalogAndSchema.DEFAULT, database, new SnapshotControl(database));
+    }
+
+    private List<String> describe(DatabaseSnapshot snapshot) {
+        List<String> lines = new ArrayList<String>();
+        for (Table table : snapshot.get(Table.class)) {
+            lines.add(table.getName() + " pk=" + (table.getPrimaryKey() == null ? null : table.getPrimaryKey().getName())
+                    + " indexes=" + table.getIndexes().size() + " foreignKeys=" + table.getOutgoingForeignKeys().size());
+            for (Column column : table.getColumns()) {
+                lines.add(table.getName() + "." + column.getName() + " " + column.getType() + " " + column.isNullable());
+            }
+        }
+        Collections.sort(lines);
+        return lines;
+    }
+
+    private String read(File file) throws Exception {
+        InputStream in = new FileInputStream(file);
+        try {
+            byte[] content = new byte[(int) file.length()];
+            int offset = 0;
+            while (offset < content.length) {
+                offset += in.read(content, offset, content.length - offset);
+            }
+            return new String(content, "UTF-8");
+        } finally {
+            in.close();
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package liquibase.ext.hibernate.database;
+
+import org.hibernate.dialect.Dialect;
+import org.hibernate.dialect.H2Dialect;
+import org.hibernate.dialect.HSQLDialect;
+import org.junit.Test;
+
+import java.sql.Types;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+public class HibernateDialectRegistryTest {
+
+    @Test
+    public void sameDialectPerClassName() throws Exception {
+        HibernateDialectRegistry registry = new HibernateDialectRegistry();
+        Dialect dialect = registry.getDialect(HSQLDialect.class.getName());
+
+        assertSame(dialect, registry.getDialect(HSQLDialect.class.getName()));
+        assertNotSame(dialect, registry.getDialect(H2Dialect.class.getName()));
+        assertEquals(2, registry.size());
+    }
+
+    @Test
+    public void getTypeName() throws Exception {
+        HibernateDialectRegistry registry = new HibernateDialectRegistry();
+        Dialect dialect = registry.getDialect(HSQLDialect.class.getName());
+        Dialect otherDialect = new HSQLDialect();
+
+        for (int i = 0; i < 2; i++) {
+            assertEquals(otherDialect.getTypeName(Types.VARCHAR, 100, 19, 2), registry.getTypeName(dialect, Types.VARCHAR, 100, 19, 2));
+            assertEquals(otherDialect.getTypeName(Types.VARCHAR, 255, 19, 2), registry.getTypeName(dialect, Types.VARCHAR, 255, 19, 2));
+            assertEquals(otherDialect.getTypeName(Types.DECIMAL, 255, 10, 3), registry.getTypeName(dialect, Types.DECIMAL, 255, 10, 3));
+            assertEquals(otherDialect.getTypeName(Types.BIGINT, 255, 19, 2), registry.getTypeName(otherDialect, Types.BIGINT, 255, 19, 2));
+        }
+    }
+}
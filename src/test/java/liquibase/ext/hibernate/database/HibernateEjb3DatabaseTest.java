@@ -2,6 +2,8 @@ package liquibase.ext.hibernate.database;
 
 import liquibase.CatalogAndSchema;
 import liquibase.database.Database;
+import liquibase.diff.DiffGeneratorFactory;
+import liquibase.diff.compare.CompareControl;
 import liquibase.integration.commandline.CommandLineUtils;
 import liquibase.snapshot.DatabaseSnapshot;
 import liquibase.snapshot.SnapshotControl;
@@ -10,6 +12,9 @@ import liquibase.structure.core.Schema;
 import liquibase.structure.core.Table;
 import org.junit.Test;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import static junit.framework.Assert.assertNotNull;
 import static org.hamcrest.Matchers.*;
 import static org.hamcrest.core.AllOf.allOf;
@@ -99,4 +104,42 @@ public class HibernateEjb3DatabaseTest {
                 hasProperty("name", is("WatcherSeqTable"))));
 
     }
+
+    @Test
+    public void ejb3UrlWithEnversDisabled() throws Exception {
+        String url = "hibernate:ejb3:auction?hibernate.envers=false";
+        Database database = CommandLineUtils.createDatabaseObject(this.getClass().getClassLoader(), url, null, null, null, null, null, false, false, null, null, null, null, null, null, null);
+
+        assertNotNull(database);
+
+        DatabaseSnapshot snapshot = SnapshotGeneratorFactory.getInstance().createSnapshot(CatalogAndSchema.DEFAULT, database, new SnapshotControl(database));
+
+        List<String> tableNames = new ArrayList<String>();
+        for (Table table : snapshot.get(Table.class)) {
+            tableNames.add(table.getName());
+        }
+        assertThat(tableNames, hasItem("AuditedItem"));
+        assertThat(tableNames, not(hasItem("AuditedItem_AUD")));
+        assertThat(tableNames, not(hasItem("REVINFO")));
+    }
+
+    @Test
+    public void releaseConfiguration() throws Exception {
+        String url = "hibernate:ejb3:auction";
+        HibernateDatabase database = (HibernateDatabase) CommandLineUtils.createDatabaseObject(this.getClass().getClassLoader(), url, null, null, null, null, null, false, false, null, null, null, null, null, null, null);
+        DatabaseSnapshot snapshot = SnapshotGeneratorFactory.getInstance().createSnapshot(CatalogAndSchema.DEFAULT, database, new SnapshotControl(database));
+
+        database.releaseConfiguration();
+        assertNull(database.getConfiguration());
+        assertTrue(database.isCachedModel());
+
+        DatabaseSnapshot releasedSnapshot = SnapshotGeneratorFactory.getInstance().createSnapshot(CatalogAndSchema.DEFAULT, database, new SnapshotControl(database));
+        assertTrue(DiffGeneratorFactory.getInstance().compare(snapshot, releasedSnapshot, new CompareControl()).areEqual());
+
+        HibernateDatabase releasedDatabase = (HibernateDatabase) CommandLineUtils.createDatabaseObject(this.getClass().getClassLoader(), url + "?" + HibernateDatabase.RELEASE_CONFIGURATION_PROPERTY + "=true", null, null, null, null, null, false, false, null, null, null, null, null, null, null);
+        assertNull(releasedDatabase.getConfiguration());
+        assertTrue(releasedDatabase.isCachedModel());
+        snapshot = SnapshotGeneratorFactory.getInstance().createSnapshot(CatalogAndSchema.DEFAULT, releasedDatabase, new SnapshotControl(releasedDatabase));
+        assertTrue(DiffGeneratorFactory.getInstance().compare(releasedSnapshot, snapshot, new CompareControl()).areEqual());
+    }
 }
@@ -0,0 +1,94 @@
+package liquibase.ext.hibernate.database;
+
+import liquibase.CatalogAndSchema;
+import liquibase.database.Database;
+import liquibase.integration.commandline.CommandLineUtils;
+import liquibase.snapshot.DatabaseSnapshot;
+import liquibase.snapshot.SnapshotControl;
+import liquibase.snapshot.SnapshotGeneratorFactory;
+import liquibase.structure.core.Table;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.OutputStream;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class HibernateEntityIndexTest {
+
+    private static final String SPRING_URL = "hibernate:spring:com.example.ejb3.auction?dialect=org.hibernate.dialect.HSQLDialect";
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void classNamesByPackage() throws Exception {
+        HibernateEntityIndex index = new HibernateEntityIndex(writeIndex("com.example.ejb3.auction.Item", "com.example.ejb3.auction.sub.Other", "com.example.pojo.Bid"));
+
+        assertFalse(index.isEmpty());
+        assertEquals(Arrays.asList("com.example.ejb3.auction.Item", "com.example.ejb3.auction.sub.Other"), index.getClassNames(new String[]{"com.example.ejb3.auction"}));
+        assertEquals(Arrays.asList("com.example.pojo.Bid"), index.getClassNames(new String[]{"com.example.pojo"}));
+        assertNull(index.getClassNames(new String[]{"com.example.ejb3.auction", "com.example.other"}));
+        assertEquals(3, index.getClassNames(temporaryFolder.getRoot().toURI().toURL()).size());
+        assertEquals("file:/tmp/x.jar", HibernateEntityIndex.normalizeRoot("jar:file:/tmp/x.jar!/"));
+    }
+
+    @Test
+    public void springScanningMergesIndexedAndUnindexedRoots() throws Exception {
+        ClassLoader classLoader = writeIndex("com.example.ejb3.auction.Item");
+        File indexedPackage = new File(temporaryFolder.getRoot(), "com/example/ejb3/auction");
+        indexedPackage.mkdirs();
+        URL unindexedPackage = getClass().getClassLoader().getResource("com/example/ejb3/auction/");
+        HibernateEntityIndex index = new HibernateEntityIndex(classLoader);
+
+        assertEquals(Arrays.asList(unindexedPackage), index.getUnindexedPackageUrls(new String[]{"com.example.ejb3.auction"}));
+
+        ClassLoader contextClassLoader = Thread.currentThread().getContextClassLoader();
+        Thread.currentThread().setContextClassLoader(classLoader);
+        try {
+            List<String> tableNames = getTableNames(SPRING_URL);
+            assertTrue(tableNames.contains("Item"));
+            assertTrue(tableNames.contains("Bid"));
+            assertEquals(new HashSet<String>(getTableNames(SPRING_URL + "&" + HibernateEntityIndex.ENTITY_INDEX_PROPERTY + "=false")), new HashSet<String>(tableNames));
+        } finally {
+            Thread.currentThread().setContextClassLoader(contextClassLoader);
+        }
+    }
+
+    private ClassLoader writeIndex(String... classNames) throws Exception {
+        File file = new File(temporaryFolder.getRoot(), HibernateEntityIndex.INDEX_LOCATION);
+        file.getParentFile().mkdirs();
+        OutputStream out = new FileOutputStream(file);
+        try {
+            out.write("# test index\n".getBytes("UTF-8"));
+            for (String className : classNames) {
+                out.write((className + "\n").getBytes("UTF-8"));
+            }
+        } finally {
+            out.close();
+        }
+        return new URLClassLoader(new URL[]{temporaryFolder.getRoot().toURI().toURL()}, getClass().getClassLoader());
+    }
+
+    private List<String> getTableNames(String url) throws Exception {
+        Database database = CommandLineUtils.createDatabaseObject(Thread.currentThread().getContextClassLoader(), url, null, null, null, null, null, false, false, null, null, null, null, null, null, null);
+        DatabaseSnapshot snapshot = SnapshotGeneratorFactory.getInstance().createSnapshot(CatalogAndSchema.DEFAULT, database, new SnapshotControl(database));
+        List<String> tableNames = new ArrayList<String>();
+        for (Table table : snapshot.get(Table.class)) {
+            tableNames.add(table.getName());
+        }
+        return tableNames;
+    }
+}
@@ -0,0 +1,27 @@
+package liquibase.ext.hibernate.database;
+
+import liquibase.database.jvm.JdbcConnection;
+import liquibase.ext.hibernate.database.connection.HibernateConnection;
+import org.hibernate.id.PersistentIdentifierGenerator;
+import org.junit.Test;
+
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertThat;
+
+public class HibernateIdentifierGeneratorRegistryTest {
+
+    @Test
+    public void generatorsAreCreatedOncePerConfiguration() throws Exception {
+        HibernateEjb3Database database = new HibernateEjb3Database();
+        database.setConnection(new JdbcConnection(new HibernateConnection("hibernate:ejb3:auction")));
+
+        HibernateIdentifierGeneratorRegistry registry = database.getIdentifierGeneratorRegistry();
+        assertSame(registry, database.getIdentifierGeneratorRegistry());
+
+        assertThat(registry.getSequenceNames(), containsInAnyOrder("ITEM_SEQ", "AUDITED_ITEM_SEQ"));
+        assertEquals(1, registry.getTableGenerators().size());
+        assertEquals("WatcherSeqTable", ((PersistentIdentifierGenerator) registry.getTableGenerators().get(0)).generatorKey());
+    }
+}
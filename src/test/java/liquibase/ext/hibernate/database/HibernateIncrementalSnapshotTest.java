@@ -0,0 +1,109 @@
+package liquibase.ext.hibernate.database;
+
+import liquibase.CatalogAndSchema;
+import liquibase.snapshot.DatabaseSnapshot;
+import liquibase.snapshot.SnapshotControl;
+import liquibase.snapshot.SnapshotGeneratorFactory;
+import liquibase.structure.core.Table;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.HashSet;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class HibernateIncrementalSnapshotTest {
+
+    private static final String URL = "hibernate:classic:incremental/hibernate.cfg.xml";
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void refreshesChangedTablesAndNeighbours() throws Exception {
+        write("incremental/hibernate.cfg.xml", "<hibernate-configuration><session-factory>"
+                + "<property name=\"dialect\">org.hibernate.dialect.HSQLDialect</property>"
+                + "<mapping resource=\"incremental/Thing.hbm.xml\"/>"
+                + "<mapping resource=\"incremental/Ref.hbm.xml\"/>"
+                + "<mapping resource=\"incremental/Lone.hbm.xml\"/>"
+                + "</session-factory></hibernate-configuration>");
+        writeEntity("Thing", "<property name=\"label\" type=\"string\"/>");
+        writeEntity("Ref", "<many-to-one name=\"thing\" entity-name=\"Thing\" column=\"thing_id\"/>");
+        writeEntity("Lone", "<property name=\"label\" type=\"string\"/>");
+
+        HibernateIncrementalSnapshot incrementalSnapshot = new HibernateIncrementalSnapshot(URL, temporaryFolder.getRoot());
+        HibernateDatabase database = incrementalSnapshot.refresh();
+        assertTrue(database.isCachedModel());
+        assertEquals(new HashSet<String>(Arrays.asList("thing", "ref", "lone")), incrementalSnapshot.getRefreshedTables());
+
+        assertSame(database, incrementalSnapshot.refresh());
+        assertTrue(incrementalSnapshot.getRefreshedTables().isEmpty());
+
+        writeEntity("Thing", "<property name=\"label\" type=\"string\"/><property name=\"description\" type=\"string\"/>");
+        HibernateDatabase refreshed = incrementalSnapshot.refresh();
+        assertEquals(new HashSet<String>(Arrays.asList("thing", "ref")), incrementalSnapshot.getRefreshedTables());
+
+        DatabaseSnapshot snapshot = SnapshotGeneratorFactory.getInstance().createSnapshot(CatalogAndSchema.DEFAULT, refreshed, new SnapshotControl(refreshed));
+        assertEquals(3, snapshot.get(Table.class).size());
+        Table thing = snapshot.get((Table) new Table().setName("thing").setSchema(refreshed.getDefaultCatalogName(), refreshed.getDefaultSchemaName()));
+        assertNotNull(thing.getColumn("description"));
+        Table ref = snapshot.get((Table) new Table().setName("ref").setSchema(refreshed.getDefaultCatalogName(), refreshed.getDefaultSchemaName()));
+        assertEquals(1, ref.getOutgoingForeignKeys().size());
+
+        writeEntity("Thing", "<property name=\"label\" type=\"string\"/>");
+        refreshed = incrementalSnapshot.refresh();
+        snapshot = SnapshotGeneratorFactory.getInstance().createSnapshot(CatalogAndSchema.DEFAULT, refreshed, new SnapshotControl(refreshed));
+        thing = snapshot.get((Table) new Table().setName("thing").setSchema(refreshed.getDefaultCatalogName(), refreshed.getDefaultSchemaName()));
+        assertNull(thing.getColumn("description"));
+    }
+
+    @Test
+    public void closesSupersededDatabase() throws Exception {
+        write("incremental/hibernate.cfg.xml", "<hibernate-configuration><session-factory>"
+                + "<property name=\"dialect\">org.hibernate.dialect.HSQLDialect</property>"
+                + "<mapping resource=\"incremental/Thing.hbm.xml\"/>"
+                + "</session-factory></hibernate-configuration>");
+        writeEntity("Thing", "<property name=\"label\" type=\"string\"/>");
+        File report = new File(temporaryFolder.getRoot(), "report.json");
+
+        HibernateIncrementalSnapshot incrementalSnapshot = new HibernateIncrementalSnapshot(URL + "?" + HibernateProfiler.REPORT_PROPERTY + "=" + report.getPath(), temporaryFolder.getRoot());
+        HibernateDatabase database = incrementalSnapshot.refresh();
+        assertFalse(report.exists());
+
+        writeEntity("Thing", "<property name=\"label\" type=\"string\"/><property name=\"description\" type=\"string\"/>");
+        HibernateDatabase refreshed = incrementalSnapshot.refresh();
+        assertNotSame(database, refreshed);
+        assertTrue(report.exists());
+        assertFalse(database.getProfiler().removeShutdownHook());
+        assertTrue(refreshed.getProfiler().removeShutdownHook());
+    }
+
+    private void writeEntity(String name, String properties) throws Exception {
+        write("incremental/" + name + ".hbm.xml", "<hibernate-mapping><class entity-name=\"" + name + "\" table=\"" + name.toLowerCase() + "\">"
+                + "<id name=\"id\" type=\"long\"><generator class=\"assigned\"/></id>"
+                + properties
+                + "</class></hibernate-mapping>");
+    }
+
+    private void write(String path, String content) throws Exception {
+        File file = new File(temporaryFolder.getRoot(), path);
+        file.getParentFile().mkdirs();
+        OutputStream out = new FileOutputStream(file);
+        try {
+            out.write(("<?xml version=\"1.0\"?>\n" + content).getBytes("UTF-8"));
+        } finally {
+            out.close();
+        }
+    }
+}
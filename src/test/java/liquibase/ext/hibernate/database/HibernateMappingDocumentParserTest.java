@@ -0,0 +1,50 @@
+package liquibase.ext.hibernate.database;
+
+import liquibase.exception.DatabaseException;
+import org.junit.Test;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class HibernateMappingDocumentParserTest {
+
+    private static final String[] MAPPINGS = {"User", "AuctionItem", "Bid", "User", "Bid", "AuctionItem"};
+
+    @Test
+    public void parallelParseKeepsOrder() throws Exception {
+        List<URL> urls = new ArrayList<URL>();
+        for (String mapping : MAPPINGS) {
+            urls.add(getClass().getClassLoader().getResource("com/example/pojo/auction/" + mapping + ".hbm.xml"));
+        }
+
+        assertEquals(Arrays.asList(MAPPINGS), classNames(new HibernateMappingDocumentParser(4).parse(urls)));
+        assertEquals(Arrays.asList(MAPPINGS), classNames(new HibernateMappingDocumentParser(1).parse(urls)));
+    }
+
+    @Test
+    public void missingDocument() throws Exception {
+        URL url = new URL(getClass().getClassLoader().getResource("com/example/pojo/auction/Bid.hbm.xml"), "Missing.hbm.xml");
+        try {
+            new HibernateMappingDocumentParser(2).parse(Arrays.asList(url, url));
+            fail("Expected a DatabaseException");
+        } catch (DatabaseException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains("Missing.hbm.xml"));
+        }
+    }
+
+    private List<String> classNames(List<Document> documents) {
+        List<String> names = new ArrayList<String>();
+        for (Document document : documents) {
+            names.add(((Element) document.getElementsByTagName("class").item(0)).getAttribute("name"));
+        }
+        return names;
+    }
+}
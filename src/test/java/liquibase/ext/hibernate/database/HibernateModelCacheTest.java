@@ -0,0 +1,206 @@
+package liquibase.ext.hibernate.database;
+
+import liquibase.CatalogAndSchema;
+import liquibase.database.Database;
+import liquibase.ext.hibernate.database.connection.HibernateConnection;
+import liquibase.integration.commandline.CommandLineUtils;
+import liquibase.snapshot.DatabaseSnapshot;
+import liquibase.snapshot.SnapshotControl;
+import liquibase.snapshot.SnapshotGeneratorFactory;
+import liquibase.structure.core.Column;
+import liquibase.structure.core.ForeignKey;
+import liquibase.structure.core.Index;
+import liquibase.structure.core.Sequence;
+import liquibase.structure.core.Table;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class HibernateModelCacheTest {
+
+    private static final String URL = "hibernate:ejb3:auction";
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void secondConnectionReadsCachedModel() throws Exception {
+        String url = URL + "?" + HibernateModelCache.CACHE_DIR_PROPERTY + "=" + temporaryFolder.getRoot().getAbsolutePath();
+
+        HibernateDatabase database = createDatabase(url);
+        assertNotNull(database.getConfiguration());
+        assertFalse(database.isCachedModel());
+        assertEquals(2, temporaryFolder.getRoot().list().length);
+        List<String> expected = describe(snapshot(database));
+
+        HibernateDatabase cachedDatabase = createDatabase(url);
+        assertNull(cachedDatabase.getConfiguration());
+        assertTrue(cachedDatabase.isCachedModel());
+        assertEquals(database.getDialect().getClass(), cachedDatabase.getDialect().getClass());
+        assertEquals(expected, describe(snapshot(cachedDatabase)));
+        assertEquals(expected, describe(snapshot(cachedDatabase)));
+    }
+
+    @Test
+    public void operationalPropertiesShareCachedModel() throws Exception {
+        String url = URL + "?" + HibernateModelCache.CACHE_DIR_PROPERTY + "=" + temporaryFolder.getRoot().getAbsolutePath();
+        assertFalse(createDatabase(url).isCachedModel());
+        assertTrue(createDatabase(url + "&" + HibernateDatabase.SNAPSHOT_THREADS_PROPERTY + "=2").isCachedModel());
+        assertFalse(createDatabase(url + "&hibernate.default_schema=PUBLIC").isCachedModel());
+    }
+
+    @Test
+    public void inputsListMappingResourcesAndEntityClasses() throws Exception {
+        String url = URL + "?" + HibernateModelCache.CACHE_DIR_PROPERTY + "=" + temporaryFolder.getRoot().getAbsolutePath();
+        HibernateDatabase database = createDatabase(url);
+        HibernateModelCache modelCache = HibernateModelCache.forConnection(database, new HibernateConnection(url));
+
+        List<String> inputs = readLines(modelCache.getInputsFile());
+        assertTrue(inputs.contains("resource:META-INF/persistence.xml"));
+        assertTrue(inputs.contains("class:com.example.ejb3.auction.Bid"));
+        assertTrue(inputs.contains("class:com.example.ejb3.auction.Persistent"));
+        assertTrue(inputs.contains("class:com.example.ejb3.auction.Name"));
+        assertFalse(inputs.contains("class:java.lang.Object"));
+        assertNotNull(modelCache.read());
+    }
+
+    @Test
+    public void changedResourceMissesCache() throws Exception {
+        File resources = temporaryFolder.newFolder("resources");
+        File mapping = new File(resources, "mapping.hbm.xml");
+        write(mapping, "<hibernate-mapping/>");
+        Set<String> inputs = Collections.singleton("resource:mapping.hbm.xml");
+        HibernateModelCache modelCache = new HibernateModelCache(temporaryFolder.getRoot(), "key");
+
+        Thread thread = Thread.currentThread();
+        ClassLoader contextClassLoader = thread.getContextClassLoader();
+        thread.setContextClassLoader(new URLClassLoader(new URL[]{resources.toURI().toURL()}, contextClassLoader));
+        try {
+            File modelFile = modelCache.getModelFile(inputs);
+            assertEquals(modelFile, modelCache.getModelFile(inputs));
+            write(mapping, "<hibernate-mapping package=\"com.example\"/>");
+            assertFalse(modelFile.equals(modelCache.getModelFile(inputs)));
+        } finally {
+            thread.setContextClassLoader(contextClassLoader);
+        }
+    }
+
+    @Test
+    public void newEntityInScannedPackageMissesCache() throws Exception {
+        File resources = temporaryFolder.newFolder("resources");
+        write(new File(resources, "META-INF/persistence.xml"), "<persistence/>");
+        write(new File(resources, "com/example/Item.class"), "item");
+        Set<String> packageInputs = Collections.singleton("resource:com/example/");
+        Set<String> persistenceUnitInputs = Collections.singleton("resource:META-INF/persistence.xml");
+        HibernateModelCache modelCache = new HibernateModelCache(temporaryFolder.getRoot(), "key");
+
+        Thread thread = Thread.currentThread();
+        ClassLoader contextClassLoader = thread.getContextClassLoader();
+        thread.setContextClassLoader(new URLClassLoader(new URL[]{resources.toURI().toURL()}, contextClassLoader));
+        try {
+            File packageModelFile = modelCache.getModelFile(packageInputs);
+            File persistenceUnitModelFile = modelCache.getModelFile(persistenceUnitInputs);
+            write(new File(resources, "com/example/Order.class"), "order");
+            assertFalse(packageModelFile.equals(modelCache.getModelFile(packageInputs)));
+            assertFalse(persistenceUnitModelFile.equals(modelCache.getModelFile(persistenceUnitInputs)));
+        } finally {
+            thread.setContextClassLoader(contextClassLoader);
+        }
+    }
+
+    @Test
+    public void codecRoundTrip() throws Exception {
+        HibernateDatabase database = createDatabase(URL);
+        DatabaseSnapshot snapshot = snapshot(database);
+        byte[] encoded = HibernateModelCodec.encode("org.hibernate.dialect.HSQLDialect", snapshot.get(Table.class), snapshot.get(Sequence.class));
+
+        HibernateModel model = HibernateModelCodec.decode(encoded, null);
+        assertEquals("org.hibernate.dialect.HSQLDialect", model.getDialectClassName());
+        assertEquals("org.hibernate.dialect.HSQLDialect", HibernateModelCodec.readDialectClassName(ByteBuffer.wrap(encoded)));
+        assertNull(HibernateModelCodec.readDialectClassName(ByteBuffer.wrap(HibernateModelCodec.encode(null, Collections.<Table>emptyList(), Collections.<Sequence>emptyList()))));
+        assertEquals(snapshot.get(Table.class).size(), model.getTables().size());
+        assertEquals(snapshot.get(Sequence.class).size(), model.getSequences().size());
+        assertNotSame(model.getTables().get(0), HibernateModelCodec.decode(encoded, null).getTables().get(0));
+
+        Table bid = model.findTable("bid");
+        assertNull(model.findTable("missing"));
+        Table original = snapshot.get((Table) new Table().setName("Bid").setSchema(database.getDefaultCatalogName(), database.getDefaultSchemaName()));
+        assertEquals(original.getColumns().size(), bid.getColumns().size());
+        assertEquals(original.getOutgoingForeignKeys().size(), bid.getOutgoingForeignKeys().size());
+        assertEquals(original.getColumn("amount").getType().toString(), bid.getColumn("amount").getType().toString());
+    }
+
+    private HibernateDatabase createDatabase(String url) throws Exception {
+        return (HibernateDatabase) CommandLineUtils.createDatabaseObject(this.getClass().getClassLoader(), url, null, null, null, null, null, false, false, null, null, null, null, null, null, null);
+    }
+
+    private List<String> readLines(File file) throws Exception {
+        List<String> lines = new ArrayList<String>();
+        BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(file), "UTF-8"));
+        try {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                lines.add(line);
+            }
+        } finally {
+            reader.close();
+        }
+        return lines;
+    }
+
+    private void write(File file, String content) throws Exception {
+        file.getParentFile().mkdirs();
+        OutputStream out = new FileOutputStream(file);
+        try {
+            out.write(content.getBytes("UTF-8"));
+        } finally {
+            out.close();
+        }
+    }
+
+    private DatabaseSnapshot snapshot(Database database) throws Exception {
+        return SnapshotGeneratorFactory.getInstance().createSnapshot(CatalogAndSchema.DEFAULT, database, new SnapshotControl(database));
+    }
+
+    private List<String> describe(DatabaseSnapshot snapshot) {
+        List<String> lines = new ArrayList<String>();
+        for (Table table : snapshot.get(Table.class)) {
+            lines.add("T " + table.getName() + " pk=" + (table.getPrimaryKey() == null ? null : table.getPrimaryKey().getName()));
+            for (Column column : table.getColumns()) {
+                lines.add("C " + table.getName() + "." + column.getName() + " " + column.getType() + " " + column.isNullable() + " " + column.getDefaultValue() + " " + column.isAutoIncrement());
+            }
+            for (Index index : table.getIndexes()) {
+                lines.add("I " + table.getName() + "." + index.getName() + " " + index.getColumnNames());
+            }
+            for (ForeignKey foreignKey : table.getOutgoingForeignKeys()) {
+                lines.add("F " + table.getName() + "." + foreignKey.getName() + " " + foreignKey.getPrimaryKeyTable().getName() + " " + foreignKey.getPrimaryKeyColumns());
+            }
+        }
+        for (Sequence sequence : snapshot.get(Sequence.class)) {
+            lines.add("S " + sequence.getName());
+        }
+        Collections.sort(lines);
+        return lines;
+    }
+}
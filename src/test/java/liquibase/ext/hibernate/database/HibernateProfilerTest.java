@@ -0,0 +1,133 @@
+package liquibase.ext.hibernate.database;
+
+import liquibase.CatalogAndSchema;
+import liquibase.database.Database;
+import liquibase.ext.hibernate.database.connection.HibernateConnection;
+import liquibase.ext.hibernate.snapshot.ColumnSnapshotGenerator;
+import liquibase.ext.hibernate.snapshot.TableSnapshotGenerator;
+import liquibase.integration.commandline.CommandLineUtils;
+import liquibase.snapshot.SnapshotControl;
+import liquibase.snapshot.SnapshotGeneratorFactory;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class HibernateProfilerTest {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void jsonReport() throws Exception {
+        File report = new File(temporaryFolder.getRoot(), "profile/report.json");
+        HibernateDatabase database = snapshot("hibernate:ejb3:auction?" + HibernateProfiler.REPORT_PROPERTY + "=" + report.getPath());
+
+        HibernateProfiler profiler = database.getProfiler();
+        assertFalse(profiler.isWritten());
+        List<HibernateProfiler.Timing> slowestTables = profiler.getSlowestTables(3);
+        assertEquals(3, slowestTables.size());
+        assertTrue(slowestTables.get(0).getTotalNanos() >= slowestTables.get(1).getTotalNanos());
+
+        boolean buildMappings = false;
+        boolean tableSnapshots = false;
+        for (HibernateProfiler.Timing timing : profiler.getTimings()) {
+            if (timing.getCategory().equals(HibernateProfiler.BOOTSTRAP) && timing.getName().equals("buildMappings")) {
+                buildMappings = true;
+            }
+            if (timing.getCategory().equals(HibernateProfiler.SNAPSHOT_OBJECT) && timing.getName().equals(TableSnapshotGenerator.class.getName())) {
+                tableSnapshots = true;
+                assertEquals(10, timing.getObjects());
+            }
+        }
+        assertTrue(buildMappings);
+        assertTrue(tableSnapshots);
+
+        database.close();
+        assertTrue(profiler.isWritten());
+        assertFalse(profiler.removeShutdownHook());
+        String json = read(report);
+        assertTrue(json.startsWith("{"));
+        assertTrue(json.contains("\"category\": \"identifierGenerator\""));
+        assertTrue(json.contains("\"slowestTables\": ["));
+        assertTrue(json.contains("\"name\": \"Bid\""));
+    }
+
+    @Test
+    public void parallelSnapshotRecordsAddTo() throws Exception {
+        File report = new File(temporaryFolder.getRoot(), "report.json");
+        HibernateDatabase database = snapshot("hibernate:ejb3:auction?" + HibernateDatabase.SNAPSHOT_THREADS_PROPERTY + "=4&" + HibernateProfiler.REPORT_PROPERTY + "=" + report.getPath());
+
+        boolean columnAddTo = false;
+        for (HibernateProfiler.Timing timing : database.getProfiler().getTimings()) {
+            if (timing.getCategory().equals(HibernateProfiler.ADD_TO) && timing.getName().equals(ColumnSnapshotGenerator.class.getName())) {
+                columnAddTo = true;
+                // one per mapped table, WatcherSeqTable only exists for its table generator
+                assertEquals(9, timing.getCount());
+                assertTrue(timing.getObjects() > 0);
+            }
+        }
+        assertTrue(columnAddTo);
+        database.close();
+    }
+
+    @Test
+    public void csvReport() throws Exception {
+        File report = new File(temporaryFolder.getRoot(), "report.csv");
+        HibernateDatabase database = snapshot("hibernate:classic:com/example/pojo/Hibernate.cfg.xml?" + HibernateProfiler.REPORT_PROPERTY + "=" + report.getPath());
+        database.close();
+
+        String csv = read(report);
+        assertTrue(csv.startsWith("category,name,count,total_ms,max_ms,objects"));
+        assertTrue(csv.contains("bootstrap,buildConfiguration,1,"));
+        assertTrue(csv.contains("findHibernateTable,"));
+        assertTrue(csv.contains("\ntable,"));
+    }
+
+    @Test
+    public void shutdownHookIsRemovedOnce() throws Exception {
+        File report = new File(temporaryFolder.getRoot(), "report.json");
+        HibernateProfiler profiler = HibernateProfiler.forConnection(new HibernateConnection("hibernate:ejb3:auction?" + HibernateProfiler.REPORT_PROPERTY + "=" + report.getPath()));
+        assertTrue(profiler.removeShutdownHook());
+        assertFalse(profiler.removeShutdownHook());
+        assertFalse(new HibernateProfiler(report).removeShutdownHook());
+    }
+
+    @Test
+    public void disabledByDefault() throws Exception {
+        assertNull(snapshot("hibernate:classic:com/example/pojo/Hibernate.cfg.xml").getProfiler());
+    }
+
+    private HibernateDatabase snapshot(String url) throws Exception {
+        Database database = CommandLineUtils.createDatabaseObject(this.getClass().getClassLoader(), url, null, null, null, null, null, false, false, null, null, null, null, null, null, null);
+        SnapshotGeneratorFactory.getInstance().createSnapshot(CatalogAndSchema.DEFAULT, database, new SnapshotControl(database));
+        return (HibernateDatabase) database;
+    }
+
+    private String read(File file) throws Exception {
+        StringBuilder content = new StringBuilder();
+        InputStream in = new FileInputStream(file);
+        try {
+            Reader reader = new InputStreamReader(in, "UTF-8");
+            char[] buffer = new char[4096];
+            int read;
+            while ((read = reader.read(buffer)) > 0) {
+                content.append(buffer, 0, read);
+            }
+        } finally {
+            in.close();
+        }
+        return content.toString();
+    }
+}
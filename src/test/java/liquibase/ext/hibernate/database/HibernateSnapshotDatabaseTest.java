@@ -0,0 +1,70 @@
+package liquibase.ext.hibernate.database;
+
+import liquibase.CatalogAndSchema;
+import liquibase.database.Database;
+import liquibase.diff.DiffGeneratorFactory;
+import liquibase.diff.DiffResult;
+import liquibase.diff.compare.CompareControl;
+import liquibase.integration.commandline.CommandLineUtils;
+import liquibase.snapshot.DatabaseSnapshot;
+import liquibase.snapshot.SnapshotControl;
+import liquibase.snapshot.SnapshotGeneratorFactory;
+import liquibase.structure.core.Table;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.util.Arrays;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class HibernateSnapshotDatabaseTest {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void readsExportedModel() throws Exception {
+        HibernateDatabase database = createDatabase("hibernate:ejb3:auction");
+        File file = new File(temporaryFolder.getRoot(), "auction.model");
+        HibernateSnapshotDatabase.export(database, file);
+        assertTrue(file.isFile());
+
+        HibernateDatabase snapshotDatabase = createDatabase("hibernate:snapshot:" + file.getAbsolutePath());
+        assertTrue(snapshotDatabase instanceof HibernateSnapshotDatabase);
+        assertNull(snapshotDatabase.getConfiguration());
+        assertTrue(snapshotDatabase.isCachedModel());
+        assertEquals(database.getDialect().getClass(), snapshotDatabase.getDialect().getClass());
+
+        DatabaseSnapshot expected = snapshot(database);
+        DatabaseSnapshot actual = snapshot(snapshotDatabase);
+        assertEquals(expected.get(Table.class).size(), actual.get(Table.class).size());
+        DiffResult diffResult = DiffGeneratorFactory.getInstance().compare(expected, actual, new CompareControl());
+        assertTrue(diffResult.areEqual());
+
+        database.close();
+        snapshotDatabase.close();
+    }
+
+    @Test
+    public void batchWritesModels() throws Exception {
+        HibernateBatchSnapshot batch = new HibernateBatchSnapshot(Arrays.asList("hibernate:ejb3:auction"));
+        File file = batch.writeModels(temporaryFolder.getRoot()).get(0);
+        assertTrue(file.getName().endsWith(".model"));
+
+        HibernateDatabase snapshotDatabase = createDatabase("hibernate:snapshot:" + file.getAbsolutePath());
+        assertTrue(snapshot(snapshotDatabase).get(Table.class).size() > 0);
+        snapshotDatabase.close();
+    }
+
+    private HibernateDatabase createDatabase(String url) throws Exception {
+        return (HibernateDatabase) CommandLineUtils.createDatabaseObject(this.getClass().getClassLoader(), url, null, null, null, null, null, false, false, null, null, null, null, null, null, null);
+    }
+
+    private DatabaseSnapshot snapshot(Database database) throws Exception {
+        return SnapshotGeneratorFactory.getInstance().createSnapshot(CatalogAndSchema.DEFAULT, database, new SnapshotControl(database));
+    }
+}
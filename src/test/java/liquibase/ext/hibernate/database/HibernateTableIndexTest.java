@@ -0,0 +1,59 @@
+package liquibase.ext.hibernate.database;
+
+import org.hibernate.cfg.Configuration;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+public class HibernateTableIndexTest {
+
+    private HibernateTableIndex index;
+
+    @Before
+    public void setUp() throws Exception {
+        Configuration configuration = new Configuration();
+        configuration.configure("com/example/pojo/Hibernate.cfg.xml");
+        configuration.buildMappings();
+        index = new HibernateTableIndex(configuration);
+    }
+
+    @Test
+    public void findTableIgnoresCase() {
+        assertNotNull(index.findTable(null, null, "AuctionItem"));
+        assertSame(index.findTable(null, null, "AuctionItem"), index.findTable(null, null, "auctionitem"));
+        assertEquals("AuctionUser", index.findTable(null, null, "AUCTIONUSER").getName());
+    }
+
+    @Test
+    public void findTableInDefaultSchema() {
+        assertSame(index.findTable(null, null, "Bid"), index.findTable(HibernateDatabase.DEFAULT_SCHEMA, HibernateDatabase.DEFAULT_SCHEMA, "Bid"));
+        assertSame(index.findTable(null, null, "Bid"), index.findTable("OTHER", "OTHER", "Bid"));
+    }
+
+    @Test
+    public void findColumnIgnoresCase() {
+        org.hibernate.mapping.Table bid = index.findTable(null, null, "Bid");
+        assertEquals("isBuyNow", index.findColumn(bid, "ISBUYNOW").getName());
+        assertSame(index.findColumn(bid, "amount"), index.findColumn(bid, "Amount"));
+        assertNull(index.findColumn(bid, "noSuchColumn"));
+    }
+
+    @Test
+    public void getForeignKeysByOwningTable() {
+        assertEquals(2, index.getForeignKeys("BID").size());
+        for (org.hibernate.mapping.ForeignKey foreignKey : index.getForeignKeys("bid")) {
+            assertSame(index.findTable(null, null, "Bid"), foreignKey.getTable());
+        }
+        assertEquals(0, index.getForeignKeys("NoSuchTable").size());
+    }
+
+    @Test
+    public void findUnknownTable() {
+        assertNull(index.findTable(null, null, "NoSuchTable"));
+        assertNull(index.findTable(null, null, null));
+    }
+}
@@ -0,0 +1,102 @@
+package liquibase.ext.hibernate.database.connection;
+
+import liquibase.database.Database;
+import liquibase.database.jvm.JdbcConnection;
+import liquibase.integration.commandline.CommandLineUtils;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.sql.DatabaseMetaData;
+import java.sql.ResultSet;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class HibernateConnectionMetadataTest {
+
+    private DatabaseMetaData metaData;
+
+    @Before
+    public void setUp() throws Exception {
+        Database database = CommandLineUtils.createDatabaseObject(this.getClass().getClassLoader(), "hibernate:ejb3:auction", null, null, null, null, null, false, false, null, null, null, null, null, null, null);
+        metaData = ((JdbcConnection) database.getConnection()).getUnderlyingConnection().getMetaData();
+    }
+
+    @Test
+    public void tables() throws Exception {
+        List<String> tableNames = readColumn(metaData.getTables(null, null, null, new String[]{"TABLE"}), "TABLE_NAME");
+        assertEquals(10, tableNames.size());
+        assertTrue(tableNames.contains("Bid"));
+        assertTrue(tableNames.contains("AuditedItem_AUD"));
+
+        assertEquals(2, readColumn(metaData.getTables(null, null, "auction%", null), "TABLE_NAME").size());
+        assertEquals(1, readColumn(metaData.getTables(null, "HIBERNATE", "BID", null), "TABLE_NAME").size());
+        assertTrue(readColumn(metaData.getTables(null, null, "%", new String[]{"VIEW"}), "TABLE_NAME").isEmpty());
+    }
+
+    @Test
+    public void columns() throws Exception {
+        ResultSet columns = metaData.getColumns(null, null, "Bid", null);
+        Set<String> columnNames = new HashSet<String>();
+        while (columns.next()) {
+            columnNames.add(columns.getString("COLUMN_NAME"));
+            assertEquals(columnNames.size(), columns.getInt("ORDINAL_POSITION"));
+            assertFalse(columns.wasNull());
+        }
+        assertEquals(new HashSet<String>(readColumn(metaData.getColumns(null, null, "Bid", "%"), "COLUMN_NAME")), columnNames);
+        assertTrue(columnNames.contains("amount"));
+
+        ResultSet id = metaData.getColumns(null, null, "Bid", "id");
+        assertTrue(id.next());
+        assertEquals(DatabaseMetaData.columnNoNulls, id.getInt("NULLABLE"));
+        assertEquals("NO", id.getString("IS_NULLABLE"));
+        assertFalse(id.next());
+    }
+
+    @Test
+    public void keysAndIndexes() throws Exception {
+        assertEquals(readColumn(metaData.getPrimaryKeys(null, null, "Bid"), "COLUMN_NAME").toString(), "[id]");
+
+        List<String> importedTables = readColumn(metaData.getImportedKeys(null, null, "Bid"), "PKTABLE_NAME");
+        assertFalse(importedTables.isEmpty());
+        for (String importedTable : importedTables) {
+            List<String> foreignTables = readColumn(metaData.getExportedKeys(null, null, importedTable), "FKTABLE_NAME");
+            assertTrue(foreignTables.contains("Bid"));
+            assertEquals(1, readColumn(metaData.getCrossReference(null, null, importedTable, null, null, "Bid"), "FK_NAME").size());
+        }
+
+        ResultSet uniqueIndexes = metaData.getIndexInfo(null, null, "Item", true, false);
+        Set<String> indexedColumns = new HashSet<String>();
+        while (uniqueIndexes.next()) {
+            assertFalse(uniqueIndexes.getBoolean("NON_UNIQUE"));
+            assertEquals(1, uniqueIndexes.getShort("ORDINAL_POSITION"));
+            indexedColumns.add(uniqueIndexes.getString("COLUMN_NAME"));
+        }
+        assertTrue(indexedColumns.contains("id"));
+        assertTrue(indexedColumns.contains("name"));
+    }
+
+    @Test
+    public void noModel() throws Exception {
+        DatabaseMetaData metaData = new HibernateConnection("hibernate:classic:/path/to/file.ext").getMetaData();
+        assertFalse(metaData.getTables(null, null, null, null).next());
+        assertTrue(metaData.getTableTypes().next());
+    }
+
+    private List<String> readColumn(ResultSet resultSet, String column) throws Exception {
+        List<String> values = new ArrayList<String>();
+        try {
+            while (resultSet.next()) {
+                values.add(resultSet.getString(column));
+            }
+        } finally {
+            resultSet.close();
+        }
+        return values;
+    }
+}
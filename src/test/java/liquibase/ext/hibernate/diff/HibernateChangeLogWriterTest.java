@@ -0,0 +1,106 @@
+package liquibase.ext.hibernate.diff;
+
+import liquibase.CatalogAndSchema;
+import liquibase.change.Change;
+import liquibase.change.core.AddForeignKeyConstraintChange;
+import liquibase.change.core.CreateTableChange;
+import liquibase.changelog.ChangeLogParameters;
+import liquibase.changelog.ChangeSet;
+import liquibase.changelog.DatabaseChangeLog;
+import liquibase.database.Database;
+import liquibase.diff.DiffGeneratorFactory;
+import liquibase.diff.DiffResult;
+import liquibase.diff.compare.CompareControl;
+import liquibase.diff.output.DiffOutputControl;
+import liquibase.integration.commandline.CommandLineUtils;
+import liquibase.parser.ChangeLogParserFactory;
+import liquibase.resource.FileSystemResourceAccessor;
+import liquibase.resource.ResourceAccessor;
+import liquibase.snapshot.DatabaseSnapshot;
+import liquibase.snapshot.SnapshotControl;
+import liquibase.snapshot.SnapshotGeneratorFactory;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class HibernateChangeLogWriterTest {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private Database database;
+
+    @Before
+    public void setUp() throws Exception {
+        database = CommandLineUtils.createDatabaseObject(this.getClass().getClassLoader(), "hibernate:ejb3:auction", null, null, null, null, null, false, false, null, null, null, null, null, null, null);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        database.close();
+    }
+
+    @Test
+    public void foreignKeysFollowTheirTables() throws Exception {
+        List<ChangeSet> changeSets = createWriter().generateChangeSets();
+
+        List<String> createdTables = new ArrayList<String>();
+        int foreignKeys = 0;
+        for (ChangeSet changeSet : changeSets) {
+            for (Change change : changeSet.getChanges()) {
+                if (change instanceof CreateTableChange) {
+                    createdTables.add(((CreateTableChange) change).getTableName().toLowerCase());
+                } else if (change instanceof AddForeignKeyConstraintChange) {
+                    AddForeignKeyConstraintChange foreignKey = (AddForeignKeyConstraintChange) change;
+                    assertTrue(foreignKey.getConstraintName(), createdTables.contains(foreignKey.getBaseTableName().toLowerCase()));
+                    assertTrue(foreignKey.getConstraintName(), createdTables.contains(foreignKey.getReferencedTableName().toLowerCase()));
+                    foreignKeys++;
+                }
+            }
+        }
+        assertTrue(createdTables.contains("bid"));
+        assertTrue(foreignKeys > 0);
+    }
+
+    @Test
+    public void printStreamsParseableChangeLogs() throws Exception {
+        int expected = createWriter().generateChangeSets().size();
+        for (String extension : new String[]{"xml", "yaml", "json", "h2.sql"}) {
+            File file = new File(temporaryFolder.getRoot(), "changelog." + extension);
+            createWriter().print(file.getPath());
+
+            assertEquals(extension, expected, parse(file).getChangeSets().size());
+        }
+    }
+
+    @Test
+    public void printPerTable() throws Exception {
+        int expected = createWriter().generateChangeSets().size();
+        File directory = new File(temporaryFolder.getRoot(), "changelog");
+        File master = createWriter().printPerTable(directory, "xml");
+
+        assertEquals(new File(directory, "changelog.xml"), master);
+        assertTrue(new File(directory, "tables/Bid.xml").isFile());
+        assertEquals(expected, parse(master).getChangeSets().size());
+    }
+
+    private HibernateChangeLogWriter createWriter() throws Exception {
+        DatabaseSnapshot snapshot = SnapshotGeneratorFactory.getInstance().createSnapshot(CatalogAndSchema.DEFAULT, database, new SnapshotControl(database));
+        DiffResult diffResult = DiffGeneratorFactory.getInstance().compare(snapshot, null, new CompareControl());
+        return new HibernateChangeLogWriter(diffResult, new DiffOutputControl(false, false, false, null));
+    }
+
+    private DatabaseChangeLog parse(File file) throws Exception {
+        ResourceAccessor resourceAccessor = new FileSystemResourceAccessor();
+        return ChangeLogParserFactory.getInstance().getParser(file.getPath(), resourceAccessor).parse(file.getPath(), new ChangeLogParameters(), resourceAccessor);
+    }
+}
@@ -0,0 +1,111 @@
+package liquibase.ext.hibernate.diff;
+
+import liquibase.database.Database;
+import liquibase.database.DatabaseFactory;
+import liquibase.database.jvm.JdbcConnection;
+import liquibase.diff.DiffResult;
+import liquibase.diff.compare.CompareControl;
+import liquibase.ext.hibernate.database.HibernateDatabase;
+import liquibase.integration.commandline.CommandLineUtils;
+import liquibase.structure.core.Table;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class HibernateFingerprintDiffTest {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private HibernateDatabase hibernateDatabase;
+    private Database database;
+    private Connection connection;
+
+    @Before
+    public void setUp() throws Exception {
+        hibernateDatabase = (HibernateDatabase) CommandLineUtils.createDatabaseObject(this.getClass().getClassLoader(), "hibernate:ejb3:auction", null, null, null, null, null, false, false, null, null, null, null, null, null, null);
+        connection = DriverManager.getConnection("jdbc:hsqldb:mem:fingerprints" + System.currentTimeMillis(), "SA", "");
+        connection.createStatement().execute("CREATE TABLE OBSOLETE (ID INTEGER)");
+        database = DatabaseFactory.getInstance().findCorrectDatabaseImplementation(new JdbcConnection(connection));
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        hibernateDatabase.close();
+        connection.close();
+    }
+
+    @Test
+    public void comparesOnlyChangedTables() throws Exception {
+        File stateFile = new File(temporaryFolder.getRoot(), "fingerprints.txt");
+        HibernateFingerprintDiff diff = new HibernateFingerprintDiff(hibernateDatabase, database, stateFile);
+
+        DiffResult fullDiff = diff.compare(new CompareControl());
+        assertNull(diff.getChangedKeys());
+        assertTrue(fullDiff.getMissingObjects(Table.class).size() > 1);
+        assertEquals(1, fullDiff.getUnexpectedObjects(Table.class).size());
+        diff.markApplied();
+
+        DiffResult emptyDiff = diff.compare(new CompareControl());
+        assertEquals(0, diff.getChangedKeys().size());
+        assertEquals(0, emptyDiff.getMissingObjects(Table.class).size());
+        assertEquals(0, emptyDiff.getUnexpectedObjects(Table.class).size());
+
+        String state = new String(read(stateFile), "UTF-8");
+        state = state.replaceFirst("(?m)^(table:Bid) .*$", "$1 changed") + "table:OBSOLETE removed\n";
+        write(stateFile, state.getBytes("UTF-8"));
+
+        DiffResult changedDiff = diff.compare(new CompareControl());
+        assertEquals(new HashSet<String>(Arrays.asList("table:Bid", "table:OBSOLETE")), diff.getChangedKeys());
+        assertEquals(new HashSet<String>(Arrays.asList("bid")), getNames(changedDiff.getMissingObjects(Table.class)));
+        assertEquals(new HashSet<String>(Arrays.asList("obsolete")), getNames(changedDiff.getUnexpectedObjects(Table.class)));
+    }
+
+    private Set<String> getNames(Set<Table> tables) {
+        Set<String> names = new HashSet<String>();
+        for (Table table : tables) {
+            names.add(table.getName().toLowerCase());
+        }
+        return names;
+    }
+
+    private byte[] read(File file) throws Exception {
+        InputStream in = new FileInputStream(file);
+        try {
+            byte[] content = new byte[(int) file.length()];
+            int offset = 0;
+            while (offset < content.length) {
+                offset += in.read(content, offset, content.length - offset);
+            }
+            return content;
+        } finally {
+            in.close();
+        }
+    }
+
+    private void write(File file, byte[] content) throws Exception {
+        OutputStream out = new FileOutputStream(file);
+        try {
+            out.write(content);
+        } finally {
+            out.close();
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package liquibase.ext.hibernate.diff;
+
+import liquibase.database.Database;
+import liquibase.database.DatabaseFactory;
+import liquibase.database.jvm.JdbcConnection;
+import liquibase.diff.DiffResult;
+import liquibase.diff.compare.CompareControl;
+import liquibase.ext.hibernate.database.HibernateDatabase;
+import liquibase.ext.hibernate.snapshot.HibernateTargetedSnapshot;
+import liquibase.integration.commandline.CommandLineUtils;
+import liquibase.snapshot.DatabaseSnapshot;
+import liquibase.structure.core.Column;
+import liquibase.structure.core.Table;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class HibernateTargetedDiffTest {
+
+    private HibernateDatabase hibernateDatabase;
+    private Database database;
+    private Connection connection;
+
+    @Before
+    public void setUp() throws Exception {
+        hibernateDatabase = (HibernateDatabase) CommandLineUtils.createDatabaseObject(this.getClass().getClassLoader(), "hibernate:ejb3:auction", null, null, null, null, null, false, false, null, null, null, null, null, null, null);
+        connection = DriverManager.getConnection("jdbc:hsqldb:mem:targeted" + System.currentTimeMillis(), "SA", "");
+        connection.createStatement().execute("CREATE TABLE OTHER_APP (ID INTEGER PRIMARY KEY)");
+        connection.createStatement().execute("CREATE TABLE BID (ID BIGINT PRIMARY KEY, OTHER_APP_ID INTEGER, FOREIGN KEY (OTHER_APP_ID) REFERENCES OTHER_APP (ID))");
+        database = DatabaseFactory.getInstance().findCorrectDatabaseImplementation(new JdbcConnection(connection));
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        hibernateDatabase.close();
+        connection.close();
+    }
+
+    @Test
+    public void ignoresUnmappedTables() throws Exception {
+        DiffResult diff = new HibernateTargetedDiff(hibernateDatabase, database).compare(new CompareControl());
+
+        assertEquals(0, diff.getUnexpectedObjects(Table.class).size());
+        Set<String> missing = new HashSet<String>();
+        for (Table table : diff.getMissingObjects(Table.class)) {
+            missing.add(table.getName().toLowerCase());
+        }
+        assertFalse(missing.contains("bid"));
+        assertTrue(missing.contains("auctionitem"));
+
+        Set<String> unexpectedColumns = new HashSet<String>();
+        for (Column column : diff.getUnexpectedObjects(Column.class)) {
+            unexpectedColumns.add(column.getRelation().getName().toLowerCase() + "." + column.getName().toLowerCase());
+        }
+        assertTrue(unexpectedColumns.contains("bid.other_app_id"));
+        assertFalse(unexpectedColumns.contains("other_app.id"));
+    }
+
+    @Test
+    public void snapshotsOnlyExampleTables() throws Exception {
+        Set<String> tableNames = new HashSet<String>();
+        tableNames.add("Bid");
+        DatabaseSnapshot snapshot = HibernateTargetedSnapshot.create(tableNames, new HashSet<String>(), database);
+
+        assertEquals(1, snapshot.get(Table.class).size());
+        Table bid = snapshot.get(Table.class).iterator().next();
+        assertEquals("BID", bid.getName());
+        assertNotNull(bid.getColumn("OTHER_APP_ID"));
+        assertNull(snapshot.get(new Table().setName("OTHER_APP").setSchema(bid.getSchema())));
+    }
+}
@@ -0,0 +1,84 @@
+package liquibase.ext.hibernate.diff.compare;
+
+import liquibase.diff.compare.DatabaseObjectComparatorFactory;
+import liquibase.ext.hibernate.database.HibernateDatabase;
+import liquibase.ext.hibernate.database.HibernateEjb3Database;
+import liquibase.structure.DatabaseObject;
+import liquibase.structure.core.Column;
+import liquibase.structure.core.ForeignKey;
+import liquibase.structure.core.Index;
+import liquibase.structure.core.Table;
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class HibernateDatabaseObjectComparatorTest {
+
+    private final HibernateDatabase database = new HibernateEjb3Database();
+
+    @Test
+    public void tablesAndColumns() {
+        Table table = new Table().setName("AuctionItem");
+        assertArrayEquals(new String[]{"auctionitem"}, hash(table));
+        assertTrue(isSameObject(table, new Table().setName("AUCTIONITEM")));
+        assertFalse(isSameObject(table, new Table().setName("Bid")));
+
+        Column column = new Column().setName("ownerId").setRelation(table);
+        assertArrayEquals(new String[]{"auctionitem:ownerid"}, hash(column));
+        assertTrue(isSameObject(column, new Column().setName("OWNERID").setRelation(new Table().setName("auctionitem"))));
+        assertFalse(isSameObject(column, new Column().setName("ownerId").setRelation(new Table().setName("Bid"))));
+    }
+
+    @Test
+    public void foreignKeysMatchByNameOrColumns() {
+        ForeignKey foreignKey = createForeignKey("FK_BID_ITEM", "Bid", "item_id", "AuctionItem", "id");
+        assertEquals(Arrays.asList("fk_bid_item", "bid(item_id)>auctionitem(id)"), Arrays.asList(hash(foreignKey)));
+
+        assertTrue(isSameObject(foreignKey, createForeignKey("fk_bid_item", "Bid", "bidder_id", "User", "id")));
+        assertTrue(isSameObject(foreignKey, createForeignKey("FK1", "BID", "ITEM_ID", "AUCTIONITEM", "ID")));
+        assertFalse(isSameObject(foreignKey, createForeignKey("FK1", "Bid", "item_id", "User", "id")));
+    }
+
+    @Test
+    public void indexesMatchByNameOrColumns() {
+        Index index = createIndex("IDX_BID_ITEM", "Bid", "item_id");
+        assertEquals(Arrays.asList("idx_bid_item", "bid#idx_bid_item", "bid(item_id)"), Arrays.asList(hash(index)));
+
+        assertTrue(isSameObject(index, createIndex("idx_bid_item", "BID", "amount")));
+        assertTrue(isSameObject(index, createIndex("IDX1", "BID", "ITEM_ID")));
+        assertFalse(isSameObject(index, createIndex("IDX1", "Bid", "amount")));
+        assertFalse(isSameObject(index, createIndex("IDX_BID_ITEM", "AuctionItem", "item_id")));
+    }
+
+    private ForeignKey createForeignKey(String name, String tableName, String columnName, String referencedTableName, String referencedColumnName) {
+        Table table = new Table().setName(tableName);
+        Table referencedTable = new Table().setName(referencedTableName);
+        ForeignKey foreignKey = new ForeignKey();
+        foreignKey.setName(name);
+        foreignKey.setForeignKeyTable(table);
+        foreignKey.setPrimaryKeyTable(referencedTable);
+        foreignKey.addForeignKeyColumn(new Column().setName(columnName).setRelation(table));
+        foreignKey.addPrimaryKeyColumn(new Column().setName(referencedColumnName).setRelation(referencedTable));
+        return foreignKey;
+    }
+
+    private Index createIndex(String name, String tableName, String columnName) {
+        Table table = new Table().setName(tableName);
+        Index index = new Index().setName(name).setTable(table);
+        index.addColumn(new Column().setName(columnName).setRelation(table));
+        return index;
+    }
+
+    private String[] hash(DatabaseObject object) {
+        return DatabaseObjectComparatorFactory.getInstance().hash(object, null, database);
+    }
+
+    private boolean isSameObject(DatabaseObject object1, DatabaseObject object2) {
+        return DatabaseObjectComparatorFactory.getInstance().isSameObject(object1, object2, null, database);
+    }
+}
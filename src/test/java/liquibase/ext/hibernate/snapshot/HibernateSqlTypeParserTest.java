@@ -0,0 +1,48 @@
+package liquibase.ext.hibernate.snapshot;
+
+import liquibase.structure.core.DataType;
+import org.junit.Test;
+
+import java.sql.Types;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+public class HibernateSqlTypeParserTest {
+
+    @Test
+    public void parseDecimalDigits() {
+        DataType numeric = HibernateSqlTypeParser.parseDataType("numeric(19, 2)", Types.NUMERIC);
+        assertEquals("numeric", numeric.getTypeName());
+        assertEquals(19, numeric.getColumnSize().intValue());
+        assertEquals(2, numeric.getDecimalDigits().intValue());
+        assertEquals(Types.NUMERIC, numeric.getDataTypeId().intValue());
+    }
+
+    @Test
+    public void parseInvalidType() {
+        assertNull(HibernateSqlTypeParser.parseDataType("varchar(10) (20)", Types.VARCHAR));
+        assertNull(new HibernateSqlTypeParser().parse("varchar(10) (20)", Types.VARCHAR).toDataType());
+    }
+
+    @Test
+    public void parseDefaultClause() {
+        HibernateSqlTypeParser.ParsedType parsedType = new HibernateSqlTypeParser().parse("varchar(20) default 'NEW'", Types.VARCHAR);
+        assertEquals("'NEW'", parsedType.getDefaultValue());
+        assertEquals("varchar", parsedType.toDataType().getTypeName());
+        assertEquals(20, parsedType.toDataType().getColumnSize().intValue());
+
+        assertNull(new HibernateSqlTypeParser().parse("defaultType", Types.OTHER).getDefaultValue());
+    }
+
+    @Test
+    public void parseIsCached() {
+        HibernateSqlTypeParser parser = new HibernateSqlTypeParser();
+        HibernateSqlTypeParser.ParsedType parsedType = parser.parse("varchar(255)", Types.VARCHAR);
+        assertSame(parsedType, parser.parse("varchar(255)", Types.VARCHAR));
+        assertNotSame(parsedType, parser.parse("varchar(255)", Types.NVARCHAR));
+        assertNotSame(parsedType.toDataType(), parsedType.toDataType());
+    }
+}
@@ -0,0 +1,202 @@
+package liquibase.ext.hibernate.snapshot;
+
+import liquibase.CatalogAndSchema;
+import liquibase.database.Database;
+import liquibase.ext.hibernate.database.HibernateDatabase;
+import liquibase.ext.hibernate.database.HibernateProfiler;
+import liquibase.integration.commandline.CommandLineUtils;
+import liquibase.snapshot.DatabaseSnapshot;
+import liquibase.snapshot.SnapshotControl;
+import liquibase.snapshot.SnapshotGeneratorFactory;
+import liquibase.structure.core.Column;
+import liquibase.structure.core.ForeignKey;
+import liquibase.structure.core.Index;
+import liquibase.structure.core.Sequence;
+import liquibase.structure.core.Table;
+import liquibase.structure.core.UniqueConstraint;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class TableSnapshotGeneratorTest {
+
+    private static final String URL = "hibernate:classic:com/example/pojo/Hibernate.cfg.xml";
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void parallelSnapshotMatchesDefaultSnapshot() throws Exception {
+        DatabaseSnapshot snapshot = snapshot(URL);
+        DatabaseSnapshot parallelSnapshot = snapshot(URL + "?hibernate.snapshot_threads=4");
+
+        assertNull(snapshot.getScratchData("liquibase-hibernate.bulkTables"));
+        assertNotNull(parallelSnapshot.getScratchData("liquibase-hibernate.bulkTables"));
+
+        List<String> tables = describe(snapshot);
+        assertFalse(tables.isEmpty());
+        assertEquals(tables, describe(parallelSnapshot));
+    }
+
+    @Test
+    public void bulkSnapshotMatchesDefaultSnapshot() throws Exception {
+        String url = "hibernate:ejb3:auction";
+        DatabaseSnapshot snapshot = snapshot(url + "?" + HibernateProfiler.REPORT_PROPERTY + "=" + new File(temporaryFolder.getRoot(), "default.json").getPath());
+        DatabaseSnapshot bulkSnapshot = snapshot(url + "?" + HibernateDatabase.BULK_SNAPSHOT_PROPERTY + "=true&" + HibernateProfiler.REPORT_PROPERTY + "=" + new File(temporaryFolder.getRoot(), "bulk.json").getPath());
+
+        assertTrue(((HibernateDatabase) bulkSnapshot.getDatabase()).isBulkSnapshot());
+        assertNotNull(bulkSnapshot.getScratchData("liquibase-hibernate.bulkTables"));
+
+        List<String> tables = describeInOrder(snapshot);
+        assertFalse(tables.isEmpty());
+        assertEquals(tables, describeInOrder(bulkSnapshot));
+        assertEquals(snapshot.get(ForeignKey.class).size(), bulkSnapshot.get(ForeignKey.class).size());
+        assertEquals(describeSequences(snapshot), describeSequences(bulkSnapshot));
+
+        // the generators populate each table from the hibernate table found once by the bulk snapshot
+        assertTrue(getFindTableCount(bulkSnapshot, ColumnSnapshotGenerator.class) < getFindTableCount(snapshot, ColumnSnapshotGenerator.class));
+        assertTrue(getFindTableCount(snapshot, PrimaryKeySnapshotGenerator.class) > 0);
+        assertEquals(0, getFindTableCount(bulkSnapshot, PrimaryKeySnapshotGenerator.class));
+        assertEquals(0, getFindTableCount(bulkSnapshot, UniqueConstraintSnapshotGenerator.class));
+        ((HibernateDatabase) snapshot.getDatabase()).getProfiler().removeShutdownHook();
+        ((HibernateDatabase) bulkSnapshot.getDatabase()).getProfiler().removeShutdownHook();
+    }
+
+    @Test
+    public void parallelSnapshotKeepsObjectOrder() throws Exception {
+        String url = "hibernate:ejb3:auction";
+        DatabaseSnapshot snapshot = snapshot(url);
+        DatabaseSnapshot parallelSnapshot = snapshot(url + "?hibernate.snapshot_threads=4");
+
+        assertEquals(4, ((HibernateDatabase) parallelSnapshot.getDatabase()).getSnapshotThreads());
+
+        List<String> tables = describeInOrder(snapshot);
+        assertFalse(tables.isEmpty());
+        assertEquals(tables, describeInOrder(parallelSnapshot));
+        assertEquals(snapshot.get(ForeignKey.class).size(), parallelSnapshot.get(ForeignKey.class).size());
+    }
+
+    @Test
+    public void generatorsShareColumns() throws Exception {
+        DatabaseSnapshot snapshot = snapshot("hibernate:ejb3:auction");
+        Table auctionItem = snapshot.get((Table) new Table().setName("AuctionItem").setSchema(snapshot.getDatabase().getDefaultCatalogName(), snapshot.getDatabase().getDefaultSchemaName()));
+        assertNotNull(auctionItem);
+
+        // populates a table outside of the snapshot, so the snapshot does not replace the objects when including them
+        Table table = new Table().setName("Bid");
+        table.setSchema(auctionItem.getSchema());
+        new PrimaryKeySnapshotGenerator().addTo(table, snapshot);
+        new UniqueConstraintSnapshotGenerator().addTo(table, snapshot);
+        new IndexSnapshotGenerator().addTo(table, snapshot);
+        new ForeignKeySnapshotGenerator().addTo(table, snapshot);
+        new ColumnSnapshotGenerator().addTo(table, snapshot);
+
+        assertNotNull(table.getPrimaryKey());
+        assertSameColumns(table, table.getPrimaryKey().getColumns());
+        for (Index index : table.getIndexes()) {
+            assertSameColumns(table, index.getColumns());
+        }
+        assertFalse(table.getOutgoingForeignKeys().isEmpty());
+        for (ForeignKey foreignKey : table.getOutgoingForeignKeys()) {
+            assertSame(table, foreignKey.getForeignKeyTable());
+            assertSameColumns(table, foreignKey.getForeignKeyColumns());
+            if (foreignKey.getPrimaryKeyTable().getName().equalsIgnoreCase("AuctionItem")) {
+                assertSame(auctionItem, foreignKey.getPrimaryKeyTable());
+                assertSameColumns(auctionItem, foreignKey.getPrimaryKeyColumns());
+            }
+        }
+    }
+
+    private long getFindTableCount(DatabaseSnapshot snapshot, Class<? extends HibernateSnapshotGenerator> generator) {
+        for (HibernateProfiler.Timing timing : ((HibernateDatabase) snapshot.getDatabase()).getProfiler().getTimings()) {
+            if (timing.getCategory().equals(HibernateProfiler.FIND_TABLE) && timing.getName().equals(generator.getName())) {
+                return timing.getCount();
+            }
+        }
+        return 0;
+    }
+
+    private List<String> describeSequences(DatabaseSnapshot snapshot) {
+        List<String> sequences = new ArrayList<String>();
+        for (Sequence sequence : snapshot.get(Sequence.class)) {
+            sequences.add(sequence.getName());
+        }
+        Collections.sort(sequences);
+        return sequences;
+    }
+
+    private void assertSameColumns(Table table, List<Column> columns) {
+        for (Column column : columns) {
+            assertSame(table.getName() + "." + column.getName(), table.getColumn(column.getName()), column);
+        }
+    }
+
+    private DatabaseSnapshot snapshot(String url) throws Exception {
+        Database database = CommandLineUtils.createDatabaseObject(this.getClass().getClassLoader(), url, null, null, null, null, null, false, false, null, null, null, null, null, null, null);
+        return SnapshotGeneratorFactory.getInstance().createSnapshot(CatalogAndSchema.DEFAULT, database, new SnapshotControl(database));
+    }
+
+    private List<String> describe(DatabaseSnapshot snapshot) {
+        List<String> lines = new ArrayList<String>();
+        for (Table table : snapshot.get(Table.class)) {
+            lines.add("T " + table.getName() + " pk=" + (table.getPrimaryKey() == null ? null : table.getPrimaryKey().getName()));
+            for (Column column : table.getColumns()) {
+                lines.add("C " + table.getName() + "." + column.getName() + " " + column.getType() + " " + column.isNullable() + " " + column.getDefaultValue());
+            }
+            for (Index index : table.getIndexes()) {
+                lines.add("I " + table.getName() + "." + index.getName() + " " + index.getColumnNames());
+            }
+            for (UniqueConstraint uniqueConstraint : table.getUniqueConstraints()) {
+                lines.add("U " + table.getName() + "." + uniqueConstraint.getName() + " " + uniqueConstraint.getColumnNames());
+            }
+            for (ForeignKey foreignKey : table.getOutgoingForeignKeys()) {
+                lines.add("F " + table.getName() + "." + foreignKey.getName() + " " + foreignKey.getPrimaryKeyTable().getName());
+            }
+        }
+        Collections.sort(lines);
+        return lines;
+    }
+
+    /**
+     * Describes the tables sorted by name, keeping the order of the objects within each table.
+     */
+    private List<String> describeInOrder(DatabaseSnapshot snapshot) {
+        List<Table> tables = new ArrayList<Table>(snapshot.get(Table.class));
+        Collections.sort(tables, new Comparator<Table>() {
+            @Override
+            public int compare(Table o1, Table o2) {
+                return o1.getName().compareTo(o2.getName());
+            }
+        });
+        List<String> lines = new ArrayList<String>();
+        for (Table table : tables) {
+            lines.add("T " + table.getName() + " pk=" + (table.getPrimaryKey() == null ? null : table.getPrimaryKey().getName()));
+            for (Column column : table.getColumns()) {
+                lines.add("C " + column.getName() + " " + column.getType() + " " + column.isNullable() + " " + column.getDefaultValue());
+            }
+            for (Index index : table.getIndexes()) {
+                lines.add("I " + index.getName() + " " + index.getColumnNames());
+            }
+            for (UniqueConstraint uniqueConstraint : table.getUniqueConstraints()) {
+                lines.add("U " + uniqueConstraint.getName() + " " + uniqueConstraint.getColumnNames());
+            }
+            for (ForeignKey foreignKey : table.getOutgoingForeignKeys()) {
+                lines.add("F " + foreignKey.getName() + " " + foreignKey.getPrimaryKeyTable().getName() + " " + foreignKey.getForeignKeyColumns());
+            }
+        }
+        return lines;
+    }
+}